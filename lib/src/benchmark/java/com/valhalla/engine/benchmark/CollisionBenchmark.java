@@ -0,0 +1,136 @@
+package com.valhalla.engine.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.valhalla.engine.collision.Collider;
+import com.valhalla.engine.collision.CollisionWorld;
+
+/**
+ * Benchmark for the {@link CollisionWorld}: moves a crowd of colliders every tick and measures how long a step takes.<br>
+ * <br>
+ * Colliders are boxes of 8 to 32 pixels moving up to 2 pixels per tick in a square area that grows with their amount, bouncing off its edges,
+ * and every collision callback is counted so dispatching them is part of the measured time.
+ * The benchmark fails (exit code 1) when the 99th percentile of the step time does not fit in one tick at the given tick rate.<br>
+ * <br>
+ * Run it with <code>gradle collisionBenchmark</code> or<br>
+ * <code>java com.valhalla.engine.benchmark.CollisionBenchmark [colliders] [ticks] [tick rate]</code><br>
+ * which defaults to 20000 colliders, 1200 measured ticks and 60 ticks per second.
+ * @author BauwenDR
+ */
+public class CollisionBenchmark {
+
+	private static final int _WARMUP_TICKS = 600;
+
+	private static long _enters, _stays, _exits;
+
+	/**
+	 * Box that moves in a straight line and counts its collision callbacks.
+	 */
+	private static final class Box implements Collider {
+		float x, y, width, height, speedX, speedY;
+
+		@Override
+		public float getMinX() {
+			return x;
+		}
+
+		@Override
+		public float getMinY() {
+			return y;
+		}
+
+		@Override
+		public float getMaxX() {
+			return x + width;
+		}
+
+		@Override
+		public float getMaxY() {
+			return y + height;
+		}
+
+		@Override
+		public void onCollisionEnter(Collider other) {
+			_enters++;
+		}
+
+		@Override
+		public void onCollisionStay(Collider other) {
+			_stays++;
+		}
+
+		@Override
+		public void onCollisionExit(Collider other) {
+			_exits++;
+		}
+
+		void move(float size) {
+			x += speedX;
+			y += speedY;
+			if(x < 0 || x > size) {
+				speedX = -speedX;
+			}
+			if(y < 0 || y > size) {
+				speedY = -speedY;
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark and prints the step times.
+	 * @param args <b>(String[])</b> [colliders] [ticks] [tick rate]
+	 */
+	public static void main(String[] args) {
+		int colliders = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 1200;
+		double tickRate = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+
+		Random random = new Random(42);
+		float size = (float) Math.sqrt(colliders) * 40;
+		CollisionWorld world = new CollisionWorld();
+		Box[] boxes = new Box[colliders];
+		for(int index = 0; index < colliders; index++) {
+			Box box = new Box();
+			box.x = random.nextFloat() * size;
+			box.y = random.nextFloat() * size;
+			box.width = 8 + random.nextFloat() * 24;
+			box.height = 8 + random.nextFloat() * 24;
+			box.speedX = random.nextFloat() * 4 - 2;
+			box.speedY = random.nextFloat() * 4 - 2;
+			boxes[index] = box;
+			world.add(box);
+		}
+
+		long[] stepTimes = new long[ticks];
+		for(int tick = -_WARMUP_TICKS; tick < ticks; tick++) {
+			for(Box box : boxes) {
+				box.move(size);
+			}
+			world.step();
+			if(tick >= 0) {
+				stepTimes[tick] = world.getLastStepTime();
+			}
+		}
+
+		long total = 0;
+		for(long stepTime : stepTimes) {
+			total += stepTime;
+		}
+		Arrays.sort(stepTimes);
+		double budget = 1000 / tickRate;
+		double average = total / 1e6 / ticks;
+		double percentile = stepTimes[Math.min(ticks - 1, (int) Math.ceil(ticks * 0.99) - 1)] / 1e6;
+		double maximum = stepTimes[ticks - 1] / 1e6;
+
+		System.out.printf("%d colliders, %d ticks after %d warm-up ticks, %d contacts in the last tick%n", colliders, ticks, _WARMUP_TICKS, world.getContactCount());
+		System.out.printf("step time: average %.3f ms, p99 %.3f ms, max %.3f ms (budget %.3f ms at %.0f ticks per second)%n", average, percentile, maximum, budget, tickRate);
+		System.out.printf("callbacks: %d enter, %d stay, %d exit%n", _enters, _stays, _exits);
+
+		boolean fits = percentile <= budget;
+		System.out.println(fits ? "PASS: the p99 step fits in one tick" : "FAIL: the p99 step does not fit in one tick");
+		if(!fits) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.valhalla.engine.benchmark;
+
+import java.util.Hashtable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.valhalla.engine.BaseClass;
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.Handler;
+import com.valhalla.engine.internal.CommandQueue;
+
+/**
+ * Benchmark for queueing Handler mutations from many threads at once.<br>
+ * <br>
+ * Every producer thread adds and then removes its own objects, while one consumer drains the commands like {@link Handler} does at the end of a tick.
+ * Three queues are measured with the same load:
+ * <ul>
+ * <li>the lock-free {@link CommandQueue} used by the Handler, drained by a consumer thread,</li>
+ * <li>the synchronized queues the Handler used before: a Hashtable for adds and a LinkedBlockingQueue for removes,</li>
+ * <li>{@link Handler#addClass} and {@link Handler#removeClass} themselves, drained by the ticks of a headless {@link GameLoop}.</li>
+ * </ul>
+ * Run it with <code>gradle commandQueueBenchmark</code> or<br>
+ * <code>java com.valhalla.engine.benchmark.CommandQueueBenchmark [producers] [objects per producer] [rounds]</code><br>
+ * which defaults to 8 producers, 200000 objects per producer and 5 rounds, the best round of every queue is printed.
+ * @author BauwenDR
+ */
+public class CommandQueueBenchmark {
+
+	private static final int _ADD = 0, _REMOVE = 1;
+
+	/**
+	 * Empty BaseClass, only used as subject of the commands.
+	 */
+	private static final class Dummy extends BaseClass {
+		@Override
+		public void tick() {}
+
+		@Override
+		public void render() {}
+	}
+
+	/**
+	 * Work of one producer thread.
+	 */
+	private interface Producer {
+		void produce(Dummy[] objects);
+	}
+
+	/**
+	 * Runs the benchmark and prints the throughput of every queue.
+	 * @param args <b>(String[])</b> [producers] [objects per producer] [rounds]
+	 */
+	public static void main(String[] args) throws Exception {
+		int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+		int objects = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Dummy[][] subjects = new Dummy[producers][objects];
+		for(Dummy[] row : subjects) {
+			for(int index = 0; index < objects; index++) {
+				row[index] = new Dummy();
+			}
+		}
+		long commands = 2L * producers * objects;
+
+		GameLoop loop = new GameLoop(60, System.out);
+		long lockFree = Long.MAX_VALUE, synchronizedQueues = Long.MAX_VALUE, handler = Long.MAX_VALUE;
+		for(int round = 0; round < rounds; round++) {
+			lockFree = Math.min(lockFree, runCommandQueue(subjects, commands));
+			synchronizedQueues = Math.min(synchronizedQueues, runSynchronizedQueues(subjects, commands));
+			handler = Math.min(handler, runHandler(loop, subjects));
+		}
+
+		System.out.printf("%d producers, %d commands per round, best of %d rounds on %d cores%n", producers, commands, rounds, Runtime.getRuntime().availableProcessors());
+		print("CommandQueue", commands, lockFree);
+		print("Hashtable + LinkedBlockingQueue (before)", commands, synchronizedQueues);
+		print("Handler.addClass/removeClass", commands, handler);
+		System.out.printf("CommandQueue is %.2fx the throughput of the synchronized queues%n", (double) synchronizedQueues / lockFree);
+		System.exit(0);
+	}
+
+	private static void print(String name, long commands, long nanoseconds) {
+		System.out.printf("%-42s %8.1f ms, %6.2f million commands per second%n", name, nanoseconds / 1e6, commands * 1e3 / nanoseconds);
+	}
+
+	/**
+	 * Offers every command to a CommandQueue the way Handler.queueCommand does and drains it on one consumer thread.
+	 */
+	private static long runCommandQueue(Dummy[][] subjects, long commands) throws InterruptedException {
+		CommandQueue queue = new CommandQueue(4096);
+		long[] drained = {0};
+		CommandQueue.Consumer consumer = (command, subject, argument, time) -> drained[0]++;
+		Thread drainer = new Thread(() -> {
+			while(drained[0] < commands) {
+				if(queue.drain(consumer) == 0) {
+					Thread.yield();		//let the producers run, they may share the core
+				}
+			}
+		});
+		return run(subjects, drainer, row -> {
+			for(Dummy object : row) {
+				while(!queue.offer(_ADD, object, 1)) {
+					Thread.yield();		//full, the Handler spills into its overflow queue instead
+				}
+				while(!queue.offer(_REMOVE, object, 0)) {
+					Thread.yield();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Puts every command in the queues the Handler used before the CommandQueue, drained by one consumer thread.
+	 */
+	private static long runSynchronizedQueues(Dummy[][] subjects, long commands) throws InterruptedException {
+		Hashtable<BaseClass, Integer> addQueue = new Hashtable<>();
+		LinkedBlockingQueue<BaseClass> removeQueue = new LinkedBlockingQueue<>();
+		AtomicInteger sink = new AtomicInteger();
+		Thread drainer = new Thread(() -> {
+			long drained = 0;
+			while(drained < commands) {
+				long before = drained;
+				synchronized(addQueue) {
+					for(Integer layer : addQueue.values()) {
+						sink.lazySet(layer);
+					}
+					drained += addQueue.size();
+					addQueue.clear();
+				}
+				BaseClass removed;
+				while((removed = removeQueue.poll()) != null) {
+					sink.lazySet(removed.hashCode());
+					drained++;
+				}
+				if(drained == before) {
+					Thread.yield();		//let the producers run, they may share the core
+				}
+			}
+		});
+		return run(subjects, drainer, row -> {
+			for(Dummy object : row) {
+				addQueue.put(object, 1);
+				removeQueue.add(object);
+			}
+		});
+	}
+
+	/**
+	 * Adds and removes every object through the Handler, while the GameLoop ticks on this thread and empties its queue every tick.
+	 */
+	private static long runHandler(GameLoop loop, Dummy[][] subjects) throws InterruptedException {
+		Handler handler = loop.getHandler();
+		CountDownLatch done = new CountDownLatch(subjects.length);
+		Thread ticker = new Thread(() -> {
+			while(done.getCount() > 0) {
+				loop.fastForward(1);
+			}
+			loop.fastForward(1);
+		});
+		long time = run(subjects, ticker, row -> {
+			for(Dummy object : row) {
+				handler.addClass(object, 1);
+				handler.removeClass(object);
+			}
+			done.countDown();
+		});
+		for(Dummy[] row : subjects) {
+			if(handler.isClassPresentInHandler(row[row.length - 1])) {
+				throw new IllegalStateException("BaseEngine: a removed object is still in the Handler");
+			}
+		}
+		return time;
+	}
+
+	/**
+	 * Starts the consumer and all producers at once and waits for the consumer to finish.
+	 * @return (Long) the time from starting the producers until everything was consumed, in nanoseconds.
+	 */
+	private static long run(Dummy[][] subjects, Thread consumer, Producer producer) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[subjects.length];
+		for(int thread = 0; thread < threads.length; thread++) {
+			Dummy[] row = subjects[thread];
+			threads[thread] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				producer.produce(row);
+			});
+			threads[thread].start();
+		}
+		consumer.start();
+		long begin = System.nanoTime();
+		start.countDown();
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		consumer.join();
+		return System.nanoTime() - begin;
+	}
+}
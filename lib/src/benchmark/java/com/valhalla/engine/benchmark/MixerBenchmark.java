@@ -0,0 +1,92 @@
+package com.valhalla.engine.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.io.MixerSound;
+import com.valhalla.engine.io.NullAudioSink;
+import com.valhalla.engine.io.SoftwareMixer;
+
+/**
+ * Benchmark for the {@link SoftwareMixer}: mixes an increasing amount of looping voices into a {@link NullAudioSink} as fast as possible and measures the cost per voice.<br>
+ * <br>
+ * Voices play a one second 22050Hz mono sound with a random pitch and pan, so every voice is resampled and panned like a sound effect in a game.
+ * A block of {@link SoftwareMixer#BLOCK_FRAMES} frames lasts about 11.6ms, the amount of voices that can be mixed within that time on one core is printed as well.<br>
+ * <br>
+ * Run it with <code>gradle mixerBenchmark</code> or<br>
+ * <code>java com.valhalla.engine.benchmark.MixerBenchmark [maximum voices] [blocks]</code><br>
+ * which defaults to 256 voices and 2000 measured blocks per voice count.
+ * @author BauwenDR
+ */
+public class MixerBenchmark {
+
+	private static final int _WARMUP_BLOCKS = 500;
+
+	/**
+	 * Runs the benchmark and prints the mixing cost for every amount of voices.
+	 * @param args <b>(String[])</b> [maximum voices] [blocks]
+	 * @throws IOException if the test sound can not be written
+	 * @throws UnsupportedAudioFileException if the test sound can not be read back
+	 */
+	public static void main(String[] args) throws IOException, UnsupportedAudioFileException {
+		int maximumVoices = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+		int blocks = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+		MixerSound sound = SoftwareMixer.loadSound(writeTestSound().getPath());
+		double blockNanos = SoftwareMixer.BLOCK_FRAMES / SoftwareMixer.SAMPLE_RATE * 1e9;
+		Random random = new Random(42);
+
+		SoftwareMixer warmup = new SoftwareMixer(new NullAudioSink());		//compiles the mixing loop before the first measurement
+		for(int voice = 0; voice < 64; voice++) {
+			warmup.play(sound, 0.5f, 0.5f + random.nextFloat(), 0, true);
+		}
+		warmup.mixBlocks(_WARMUP_BLOCKS * 4);
+		warmup.close();
+
+		System.out.printf("%d frames per block (%.2f ms of audio)%n", SoftwareMixer.BLOCK_FRAMES, blockNanos / 1e6);
+		for(int voices = 1; voices <= maximumVoices; voices *= 2) {
+			SoftwareMixer mixer = new SoftwareMixer(new NullAudioSink());
+			for(int voice = 0; voice < voices; voice++) {
+				mixer.play(sound, 0.5f, 0.5f + random.nextFloat(), random.nextFloat() * 2 - 1, true);
+			}
+			mixer.mixBlocks(_WARMUP_BLOCKS);
+
+			long start = System.nanoTime();
+			mixer.mixBlocks(blocks);
+			double perBlock = (double) (System.nanoTime() - start) / blocks;
+			double perVoice = perBlock / voices;
+			mixer.close();
+
+			System.out.printf("%4d voices: %8.1f us per block, %6.0f ns per voice per block, %5.1f%% of real time, about %.0f voices fit in one block%n",
+					voices, perBlock / 1e3, perVoice, perBlock / blockNanos * 100, blockNanos / perVoice);
+		}
+	}
+
+	/**
+	 * Writes a one second 440Hz tone with a few harmonics to a temporary wav file.
+	 */
+	private static File writeTestSound() throws IOException {
+		float sampleRate = 22050;
+		byte[] pcm = new byte[(int) sampleRate * 2];
+		for(int frame = 0; frame < sampleRate; frame++) {
+			double time = frame / sampleRate;
+			double value = 0.5 * Math.sin(2 * Math.PI * 440 * time) + 0.2 * Math.sin(2 * Math.PI * 880 * time) + 0.1 * Math.sin(2 * Math.PI * 1320 * time);
+			short sample = (short) (value * 32767 * 0.8);
+			pcm[frame * 2] = (byte) sample;
+			pcm[frame * 2 + 1] = (byte) (sample >> 8);
+		}
+		AudioFormat format = new AudioFormat(sampleRate, 16, 1, true, false);
+		File file = File.createTempFile("mixer-benchmark", ".wav");
+		file.deleteOnExit();
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, (long) sampleRate), AudioFileFormat.Type.WAVE, file);
+		return file;
+	}
+}
@@ -0,0 +1,141 @@
+package com.valhalla.engine.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import com.valhalla.engine.io.SaveGame;
+import com.valhalla.engine.io.SaveInput;
+import com.valhalla.engine.io.SaveOutput;
+import com.valhalla.engine.io.SaveSerializer;
+
+/**
+ * Benchmark for {@link SaveGame}: saves and loads a crowd of game objects and prints the throughput reported by SaveGame.<br>
+ * <br>
+ * Every object has a position, velocity, health, a few flags and a name, which is about 40 bytes once encoded.
+ * The loaded objects are compared with the saved ones, so a save that does not round-trip fails the benchmark (exit code 1).<br>
+ * <br>
+ * Run it with <code>gradle saveBenchmark</code> or<br>
+ * <code>java com.valhalla.engine.benchmark.SaveBenchmark [objects] [rounds]</code><br>
+ * which defaults to 500000 objects and 5 rounds, the best round of saving and loading is printed.
+ * @author BauwenDR
+ */
+public class SaveBenchmark {
+
+	/**
+	 * Typical state of an entity in a game.
+	 */
+	private static final class Entity {
+		float x, y, velocityX, velocityY;
+		int health, flags;
+		long spawnTick;
+		String name;
+
+		boolean sameAs(Entity other) {
+			return x == other.x && y == other.y && velocityX == other.velocityX && velocityY == other.velocityY
+					&& health == other.health && flags == other.flags && spawnTick == other.spawnTick && name.equals(other.name);
+		}
+	}
+
+	/**
+	 * Serializer of an Entity, written the way a game would write one.
+	 */
+	private static final class EntitySerializer implements SaveSerializer<Entity> {
+		@Override
+		public int getVersion() {
+			return 1;
+		}
+
+		@Override
+		public void write(Entity entity, SaveOutput output) {
+			output.writeFloat(entity.x);
+			output.writeFloat(entity.y);
+			output.writeFloat(entity.velocityX);
+			output.writeFloat(entity.velocityY);
+			output.writeVarLong(entity.health);
+			output.writeVarLong(entity.flags);
+			output.writeVarLong(entity.spawnTick);
+			output.writeString(entity.name);
+		}
+
+		@Override
+		public Entity read(SaveInput input, int version) throws IOException {
+			Entity entity = new Entity();
+			entity.x = input.readFloat();
+			entity.y = input.readFloat();
+			entity.velocityX = input.readFloat();
+			entity.velocityY = input.readFloat();
+			entity.health = (int) input.readVarLong();
+			entity.flags = (int) input.readVarLong();
+			entity.spawnTick = input.readVarLong();
+			entity.name = input.readString();
+			return entity;
+		}
+	}
+
+	/**
+	 * Runs the benchmark and prints the save and load throughput.
+	 * @param args <b>(String[])</b> [objects] [rounds]
+	 * @throws IOException if the save can not be written or read
+	 * @throws ExecutionException if the background write failed
+	 * @throws InterruptedException if interrupted while waiting for the background write
+	 */
+	public static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+		int objects = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		SaveGame.register("benchmark.entity", Entity.class, new EntitySerializer());
+		Random random = new Random(42);
+		List<Entity> entities = new ArrayList<>(objects);
+		for(int index = 0; index < objects; index++) {
+			Entity entity = new Entity();
+			entity.x = random.nextFloat() * 4096;
+			entity.y = random.nextFloat() * 4096;
+			entity.velocityX = random.nextFloat() * 8 - 4;
+			entity.velocityY = random.nextFloat() * 8 - 4;
+			entity.health = random.nextInt(100);
+			entity.flags = random.nextInt(16);
+			entity.spawnTick = random.nextInt(1_000_000);
+			entity.name = "entity-" + index;
+			entities.add(entity);
+		}
+
+		File file = File.createTempFile("save-benchmark", ".sav");
+		file.deleteOnExit();
+		long save = Long.MAX_VALUE, encode = 0, write = 0, load = Long.MAX_VALUE;
+		double saveThroughput = 0, loadThroughput = 0;
+		int size = 0;
+		List<Object> loaded = null;
+		for(int round = 0; round < rounds; round++) {
+			size = SaveGame.save(file.getPath(), entities).get();
+			if(SaveGame.getLastEncodeTime() + SaveGame.getLastWriteTime() < save) {
+				save = SaveGame.getLastEncodeTime() + SaveGame.getLastWriteTime();
+				encode = SaveGame.getLastEncodeTime();
+				write = SaveGame.getLastWriteTime();
+				saveThroughput = SaveGame.getSaveThroughput();
+			}
+
+			loaded = SaveGame.load(file.getPath());
+			if(SaveGame.getLastLoadTime() < load) {
+				load = SaveGame.getLastLoadTime();
+				loadThroughput = SaveGame.getLoadThroughput();
+			}
+		}
+
+		System.out.printf("%d objects, %.1f MB save (%.1f bytes per object), best of %d rounds%n", objects, size / 1e6, (double) size / objects, rounds);
+		System.out.printf("save: encode %.1f ms + write %.1f ms, %.1f MB/s%n", encode / 1e6, write / 1e6, saveThroughput);
+		System.out.printf("load: %.1f ms, %.1f MB/s%n", load / 1e6, loadThroughput);
+
+		boolean same = loaded.size() == objects;
+		for(int index = 0; same && index < objects; index++) {
+			same = ((Entity) loaded.get(index)).sameAs(entities.get(index));
+		}
+		if(!same) {
+			System.out.println("FAIL: the loaded objects differ from the saved ones");
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package com.valhalla.engine.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import com.valhalla.engine.io.FileEditor;
+import com.valhalla.engine.io.TokenReader;
+import com.valhalla.engine.io.TokenWriter;
+
+/**
+ * Benchmark for the {@link TokenReader} and {@link TokenWriter} against the way {@link FileEditor} read and wrote files before they existed.<br>
+ * <br>
+ * A level-like file of alternating integers and floats, 10 per line, is written and read back in three ways:
+ * <ul>
+ * <li>the old FileEditor methods: an unbuffered FileWriter, and reading every line into one String that is split with a regex,</li>
+ * <li>{@link FileEditor#writeFile} and {@link FileEditor#fileReader}, which now use the token classes but still take and return String arrays,</li>
+ * <li>the token classes themselves, writing and parsing numbers without creating Strings.</li>
+ * </ul>
+ * Read numbers are added up, so every reader has to parse every token, and the sums are checked against each other.<br>
+ * <br>
+ * Run it with <code>gradle tokenBenchmark</code> or<br>
+ * <code>java com.valhalla.engine.benchmark.TokenBenchmark [tokens] [rounds]</code><br>
+ * which defaults to 2000000 tokens (about 15MB) and 5 rounds, the best round of every method is printed.
+ * @author BauwenDR
+ */
+public class TokenBenchmark {
+
+	private static final int _TOKENS_PER_LINE = 10;
+
+	/**
+	 * Runs the benchmark and prints the write and read times.
+	 * @param args <b>(String[])</b> [tokens] [rounds]
+	 * @throws IOException if the temporary files can not be written or read
+	 */
+	public static void main(String[] args) throws IOException {
+		int tokens = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		int[] ints = new int[(tokens + 1) / 2];
+		float[] floats = new float[tokens / 2];
+		for(int index = 0; index < ints.length; index++) {
+			ints[index] = random.nextInt(2_000_000) - 1_000_000;
+		}
+		for(int index = 0; index < floats.length; index++) {
+			floats[index] = Math.round(random.nextFloat() * 1_000_000) / 1000f;
+		}
+		String[][] text = new String[(tokens + _TOKENS_PER_LINE - 1) / _TOKENS_PER_LINE][];
+		for(int line = 0; line < text.length; line++) {
+			text[line] = new String[Math.min(_TOKENS_PER_LINE, tokens - line * _TOKENS_PER_LINE)];
+			for(int column = 0; column < text[line].length; column++) {
+				int token = line * _TOKENS_PER_LINE + column;
+				text[line][column] = token % 2 == 0 ? Integer.toString(ints[token / 2]) : Float.toString(floats[token / 2]);
+			}
+		}
+
+		File oldFile = File.createTempFile("token-benchmark-old", ".txt");
+		File editorFile = File.createTempFile("token-benchmark-editor", ".txt");
+		File tokenFile = File.createTempFile("token-benchmark-token", ".txt");
+		oldFile.deleteOnExit();
+		editorFile.deleteOnExit();
+		tokenFile.deleteOnExit();
+
+		long oldWrite = Long.MAX_VALUE, editorWrite = Long.MAX_VALUE, tokenWrite = Long.MAX_VALUE;
+		long oldRead = Long.MAX_VALUE, editorRead = Long.MAX_VALUE, tokenRead = Long.MAX_VALUE;
+		double oldSum = 0, editorSum = 0, tokenSum = 0;
+		for(int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			oldWriteFile(text, oldFile.getPath());
+			oldWrite = Math.min(oldWrite, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			FileEditor.writeFile(text, editorFile.getPath());
+			editorWrite = Math.min(editorWrite, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			try(TokenWriter writer = new TokenWriter(tokenFile.getPath())) {
+				for(int token = 0; token < tokens; token++) {
+					if(token % 2 == 0) {
+						writer.write(ints[token / 2]);
+					}else {
+						writer.write(floats[token / 2]);
+					}
+					if(token % _TOKENS_PER_LINE == _TOKENS_PER_LINE - 1) {
+						writer.newLine();
+					}
+				}
+			}
+			tokenWrite = Math.min(tokenWrite, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			oldSum = sum(oldFileReader(oldFile));
+			oldRead = Math.min(oldRead, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			editorSum = sum(FileEditor.fileReader(editorFile));
+			editorRead = Math.min(editorRead, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			tokenSum = 0;
+			try(TokenReader reader = FileEditor.openReader(tokenFile.getPath())) {
+				for(int token = 0; reader.hasNext(); token++) {
+					tokenSum += token % 2 == 0 ? reader.nextInt() : reader.nextFloat();
+				}
+			}
+			tokenRead = Math.min(tokenRead, System.nanoTime() - start);
+		}
+
+		System.out.printf("%d tokens (%.1f MB), best of %d rounds%n", tokens, tokenFile.length() / 1e6, rounds);
+		System.out.printf("write: old FileEditor %.1f ms, FileEditor.writeFile %.1f ms, TokenWriter %.1f ms%n", oldWrite / 1e6, editorWrite / 1e6, tokenWrite / 1e6);
+		System.out.printf("read:  old FileEditor %.1f ms, FileEditor.fileReader %.1f ms, TokenReader %.1f ms%n", oldRead / 1e6, editorRead / 1e6, tokenRead / 1e6);
+		if(oldSum != editorSum || oldSum != tokenSum) {
+			System.out.printf("FAIL: the readers disagree (%f, %f, %f)%n", oldSum, editorSum, tokenSum);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Parses the tokens of a String array the way a game did with the result of {@link FileEditor#fileReader}.
+	 */
+	private static double sum(String[] tokens) {
+		double sum = 0;
+		int number = 0;
+		for(String token : tokens) {
+			if(token.isEmpty()) {
+				continue;
+			}
+			sum += number++ % 2 == 0 ? Integer.parseInt(token) : Float.parseFloat(token);
+		}
+		return sum;
+	}
+
+	/**
+	 * FileEditor.fileReader before it used the TokenReader.
+	 */
+	private static String[] oldFileReader(File file) throws IOException {
+		StringBuilder builder = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+
+		String line;
+		while((line = reader.readLine()) != null) {
+			builder.append(line + "\n");
+		}
+
+		reader.close();
+		String fileContent = builder.toString();
+		return fileContent.split("\\s+");
+	}
+
+	/**
+	 * FileEditor.writeFile before it used the TokenWriter.
+	 */
+	private static void oldWriteFile(String[][] text, String path) throws IOException {
+		FileWriter writer = new FileWriter(path);
+
+		for(int i = 0; i < text.length; i++) {
+			for(int j = 0; j < text[i].length; j++) {
+				if(j != 0)
+					writer.write(" ");
+				writer.write(text[i][j]);
+			}
+			writer.write(System.lineSeparator());
+		}
+		writer.close();
+	}
+}
@@ -3,26 +3,28 @@ package com.valhalla.engine;
 import java.awt.image.BufferedImage;
 
 import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.render.SpriteRegion;
+import com.valhalla.engine.render.SpriteSheet;
 import com.valhalla.engine.util.Tickable;
 
 /**
- * Class that represents an animation with a fixed framerate.
+ * Class that represents an animation with a fixed framerate.<br>
+ * <br>
+ * Animations are not ticked, their current frame is calculated from the tick counter of the {@link GameLoop} when it is requested, so starting and stopping an animation is cheap.
  * @author BauwenDR
  */
 public class Animation implements Tickable {
-
-	private Handler _handler;
 	
-	private int _animationFrame;
-	private long _frameRate, _ticksPassed = 0;
-	private BufferedImage[] _animationFrames;
+	private long _frameRate;
+	private long _startTick, _pausedTicks = 0;
+	private SpriteRegion[] _animationFrames;
 	
 	private boolean _isPlaying;
 	
 	/**
 	 * Creates a new animation that will update the animationFrame according to the specified framerate.
-	 * This constructor does not start the animation. In order to start the animation, see {@link #start(Handler)}.
-	 * @see #start(Handler)
+	 * This constructor does not start the animation. In order to start the animation, see {@link #start()}.
+	 * @see #start()
 	 * @see #stop()
 	 * @see #getAnimationFrame()
 	 * @see #getCurrentAnimationFrame()
@@ -30,67 +32,109 @@ public class Animation implements Tickable {
 	 * @param frameRate <b>(Integer)</b> the framerate for the animation formatted in frames per second (make sure value is below tickrate for optimal performance)
 	 */
 	public Animation(BufferedImage[] animationFrames, int frameRate) {
+		this(wrapFrames(animationFrames), frameRate);
+	}
+	
+	/**
+	 * Creates a new animation from regions of sprite sheets, see {@link #Animation(BufferedImage[], int)}.
+	 * @param animationFrames <b>(SpriteRegion[])</b> array that contains all animation frames
+	 * @param frameRate <b>(Integer)</b> the framerate for the animation formatted in frames per second (make sure value is below tickrate for optimal performance)
+	 */
+	public Animation(SpriteRegion[] animationFrames, int frameRate) {
 		this._animationFrames = animationFrames;
-		this._frameRate = (long) (GameLoop.getTickRate() / frameRate);
+		this._frameRate = Math.max(1, (long) (GameLoop.getTickRate() / frameRate));
 		_isPlaying = false;
 	}
 	
+	/**
+	 * Creates a new animation that plays every region of a sprite sheet in order, see {@link #Animation(BufferedImage[], int)}.
+	 * @param spriteSheet <b>(SpriteSheet)</b> sheet that contains all animation frames
+	 * @param frameRate <b>(Integer)</b> the framerate for the animation formatted in frames per second (make sure value is below tickrate for optimal performance)
+	 */
+	public Animation(SpriteSheet spriteSheet, int frameRate) {
+		this(spriteSheet.getRegions(), frameRate);
+	}
+	
+	/**
+	 * Creates a new animation that plays a range of regions of a sprite sheet in order, see {@link #Animation(BufferedImage[], int)}.
+	 * @param spriteSheet <b>(SpriteSheet)</b> sheet that contains the animation frames
+	 * @param firstFrame <b>(Integer)</b> index of the region of the first animation frame
+	 * @param frameAmount <b>(Integer)</b> amount of animation frames
+	 * @param frameRate <b>(Integer)</b> the framerate for the animation formatted in frames per second (make sure value is below tickrate for optimal performance)
+	 */
+	public Animation(SpriteSheet spriteSheet, int firstFrame, int frameAmount, int frameRate) {
+		this(spriteSheet.getRegions(firstFrame, frameAmount), frameRate);
+	}
+	
 	/**
 	 * Creates a new animation that will update the animationFrame according to the specified framerate.
 	 * This constructor will automatically start the animation.
-	 * @see #start(Handler)
+	 * @see #start()
 	 * @see #stop()
 	 * @see #getAnimationFrame()
 	 * @see #getCurrentAnimationFrame()
-	 * @param handler <b>(Handler)</b> the handler that will be used for ticking
+	 * @param handler <b>(Handler)</b> not used anymore, animations follow the tick counter of the {@link GameLoop}
 	 * @param animationFrames <b>(BufferedImage[])</b> pointer to an array that contains all animation frames
 	 * @param frameRate <b>(Integer)</b> the framerate for the animation formatted in frames per second (make sure value is below tickrate for optimal performance)
 	 */
 	public Animation(Handler handler, BufferedImage[] animationFrames, int frameRate) {
-		this._animationFrames = animationFrames;
-		this._frameRate = (long) (GameLoop.getTickRate() / frameRate);
-		start(handler);
+		this(animationFrames, frameRate);
+		start();
 	}
 	
 	/**
-	 * Starts the animation if it is not already playing.
+	 * Starts the animation if it is not already playing, a stopped animation continues from the frame it was stopped at.<br>
+	 * <u>Note:</u> Animations are not ticked, the current frame is calculated from {@link GameLoop#getTicksPassed()} when it is requested.
 	 * @see #stop()
-	 * @param handler <b>(Handler)</b> The handler which will tick the Animation
 	 */
-	public void start(Handler handler) {
-		this._handler = handler;
+	public void start() {
 		if(!_isPlaying) {
-			handler.addAnimation(this);
+			_startTick = GameLoop.getTicksPassed() - _pausedTicks;
 			_isPlaying = true;
 		}
 	}
 	
 	/**
-	 * Stops the animation if it is playing.
-	 * @see #start(Handler)
+	 * Starts the animation if it is not already playing.
+	 * @see #stop()
+	 * @param handler <b>(Handler)</b> not used anymore, animations follow the tick counter of the {@link GameLoop}
+	 * @deprecated use {@link #start()}, animations no longer need a Handler.
+	 */
+	@Deprecated
+	public void start(Handler handler) {
+		start();
+	}
+	
+	/**
+	 * Stops the animation if it is playing, the current frame stays visible.
+	 * @see #start()
 	 */
 	public void stop() {
 		if(_isPlaying) {
-			_handler.removeAnimation(this);
+			_pausedTicks = Math.max(0, GameLoop.getTicksPassed() - _startTick);
 			_isPlaying = false;
 		}
 	}
 	
+	/**
+	 * Checks if the animation is playing.
+	 * @return True if the animation is playing.
+	 */
+	public boolean isPlaying() {
+		return _isPlaying;
+	}
 	
 	/**
-	 * If an animation is playing this function will be called to update the currently displayed frame. (thus the @Internal)<br>
-	 * If you want to control the flow of the animation yourself (which is not recommended), you would need to call this function every tick.
-	 * @see #start(Handler)
+	 * Moves a stopped animation forward by one tick.<br>
+	 * Playing animations follow the tick counter of the {@link GameLoop} and ignore this function,
+	 * it is only needed if you want to control the flow of a stopped animation yourself (which is not recommended).
+	 * @see #start()
 	 */
 	@Internal @Override
 	public void tick() {
-		if(_ticksPassed%_frameRate == 0 && _ticksPassed > 0) {
-			_animationFrame++;
-			if(_animationFrame == _animationFrames.length) {
-				_animationFrame = 0;
-			}
+		if(!_isPlaying) {
+			_pausedTicks++;
 		}
-		_ticksPassed++;
 	}
 	
 	/**
@@ -106,7 +150,11 @@ public class Animation implements Tickable {
 	 * @return animationFrame (Integer)
 	 */
 	public int getCurrentAnimationFrame() {
-		return _animationFrame;
+		long ticksPlayed = _isPlaying ? GameLoop.getTicksPassed() - _startTick : _pausedTicks;
+		if(ticksPlayed < 0) {
+			ticksPlayed = 0;		//started after the tick a RollbackBuffer went back to, shows the first frame until the tick counter catches up
+		}
+		return (int) ((ticksPlayed / _frameRate) % _animationFrames.length);
 	}
 	
 	/**
@@ -114,6 +162,23 @@ public class Animation implements Tickable {
 	 * @return animationFrame (BufferedImage)
 	 */
 	public BufferedImage getAnimationFrame() {
-		return _animationFrames[_animationFrame];
+		return _animationFrames[getCurrentAnimationFrame()].getImage();
+	}
+	
+	/**
+	 * Getter for the current region of the animation, draw it with {@link com.valhalla.engine.render.Draw#drawSprite(SpriteRegion, int, int)} to avoid creating sub images.
+	 * @return animationRegion (SpriteRegion)
+	 */
+	public SpriteRegion getAnimationRegion() {
+		return _animationFrames[getCurrentAnimationFrame()];
+	}
+	
+	@Internal
+	private static SpriteRegion[] wrapFrames(BufferedImage[] animationFrames) {
+		SpriteRegion[] regions = new SpriteRegion[animationFrames.length];
+		for(int index = 0; index < animationFrames.length; index++) {
+			regions[index] = new SpriteRegion(animationFrames[index]);
+		}
+		return regions;
 	}
 }
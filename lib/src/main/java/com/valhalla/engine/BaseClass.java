@@ -1,7 +1,9 @@
 package com.valhalla.engine;
 
 import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SavedState;
 import com.valhalla.engine.util.Renderable;
+import com.valhalla.engine.util.Rewindable;
 import com.valhalla.engine.util.Tickable;
 
 /**
@@ -13,6 +15,12 @@ public abstract class BaseClass implements Tickable, Renderable {
 	protected int drawLayer;
 	protected Handler handler;
 	
+	SavedState _savedState;
+	boolean _stateChanged = true;
+	int _snapshotIndex;
+	int _rollbackMark;
+	final boolean _rewindable = this instanceof Rewindable;		//checked once, interface checks that fail are slow when repeated for every class
+	
 	/**
 	 * Default constructor the BaseClass class.
 	 * For animations, it is recommended to use {@link Animation}<br>
@@ -51,6 +59,20 @@ public abstract class BaseClass implements Tickable, Renderable {
 		return drawLayer;
 	}
 	
+	/**
+	 * Marks the state of this BaseClass as changed, so the next {@link Handler#snapshot()} captures it again.<br>
+	 * Only BaseClasses with a serializer registered in {@link com.valhalla.engine.io.SaveGame} are captured, all others are ignored.<br>
+	 * <u>Note:</u> Call this on the tick thread every time a field that is saved changes, unchanged BaseClasses reuse their previous state.
+	 */
+	protected void markChanged() {
+		if(!_stateChanged) {
+			_stateChanged = true;
+			if(handler != null) {
+				handler._markChanged(this);
+			}
+		}
+	}
+	
 	@Internal
 	void _setFields(Handler handler, int draw) {
 		this.handler = handler;
@@ -3,15 +3,26 @@ package com.valhalla.engine;
 import java.awt.Canvas;
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.image.BufferStrategy;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
 
+import com.valhalla.engine.input.InputRecorder;
+import com.valhalla.engine.input.InputReplay;
 import com.valhalla.engine.input.KeyInput;
 import com.valhalla.engine.input.MouseInput;
 import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.NullAudioSink;
+import com.valhalla.engine.io.SaveGame;
+import com.valhalla.engine.io.SoftwareMixer;
 import com.valhalla.engine.io.SoundEffectPlayer;
 import com.valhalla.engine.io.SoundInterface;
 import com.valhalla.engine.render.Draw;
+import com.valhalla.engine.render.RenderContext;
 
 /**
  * Entry point of the BaseEngine.<br>
@@ -25,6 +36,7 @@ public class GameLoop extends Canvas implements Runnable {
 	private boolean _running = false;
 	private final Handler _handler;
 	private static double _tickRate;
+	private volatile RegisteredHandler[] _handlers = new RegisteredHandler[0];		//extra Handlers sorted on render order
 	private boolean _shutDownRequested = false;
 
 	private final Screen _screen;
@@ -32,9 +44,61 @@ public class GameLoop extends Canvas implements Runnable {
 	
 	private final KeyInput _keyinput;
 	private final MouseInput _mouseinput;
+	private BufferedImage _lowResolutionImage;		//frame rendered below full resolution, see Screen.setDynamicResolution
 	
 	private static long _ticksPassed = 0;
 	public static PrintStream engineOutput;
+	
+	@Internal
+	private static final class RegisteredHandler implements Runnable {
+		final Handler handler;
+		final double tickRate;
+		final int renderOrder;
+		final Semaphore dueTicks;		//null when ticked on the thread of the GameLoop
+		final Thread thread;
+		volatile boolean running = true;
+		double delta = 0;
+		
+		RegisteredHandler(Handler handler, double tickRate, int renderOrder, boolean ownThread) {
+			this.handler = handler;
+			this.tickRate = tickRate;
+			this.renderOrder = renderOrder;
+			this.dueTicks = ownThread ? new Semaphore(0) : null;
+			this.thread = ownThread ? new Thread(this) : null;
+		}
+		
+		/**
+		 * Ticks the Handler for the time that passed, or lets its own thread do so.
+		 */
+		void advance(double seconds) {
+			delta += seconds * tickRate;
+			int ticks = (int) (delta + 1e-9);		//rounding errors should not cost a tick
+			delta -= ticks;
+			if(dueTicks == null) {
+				for(int tick = 0; tick < ticks; tick++) {
+					handler.tick();
+				}
+			}else if(ticks > 0) {
+				//a thread falling behind skips ticks rather than running a second of them at once
+				dueTicks.release(Math.max(0, Math.min(ticks, (int) Math.ceil(tickRate) - dueTicks.availablePermits())));
+			}
+		}
+		
+		@Override
+		public void run() {
+			try {
+				while(true) {
+					dueTicks.acquire();
+					if(!running) {
+						break;
+					}
+					handler.tick();
+				}
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
 
 	/**
 	 * Constructor for a GameLoop, this constructor also constructs a Screen and Handler.<br>
@@ -69,6 +133,7 @@ public class GameLoop extends Canvas implements Runnable {
 		this.addKeyListener(_keyinput);
 		this.addMouseListener(_mouseinput);
 		this.addMouseMotionListener(_mouseinput);
+		this.addMouseWheelListener(_mouseinput);
 		
 		//initialise OpenAL
 		new SoundInterface();
@@ -109,6 +174,171 @@ public class GameLoop extends Canvas implements Runnable {
 		this(title, width, height, 60.0);
 	}
 	
+	/**
+	 * Constructor for a headless GameLoop, this constructor only constructs a Handler and input, without a Screen.<br>
+	 * Sound is played through a {@link SoftwareMixer}, if none is installed yet a mixer writing to a {@link NullAudioSink} is installed.<br>
+	 * A headless GameLoop does not tick by itself, use {@link #fastForward(long)} to run ticks as fast as possible.
+	 * This is intended for replaying recorded input, see {@link com.valhalla.engine.input.InputReplay}, and for load testing.
+	 * @param tickRate <b>(Double)</b> The amount of ticks per second the game logic expects.
+	 * @param engineOutputMethod <b>PrintStream</b> Output stream for engine, stream will not be closed when shutting down engine
+	 */
+	public GameLoop(double tickRate, PrintStream engineOutputMethod) {
+		GameLoop._tickRate = tickRate;
+		engineOutput = engineOutputMethod;
+
+		if(engineOutputMethod == null) {	//create closed version of output
+			engineOutput = System.out;	//console as default to prevent null pointers
+			engineOutput.close();
+		}
+		
+		_handler = new Handler();
+		_screen = null;
+		_draw = new Draw();
+		
+		_keyinput = new KeyInput();
+		_mouseinput = new MouseInput();
+		
+		if(SoftwareMixer.getInstalled() == null) {
+			try {
+				SoftwareMixer.install(new NullAudioSink());
+			} catch (IOException e) {
+				engineOutput.println("BaseEngine Error: could not set up the software mixer: " + e.getMessage());
+			}
+		}
+		new SoundInterface();
+		new SoundEffectPlayer();
+	}
+	
+	/**
+	 * Runs a given amount of ticks as fast as possible on the calling thread.<br>
+	 * <u>Note:</u> This can only be used on a headless GameLoop, see {@link #GameLoop(double, PrintStream)}.
+	 * @param ticks <b>(Long)</b> The amount of ticks to run.
+	 */
+	public void fastForward(long ticks) {
+		if(_screen != null) {
+			throw new IllegalStateException("BaseEngine: fastForward can only be used on a headless GameLoop");
+		}
+		for(long tick = 0; tick < ticks; tick++) {
+			tick();
+			advanceHandlers(1 / _tickRate);
+		}
+	}
+	
+	/**
+	 * Registers an extra Handler that is ticked at its own tick rate on the thread of the GameLoop, e.g. AI at 10 ticks per second.<br>
+	 * See {@link #addHandler(Handler, double, int, boolean)}.
+	 * @param handler <b>(Handler)</b> The Handler to register.
+	 * @param tickRate <b>(Double)</b> The amount of ticks per second for this Handler.
+	 * @param renderOrder <b>(Integer)</b> Handlers are rendered from low to high render order, the Handler of the GameLoop has render order 0.
+	 */
+	public void addHandler(Handler handler, double tickRate, int renderOrder) {
+		addHandler(handler, tickRate, renderOrder, false);
+	}
+	
+	/**
+	 * Registers an extra Handler that is ticked at its own tick rate, e.g. physics at 120 and UI at 30 ticks per second.<br>
+	 * <br>
+	 * All Handlers are paced by the GameLoop: each Handler gets as many ticks as fit in the time that passed, at its own rate.
+	 * Handlers with the same render order are rendered in the order they were registered, after the Handler of the GameLoop.
+	 * The {@link Scheduler} and input are ticked together with the Handler of the GameLoop.<br>
+	 * <u>Note:</u> A Handler on its own thread is ticked concurrently with the other Handlers,
+	 * BaseClasses in it should only reach other Handlers through their thread safe functions (e.g. {@link Handler#addClass} and {@link Handler#snapshot()}).
+	 * @param handler <b>(Handler)</b> The Handler to register.
+	 * @param tickRate <b>(Double)</b> The amount of ticks per second for this Handler.
+	 * @param renderOrder <b>(Integer)</b> Handlers are rendered from low to high render order, the Handler of the GameLoop has render order 0.
+	 * @param ownThread <b>(Boolean)</b> True to tick the Handler on a thread of its own, ignored for a headless GameLoop.
+	 */
+	public synchronized void addHandler(Handler handler, double tickRate, int renderOrder, boolean ownThread) {
+		if(!(tickRate > 0)) {
+			throw new IllegalArgumentException("BaseEngine: the tick rate of a Handler should be positive, got " + tickRate);
+		}
+		if(handler == _handler || indexOfHandler(handler) >= 0) {
+			throw new IllegalArgumentException("BaseEngine: this Handler is already registered");
+		}
+		
+		ownThread &= _screen != null;		//fastForward ticks every Handler on its own thread, so replays stay the same
+		RegisteredHandler registered = new RegisteredHandler(handler, tickRate, renderOrder, ownThread);
+		handler.setTickRate(tickRate);
+		int index = 0;
+		while(index < _handlers.length && _handlers[index].renderOrder <= renderOrder) {
+			index++;
+		}
+		RegisteredHandler[] handlers = new RegisteredHandler[_handlers.length + 1];
+		System.arraycopy(_handlers, 0, handlers, 0, index);
+		handlers[index] = registered;
+		System.arraycopy(_handlers, index, handlers, index + 1, _handlers.length - index);
+		_handlers = handlers;
+		
+		if(ownThread) {
+			registered.thread.setName("Handler-Ticks-" + tickRate);
+			registered.thread.setDaemon(true);
+			registered.thread.start();
+		}
+	}
+	
+	/**
+	 * Stops ticking and rendering an extra Handler, its BaseClasses are kept.
+	 * @param handler <b>(Handler)</b> The Handler registered with {@link #addHandler(Handler, double, int, boolean)}.
+	 */
+	public void removeHandler(Handler handler) {
+		RegisteredHandler removed;
+		synchronized(this) {
+			int index = indexOfHandler(handler);
+			if(index < 0) {
+				return;
+			}
+			removed = _handlers[index];
+			RegisteredHandler[] handlers = new RegisteredHandler[_handlers.length - 1];
+			System.arraycopy(_handlers, 0, handlers, 0, index);
+			System.arraycopy(_handlers, index + 1, handlers, index, handlers.length - index);
+			_handlers = handlers;
+		}
+		stopHandler(removed);
+		handler.setTickRate(0);
+	}
+	
+	/**
+	 * Getter for the extra Handlers registered on this GameLoop, in render order.
+	 * @return handlers (Handler[]), without the Handler of the GameLoop itself
+	 */
+	public Handler[] getHandlers() {
+		return Arrays.stream(_handlers).map(registered -> registered.handler).toArray(Handler[]::new);
+	}
+	
+	@Internal
+	private int indexOfHandler(Handler handler) {
+		for(int index = 0; index < _handlers.length; index++) {
+			if(_handlers[index].handler == handler) {
+				return index;
+			}
+		}
+		return -1;
+	}
+	
+	@Internal
+	private void advanceHandlers(double seconds) {
+		for(RegisteredHandler registered : _handlers) {
+			registered.advance(seconds);
+		}
+	}
+	
+	@Internal
+	private void stopHandler(RegisteredHandler registered) {
+		registered.running = false;
+		if(registered.thread == null) {
+			return;
+		}
+		registered.dueTicks.release();
+		if(registered.thread == Thread.currentThread()) {
+			return;		//removed from inside its own tick, the thread stops after this tick
+		}
+		try {
+			registered.thread.join();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
 	@Internal
 	synchronized void start() {
 		_gameThread = new Thread(this);
@@ -142,12 +372,14 @@ public class GameLoop extends Canvas implements Runnable {
 		while(_running) {
 			long now = System.nanoTime();
 			delta += (now - lastTime) / ns;
+			long passed = now - lastTime;
 			lastTime = now; 
 			while(delta >=1) {
 				tick();
 				frames++;
 				delta--;
 				}
+				advanceHandlers(passed / 1e9);
 				if(System.currentTimeMillis() - timer > 1000) {
 					timer += 1000;
 					System.out.println("tps: " + frames);
@@ -162,32 +394,79 @@ public class GameLoop extends Canvas implements Runnable {
 	
 	@Internal
 	private void tick() {
+		Scheduler.tick();
 		_handler.tick();
+		InputReplay.tick();
 		_keyinput.tick();
 		_mouseinput.tick();
+		InputRecorder.tick();
 		_ticksPassed++;
 		
 		if(_shutDownRequested) {
 			_handler.removeImmediateClasses();	//used outside a tick so won't error out
+			RegisteredHandler[] handlers;
+			synchronized(this) {
+				handlers = _handlers;
+				_handlers = new RegisteredHandler[0];
+			}
+			for(RegisteredHandler registered : handlers) {
+				stopHandler(registered);
+				registered.handler.removeImmediateClasses();
+			}
 		}
 	}
 	
+	/**
+	 * Renders all Handlers and shows the frame.
+	 * @return sceneTime (Long), the nanoseconds spent rendering the Handlers, without scaling the frame up and showing it. -1 if nothing was rendered.
+	 */
 	@Internal
-	void render() {
+	long render() {
 		BufferStrategy currentBufferStrategy = this.getBufferStrategy();
 		if(currentBufferStrategy == null) {
 			this.createBufferStrategy(3);
-			return;
+			return -1;
 		}
 		
+		long sceneTime = -1;
 		try {
 			Graphics _graphics = currentBufferStrategy.getDrawGraphics();
-			_draw.setGraphics(_graphics);
+			int width = this.getWidth(), height = this.getHeight();
+			double renderScale = Screen.getRenderScale();
+			Graphics2D lowResolutionGraphics = null;
+			RenderContext context;
+			if(renderScale < 1 && width > 0 && height > 0) {
+				//render to the top left part of an image, then stretch that part over the whole Screen (nearest neighbour, smoothing in software costs more than the lower resolution saves)
+				if(_lowResolutionImage == null || _lowResolutionImage.getWidth() != width || _lowResolutionImage.getHeight() != height) {
+					_lowResolutionImage = getGraphicsConfiguration().createCompatibleImage(width, height);
+				}
+				lowResolutionGraphics = _lowResolutionImage.createGraphics();
+				lowResolutionGraphics.scale(renderScale, renderScale);
+				context = new RenderContext(lowResolutionGraphics, width, height, renderScale);
+			}else {
+				context = new RenderContext(_graphics, width, height);
+			}
+			_draw.setContext(context);
+			long sceneStart = System.nanoTime();
 	
 			Draw.fillRect(0,0, Screen.getWidth()+50 ,Screen.getHeight()+50, Color.white);
 		
-			_handler.render();
-		
+			RegisteredHandler[] handlers = _handlers;
+			int index = 0;
+			for(; index < handlers.length && handlers[index].renderOrder < 0; index++) {
+				handlers[index].handler.render(context);
+			}
+			_handler.render(context);
+			for(; index < handlers.length; index++) {
+				handlers[index].handler.render(context);
+			}
+			sceneTime = System.nanoTime() - sceneStart;		//showing waits for the display with vsync, so it is not part of the cost of the scene
+			
+			if(lowResolutionGraphics != null) {
+				lowResolutionGraphics.dispose();
+				_graphics.drawImage(_lowResolutionImage, 0, 0, width, height,
+						0, 0, (int) Math.ceil(width * renderScale), (int) Math.ceil(height * renderScale), null);
+			}
 			_graphics.dispose();
 			currentBufferStrategy.show();
 		}catch (Exception e) {
@@ -197,6 +476,7 @@ public class GameLoop extends Canvas implements Runnable {
 				System.out.println("BaseEngine Error " + e.getLocalizedMessage());
 			}
 		}	
+		return sceneTime;
 	}
 	
 	/**
@@ -208,7 +488,8 @@ public class GameLoop extends Canvas implements Runnable {
 	}
 	
 	/**
-	 * Getter for the internal Handler used for rendering and ticking all BaseClasses.
+	 * Getter for the internal Handler used for rendering and ticking all BaseClasses, ticked at the tick rate of the GameLoop.<br>
+	 * Extra Handlers with their own tick rate can be registered with {@link #addHandler(Handler, double, int, boolean)}.
 	 * @return handler (Handler)
 	 */
 	public Handler getHandler() {
@@ -223,17 +504,26 @@ public class GameLoop extends Canvas implements Runnable {
 		return _ticksPassed;
 	}
 	
+	@Internal
+	static void _setTicksPassed(long ticksPassed) {
+		_ticksPassed = ticksPassed;
+	}
+	
 	/**
 	 * Deconstructs the GameLoop along with underlying handler and screen at the end of a gametick.
 	 */
 	public void close() {
 		_shutDownRequested=true;
-		_screen.closeScreen();
+		InputRecorder.stop();
+		if(_screen != null) {
+			_screen.closeScreen();
+		}
 		SoundInterface.cleanUp();
+		SaveGame.awaitWrites(5000);		//a save still being written would otherwise be lost when the JVM exits
 	}
 	
 	/**
-	 * Getter for the internal Screen object for the GameLoop class.<br>
+	 * Getter for the internal Screen object for the GameLoop class, this is null for a headless GameLoop.<br>
 	 * <u>Note:</u> Most functions in the Screen class are static functions.
 	 * @return screen (Screen)
 	 */
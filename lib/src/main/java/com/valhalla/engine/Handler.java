@@ -1,42 +1,106 @@
 package com.valhalla.engine;
 
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
+import com.valhalla.engine.collision.Collider;
+import com.valhalla.engine.collision.CollisionWorld;
 import com.valhalla.engine.exception.DrawLayerOutOfBoundsException;
+import com.valhalla.engine.internal.CommandQueue;
 import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveGame;
+import com.valhalla.engine.io.SavedState;
+import com.valhalla.engine.physics.PhysicsWorld;
+import com.valhalla.engine.render.Draw;
+import com.valhalla.engine.render.RenderContext;
 
 /**
- * Class that handles the ticking and rendering for all BaseClasses, GameStates and Animations.
+ * Class that handles the ticking and rendering for all BaseClasses and GameStates.
  * @author BauwenDR
  */
 public class Handler {
 	
 	private Hashtable<Integer, List<BaseClass> > _classes = new Hashtable<>();
-	private BlockingQueue<BaseClass> _removeQueue = new LinkedBlockingQueue<>();
-	private Hashtable<BaseClass, Integer> _addQueue = new Hashtable<>();
-	private Hashtable<BaseClass, Integer> _addQueuePostReset = new Hashtable<>();
 	
-	private LinkedList<Animation> _animations = new LinkedList<>();
-
-	private static final int _LAYERS = 10;
+	private static final int _ADD = 0, _REMOVE = 1, _CLEAR = 2, _CHANGE_LAYER = 3, _SET_GAMESTATE = 4, _SWAP_PRELOADED = 5, _RUN = 6;
+	private static final int _COMMAND_QUEUE_CAPACITY = 4096;
+	private final CommandQueue _commandQueue = new CommandQueue(_COMMAND_QUEUE_CAPACITY);
+	private final Queue<PendingCommand> _overflowQueue = new ConcurrentLinkedQueue<>();
+	private final CommandQueue.Consumer _commandExecutor = this::executeCommand;
+	
+	static final int _LAYERS = 10;
 
 	private GameState _gameState;
 	private int _renderIterator;
 	private int _tickIterator;
 	
-	private boolean _clearClasses;
 	private boolean _isClassPresentInHandler;
+	private volatile boolean _preloading = false;
+	private volatile Handler _movedTo;		//set on a staging Handler once it is swapped in, commands and Jobs sent to it go to this Handler instead
+	private Handler _adoptedHandler;		//staging Handler swapped in last, commands that raced into it are still executed
+	private volatile double _tickRate = 0;		//0 while ticked by the GameLoop itself
+	
+	//draw-layers rendered on several threads, each into an offscreen image
+	private volatile boolean _parallelLayers = false;
+	private final BufferedImage[] _layerImages = new BufferedImage[_LAYERS];
+	private final RenderContext[] _layerContexts = new RenderContext[_LAYERS];
+	private final boolean[] _layerRendered = new boolean[_LAYERS];
+	private final IntConsumer _layerRenderer = this::renderLayer;
+	
+	private final ArrayList<BaseClass> _changedClasses = new ArrayList<>();
+	private static final int _CHANGE_TRACKING_TICKS = 600;		//changes are only recorded while snapshots are taken
+	private boolean _trackingChanges = false;
+	private int _ticksWithoutSnapshot = 0;
+	private final boolean[] _changedLayers = new boolean[_LAYERS];
+	private final BaseClass[][] _layerSnapshots = new BaseClass[_LAYERS][];
+	private final SavedState[][] _layerStates = new SavedState[_LAYERS][];
+	private final Queue<CompletableFuture<HandlerSnapshot>> _snapshotRequests = new ConcurrentLinkedQueue<>();
+	private final Queue<Job<?>> _finishedJobs = new ConcurrentLinkedQueue<>();
+	private volatile long _jobCallbackBudget = 2000000;		//nanoseconds of callbacks per tick
+	
+	private int _rollbackMark = 0;
+	
+	private final CollisionWorld _collisionWorld = new CollisionWorld();
+	private final PhysicsWorld _physicsWorld = new PhysicsWorld();
 	
 	@Internal
+	private static final class PendingCommand {
+		final int command;
+		final Object subject;
+		final long argument;
+		
+		PendingCommand(int command, Object subject, long argument) {
+			this.command = command;
+			this.subject = subject;
+			this.argument = argument;
+		}
+	}
+	
+	/**
+	 * Constructor for an empty Handler.<br>
+	 * The GameLoop constructs its own Handler, extra Handlers are ticked and rendered once registered with {@link GameLoop#addHandler(Handler, double, int)}.
+	 */
 	public Handler() {
 		_classes.clear();
 		for(_renderIterator = 0; _renderIterator < _LAYERS; ++_renderIterator) {
 			_classes.put(_renderIterator, new LinkedList<>());
+			_layerSnapshots[_renderIterator] = new BaseClass[0];
+			_layerStates[_renderIterator] = new SavedState[0];
 		}
 	}
 	
@@ -52,20 +116,23 @@ public class Handler {
 	 * @see #addUniqueClass
 	 */
 	public void addClass(BaseClass baseClass, int drawLayer) throws DrawLayerOutOfBoundsException {
-		if(drawLayer > 10 || drawLayer < 0) {
+		if(drawLayer >= _LAYERS || drawLayer < 0) {
 			throw new DrawLayerOutOfBoundsException(drawLayer);
 		}
-		if(_clearClasses) {
-			_addQueuePostReset.put(baseClass, drawLayer);
-		}else {
-			_addQueue.put(baseClass, drawLayer);
-		}
+		queueCommand(_ADD, baseClass, drawLayer);
 	}
 	
 	@Internal
 	private void addImmediateClass(BaseClass baseClass, int drawLayer) {
 		_classes.get(drawLayer).add(baseClass);
 		baseClass._setFields(this, drawLayer);
+		_changedLayers[drawLayer] = true;
+		if(_trackingChanges && baseClass._stateChanged) {
+			_changedClasses.add(baseClass);
+		}
+		if(baseClass instanceof Collider) {
+			_collisionWorld.add((Collider) baseClass);
+		}
 	}
 	
 	/**
@@ -98,54 +165,121 @@ public class Handler {
 	}
 	
 	/**
-	 * Adds a baseClass to the removal queue in order to be removed. If adding to the queue fails it will be printed out in console.
+	 * Adds a baseClass to the queue in order to be removed at the end of the tick.
 	 * @param baseClass <b>(BaseClass or inherited)</b> The class to be removed from the Handler at the end of the tick.
 	 */
 	public void removeClass(BaseClass baseClass) {
-		try {
-			_removeQueue.put(baseClass);
-		} catch (InterruptedException e) {
-			GameLoop.engineOutput.println("BaseEngine: could not add class " + baseClass.getClass().getName() + "to the remove queue.");
+		queueCommand(_REMOVE, baseClass, 0);
+	}
+	
+	/**
+	 * Moves a BaseClass to another draw-layer at the end of the tick.<br>
+	 * <u>Note:</u> If the BaseClass is not present in the Handler at that point, it will not be added.
+	 * @param baseClass <b>(BaseClass or inherited)</b> The class that will be moved.
+	 * @param drawLayer <b>(Integer)</b> The new layer at which the BaseClass should be rendered from 0 (= bottom) to 9 (= top).
+	 */
+	public void changeDrawLayer(BaseClass baseClass, int drawLayer) throws DrawLayerOutOfBoundsException {
+		if(drawLayer >= _LAYERS || drawLayer < 0) {
+			throw new DrawLayerOutOfBoundsException(drawLayer);
 		}
+		queueCommand(_CHANGE_LAYER, baseClass, drawLayer);
 	}
 
 	@Internal
 	private void removeImmediateClass(BaseClass baseClass) {
 		for(_tickIterator = 0; _tickIterator < _LAYERS; ++_tickIterator) {
-			if(_classes.get(_tickIterator).remove(baseClass))
+			if(_classes.get(_tickIterator).remove(baseClass)) {
+				_changedLayers[_tickIterator] = true;
+				if(baseClass instanceof Collider) {
+					_collisionWorld.remove((Collider) baseClass);
+				}
+				break;
+			}
+		}
+	}
+	
+	@Internal
+	private void queueCommand(int command, Object subject, long argument) {
+		Handler movedTo = _movedTo;
+		if(movedTo != null) {
+			movedTo.queueCommand(command, subject, argument);
+			return;
+		}
+		//once a command overflowed, keep using the overflow queue until it is drained to preserve ordering
+		if(!_overflowQueue.isEmpty() || !_commandQueue.offer(command, subject, argument)) {
+			_overflowQueue.add(new PendingCommand(command, subject, argument));
+		}
+	}
+	
+	@Internal
+	private void executeCommand(int command, Object subject, long argument, long time) {
+		switch(command) {
+			case _ADD:
+				addImmediateClass((BaseClass) subject, (int) argument);
+				break;
+			case _REMOVE:
+				removeImmediateClass((BaseClass) subject);
+				break;
+			case _CLEAR:
+				removeImmediateClasses();
 				break;
+			case _CHANGE_LAYER:
+				BaseClass baseClass = (BaseClass) subject;
+				if(_classes.get(baseClass.drawLayer).remove(baseClass)) {
+					_changedLayers[baseClass.drawLayer] = true;
+					addImmediateClass(baseClass, (int) argument);
+				}
+				break;
+			case _SET_GAMESTATE:
+				GameState gameState = (GameState) subject;
+				_gameState = gameState;
+				gameState._setFields(this);
+				gameState.initialise();
+				break;
+			case _SWAP_PRELOADED:
+				swapPreloaded((Handler) subject, argument != 0);
+				break;
+			case _RUN:
+				((Runnable) subject).run();
+				break;
+			default:
+				GameLoop.engineOutput.println("BaseEngine Error: unknown Handler command " + command);
 		}
 	}
 	
 	@Internal
 	private void emptyQueue() {
-		//remove queue
-		for(BaseClass baseClass : _removeQueue) {
-			removeImmediateClass(baseClass);
+		executeQueued(this);
+		if(_adoptedHandler != null) {
+			executeQueued(_adoptedHandler);
 		}
-		_removeQueue.clear();
-		
-		//add queue
-		_addQueue.forEach(this::addImmediateClass);
-		_addQueue.clear();
+	}
+	
+	@Internal
+	private void executeQueued(Handler source) {
+		//commands are executed in the order they were queued, only commands queued before emptying started are executed
+		//so threads that keep queueing can not stall the tick, commands queued while executing wait for the next call
+		int overflowed = source._overflowQueue.isEmpty() ? 0 : source._overflowQueue.size();
+		source._commandQueue.drain(_commandExecutor);
 		
-		//removing all classes if clearClasses()  was previously run
-		if(_clearClasses) {
-			removeImmediateClasses();
-			_clearClasses = false;
-			
-			//adding all classes that were added after calling clear
-			_addQueuePostReset.forEach(this::addImmediateClass);
-			_addQueuePostReset.clear();
+		PendingCommand pendingCommand;
+		for(; overflowed > 0 && (pendingCommand = source._overflowQueue.poll()) != null; overflowed--) {
+			executeCommand(pendingCommand.command, pendingCommand.subject, pendingCommand.argument, 0);
 		}
 	}
 	
+	@Internal
+	private boolean isQueueEmpty() {
+		return _commandQueue.isEmpty() && _overflowQueue.isEmpty();
+	}
+	
 	/**
-	 * Removes all BaseClasses from the Handler.
+	 * Removes all BaseClasses from the Handler at the end of the tick.
+	 * BaseClasses added after calling this function will still be added.
 	 * This function does however not remove the GameState.
 	 */
 	public void clearClasses() {
-		_clearClasses = true;
+		queueCommand(_CLEAR, null, 0);
 	}
 	
 	/**
@@ -155,11 +289,20 @@ public class Handler {
 	 * @see #clearClasses
 	 */
 	public void removeImmediateClasses() {
-		_classes.forEach((layer, classList) -> classList.clear());
+		_classes.forEach((layer, classList) -> {
+			for(BaseClass baseClass : classList) {
+				if(baseClass instanceof Collider) {
+					_collisionWorld.remove((Collider) baseClass);
+				}
+			}
+			classList.clear();
+		});
+		Arrays.fill(_changedLayers, true);
 	}
 	
 	/**
-	 * Sets the current GameState to the given GameState, and links to Handler in the GameState to this object.
+	 * Sets the current GameState to the given GameState at the end of the tick, and links to Handler in the GameState to this object.<br>
+	 * <u>Note:</u> {@link GameState#initialise()} is called on the tick thread when the GameState is set.
 	 * @param gameState <b>(GameState or inherited)</b> The new GameState
 	 * @param clearClasses <b>(Boolean)</b> clear the classes in the associated handler upon setting the new state
 	 */
@@ -167,9 +310,438 @@ public class Handler {
 		if(clearClasses) {
 			clearClasses();
 		}
+		queueCommand(_SET_GAMESTATE, gameState, 0);
+	}
+	
+	/**
+	 * Constructs a new GameState in the background and swaps it in at the end of the tick once it is ready.<br>
+	 * <br>
+	 * {@link GameState#initialise()} is called on a background thread against a staging Handler, so every BaseClass it adds is collected there.
+	 * Once initialising is done the BaseClasses and GameState are moved into this Handler at the end of a tick, without stalling the game loop.<br>
+	 * Commands and Jobs sent to the staging Handler after initialising are passed on to this Handler,
+	 * and {@link com.valhalla.engine.physics.RigidBody}s added to the {@link #getPhysicsWorld() PhysicsWorld} of the staging Handler are moved into the PhysicsWorld of this Handler.<br>
+	 * <u>Note:</u> The initialise method of the preloaded GameState should only create its own objects and not touch objects of the running game.
+	 * If initialising fails the error is printed and the loading state stays, use {@link #preloadGameState(GameState, GameState, boolean, Consumer)} to handle the failure.
+	 * @param gameState <b>(GameState or inherited)</b> The new GameState
+	 * @param loadingState <b>(GameState or inherited)</b> GameState that is shown while the new GameState is preloading, may be null to keep the current GameState
+	 * @param clearClasses <b>(Boolean)</b> clear the classes in the associated handler upon swapping in the new state
+	 * @see #isPreloading()
+	 */
+	public void preloadGameState(GameState gameState, GameState loadingState, boolean clearClasses) {
+		preloadGameState(gameState, loadingState, clearClasses, null);
+	}
+	
+	/**
+	 * Constructs a new GameState in the background and swaps it in at the end of the tick once it is ready, see {@link #preloadGameState(GameState, GameState, boolean)}.<br>
+	 * When initialising fails, nothing is swapped in and onFailure is called on the tick thread, e.g. to set the previous GameState again or show an error screen.
+	 * @param gameState <b>(GameState or inherited)</b> The new GameState
+	 * @param loadingState <b>(GameState or inherited)</b> GameState that is shown while the new GameState is preloading, may be null to keep the current GameState
+	 * @param clearClasses <b>(Boolean)</b> clear the classes in the associated handler upon swapping in the new state
+	 * @param onFailure <b>(Consumer)</b> called with the error if initialising fails, may be null to only print the error.
+	 */
+	public void preloadGameState(GameState gameState, GameState loadingState, boolean clearClasses, Consumer<Throwable> onFailure) {
+		if(loadingState != null) {
+			setGameState(loadingState, clearClasses);
+		}
+		_preloading = true;
+		
+		Thread preloadThread = new Thread(() -> {
+			Handler stagingHandler = new Handler();
+			try {
+				stagingHandler._gameState = gameState;
+				gameState._setFields(stagingHandler);
+				gameState.initialise();
+				do {
+					stagingHandler.emptyQueue();		//nothing else queues on the staging Handler, so this ends
+				}while(!stagingHandler.isQueueEmpty());
+				queueCommand(_SWAP_PRELOADED, stagingHandler, clearClasses ? 1 : 0);
+			} catch (Throwable e) {
+				queueCommand(_RUN, (Runnable) () -> preloadFailed(gameState, e, onFailure), 0);
+			}
+		});
+		preloadThread.setName("GameState-Preload");
+		preloadThread.setDaemon(true);
+		preloadThread.start();
+	}
+	
+	@Internal
+	private void preloadFailed(GameState gameState, Throwable error, Consumer<Throwable> onFailure) {
+		_preloading = false;
+		if(onFailure != null) {
+			onFailure.accept(error);
+		}else {
+			GameLoop.engineOutput.println("BaseEngine Error: could not preload GameState " + gameState.getClass().getName() + ": " + error);
+		}
+	}
+	
+	@Internal
+	private void swapPreloaded(Handler stagingHandler, boolean clearClasses) {
+		stagingHandler._movedTo = this;		//set first, so nothing sent to the staging Handler from now on is missed below
+		_adoptedHandler = stagingHandler;
+		if(clearClasses) {
+			removeImmediateClasses();
+		}
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			for(BaseClass baseClass : stagingHandler._classes.get(layer)) {
+				addImmediateClass(baseClass, layer);	//also links the BaseClass to this Handler
+			}
+		}
+		stagingHandler._physicsWorld.moveBodiesTo(_physicsWorld);		//bodies created in initialise, the handles stay valid
+		
+		_gameState = stagingHandler._gameState;
+		_gameState._setFields(this);
+		executeQueued(stagingHandler);		//queued by other threads after the staging Handler was emptied
+		stagingHandler.moveFinishedJobs(this);
+		_preloading = false;
+	}
+	
+	/**
+	 * Checks if a GameState is being preloaded with {@link #preloadGameState}.
+	 * @return True until the preloaded GameState has been swapped in.
+	 */
+	public boolean isPreloading() {
+		return _preloading;
+	}
+	
+	/**
+	 * Takes a snapshot of the BaseClasses and GameState in this Handler at the end of the current tick.<br>
+	 * <br>
+	 * Only the BaseClasses that changed since the previous snapshot (see {@link BaseClass#markChanged()}) are captured again, and only the layers whose contents changed are copied,
+	 * so taking a snapshot costs little time on the tick thread. The snapshot can then be saved on a background thread while ticking continues, e.g.
+	 * <code>handler.snapshot().thenAccept(snapshot -&gt; snapshot.save("autosave.sav"));</code><br>
+	 * <u>Note:</u> Changes are only recorded while snapshots are taken, the first snapshot (or the first after 600 ticks without one) looks at every BaseClass once.
+	 * @return (CompletableFuture) completes on the tick thread with the snapshot, at the end of the tick.
+	 */
+	public CompletableFuture<HandlerSnapshot> snapshot() {
+		CompletableFuture<HandlerSnapshot> request = new CompletableFuture<>();
+		_snapshotRequests.add(request);
+		return request;
+	}
+	
+	@Internal
+	void _markChanged(BaseClass baseClass) {
+		if(_trackingChanges) {
+			_changedClasses.add(baseClass);
+		}
+	}
+	
+	@Internal
+	private void startTrackingChanges() {
+		//changed classes were not recorded, so look through all of them once
+		_trackingChanges = true;
+		_changedClasses.clear();
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			for(BaseClass baseClass : _classes.get(layer)) {
+				if(baseClass._stateChanged) {
+					_changedClasses.add(baseClass);
+				}
+			}
+		}
+	}
+	
+	@Internal
+	private void stopTrackingChanges() {
+		//changed classes keep their flag, so the next snapshot still captures them
+		_trackingChanges = false;
+		_changedClasses.clear();
+		_changedClasses.trimToSize();
+	}
+	
+	@Internal
+	private void takeSnapshot() {
+		long start = System.nanoTime();
+		_ticksWithoutSnapshot = 0;
+		if(!_trackingChanges) {
+			startTrackingChanges();
+		}
+		//layers whose contents changed are copied again, arrays are never modified once a snapshot shares them
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			if(!_changedLayers[layer]) {
+				continue;
+			}
+			BaseClass[] classes = _classes.get(layer).toArray(new BaseClass[0]);
+			for(int index = 0; index < classes.length; index++) {
+				classes[index]._snapshotIndex = index;
+			}
+			_layerSnapshots[layer] = classes;
+			_layerStates[layer] = null;
+			_changedLayers[layer] = false;
+		}
+		
+		int capturedClasses = 0;
+		boolean[] copiedStates = new boolean[_LAYERS];
+		for(BaseClass baseClass : _changedClasses) {
+			if(!baseClass._stateChanged) {
+				continue;	//classes added several times are only captured once
+			}
+			capturedClasses++;
+			baseClass._stateChanged = false;
+			baseClass._savedState = SaveGame.capture(baseClass);
+			
+			int layer = baseClass.drawLayer;
+			int index = baseClass._snapshotIndex;
+			SavedState[] states = _layerStates[layer];
+			if(states == null || baseClass.handler != this || index >= _layerSnapshots[layer].length || _layerSnapshots[layer][index] != baseClass) {
+				continue;	//removed classes are not in the snapshot, rebuilt layers collect their states below
+			}
+			if(!copiedStates[layer]) {
+				states = states.clone();	//unchanged classes keep the state shared with the previous snapshot
+				_layerStates[layer] = states;
+				copiedStates[layer] = true;
+			}
+			states[index] = baseClass._savedState;
+		}
+		_changedClasses.clear();
+		
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			if(_layerStates[layer] == null) {
+				BaseClass[] classes = _layerSnapshots[layer];
+				SavedState[] states = new SavedState[classes.length];
+				for(int index = 0; index < classes.length; index++) {
+					states[index] = classes[index]._savedState;
+				}
+				_layerStates[layer] = states;
+			}
+		}
+		
+		SavedState gameState = _gameState == null ? null : SaveGame.capture(_gameState);
+		HandlerSnapshot snapshot = new HandlerSnapshot(GameLoop.getTicksPassed(), _layerSnapshots.clone(), _layerStates.clone(), gameState, capturedClasses, System.nanoTime() - start);
+		
+		CompletableFuture<HandlerSnapshot> request;
+		while((request = _snapshotRequests.poll()) != null) {
+			request.complete(snapshot);
+		}
+	}
+	
+	@Internal
+	List<BaseClass> _getLayer(int layer) {
+		return _classes.get(layer);
+	}
+	
+	@Internal
+	GameState _getGameState() {
+		return _gameState;
+	}
+	
+	/**
+	 * Puts back the BaseClasses and GameState saved by a {@link RollbackBuffer}, only layers whose contents differ are rebuilt.
+	 */
+	@Internal
+	void _restoreClasses(BaseClass[][] layers, int[] counts, GameState gameState) {
+		int changedLayers = 0;
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			if(!sameClasses(_classes.get(layer), layers[layer], counts[layer])) {
+				changedLayers |= 1 << layer;
+			}
+		}
+		
+		if(changedLayers != 0) {
+			//classes only in the current layers leave the CollisionWorld, classes only in the saved layers join it
+			int current = ++_rollbackMark, kept = ++_rollbackMark;
+			for(int layer = 0; layer < _LAYERS; layer++) {
+				if((changedLayers & (1 << layer)) != 0) {
+					for(BaseClass baseClass : _classes.get(layer)) {
+						baseClass._rollbackMark = current;
+					}
+				}
+			}
+			for(int layer = 0; layer < _LAYERS; layer++) {
+				if((changedLayers & (1 << layer)) != 0) {
+					for(int index = 0; index < counts[layer]; index++) {
+						BaseClass baseClass = layers[layer][index];
+						if(baseClass._rollbackMark != current && baseClass._rollbackMark != kept && baseClass instanceof Collider) {
+							_collisionWorld.add((Collider) baseClass);
+						}
+						baseClass._rollbackMark = kept;
+					}
+				}
+			}
+			for(int layer = 0; layer < _LAYERS; layer++) {
+				if((changedLayers & (1 << layer)) == 0) {
+					continue;
+				}
+				List<BaseClass> classes = _classes.get(layer);
+				for(BaseClass baseClass : classes) {
+					if(baseClass._rollbackMark == current && baseClass instanceof Collider) {
+						_collisionWorld.remove((Collider) baseClass);
+					}
+				}
+				classes.clear();
+				for(int index = 0; index < counts[layer]; index++) {
+					layers[layer][index]._setFields(this, layer);
+					classes.add(layers[layer][index]);
+				}
+				_changedLayers[layer] = true;
+			}
+		}
+		
+		if(gameState != null && gameState != _gameState) {
+			gameState._setFields(this);
+		}
 		_gameState = gameState;
-		gameState._setFields(this);
-		gameState.initialise();
+	}
+	
+	@Internal
+	private static boolean sameClasses(List<BaseClass> classes, BaseClass[] saved, int count) {
+		if(classes.size() != count) {
+			return false;
+		}
+		int index = 0;
+		for(BaseClass baseClass : classes) {
+			if(baseClass != saved[index++]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Getter for the CollisionWorld of this Handler, every BaseClass implementing {@link Collider} is part of it while it is in the Handler.
+	 * @return collisionWorld (CollisionWorld)
+	 */
+	public CollisionWorld getCollisionWorld() {
+		return _collisionWorld;
+	}
+	
+	/**
+	 * Getter for the PhysicsWorld of this Handler, it steps once per tick after all BaseClasses ticked and before collision events are delivered.
+	 * @return physicsWorld (PhysicsWorld)
+	 */
+	public PhysicsWorld getPhysicsWorld() {
+		return _physicsWorld;
+	}
+	
+	/**
+	 * Getter for the amount of ticks per second this Handler is ticked at.
+	 * @return tickRate (Double), the tick rate of the GameLoop unless the Handler was registered with its own tick rate
+	 */
+	public double getTickRate() {
+		return _tickRate > 0 ? _tickRate : GameLoop.getTickRate();
+	}
+	
+	@Internal
+	void setTickRate(double tickRate) {
+		_tickRate = tickRate;
+	}
+	
+	/**
+	 * Runs work on a worker thread and hands the result to a callback on the tick thread of this Handler, see {@link Job}.<br>
+	 * Use this for CPU heavy work such as pathfinding or generating terrain, failures are written to the engine output.
+	 * @param <T> type of the result
+	 * @param work <b>(Callable)</b> The work, it should not touch game state.
+	 * @param callback <b>(Consumer)</b> Receives the result at the end of a tick, may be null.
+	 * @return (Job) handle to cancel the work.
+	 */
+	public <T> Job<T> submitJob(Callable<T> work, Consumer<? super T> callback) {
+		return submitJob(work, callback, null);
+	}
+	
+	/**
+	 * Runs work on a worker thread and hands the result to a callback on the tick thread of this Handler, see {@link Job}.
+	 * @param <T> type of the result
+	 * @param work <b>(Callable)</b> The work, it should not touch game state.
+	 * @param callback <b>(Consumer)</b> Receives the result at the end of a tick, may be null.
+	 * @param onError <b>(Consumer)</b> Receives the exception at the end of a tick if the work failed, may be null.
+	 * @return (Job) handle to cancel the work.
+	 */
+	public <T> Job<T> submitJob(Callable<T> work, Consumer<? super T> callback, Consumer<Throwable> onError) {
+		Job<T> job = new Job<>(this, work, callback, onError);
+		job.submit(false);
+		return job;
+	}
+	
+	/**
+	 * Runs work that mostly waits, e.g. on files or the network, on a thread of its own and hands the result to a callback on the tick thread of this Handler.<br>
+	 * Unlike {@link #submitJob(Callable, Consumer)} blocking work does not hold up other Jobs.
+	 * @param <T> type of the result
+	 * @param work <b>(Callable)</b> The work, it should not touch game state.
+	 * @param callback <b>(Consumer)</b> Receives the result at the end of a tick, may be null.
+	 * @return (Job) handle to cancel the work.
+	 */
+	public <T> Job<T> submitIOJob(Callable<T> work, Consumer<? super T> callback) {
+		return submitIOJob(work, callback, null);
+	}
+	
+	/**
+	 * Runs work that mostly waits, e.g. on files or the network, on a thread of its own and hands the result to a callback on the tick thread of this Handler.
+	 * @param <T> type of the result
+	 * @param work <b>(Callable)</b> The work, it should not touch game state.
+	 * @param callback <b>(Consumer)</b> Receives the result at the end of a tick, may be null.
+	 * @param onError <b>(Consumer)</b> Receives the exception at the end of a tick if the work failed, may be null.
+	 * @return (Job) handle to cancel the work.
+	 */
+	public <T> Job<T> submitIOJob(Callable<T> work, Consumer<? super T> callback, Consumer<Throwable> onError) {
+		Job<T> job = new Job<>(this, work, callback, onError);
+		job.submit(true);
+		return job;
+	}
+	
+	/**
+	 * Sets how long Job callbacks may take per tick, callbacks that do not fit are delayed to the next tick.
+	 * At least one callback runs every tick, so a slow callback cannot hold up the others forever.
+	 * @param nanoseconds <b>(Long)</b> time for callbacks per tick, 2 milliseconds by default.
+	 */
+	public void setJobCallbackBudget(long nanoseconds) {
+		_jobCallbackBudget = nanoseconds;
+	}
+	
+	/**
+	 * Getter for the amount of finished Jobs waiting for their callback.
+	 * @return pendingJobCallbacks (Integer)
+	 */
+	public int getPendingJobCallbacks() {
+		return _finishedJobs.size();
+	}
+	
+	@Internal
+	void finishJob(Job<?> job) {
+		_finishedJobs.add(job);
+		Handler movedTo = _movedTo;
+		if(movedTo != null) {
+			moveFinishedJobs(movedTo);		//Job submitted on a staging Handler that was swapped in
+		}
+	}
+	
+	@Internal
+	private void moveFinishedJobs(Handler target) {
+		Job<?> job;
+		while((job = _finishedJobs.poll()) != null) {
+			target.finishJob(job);
+		}
+	}
+	
+	@Internal
+	private void runJobCallbacks() {
+		if(_finishedJobs.isEmpty()) {
+			return;
+		}
+		long deadline = System.nanoTime() + _jobCallbackBudget;
+		Job<?> job;
+		do {
+			job = _finishedJobs.poll();
+			if(job == null) {
+				return;
+			}
+			try {
+				job.deliver();
+			}catch(RuntimeException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: job callback failed: " + e);
+			}
+		}while(System.nanoTime() < deadline);
+	}
+	
+	/**
+	 * Enables or disables rendering the draw-layers of this Handler on several threads.<br>
+	 * Every draw-layer is then rendered into an offscreen image of its own on the common ForkJoinPool, and the images are drawn onto the Screen from bottom to top.
+	 * This spreads Java2D software rendering over the available cores, but drawing the images costs time as well,
+	 * so it pays off when several draw-layers take long to render.<br>
+	 * <u>Note:</u> BaseClasses on different draw-layers are rendered at the same time, their render methods should only read shared state.
+	 * {@link Draw} can be used as usual, it draws onto the image of the draw-layer being rendered.
+	 * Every draw-layer starts without the opacity set by {@link Draw#setOpacity(float)} in the draw-layer below it.
+	 * @param parallelLayers <b>(Boolean)</b> true to render draw-layers on several threads.
+	 */
+	public void setParallelLayers(boolean parallelLayers) {
+		_parallelLayers = parallelLayers;
 	}
 	
 	/**
@@ -188,46 +760,114 @@ public class Handler {
 	}
 	
 	/**
-	 * Adds an animation to the list of playing animations.<br>
-	 * <u>Note:</u> It is advised to use the {@link  Animation#start(Handler)} function, to insure animations are started correctly.
-	 * @param animation <b>(Animation)</b> The animation that will be added to the animations list.
+	 * Starts an animation.
+	 * @param animation <b>(Animation)</b> The animation that will be started.
+	 * @deprecated animations are no longer ticked by the Handler, use {@link Animation#start()}.
 	 */
+	@Deprecated
 	public void addAnimation(Animation animation) {
-		_animations.add(animation);
+		animation.start();
 	}
 	
 	/**
-	 * Removes  an animation to the list of playing animations.<br>
-	 * <u>Note:</u> It is advised to use the {@link  Animation#stop()} function, to insure animations are stopped correctly.
-	 * @param animation <b>(Animation)</b> The animation that will be removed from the animations list.
+	 * Stops an animation.
+	 * @param animation <b>(Animation)</b> The animation that will be stopped.
+	 * @deprecated animations are no longer ticked by the Handler, use {@link Animation#stop()}.
 	 */
+	@Deprecated
 	public void removeAnimation(Animation animation) {
-		_animations.remove(animation);
+		animation.stop();
 	}
 	
 	@Internal
 	void tick(){
 		_classes.forEach((layer, classList) -> classList.forEach(BaseClass::tick));
-		_animations.forEach(Animation::tick);
 		
 		if(_gameState != null) {
 			_gameState.tick();
 		}
 		
+		runJobCallbacks();
 		emptyQueue();		//empty queue at end of iteration
+		_physicsWorld.step(getTickRate());
+		_collisionWorld.step();
+		emptyQueue();		//classes added or removed by collision events
+		if(!_snapshotRequests.isEmpty()) {
+			takeSnapshot();
+		}else if(_trackingChanges && ++_ticksWithoutSnapshot > _CHANGE_TRACKING_TICKS) {
+			stopTrackingChanges();		//snapshots stopped, do not keep collecting changes nobody reads
+		}
 	}
 	
 	@Internal
-	void render() {
-		for(_renderIterator = 0; _renderIterator < _LAYERS; _renderIterator++) {
-			Iterator<BaseClass> renderClassIterator  = _classes.get(_renderIterator).iterator();
-			while(renderClassIterator.hasNext()) {
-				renderClassIterator.next().render();
+	void render(RenderContext context) {
+		if(_parallelLayers && Runtime.getRuntime().availableProcessors() > 1) {
+			renderLayersParallel(context);
+		}else {
+			for(_renderIterator = 0; _renderIterator < _LAYERS; _renderIterator++) {
+				Iterator<BaseClass> renderClassIterator  = _classes.get(_renderIterator).iterator();
+				while(renderClassIterator.hasNext()) {
+					renderClassIterator.next().render(context);
+				}
 			}
 		}
 		
 		if(_gameState != null) {
-			_gameState.render();
+			_gameState.render(context);
+		}
+	}
+	
+	@Internal
+	private void renderLayersParallel(RenderContext context) {
+		int width = Math.max(1, context.getWidth()), height = Math.max(1, context.getHeight());
+		double renderScale = context.getRenderScale();
+		//layer images have the resolution of the surface, which is smaller than the Screen at a lower render scale
+		int imageWidth = Math.max(1, (int) Math.ceil(width * renderScale)), imageHeight = Math.max(1, (int) Math.ceil(height * renderScale));
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			BufferedImage image = _layerImages[layer];
+			if(image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight || _layerContexts[layer].getRenderScale() != renderScale) {
+				if(_layerContexts[layer] != null) {
+					_layerContexts[layer].getGraphics().dispose();
+				}
+				_layerImages[layer] = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+				Graphics2D layerGraphics = _layerImages[layer].createGraphics();
+				layerGraphics.scale(renderScale, renderScale);
+				_layerContexts[layer] = new RenderContext(layerGraphics, width, height, renderScale);
+			}
+		}
+		
+		IntStream.range(0, _LAYERS).parallel().forEach(_layerRenderer);
+		
+		Graphics2D graphics = context.getGraphics();
+		AffineTransform unscaled = AffineTransform.getScaleInstance(1 / renderScale, 1 / renderScale);		//cancels the scale of the surface, so pixels are copied one to one
+		for(int layer = 0; layer < _LAYERS; layer++) {
+			if(_layerRendered[layer]) {
+				graphics.drawImage(_layerImages[layer], unscaled, null);
+			}
+		}
+	}
+	
+	@Internal
+	private void renderLayer(int layer) {
+		List<BaseClass> classes = _classes.get(layer);
+		_layerRendered[layer] = !classes.isEmpty();
+		if(classes.isEmpty()) {
+			return;
+		}
+		
+		RenderContext context = _layerContexts[layer];
+		Graphics2D graphics = context.getGraphics();
+		graphics.setComposite(AlphaComposite.Clear);
+		graphics.fillRect(0, 0, context.getWidth(), context.getHeight());
+		graphics.setComposite(AlphaComposite.SrcOver);		//also resets the opacity of the last frame
+		
+		RenderContext previous = Draw.useContext(context);
+		try {
+			for(BaseClass baseClass : classes) {
+				baseClass.render(context);
+			}
+		}finally {
+			Draw.useContext(previous);
 		}
 	}
 }
@@ -0,0 +1,119 @@
+package com.valhalla.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveGame;
+import com.valhalla.engine.io.SavedState;
+
+/**
+ * Point-in-time view of the contents of a {@link Handler}, taken at the end of a tick with {@link Handler#snapshot()}.<br>
+ * <br>
+ * A snapshot never changes after it is taken, so it can be saved on another thread while the game keeps ticking.
+ * It holds which BaseClasses were on every layer, and the state of every BaseClass (and the GameState) that has a serializer registered in {@link SaveGame}.<br>
+ * <u>Note:</u> The BaseClasses themselves keep changing after the snapshot, only read their state through {@link #getStates()}.
+ * @author BauwenDR
+ */
+public final class HandlerSnapshot {
+
+	private final long _tick;
+	private final BaseClass[][] _layers;
+	private final SavedState[][] _layerStates;
+	private final SavedState _gameState;
+	private final int _capturedClasses;
+	private final long _captureTime;
+
+	@Internal
+	HandlerSnapshot(long tick, BaseClass[][] layers, SavedState[][] layerStates, SavedState gameState, int capturedClasses, long captureTime) {
+		_tick = tick;
+		_layers = layers;
+		_layerStates = layerStates;
+		_gameState = gameState;
+		_capturedClasses = capturedClasses;
+		_captureTime = captureTime;
+	}
+
+	/**
+	 * Getter for the tick at which the snapshot was taken.
+	 * @return tick (Long)
+	 * @see GameLoop#getTicksPassed()
+	 */
+	public long getTick() {
+		return _tick;
+	}
+
+	/**
+	 * Getter for the BaseClasses that were on a layer when the snapshot was taken.
+	 * @param layer <b>(Integer)</b> the draw-layer.
+	 * @return (List) unmodifiable list of BaseClasses, in render order.
+	 */
+	public List<BaseClass> getLayer(int layer) {
+		return Collections.unmodifiableList(Arrays.asList(_layers[layer]));
+	}
+
+	/**
+	 * Getter for the captured states of the BaseClasses on a layer, at the same positions as {@link #getLayer(int)}.
+	 * @param layer <b>(Integer)</b> the draw-layer.
+	 * @return (List) unmodifiable list of states, null for BaseClasses without a registered serializer.
+	 */
+	public List<SavedState> getLayerStates(int layer) {
+		return Collections.unmodifiableList(Arrays.asList(_layerStates[layer]));
+	}
+
+	/**
+	 * Getter for the amount of draw-layers in the snapshot.
+	 * @return layerCount (Integer)
+	 */
+	public int getLayerCount() {
+		return _layers.length;
+	}
+
+	/**
+	 * Getter for the captured states of the GameState and all BaseClasses, in render order.<br>
+	 * BaseClasses without a registered serializer are left out.
+	 * @return (List) the captured states.
+	 */
+	public List<SavedState> getStates() {
+		ArrayList<SavedState> states = new ArrayList<>();
+		if(_gameState != null) {
+			states.add(_gameState);
+		}
+		for(SavedState[] layer : _layerStates) {
+			for(SavedState state : layer) {
+				if(state != null) {
+					states.add(state);
+				}
+			}
+		}
+		return states;
+	}
+
+	/**
+	 * Saves the snapshot to a file on the background thread of {@link SaveGame}, it can be loaded with {@link SaveGame#load(String)}.
+	 * @param path <b>(String)</b> Location of where the save will be stored.
+	 * @return (CompletableFuture) completes with the size of the save in bytes once the file is written.
+	 */
+	public CompletableFuture<Integer> save(String path) {
+		return SaveGame.saveStates(path, getStates());
+	}
+
+	/**
+	 * Getter for the amount of BaseClasses that had changed since the previous snapshot and were captured again.
+	 * @return capturedClasses (Integer)
+	 */
+	public int getCapturedClasses() {
+		return _capturedClasses;
+	}
+
+	/**
+	 * Getter for the time taking the snapshot cost on the tick thread.
+	 * @return time in nanoseconds (Long)
+	 */
+	public long getCaptureTime() {
+		return _captureTime;
+	}
+}
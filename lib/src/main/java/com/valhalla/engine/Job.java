@@ -0,0 +1,146 @@
+package com.valhalla.engine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Handle to work running in the background, submitted with {@link Handler#submitJob(Callable, Consumer)} or {@link Handler#submitIOJob(Callable, Consumer)}.<br>
+ * <br>
+ * The work runs on a worker thread, its result is handed to the callback on the tick thread of the Handler at the end of a tick, before queued BaseClasses are added.
+ * So the work itself should not touch game state, but the callback can.<br>
+ * <u>Note:</u> Cancelling a Job on the tick thread guarantees its callback does not run, cancelling it on another thread only does so if the callback did not start yet.
+ * @param <T> type of the result
+ * @author BauwenDR
+ */
+public final class Job<T> implements Runnable {
+
+	private static final int _PENDING = 0, _RUNNING = 1, _FINISHED = 2, _DONE = 3, _CANCELLED = 4;
+
+	private static final AtomicInteger _workerNumber = new AtomicInteger();
+	private static final ExecutorService _workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+		Thread worker = new Thread(runnable);
+		worker.setName("Job-Worker-" + _workerNumber.incrementAndGet());
+		worker.setDaemon(true);
+		worker.setPriority(Thread.NORM_PRIORITY - 1);		//the tick and render threads come first
+		return worker;
+	});
+	private static final ExecutorService _ioWorkers = Executors.newCachedThreadPool(runnable -> {
+		Thread worker = new Thread(runnable);
+		worker.setName("Job-IO-" + _workerNumber.incrementAndGet());
+		worker.setDaemon(true);
+		return worker;
+	});
+
+	private final Handler _handler;
+	private final Callable<T> _work;
+	private final Consumer<? super T> _callback;
+	private final Consumer<Throwable> _onError;
+	private final AtomicInteger _state = new AtomicInteger(_PENDING);
+	private volatile Future<?> _future;
+	private T _result;
+	private Throwable _error;
+
+	@Internal
+	Job(Handler handler, Callable<T> work, Consumer<? super T> callback, Consumer<Throwable> onError) {
+		_handler = handler;
+		_work = work;
+		_callback = callback;
+		_onError = onError;
+	}
+
+	@Internal
+	void submit(boolean io) {
+		_future = (io ? _ioWorkers : _workers).submit(this);
+	}
+
+	@Internal
+	@Override
+	public void run() {
+		if(!_state.compareAndSet(_PENDING, _RUNNING)) {
+			return;
+		}
+		try {
+			_result = _work.call();
+		}catch(Throwable e) {
+			_error = e;
+		}
+		if(_state.compareAndSet(_RUNNING, _FINISHED)) {
+			_handler.finishJob(this);
+		}
+	}
+
+	/**
+	 * Hands the result to the callback, called by the Handler on its tick thread.
+	 */
+	@Internal
+	void deliver() {
+		if(!_state.compareAndSet(_FINISHED, _DONE)) {
+			return;		//cancelled after the work finished
+		}
+		T result = _result;
+		Throwable error = _error;
+		_result = null;
+		_error = null;
+		if(error == null) {
+			if(_callback != null) {
+				_callback.accept(result);
+			}
+		}else if(_onError != null) {
+			_onError.accept(error);
+		}else {
+			GameLoop.engineOutput.println("BaseEngine Error: job failed: " + error);
+		}
+	}
+
+	/**
+	 * Cancels the Job, work that is running is interrupted and its result is thrown away.
+	 * @return True if the Job was cancelled, false if it was already done or cancelled.
+	 */
+	public boolean cancel() {
+		while(true) {
+			int state = _state.get();
+			if(state == _DONE || state == _CANCELLED) {
+				return false;
+			}
+			if(_state.compareAndSet(state, _CANCELLED)) {
+				Future<?> future = _future;
+				if(future != null) {
+					future.cancel(state == _RUNNING);		//a pending Job is taken off the queue of its worker
+				}
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Checks if the Job was cancelled.
+	 * @return True if {@link #cancel()} succeeded.
+	 */
+	public boolean isCancelled() {
+		return _state.get() == _CANCELLED;
+	}
+
+	/**
+	 * Checks if the Job is finished, meaning its callback ran or it was cancelled.
+	 * @return True if nothing is left to do for the Job.
+	 */
+	public boolean isDone() {
+		int state = _state.get();
+		return state == _DONE || state == _CANCELLED;
+	}
+
+	/**
+	 * Checks if the work of the Job is still running or waiting for a worker.
+	 * @return True if the result is not known yet.
+	 */
+	public boolean isRunning() {
+		int state = _state.get();
+		return state == _PENDING || state == _RUNNING;
+	}
+}
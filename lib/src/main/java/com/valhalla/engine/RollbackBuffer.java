@@ -0,0 +1,288 @@
+package com.valhalla.engine;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import com.valhalla.engine.input.InputState;
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveInput;
+import com.valhalla.engine.io.SaveOutput;
+import com.valhalla.engine.util.Rewindable;
+
+/**
+ * Ring buffer of the simulation state of a {@link Handler} at the last ticks, used for rollback netcode and rewinding.<br>
+ * <br>
+ * A saved tick holds which BaseClasses were on every layer and the GameState, the state of every BaseClass and GameState implementing {@link Rewindable},
+ * the input of {@link com.valhalla.engine.input.KeyInput} and {@link com.valhalla.engine.input.MouseInput} (see {@link InputState}) and the tick counter of the {@link GameLoop}.
+ * Every slot of the buffer keeps its memory, so once the buffer is warmed up saving and restoring a tick does not create objects,
+ * unless the BaseClasses on a layer changed, which rebuilds only that layer.<br>
+ * <br>
+ * Save the state before every tick, e.g. with <code>Scheduler.scheduleRepeating(buffer::save, 0, 1)</code>.
+ * When a correction arrives for an earlier tick, apply it and call {@link #resimulate(long)} to simulate the ticks since then again with the input they had.<br>
+ * <u>Note:</u> Only use a RollbackBuffer on the tick thread. Bodies of the {@link com.valhalla.engine.physics.PhysicsWorld} are not saved,
+ * and ticks that are simulated again do not run {@link Scheduler} tasks again.
+ * Restoring a tick does not undo Scheduler tasks either, waiting tasks are moved back with the tick counter, so they still wait as many ticks as they had left.
+ * @author BauwenDR
+ */
+public final class RollbackBuffer {
+
+	/**
+	 * Everything saved for one tick.
+	 */
+	@Internal
+	private static final class Slot {
+		long tick = -1;
+		final BaseClass[][] layers = new BaseClass[Handler._LAYERS][];
+		final int[] counts = new int[Handler._LAYERS];
+		GameState gameState;
+		final SaveOutput states = new SaveOutput(256);
+		Object[] rewindables = new Object[16];
+		int[] stateEnds = new int[16];
+		int rewindableCount;
+		final InputState input = new InputState();
+
+		Slot() {
+			Arrays.fill(layers, new BaseClass[0]);
+		}
+	}
+
+	private final Handler _handler;
+	private final Slot[] _slots;
+	private long _newestTick = -1;
+	private final SaveInput _input = new SaveInput(new byte[0], 0, 0);
+	private final InputState _liveInput = new InputState();
+	private long _lastSaveTime, _lastRestoreTime, _lastResimulateTime;
+
+	/**
+	 * Creates an empty buffer for a Handler.
+	 * @param handler <b>(Handler)</b> the Handler whose state is saved.
+	 * @param capacity <b>(Integer)</b> amount of ticks kept, older ticks are overwritten.
+	 * @throws IllegalArgumentException if capacity is smaller than 1
+	 */
+	public RollbackBuffer(Handler handler, int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("BaseEngine: a RollbackBuffer has to keep at least 1 tick");
+		}
+		_handler = handler;
+		_slots = new Slot[capacity];
+		for(int slot = 0; slot < capacity; slot++) {
+			_slots[slot] = new Slot();
+		}
+	}
+
+	/**
+	 * Saves the state before the current tick, replacing the tick that is now the oldest one (or the same tick, if it was already saved).<br>
+	 * Ticks after the current tick that were saved before a {@link #restore(long)} are forgotten.
+	 * @return (Long) the tick that was saved, see {@link GameLoop#getTicksPassed()}.
+	 */
+	public long save() {
+		long start = System.nanoTime();
+		long tick = GameLoop.getTicksPassed();
+		Slot slot = slotOf(tick);
+		saveState(slot, tick);
+		slot.input.capture();
+		_newestTick = tick;
+		_lastSaveTime = System.nanoTime() - start;
+		return tick;
+	}
+
+	@Internal
+	private void saveState(Slot slot, long tick) {
+		slot.tick = tick;
+		slot.states.clear();
+		slot.rewindableCount = 0;
+		for(int layer = 0; layer < Handler._LAYERS; layer++) {
+			List<BaseClass> classes = _handler._getLayer(layer);
+			int count = classes.size();
+			BaseClass[] saved = slot.layers[layer];
+			if(saved.length < count) {
+				saved = new BaseClass[Math.max(count, saved.length * 2)];
+				slot.layers[layer] = saved;
+			}
+			int index = 0;
+			for(BaseClass baseClass : classes) {
+				if(saved[index] != baseClass) {
+					saved[index] = baseClass;		//slots mostly hold the same classes again, skipping the store skips the write barrier of the GC
+				}
+				index++;
+				if(baseClass._rewindable) {
+					saveRewindable(slot, baseClass);
+				}
+			}
+			if(slot.counts[layer] > count) {
+				Arrays.fill(saved, count, slot.counts[layer], null);		//do not keep removed classes alive
+			}
+			slot.counts[layer] = count;
+		}
+		slot.gameState = _handler._getGameState();
+		if(slot.gameState instanceof Rewindable) {
+			saveRewindable(slot, slot.gameState);
+		}
+		Arrays.fill(slot.rewindables, slot.rewindableCount, slot.rewindables.length, null);
+	}
+
+	@Internal
+	private static void saveRewindable(Slot slot, Object object) {
+		if(slot.rewindableCount == slot.rewindables.length) {
+			slot.rewindables = Arrays.copyOf(slot.rewindables, slot.rewindableCount * 2);
+			slot.stateEnds = Arrays.copyOf(slot.stateEnds, slot.rewindableCount * 2);
+		}
+		((Rewindable) object).saveState(slot.states);
+		if(slot.rewindables[slot.rewindableCount] != object) {
+			slot.rewindables[slot.rewindableCount] = object;
+		}
+		slot.stateEnds[slot.rewindableCount++] = slot.states.getLength();
+	}
+
+	/**
+	 * Puts back the state saved before a tick, including the input and the tick counter.
+	 * Waiting {@link Scheduler} tasks are moved back by the same amount of ticks, so a save scheduled every tick keeps running,
+	 * and the ticks saved after the restored tick are forgotten until they are saved again as the game continues.
+	 * @param tick <b>(Long)</b> the tick to go back to.
+	 * @return True if the tick was restored, false if it is not in the buffer.
+	 * @throws IllegalStateException if a {@link Rewindable} did not read back exactly what it wrote
+	 * @see #contains(long)
+	 */
+	public boolean restore(long tick) {
+		if(!contains(tick)) {
+			return false;
+		}
+		long start = System.nanoTime();
+		Slot slot = slotOf(tick);
+		restoreState(slot);
+		slot.input.restore();
+		Scheduler._shift(tick - GameLoop.getTicksPassed());
+		GameLoop._setTicksPassed(tick);
+		_newestTick = tick;
+		_lastRestoreTime = System.nanoTime() - start;
+		return true;
+	}
+
+	@Internal
+	private void restoreState(Slot slot) {
+		_handler._restoreClasses(slot.layers, slot.counts, slot.gameState);
+		byte[] bytes = slot.states.getBytes();
+		int position = 0;
+		for(int index = 0; index < slot.rewindableCount; index++) {
+			int end = slot.stateEnds[index];
+			_input.reset(bytes, position, end - position);
+			try {
+				((Rewindable) slot.rewindables[index]).restoreState(_input);
+			}catch(IOException e) {
+				throw new IllegalStateException("BaseEngine: " + slot.rewindables[index].getClass().getName() + " read more than it saved", e);
+			}
+			if(_input.getRemaining() != 0) {
+				throw new IllegalStateException("BaseEngine: " + slot.rewindables[index].getClass().getName() + " read less than it saved");
+			}
+			position = end;
+		}
+	}
+
+	/**
+	 * Goes back to an earlier tick and ticks the Handler again up to the current tick, every tick with the input it had the first time.
+	 * Every tick simulated again replaces its saved state.<br>
+	 * Corrections that are not part of the saved state, e.g. the input of a remote player stored per tick, are picked up by the ticks that are simulated again.
+	 * @param fromTick <b>(Long)</b> the tick to simulate again from.
+	 * @return True if the ticks were simulated again, false if the tick is not in the buffer.
+	 */
+	public boolean resimulate(long fromTick) {
+		long target = GameLoop.getTicksPassed();
+		if(fromTick > target || !contains(fromTick)) {
+			return false;
+		}
+		long start = System.nanoTime();
+		_liveInput.capture();		//input of the current tick, in case it was not saved yet
+		long newestTick = _newestTick;
+
+		Slot first = slotOf(fromTick);
+		restoreState(first);
+		first.input.restore();
+		GameLoop._setTicksPassed(fromTick);
+		for(long tick = fromTick + 1; tick <= target; tick++) {
+			_handler.tick();
+			GameLoop._setTicksPassed(tick);
+			Slot slot = slotOf(tick);
+			boolean saved = tick <= newestTick && slot.tick == tick;
+			(saved ? slot.input : _liveInput).restore();
+			if(saved || tick == target) {
+				saveState(slot, tick);
+				if(!saved) {
+					slot.input.capture();
+				}
+			}
+		}
+		_newestTick = Math.max(newestTick, target);
+		_lastResimulateTime = System.nanoTime() - start;
+		return true;
+	}
+
+	/**
+	 * Checks if the state before a tick is in the buffer.
+	 * @param tick <b>(Long)</b> the tick to check.
+	 * @return True if the tick can be restored.
+	 */
+	public boolean contains(long tick) {
+		return tick >= 0 && tick <= _newestTick && slotOf(tick).tick == tick;
+	}
+
+	/**
+	 * Getter for the oldest tick that can still be restored.
+	 * @return oldestTick (Long), -1 if nothing was saved yet
+	 */
+	public long getOldestTick() {
+		if(_newestTick < 0) {
+			return -1;
+		}
+		long tick = Math.max(0, _newestTick - _slots.length + 1);
+		while(!contains(tick)) {
+			tick++;
+		}
+		return tick;
+	}
+
+	/**
+	 * Getter for the newest tick that can be restored.
+	 * @return newestTick (Long), -1 if nothing was saved yet
+	 */
+	public long getNewestTick() {
+		return _newestTick;
+	}
+
+	/**
+	 * Getter for the amount of ticks the buffer keeps.
+	 * @return capacity (Integer)
+	 */
+	public int getCapacity() {
+		return _slots.length;
+	}
+
+	/**
+	 * Getter for the time the last {@link #save()} took.
+	 * @return lastSaveTime (Long) in nanoseconds
+	 */
+	public long getLastSaveTime() {
+		return _lastSaveTime;
+	}
+
+	/**
+	 * Getter for the time the last {@link #restore(long)} took.
+	 * @return lastRestoreTime (Long) in nanoseconds
+	 */
+	public long getLastRestoreTime() {
+		return _lastRestoreTime;
+	}
+
+	/**
+	 * Getter for the time the last {@link #resimulate(long)} took, including the ticks themselves.
+	 * @return lastResimulateTime (Long) in nanoseconds
+	 */
+	public long getLastResimulateTime() {
+		return _lastResimulateTime;
+	}
+
+	@Internal
+	private Slot slotOf(long tick) {
+		return _slots[(int) (tick % _slots.length)];
+	}
+}
@@ -0,0 +1,69 @@
+package com.valhalla.engine;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Handle to a callback scheduled with the {@link Scheduler}, used to cancel it or to check if it has run.
+ * @author BauwenDR
+ */
+public final class ScheduledTask {
+
+	static final int PENDING = 0, DONE = 1, CANCELLED = 2;
+
+	final Runnable task;
+	final long period;
+	long dueTick;
+	volatile int state = PENDING;
+
+	//intrusive list of the timing wheel slot the task is in, slot is -1 while the task is not in the wheel
+	ScheduledTask previous, next;
+	int slot = -1;
+
+	@Internal
+	ScheduledTask(Runnable task, long dueTick, long period) {
+		this.task = task;
+		this.dueTick = dueTick;
+		this.period = period;
+	}
+
+	/**
+	 * Cancels the task, it will not run anymore. Cancelling a task that already ran or was already cancelled does nothing.<br>
+	 * <u>Note:</u> A repeating task can cancel itself from its own callback.
+	 * @return True if the task was cancelled by this call.
+	 */
+	public boolean cancel() {
+		return Scheduler.cancel(this);
+	}
+
+	/**
+	 * Checks if the task was cancelled.
+	 * @return True if the task was cancelled.
+	 */
+	public boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	/**
+	 * Checks if the task has run, repeating tasks are never done until they are cancelled.
+	 * @return True if the task ran and will not run again.
+	 */
+	public boolean isDone() {
+		return state == DONE;
+	}
+
+	/**
+	 * Getter for the tick at which the task runs next, see {@link GameLoop#getTicksPassed()}.
+	 * @return dueTick (Long)
+	 */
+	public long getDueTick() {
+		return dueTick;
+	}
+
+	/**
+	 * Getter for the amount of ticks between two runs of a repeating task.
+	 * @return period (Long), 0 for a task that only runs once
+	 */
+	public long getPeriod() {
+		return period;
+	}
+}
@@ -0,0 +1,284 @@
+package com.valhalla.engine;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class used for running callbacks at a later tick of the {@link GameLoop}, e.g. "explode in 90 ticks" or "respawn in 5 seconds",
+ * without every BaseClass counting down its own timers.<br>
+ * <br>
+ * Tasks run on the tick thread at the start of the tick they are due, before the Handler ticks,
+ * so BaseClasses they add or remove are handled at the end of that same tick.
+ * A task is never run in the tick it was scheduled in, a delay of 0 ticks runs it in the next tick.<br>
+ * <br>
+ * Tasks are kept in a hierarchical timing wheel: scheduling and cancelling take constant time, and a tick only looks at the tasks that are due.
+ * @author BauwenDR
+ * @see ScheduledTask
+ */
+public class Scheduler {
+
+	private static final int _SLOT_BITS = 8;
+	private static final int _SLOTS = 1 << _SLOT_BITS;
+	private static final int _LEVELS = 64 / _SLOT_BITS;
+
+	//level L holds tasks whose due tick first differs from the current tick in bits [8L, 8L + 8)
+	private static final ScheduledTask[] _wheel = new ScheduledTask[_LEVELS * _SLOTS];
+	private static long _currentTick = 0;		//next tick that will be processed
+	private static int _pendingTasks = 0;
+
+	private static final ArrayList<ScheduledTask> _dueTasks = new ArrayList<>();
+
+	/**
+	 * Runs a task once after a given amount of ticks.
+	 * @param task <b>(Runnable)</b> the callback to run on the tick thread.
+	 * @param delayTicks <b>(Long)</b> amount of ticks from the current tick.
+	 * @return (ScheduledTask) handle to cancel the task.
+	 */
+	public static ScheduledTask schedule(Runnable task, long delayTicks) {
+		return add(task, GameLoop.getTicksPassed() + Math.max(0, delayTicks), 0);
+	}
+
+	/**
+	 * Runs a task once after a given duration, rounded to the nearest tick with the tickrate of the {@link GameLoop}.
+	 * @param task <b>(Runnable)</b> the callback to run on the tick thread.
+	 * @param delay <b>(Long)</b> duration from the current tick.
+	 * @param unit <b>(TimeUnit)</b> unit of the duration.
+	 * @return (ScheduledTask) handle to cancel the task.
+	 */
+	public static ScheduledTask schedule(Runnable task, long delay, TimeUnit unit) {
+		return schedule(task, toTicks(delay, unit));
+	}
+
+	/**
+	 * Runs a task once at a given tick, a tick that already passed runs the task in the next tick.
+	 * @param task <b>(Runnable)</b> the callback to run on the tick thread.
+	 * @param tick <b>(Long)</b> the tick at which to run the task, see {@link GameLoop#getTicksPassed()}.
+	 * @return (ScheduledTask) handle to cancel the task.
+	 */
+	public static ScheduledTask scheduleAt(Runnable task, long tick) {
+		return add(task, tick, 0);
+	}
+
+	/**
+	 * Runs a task repeatedly until it is cancelled.
+	 * @param task <b>(Runnable)</b> the callback to run on the tick thread.
+	 * @param delayTicks <b>(Long)</b> amount of ticks from the current tick until the first run.
+	 * @param periodTicks <b>(Long)</b> amount of ticks between two runs, at least 1.
+	 * @return (ScheduledTask) handle to cancel the task.
+	 */
+	public static ScheduledTask scheduleRepeating(Runnable task, long delayTicks, long periodTicks) {
+		if(periodTicks < 1) {
+			throw new IllegalArgumentException("BaseEngine: the period of a repeating task has to be at least 1 tick");
+		}
+		return add(task, GameLoop.getTicksPassed() + Math.max(0, delayTicks), periodTicks);
+	}
+
+	/**
+	 * Runs a task repeatedly until it is cancelled, durations are rounded to the nearest tick with the tickrate of the {@link GameLoop}.
+	 * @param task <b>(Runnable)</b> the callback to run on the tick thread.
+	 * @param delay <b>(Long)</b> duration from the current tick until the first run.
+	 * @param period <b>(Long)</b> duration between two runs, at least 1 tick.
+	 * @param unit <b>(TimeUnit)</b> unit of both durations.
+	 * @return (ScheduledTask) handle to cancel the task.
+	 */
+	public static ScheduledTask scheduleRepeating(Runnable task, long delay, long period, TimeUnit unit) {
+		return scheduleRepeating(task, toTicks(delay, unit), Math.max(1, toTicks(period, unit)));
+	}
+
+	/**
+	 * Getter for the amount of tasks waiting to run.
+	 * @return pendingTasks (Integer)
+	 */
+	public static synchronized int getPendingTasks() {
+		return _pendingTasks;
+	}
+
+	/**
+	 * Cancels all tasks that are waiting to run.
+	 */
+	public static synchronized void clear() {
+		for(int slot = 0; slot < _wheel.length; slot++) {
+			for(ScheduledTask task = _wheel[slot]; task != null; task = task.next) {
+				task.state = ScheduledTask.CANCELLED;
+				task.slot = -1;
+			}
+			_wheel[slot] = null;
+		}
+		_pendingTasks = 0;
+	}
+
+	@Internal
+	static synchronized boolean cancel(ScheduledTask task) {
+		if(task.state != ScheduledTask.PENDING) {
+			return false;
+		}
+		task.state = ScheduledTask.CANCELLED;
+		if(task.slot >= 0) {
+			unlink(task);
+		}
+		return true;
+	}
+
+	/**
+	 * Runs all tasks that are due up to and including the current tick, called by the GameLoop before the Handler ticks.
+	 */
+	@Internal
+	static void tick() {
+		while(true) {
+			synchronized(Scheduler.class) {
+				if(_currentTick > GameLoop.getTicksPassed()) {		//read again every tick, a task may rewind the tick counter
+					return;
+				}
+				long tick = _currentTick++;
+				if(_pendingTasks > 0) {
+					collectDueTasks(tick);
+				}
+			}
+			if(!_dueTasks.isEmpty()) {
+				runDueTasks();
+			}
+		}
+	}
+
+	/**
+	 * Moves the current tick and every waiting task by the same amount of ticks, called when a {@link RollbackBuffer} rewinds the tick counter.
+	 * Tasks keep the amount of ticks they still had to wait, so repeating tasks keep running every period.
+	 */
+	@Internal
+	static synchronized void _shift(long ticks) {
+		if(ticks == 0) {
+			return;
+		}
+		//unlink every task into one chain first, their slots depend on the current tick
+		ScheduledTask chain = null;
+		for(int slot = 0; slot < _wheel.length; slot++) {
+			ScheduledTask task = _wheel[slot];
+			_wheel[slot] = null;
+			while(task != null) {
+				ScheduledTask next = task.next;
+				task.next = chain;
+				chain = task;
+				task = next;
+			}
+		}
+		_currentTick += ticks;
+		while(chain != null) {
+			ScheduledTask next = chain.next;
+			chain.dueTick += ticks;
+			insert(chain, _currentTick);
+			chain = next;
+		}
+		//due tasks of the tick that is running are scheduled again from their due tick
+		for(ScheduledTask task : _dueTasks) {
+			if(task.state == ScheduledTask.PENDING && task.slot < 0) {
+				task.dueTick += ticks;
+			}
+		}
+	}
+
+	@Internal
+	private static void collectDueTasks(long tick) {
+		//move tasks of the higher levels down when the tick enters their slot, highest level first so they can fall through several levels
+		if((tick & (_SLOTS - 1)) == 0) {
+			int topLevel = Math.min(_LEVELS - 1, Long.numberOfTrailingZeros(tick) / _SLOT_BITS);
+			for(int level = topLevel; level > 0; level--) {
+				int slot = level * _SLOTS + (int) ((tick >>> (level * _SLOT_BITS)) & (_SLOTS - 1));
+				ScheduledTask task = _wheel[slot];
+				_wheel[slot] = null;
+				while(task != null) {
+					ScheduledTask next = task.next;
+					insert(task, tick);
+					task = next;
+				}
+			}
+		}
+
+		int slot = (int) (tick & (_SLOTS - 1));
+		for(ScheduledTask task = _wheel[slot]; task != null; task = task.next) {
+			task.slot = -1;
+			_dueTasks.add(task);
+			_pendingTasks--;
+		}
+		_wheel[slot] = null;
+	}
+
+	@Internal
+	private static void runDueTasks() {
+		for(int index = 0; index < _dueTasks.size(); index++) {
+			ScheduledTask task = _dueTasks.get(index);
+			if(task.state != ScheduledTask.PENDING) {
+				continue;		//cancelled by a task that ran earlier in this tick
+			}
+			try {
+				task.task.run();
+			} catch (RuntimeException e) {
+				if(Screen._showErrors) {
+					e.printStackTrace();
+				}
+				GameLoop.engineOutput.println("BaseEngine Error: scheduled task failed: " + e);
+			}
+
+			synchronized(Scheduler.class) {
+				if(task.state != ScheduledTask.PENDING) {
+					continue;
+				}
+				if(task.period > 0) {
+					task.dueTick += task.period;
+					insert(task, _currentTick);
+					_pendingTasks++;
+				}else {
+					task.state = ScheduledTask.DONE;
+				}
+			}
+		}
+		_dueTasks.clear();
+	}
+
+	@Internal
+	private static synchronized ScheduledTask add(Runnable task, long dueTick, long period) {
+		ScheduledTask scheduledTask = new ScheduledTask(task, dueTick, period);
+		insert(scheduledTask, _currentTick);
+		_pendingTasks++;
+		return scheduledTask;
+	}
+
+	@Internal
+	private static void insert(ScheduledTask task, long currentTick) {
+		if(task.dueTick < currentTick) {
+			task.dueTick = currentTick;
+		}
+		long difference = task.dueTick ^ currentTick;
+		int level = difference == 0 ? 0 : (63 - Long.numberOfLeadingZeros(difference)) / _SLOT_BITS;
+		int slot = level * _SLOTS + (int) ((task.dueTick >>> (level * _SLOT_BITS)) & (_SLOTS - 1));
+
+		task.slot = slot;
+		task.previous = null;
+		task.next = _wheel[slot];
+		if(task.next != null) {
+			task.next.previous = task;
+		}
+		_wheel[slot] = task;
+	}
+
+	@Internal
+	private static void unlink(ScheduledTask task) {
+		if(task.previous != null) {
+			task.previous.next = task.next;
+		}else {
+			_wheel[task.slot] = task.next;
+		}
+		if(task.next != null) {
+			task.next.previous = task.previous;
+		}
+		task.previous = task.next = null;
+		task.slot = -1;
+		_pendingTasks--;
+	}
+
+	@Internal
+	private static long toTicks(long duration, TimeUnit unit) {
+		return Math.round(unit.toNanos(duration) / 1_000_000_000.0 * GameLoop.getTickRate());
+	}
+}
@@ -30,6 +30,17 @@ public class Screen implements Runnable {
 	private static Component _component;
 	
 	private static double _amountOfTicks = 0;
+	
+	//dynamic resolution: the render scale drops quickly when frames take too long and rises slowly when there is time left
+	private static final double _LOWER_LOAD = 0.9, _RAISE_LOAD = 0.65, _TARGET_LOAD = 0.75;		//render time compared to the time of one frame
+	private static final int _LOWER_FRAMES = 3, _RAISE_FRAMES = 60, _SETTLE_FRAMES = 10;
+	private static final double _SCALE_STEP = 0.05;
+	private static volatile boolean _dynamicResolution = false;
+	private static volatile double _minRenderScale = 0.5, _maxRenderScale = 1;
+	private static volatile double _renderScale = 1;
+	private static volatile double _averageRenderTime = 0;
+	private static int _overBudgetFrames = 0, _underBudgetFrames = 0, _settleFrames = 0;		//guarded by _renderScaleLock, setters run on other threads
+	private static final Object _renderScaleLock = new Object();
 
 	private static final GraphicsEnvironment _graphicsEnvironment = GraphicsEnvironment.getLocalGraphicsEnvironment();
 	
@@ -90,7 +101,10 @@ public class Screen implements Runnable {
 			delta += (now - lastTime) / ns;
 			lastTime = now;
 			while(delta >=1) {
-				_gameloop.render();
+				long sceneTime = _gameloop.render();
+				if(sceneTime >= 0) {
+					adaptRenderScale(sceneTime);
+				}
 				frames++;
 				delta--;
 				
@@ -118,6 +132,52 @@ public class Screen implements Runnable {
 		stop();
 	}
 	
+	/**
+	 * Changes the render scale when the average render time stays above or below the time of one frame at the refresh rate.<br>
+	 * The cost of a frame is taken to grow with its amount of pixels, so the scale is lowered by the square root of the load.
+	 * Only the scene is timed, scaling it up and showing it are left out since showing waits for the display with vsync.
+	 */
+	@Internal
+	private static void adaptRenderScale(long renderTime) {
+		synchronized(_renderScaleLock) {
+			_averageRenderTime = _averageRenderTime == 0 ? renderTime : _averageRenderTime * 0.8 + renderTime * 0.2;
+			if(!_dynamicResolution || _amountOfTicks <= 0 || _amountOfTicks == Double.MAX_VALUE) {
+				return;		//an unlimited frame rate has no budget
+			}
+			if(_settleFrames > 0) {
+				_settleFrames--;		//the average still holds frames of the previous scale
+				return;
+			}
+			
+			double load = _averageRenderTime * _amountOfTicks / 1e9;
+			if(load > _LOWER_LOAD) {
+				_underBudgetFrames = 0;
+				if(++_overBudgetFrames >= _LOWER_FRAMES && _renderScale > _minRenderScale) {
+					changeRenderScale(Math.min(_renderScale - _SCALE_STEP, _renderScale * Math.sqrt(_TARGET_LOAD / load)));
+				}
+			}else if(load < _RAISE_LOAD) {
+				_overBudgetFrames = 0;
+				if(++_underBudgetFrames >= _RAISE_FRAMES && _renderScale < _maxRenderScale) {
+					changeRenderScale(_renderScale + _SCALE_STEP);
+				}
+			}else {
+				_overBudgetFrames = 0;
+				_underBudgetFrames = 0;
+			}
+		}
+	}
+	
+	/**
+	 * Only called while holding _renderScaleLock.
+	 */
+	@Internal
+	private static void changeRenderScale(double renderScale) {
+		_renderScale = Math.max(_minRenderScale, Math.min(_maxRenderScale, renderScale));
+		_overBudgetFrames = 0;
+		_underBudgetFrames = 0;
+		_settleFrames = _SETTLE_FRAMES;
+	}
+	
 	@Internal
 	public void closeScreen() {
 		_shutDownRequested = true;
@@ -213,6 +273,64 @@ public class Screen implements Runnable {
 		return _graphicsEnvironment;
 	}
 	
+	/**
+	 * Turns dynamic resolution on or off.<br>
+	 * <br>
+	 * With dynamic resolution the Screen measures how long rendering a frame takes compared to the time one frame has at {@link #getRefreshRate()}.
+	 * When frames take too long, the game is rendered at a lower resolution and scaled up to the Screen, when there is time left the resolution is raised again.
+	 * The resolution drops within a few frames but only rises after about a second with time to spare, so it does not keep switching.<br>
+	 * <u>Note:</u> Turning it off renders at the maximum render scale, see {@link #setRenderScaleRange(double, double)}.
+	 * @param dynamicResolution <b>(Boolean)</b> true to adapt the resolution to the render time.
+	 */
+	public static void setDynamicResolution(boolean dynamicResolution) {
+		synchronized(_renderScaleLock) {
+			_dynamicResolution = dynamicResolution;
+			changeRenderScale(_maxRenderScale);
+		}
+	}
+	
+	/**
+	 * Checks if dynamic resolution is turned on, see {@link #setDynamicResolution(boolean)}.
+	 * @return True if the resolution adapts to the render time.
+	 */
+	public static boolean getDynamicResolution() {
+		return _dynamicResolution;
+	}
+	
+	/**
+	 * Sets how far dynamic resolution may lower and raise the resolution.<br>
+	 * A maximum below 1 also lowers the resolution when dynamic resolution is turned off.
+	 * @param minRenderScale <b>(Double)</b> lowest render scale, 0.5 (= half the width and height of the Screen) by default.
+	 * @param maxRenderScale <b>(Double)</b> highest render scale, 1 (= full resolution) by default.
+	 * @throws IllegalArgumentException if the scales are not between 0 (exclusive) and 1, or the minimum is above the maximum
+	 */
+	public static void setRenderScaleRange(double minRenderScale, double maxRenderScale) {
+		if(!(minRenderScale > 0) || minRenderScale > maxRenderScale || maxRenderScale > 1) {
+			throw new IllegalArgumentException("BaseEngine: render scales have to satisfy 0 < min <= max <= 1, got " + minRenderScale + " and " + maxRenderScale);
+		}
+		synchronized(_renderScaleLock) {
+			_minRenderScale = minRenderScale;
+			_maxRenderScale = maxRenderScale;
+			changeRenderScale(_dynamicResolution ? _renderScale : maxRenderScale);
+		}
+	}
+	
+	/**
+	 * Getter for the resolution the game is rendered at, compared to the size of the Screen.
+	 * @return renderScale (Double), 1 for full resolution
+	 */
+	public static double getRenderScale() {
+		return _renderScale;
+	}
+	
+	/**
+	 * Getter for the average time rendering a frame took, over the last frames.
+	 * @return averageRenderTime (Double) in nanoseconds
+	 */
+	public static double getAverageRenderTime() {
+		return _averageRenderTime;
+	}
+	
 	/**
 	 * Sets the icon for the Screen.
 	 * @param icon <b>(Image)</b> The new image for the Screen.
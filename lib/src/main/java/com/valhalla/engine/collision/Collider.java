@@ -0,0 +1,72 @@
+package com.valhalla.engine.collision;
+
+/**
+ * Interface for objects that take part in collision detection, see {@link CollisionWorld}.<br>
+ * <br>
+ * A collider is described by an axis aligned bounding box, which is read once per tick.
+ * BaseClasses implementing this interface are added to the CollisionWorld of their Handler automatically.<br>
+ * <br>
+ * Two colliders only collide when the layer of each one is part of the mask of the other one,
+ * e.g. a bullet with layer <code>0b10</code> and mask <code>0b01</code> hits enemies with layer <code>0b01</code>, but not other bullets.
+ * @author BauwenDR
+ */
+public interface Collider {
+
+	/**
+	 * Getter for the left edge of the bounding box.
+	 * @return minX (Float)
+	 */
+	float getMinX();
+
+	/**
+	 * Getter for the top edge of the bounding box.
+	 * @return minY (Float)
+	 */
+	float getMinY();
+
+	/**
+	 * Getter for the right edge of the bounding box, boxes that only touch do not collide.
+	 * @return maxX (Float)
+	 */
+	float getMaxX();
+
+	/**
+	 * Getter for the bottom edge of the bounding box, boxes that only touch do not collide.
+	 * @return maxY (Float)
+	 */
+	float getMaxY();
+
+	/**
+	 * Getter for the collision layers this collider is part of, as a bit mask.
+	 * @return collisionLayer (Integer), 1 by default
+	 */
+	default int getCollisionLayer() {
+		return 1;
+	}
+
+	/**
+	 * Getter for the collision layers this collider collides with, as a bit mask.
+	 * @return collisionMask (Integer), all layers by default
+	 */
+	default int getCollisionMask() {
+		return -1;
+	}
+
+	/**
+	 * Called on the tick thread in the first tick two colliders overlap.
+	 * @param other <b>(Collider)</b> the collider that started overlapping.
+	 */
+	default void onCollisionEnter(Collider other) {}
+
+	/**
+	 * Called on the tick thread in every following tick the two colliders still overlap.
+	 * @param other <b>(Collider)</b> the collider that is still overlapping.
+	 */
+	default void onCollisionStay(Collider other) {}
+
+	/**
+	 * Called on the tick thread in the first tick two colliders no longer overlap, or one of them was removed.
+	 * @param other <b>(Collider)</b> the collider that stopped overlapping.
+	 */
+	default void onCollisionExit(Collider other) {}
+}
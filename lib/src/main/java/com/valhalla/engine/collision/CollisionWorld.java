@@ -0,0 +1,330 @@
+package com.valhalla.engine.collision;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import com.valhalla.engine.internal.BroadphaseGrid;
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.internal.PairSet;
+
+/**
+ * Finds overlapping {@link Collider}s once per tick and notifies them with enter, stay and exit events.<br>
+ * <br>
+ * Every {@link com.valhalla.engine.Handler} owns a CollisionWorld, see {@link com.valhalla.engine.Handler#getCollisionWorld()},
+ * and BaseClasses implementing Collider are added and removed together with the Handler.
+ * Other colliders can be added with {@link #add(Collider)}.<br>
+ * <br>
+ * Every tick the colliders are sorted into a uniform grid sized after the colliders (see {@link BroadphaseGrid}), only colliders sharing a cell are compared,
+ * so a tick costs about linear time in the amount of colliders and contacts.<br>
+ * <u>Note:</u> A CollisionWorld should only be used on the tick thread, events are delivered at the end of {@link com.valhalla.engine.Handler} ticks after all BaseClasses ticked.
+ * @author BauwenDR
+ */
+public final class CollisionWorld {
+
+	private static final int _FREE = 0, _ADDING = 1, _ACTIVE = 2, _REMOVING = 3, _REMOVING_UNADDED = 4;
+
+	//bounds are read once per step
+	private Collider[] _colliders = new Collider[64];
+	private int[] _slotAt = new int[64];
+	private float[] _minX = new float[64], _minY = new float[64], _maxX = new float[64], _maxY = new float[64];
+	private int[] _layer = new int[64], _mask = new int[64];
+	private int _count = 0;
+
+	private final BroadphaseGrid _grid = new BroadphaseGrid();
+
+	//slots identify a collider in a contact for as long as it is in the world
+	private final IdentityHashMap<Collider, Integer> _slots = new IdentityHashMap<>();
+	private Collider[] _colliderBySlot = new Collider[64];
+	private int[] _slotState = new int[64];
+	private int[] _freeSlots = new int[64];
+	private int _freeSlotCount = 0, _slotCount = 0;
+
+	private int[] _pendingAdds = new int[16], _pendingRemoves = new int[16];
+	private int _pendingAddCount = 0, _pendingRemoveCount = 0;
+
+	private final PairSet _contactStamps = new PairSet();
+	private long[] _contacts = new long[64], _previousContacts = new long[64];
+	private boolean[] _newContacts = new boolean[64];
+	private int _contactCount = 0, _previousContactCount = 0;
+	private Collider[] _exits = new Collider[64];
+	private int _exitCount = 0;
+	private int _stamp = 0;
+
+	private long _lastStepTime;
+
+	/**
+	 * Adds a collider, it takes part in collision detection from the next step on. Adding a collider that is already in the world does nothing.
+	 * @param collider <b>(Collider)</b> the collider to add.
+	 */
+	public void add(Collider collider) {
+		Integer existing = _slots.get(collider);
+		if(existing != null) {
+			int slot = existing;
+			if(_slotState[slot] == _REMOVING) {
+				_slotState[slot] = _ACTIVE;
+			}else if(_slotState[slot] == _REMOVING_UNADDED) {
+				_slotState[slot] = _ADDING;
+			}
+			return;
+		}
+
+		int slot;
+		if(_freeSlotCount > 0) {
+			slot = _freeSlots[--_freeSlotCount];
+		}else {
+			if(_slotCount == _colliderBySlot.length) {
+				_colliderBySlot = Arrays.copyOf(_colliderBySlot, _slotCount * 2);
+				_slotState = Arrays.copyOf(_slotState, _slotCount * 2);
+			}
+			slot = _slotCount++;
+		}
+		_colliderBySlot[slot] = collider;
+		_slotState[slot] = _ADDING;
+		_slots.put(collider, slot);
+
+		if(_pendingAddCount == _pendingAdds.length) {
+			_pendingAdds = Arrays.copyOf(_pendingAdds, _pendingAddCount * 2);
+		}
+		_pendingAdds[_pendingAddCount++] = slot;
+	}
+
+	/**
+	 * Removes a collider at the next step, colliders it was touching receive an exit event.
+	 * @param collider <b>(Collider)</b> the collider to remove.
+	 */
+	public void remove(Collider collider) {
+		Integer existing = _slots.get(collider);
+		if(existing == null) {
+			return;
+		}
+		int slot = existing;
+		if(_slotState[slot] == _ACTIVE) {
+			_slotState[slot] = _REMOVING;
+		}else if(_slotState[slot] == _ADDING) {
+			_slotState[slot] = _REMOVING_UNADDED;
+		}else {
+			return;
+		}
+
+		if(_pendingRemoveCount == _pendingRemoves.length) {
+			_pendingRemoves = Arrays.copyOf(_pendingRemoves, _pendingRemoveCount * 2);
+		}
+		_pendingRemoves[_pendingRemoveCount++] = slot;
+	}
+
+	/**
+	 * Checks if a collider is in the world and not about to be removed.
+	 * @param collider <b>(Collider)</b> the collider to check.
+	 * @return True if the collider is in the world.
+	 */
+	public boolean contains(Collider collider) {
+		Integer slot = _slots.get(collider);
+		return slot != null && (_slotState[slot] == _ACTIVE || _slotState[slot] == _ADDING);
+	}
+
+	/**
+	 * Checks if two colliders overlapped in the last step.
+	 * @param first <b>(Collider)</b> one of the colliders.
+	 * @param second <b>(Collider)</b> the other collider.
+	 * @return True if the colliders were in contact.
+	 */
+	public boolean isTouching(Collider first, Collider second) {
+		Integer firstSlot = _slots.get(first), secondSlot = _slots.get(second);
+		return firstSlot != null && secondSlot != null && _contactStamps.get(pairKey(firstSlot, secondSlot)) == _stamp;
+	}
+
+	/**
+	 * Getter for the amount of colliders that took part in the last step.
+	 * @return colliderCount (Integer)
+	 */
+	public int getColliderCount() {
+		return _count;
+	}
+
+	/**
+	 * Getter for the amount of overlapping pairs found in the last step.
+	 * @return contactCount (Integer)
+	 */
+	public int getContactCount() {
+		return _contactCount;
+	}
+
+	/**
+	 * Getter for the time the last step took, including the events.
+	 * @return lastStepTime (Long) in nanoseconds
+	 */
+	public long getLastStepTime() {
+		return _lastStepTime;
+	}
+
+	/**
+	 * Finds all contacts and delivers their events, called by the Handler once per tick.
+	 */
+	@Internal
+	public void step() {
+		long start = System.nanoTime();
+		_stamp = _stamp == Integer.MAX_VALUE ? 1 : _stamp + 1;
+
+		addPending();
+		readBounds();
+		sweep();
+		findExits();
+		freeRemoved();
+		dispatch();
+
+		_lastStepTime = System.nanoTime() - start;
+	}
+
+	@Internal
+	private void addPending() {
+		ensureCapacity(_count + _pendingAddCount);
+		for(int index = 0; index < _pendingAddCount; index++) {
+			int slot = _pendingAdds[index];
+			if(_slotState[slot] != _ADDING) {
+				continue;	//removed again before it was added
+			}
+			_slotState[slot] = _ACTIVE;
+			_colliders[_count] = _colliderBySlot[slot];
+			_slotAt[_count] = slot;
+			_count++;
+		}
+		_pendingAddCount = 0;
+	}
+
+	@Internal
+	private void readBounds() {
+		int kept = 0;
+		for(int index = 0; index < _count; index++) {
+			int slot = _slotAt[index];
+			if(_slotState[slot] != _ACTIVE) {
+				continue;
+			}
+			Collider collider = _colliders[index];
+			_colliders[kept] = collider;
+			_slotAt[kept] = slot;
+			_minX[kept] = collider.getMinX();
+			_minY[kept] = collider.getMinY();
+			_maxX[kept] = collider.getMaxX();
+			_maxY[kept] = collider.getMaxY();
+			_layer[kept] = collider.getCollisionLayer();
+			_mask[kept] = collider.getCollisionMask();
+			kept++;
+		}
+		Arrays.fill(_colliders, kept, _count, null);
+		_count = kept;
+	}
+
+	@Internal
+	private void sweep() {
+		long[] swap = _previousContacts;
+		_previousContacts = _contacts;
+		_previousContactCount = _contactCount;
+		_contacts = swap;
+		_contactCount = 0;
+
+		_grid.build(_minX, _minY, _maxX, _maxY, _count);
+		int pairCount = _grid.findPairs();
+		long[] pairs = _grid.getPairs();
+		for(int index = 0; index < pairCount; index++) {
+			int first = (int) (pairs[index] >>> 32), second = (int) pairs[index];
+			if((_layer[first] & _mask[second]) != 0 && (_layer[second] & _mask[first]) != 0) {
+				addContact(pairKey(_slotAt[first], _slotAt[second]));
+			}
+		}
+	}
+
+	@Internal
+	private void addContact(long key) {
+		if(_contactCount == _contacts.length) {
+			_contacts = Arrays.copyOf(_contacts, _contactCount * 2);
+		}
+		if(_contactCount == _newContacts.length) {
+			_newContacts = Arrays.copyOf(_newContacts, _contactCount * 2);
+		}
+		_newContacts[_contactCount] = _contactStamps.put(key, _stamp) == 0;
+		_contacts[_contactCount++] = key;
+	}
+
+	@Internal
+	private void findExits() {
+		_exitCount = 0;
+		for(int index = 0; index < _previousContactCount; index++) {
+			long key = _previousContacts[index];
+			if(_contactStamps.get(key) == _stamp) {
+				continue;
+			}
+			_contactStamps.remove(key);
+			if(_exitCount + 2 > _exits.length) {
+				_exits = Arrays.copyOf(_exits, _exits.length * 2);
+			}
+			_exits[_exitCount++] = _colliderBySlot[(int) (key >>> 32)];
+			_exits[_exitCount++] = _colliderBySlot[(int) key];
+		}
+	}
+
+	@Internal
+	private void freeRemoved() {
+		for(int index = 0; index < _pendingRemoveCount; index++) {
+			int slot = _pendingRemoves[index];
+			if(_slotState[slot] != _REMOVING && _slotState[slot] != _REMOVING_UNADDED) {
+				continue;	//added again, or listed twice
+			}
+			_slots.remove(_colliderBySlot[slot]);
+			_colliderBySlot[slot] = null;
+			_slotState[slot] = _FREE;
+			if(_freeSlotCount == _freeSlots.length) {
+				_freeSlots = Arrays.copyOf(_freeSlots, _freeSlotCount * 2);
+			}
+			_freeSlots[_freeSlotCount++] = slot;
+		}
+		_pendingRemoveCount = 0;
+	}
+
+	@Internal
+	private void dispatch() {
+		//events are delivered after the bookkeeping, so colliders can be added and removed from inside them
+		int exitCount = _exitCount;
+		Collider[] exits = _exits;
+		for(int index = 0; index < exitCount; index += 2) {
+			exits[index].onCollisionExit(exits[index + 1]);
+			exits[index + 1].onCollisionExit(exits[index]);
+		}
+		Arrays.fill(exits, 0, exitCount, null);
+
+		int contactCount = _contactCount;
+		long[] contacts = _contacts;
+		boolean[] newContacts = _newContacts;
+		for(int index = 0; index < contactCount; index++) {
+			Collider first = _colliderBySlot[(int) (contacts[index] >>> 32)];
+			Collider second = _colliderBySlot[(int) contacts[index]];
+			if(newContacts[index]) {
+				first.onCollisionEnter(second);
+				second.onCollisionEnter(first);
+			}else {
+				first.onCollisionStay(second);
+				second.onCollisionStay(first);
+			}
+		}
+	}
+
+	@Internal
+	private void ensureCapacity(int capacity) {
+		if(capacity <= _colliders.length) {
+			return;
+		}
+		int length = Math.max(capacity, _colliders.length * 2);
+		_colliders = Arrays.copyOf(_colliders, length);
+		_slotAt = Arrays.copyOf(_slotAt, length);
+		_minX = Arrays.copyOf(_minX, length);
+		_minY = Arrays.copyOf(_minY, length);
+		_maxX = Arrays.copyOf(_maxX, length);
+		_maxY = Arrays.copyOf(_maxY, length);
+		_layer = Arrays.copyOf(_layer, length);
+		_mask = Arrays.copyOf(_mask, length);
+	}
+
+	@Internal
+	private static long pairKey(int first, int second) {
+		return first < second ? ((long) first << 32) | second : ((long) second << 32) | first;
+	}
+}
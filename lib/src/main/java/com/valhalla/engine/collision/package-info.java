@@ -0,0 +1,6 @@
+/**
+ * Package for detecting overlapping objects and notifying them about their contacts.
+ * @see com.valhalla.engine.collision.Collider
+ * @see com.valhalla.engine.collision.CollisionWorld
+ */
+package com.valhalla.engine.collision;
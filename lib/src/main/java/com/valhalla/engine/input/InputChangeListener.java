@@ -0,0 +1,18 @@
+package com.valhalla.engine.input;
+
+/**
+ * Listener that gets called on the tick thread every time a key or mouse button changes state.
+ * @author BauwenDR
+ * @see KeyInput#addChangeListener(InputChangeListener)
+ * @see MouseInput#addChangeListener(InputChangeListener)
+ */
+public interface InputChangeListener {
+
+	/**
+	 * Called when a key or mouse button went up or down.
+	 * @param code <b>(Integer)</b> Code of the key or mouse button that changed.
+	 * @param held <b>(Boolean)</b> True if it went down, false if it went up.
+	 * @param time <b>(Long)</b> Moment the change was received, as given by {@link System#nanoTime()}.
+	 */
+	void inputChanged(int code, boolean held, long time);
+}
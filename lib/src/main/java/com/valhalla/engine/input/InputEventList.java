@@ -0,0 +1,141 @@
+package com.valhalla.engine.input;
+
+import java.util.Arrays;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * List of all input events that were received during the last tick, in the order they happened.<br>
+ * <br>
+ * Events are stored in flat arrays that are reused every tick, so reading the list does not create any objects.
+ * Use {@link #getType(int)} to see which of the other getters apply to an event.
+ * @author BauwenDR
+ */
+public class InputEventList {
+
+	/** A key or mouse button went down, {@link #getCode(int)} holds the key or button. */
+	public static final int KEY_DOWN = 0;
+	/** A key or mouse button went up, {@link #getCode(int)} holds the key or button. */
+	public static final int KEY_UP = 1;
+	/** The mouse moved, {@link #getX(int)} and {@link #getY(int)} hold the new position. */
+	public static final int MOUSE_MOVED = 2;
+	/** The scrollwheel moved, {@link #getScrollingAmount(int)} holds the amount. */
+	public static final int MOUSE_WHEEL = 3;
+
+	private int _size = 0;
+	private int[] _types = new int[64];
+	private int[] _codes = new int[64];
+	private int[] _x = new int[64];
+	private int[] _y = new int[64];
+	private double[] _scrollingAmounts = new double[64];
+	private long[] _times = new long[64];
+
+	@Internal
+	public InputEventList() {}
+
+	@Internal
+	void add(int type, int code, int x, int y, double scrollingAmount, long time) {
+		if(_size == _types.length) {
+			grow();
+		}
+		_types[_size] = type;
+		_codes[_size] = code;
+		_x[_size] = x;
+		_y[_size] = y;
+		_scrollingAmounts[_size] = scrollingAmount;
+		_times[_size] = time;
+		_size++;
+	}
+
+	@Internal
+	void clear() {
+		_size = 0;
+	}
+
+	@Internal
+	void copyFrom(InputEventList source) {
+		while(_types.length < source._size) {
+			grow();
+		}
+		System.arraycopy(source._types, 0, _types, 0, source._size);
+		System.arraycopy(source._codes, 0, _codes, 0, source._size);
+		System.arraycopy(source._x, 0, _x, 0, source._size);
+		System.arraycopy(source._y, 0, _y, 0, source._size);
+		System.arraycopy(source._scrollingAmounts, 0, _scrollingAmounts, 0, source._size);
+		System.arraycopy(source._times, 0, _times, 0, source._size);
+		_size = source._size;
+	}
+
+	@Internal
+	private void grow() {
+		int capacity = _types.length * 2;
+		_types = Arrays.copyOf(_types, capacity);
+		_codes = Arrays.copyOf(_codes, capacity);
+		_x = Arrays.copyOf(_x, capacity);
+		_y = Arrays.copyOf(_y, capacity);
+		_scrollingAmounts = Arrays.copyOf(_scrollingAmounts, capacity);
+		_times = Arrays.copyOf(_times, capacity);
+	}
+
+	/**
+	 * Getter for the amount of events received during the last tick.
+	 * @return size (Integer)
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Getter for the type of an event, one of {@link #KEY_DOWN}, {@link #KEY_UP}, {@link #MOUSE_MOVED} or {@link #MOUSE_WHEEL}.
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return type (Integer)
+	 */
+	public int getType(int event) {
+		return _types[event];
+	}
+
+	/**
+	 * Getter for the key or mouse button of a {@link #KEY_DOWN} or {@link #KEY_UP} event.
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return code (Integer)
+	 */
+	public int getCode(int event) {
+		return _codes[event];
+	}
+
+	/**
+	 * Getter for the x-position of the mouse cursor at the time of the event, in screen pixels (not adjusted by the ScaleFactor).
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return x (Integer)
+	 */
+	public int getX(int event) {
+		return _x[event];
+	}
+
+	/**
+	 * Getter for the y-position of the mouse cursor at the time of the event, in screen pixels (not adjusted by the ScaleFactor).
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return y (Integer)
+	 */
+	public int getY(int event) {
+		return _y[event];
+	}
+
+	/**
+	 * Getter for the amount the scrollwheel moved in a {@link #MOUSE_WHEEL} event.
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return scrollingAmount (Double)
+	 */
+	public double getScrollingAmount(int event) {
+		return _scrollingAmounts[event];
+	}
+
+	/**
+	 * Getter for the moment the event was received, as given by {@link System#nanoTime()}.
+	 * @param event <b>(Integer)</b> Index of the event.
+	 * @return time (Long)
+	 */
+	public long getTime(int event) {
+		return _times[event];
+	}
+}
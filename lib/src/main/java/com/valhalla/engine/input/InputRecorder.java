@@ -0,0 +1,196 @@
+package com.valhalla.engine.input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class used for recording all keyboard and mouse input to a compact binary file, which can be played back with {@link InputReplay}.<br>
+ * <br>
+ * Only ticks in which input changed are written, each tagged with the amount of ticks since the recording started.
+ * The first tick holds the keys and buttons that are already held and the mouse position when the recording starts, so the replay begins from the same input.
+ * @author BauwenDR
+ * @see InputReplay
+ */
+public class InputRecorder {
+
+	static final int MAGIC = 0x42454952;	//"BEIR"
+	static final short VERSION = 1;
+	static final int SOURCE_KEY = 0, SOURCE_MOUSE = 1;
+
+	private static DataOutputStream _output;
+	private static long _startTick, _lastRecordedTick, _startTime, _lastEventTime;
+
+	/**
+	 * Starts recording input to a file, a recording that is already running will be stopped first.<br>
+	 * <u>Note:</u> Call this on the tick thread, the keys held at that moment are read to start the recording with.
+	 * @param path <b>(String)</b> Location of where the recording will be saved.
+	 * @throws IOException if the file can not be created
+	 * @see #stop()
+	 */
+	public static synchronized void start(String path) throws IOException {
+		stop();
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+		_startTick = GameLoop.getTicksPassed();
+		_lastRecordedTick = 0;
+		_startTime = System.nanoTime();
+		_lastEventTime = 0;
+		_output = output;
+		try {
+			output.writeInt(MAGIC);
+			output.writeShort(VERSION);
+			output.writeDouble(GameLoop.getTickRate());
+			writeHeldState();
+		} catch (IOException e) {
+			closeQuietly(output);
+			_output = null;
+			throw e;
+		}
+	}
+
+	/**
+	 * Stops the current recording and closes the file, does nothing if there is no recording running.
+	 */
+	public static synchronized void stop() {
+		if(_output == null) {
+			return;
+		}
+		try {
+			writeTick(GameLoop.getTicksPassed() - _startTick, 0);	//empty record marks the length of the recording
+			_output.close();
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not finish input recording: " + e.getMessage());
+			closeQuietly(_output);
+		}
+		_output = null;
+	}
+
+	/**
+	 * Checks if input is currently being recorded.
+	 * @return True if input is being recorded.
+	 */
+	public static boolean isRecording() {
+		return _output != null;
+	}
+
+	@Internal
+	public static synchronized void tick() {
+		InputEventList keyEvents = KeyInput.getEvents();
+		InputEventList mouseEvents = MouseInput.getEvents();
+		if(_output == null || keyEvents.size() + mouseEvents.size() == 0) {
+			return;
+		}
+
+		try {
+			writeTick(GameLoop.getTicksPassed() - _startTick, keyEvents.size() + mouseEvents.size());
+			writeEvents(SOURCE_KEY, keyEvents);
+			writeEvents(SOURCE_MOUSE, mouseEvents);
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: input recording stopped: " + e.getMessage());
+			closeQuietly(_output);
+			_output = null;
+		}
+	}
+
+	/**
+	 * Writes the held keys, held buttons and mouse position as events of the first tick, input that only changes later would otherwise be missing from the replay.
+	 */
+	@Internal
+	private static void writeHeldState() throws IOException {
+		InputState state = new InputState();
+		state.capture();
+		InputEventList keyEvents = new InputEventList(), mouseEvents = new InputEventList();
+		for(int keyIndex = state.keyHeld.nextSetBit(0); keyIndex >= 0; keyIndex = state.keyHeld.nextSetBit(keyIndex + 1)) {
+			keyEvents.add(InputEventList.KEY_DOWN, KeyInput.toKeyCode(keyIndex), 0, 0, 0, _startTime);
+		}
+		int x = (int) state.mouseX, y = (int) state.mouseY;
+		mouseEvents.add(InputEventList.MOUSE_MOVED, 0, x, y, 0, _startTime);
+		for(int button = 0; button < state.mouseHeld.length; button++) {
+			if(state.mouseHeld[button]) {
+				mouseEvents.add(InputEventList.KEY_DOWN, button, x, y, 0, _startTime);
+			}
+		}
+
+		writeTick(0, keyEvents.size() + mouseEvents.size());
+		writeEvents(SOURCE_KEY, keyEvents);
+		writeEvents(SOURCE_MOUSE, mouseEvents);
+	}
+
+	@Internal
+	private static void closeQuietly(DataOutputStream output) {
+		try {
+			output.close();
+		} catch (IOException e) {
+			//already failing, the first error was reported
+		}
+	}
+
+	@Internal
+	private static void writeTick(long tick, int eventAmount) throws IOException {
+		writeVarLong(_output, tick - _lastRecordedTick);
+		writeVarLong(_output, eventAmount);
+		_lastRecordedTick = tick;
+	}
+
+	@Internal
+	private static void writeEvents(int source, InputEventList events) throws IOException {
+		for(int event = 0; event < events.size(); event++) {
+			int type = events.getType(event);
+			long time = events.getTime(event) - _startTime;
+
+			_output.writeByte((source << 2) | type);
+			writeVarLong(_output, zigZag(time - _lastEventTime));
+			_lastEventTime = time;
+
+			switch(type) {
+				case InputEventList.MOUSE_MOVED:
+					writeVarLong(_output, zigZag(events.getX(event)));
+					writeVarLong(_output, zigZag(events.getY(event)));
+					break;
+				case InputEventList.MOUSE_WHEEL:
+					_output.writeDouble(events.getScrollingAmount(event));
+					break;
+				default:
+					writeVarLong(_output, events.getCode(event) & 0xFFFFFFFFL);
+			}
+		}
+	}
+
+	@Internal
+	static void writeVarLong(DataOutput output, long value) throws IOException {
+		while((value & ~0x7FL) != 0) {
+			output.writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		output.writeByte((int) value);
+	}
+
+	@Internal
+	static long readVarLong(DataInput input) throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			byte part = input.readByte();
+			value |= (long) (part & 0x7F) << shift;
+			if((part & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed variable length number");
+	}
+
+	@Internal
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	@Internal
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
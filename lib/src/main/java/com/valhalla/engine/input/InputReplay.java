@@ -0,0 +1,134 @@
+package com.valhalla.engine.input;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class used for playing back input that was recorded with {@link InputRecorder}.<br>
+ * <br>
+ * While a replay is running, input from the keyboard and mouse is ignored and the recorded events are fed to {@link KeyInput} and {@link MouseInput} on the same tick they were recorded on.
+ * Combine with {@link GameLoop#fastForward(long)} to replay a session without a Screen as fast as possible.
+ * @author BauwenDR
+ * @see InputRecorder
+ */
+public class InputReplay {
+
+	private static DataInputStream _input;
+	private static long _startTick, _nextRecordedTick, _startTime, _lastEventTime;
+	private static int _nextEventAmount;
+	private static volatile boolean _replaying = false;
+
+	/**
+	 * Starts playing back a recording from the next tick on, a replay that is already running will be stopped first.
+	 * @param path <b>(String)</b> Location of the recording.
+	 * @throws IOException if the file can not be read or is not an input recording
+	 * @see #stop()
+	 */
+	public static synchronized void start(String path) throws IOException {
+		stop();
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+		if(input.readInt() != InputRecorder.MAGIC || input.readShort() != InputRecorder.VERSION) {
+			input.close();
+			throw new IOException("BaseEngine: " + path + " is not a supported input recording");
+		}
+		double tickRate = input.readDouble();
+		if(tickRate != GameLoop.getTickRate()) {
+			GameLoop.engineOutput.println("BaseEngine: input recording was made at " + tickRate + " tps, replaying at " + GameLoop.getTickRate() + " tps");
+		}
+
+		_input = input;
+		_startTick = GameLoop.getTicksPassed();
+		_nextRecordedTick = 0;
+		_startTime = System.nanoTime();
+		_lastEventTime = 0;
+		_replaying = true;
+		readTick();
+	}
+
+	/**
+	 * Stops the current replay and gives control back to the keyboard and mouse.
+	 */
+	public static synchronized void stop() {
+		_replaying = false;
+		if(_input != null) {
+			try {
+				_input.close();
+			} catch (IOException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: " + e.getMessage());
+			}
+			_input = null;
+		}
+	}
+
+	/**
+	 * Checks if a recording is currently being played back.<br>
+	 * The replay stops by itself once the end of the recording is reached.
+	 * @return True if a recording is being played back.
+	 */
+	public static boolean isReplaying() {
+		return _replaying;
+	}
+
+	@Internal
+	public static synchronized void tick() {
+		if(_input == null) {
+			return;
+		}
+
+		try {
+			long tick = GameLoop.getTicksPassed() - _startTick;
+			while(_input != null && _nextRecordedTick <= tick) {
+				for(int event = 0; event < _nextEventAmount; event++) {
+					readEvent();
+				}
+				readTick();
+			}
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: input replay stopped: " + e.getMessage());
+			stop();
+		}
+	}
+
+	@Internal
+	private static void readTick() throws IOException {
+		try {
+			_nextRecordedTick += InputRecorder.readVarLong(_input);
+			_nextEventAmount = (int) InputRecorder.readVarLong(_input);
+		} catch (EOFException e) {
+			stop();		//end of the recording
+		}
+	}
+
+	@Internal
+	private static void readEvent() throws IOException {
+		int header = _input.readUnsignedByte();
+		int source = header >> 2;
+		int type = header & 0x3;
+		_lastEventTime += InputRecorder.unZigZag(InputRecorder.readVarLong(_input));
+		long time = _startTime + _lastEventTime;
+
+		switch(type) {
+			case InputEventList.MOUSE_MOVED:
+				int x = (int) InputRecorder.unZigZag(InputRecorder.readVarLong(_input));
+				int y = (int) InputRecorder.unZigZag(InputRecorder.readVarLong(_input));
+				MouseInput.injectEvent(type, ((long) x << 32) | (y & 0xFFFFFFFFL), time);
+				break;
+			case InputEventList.MOUSE_WHEEL:
+				MouseInput.injectEvent(type, Double.doubleToRawLongBits(_input.readDouble()), time);
+				break;
+			default:
+				long code = InputRecorder.readVarLong(_input);
+				if(source == InputRecorder.SOURCE_KEY) {
+					KeyInput.injectEvent(type, (int) code, time);
+				}else {
+					MouseInput.injectEvent(type, code, time);
+				}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.valhalla.engine.input;
+
+import java.util.BitSet;
+
+/**
+ * Copy of the state of {@link KeyInput} and {@link MouseInput} at one tick: held, pressed and lowering keys and buttons, the mouse position and scrolling, and the events of the tick.<br>
+ * <br>
+ * A captured state can be put back with {@link #restore()}, e.g. to simulate a tick again with the input it had the first time.
+ * Capturing reuses the memory of the previous capture, so only the first captures create objects.<br>
+ * <u>Note:</u> Events that were received but not handed out yet are not part of the state, they are still handed out at the next tick.
+ * @author BauwenDR
+ */
+public final class InputState {
+
+	final BitSet keyHeld = new BitSet(), keyPressed = new BitSet(), keyLowering = new BitSet();
+	int[] changedKeys = new int[16];
+	int changedKeyAmount;
+	final InputEventList keyEvents = new InputEventList();
+
+	final boolean[] mouseHeld = new boolean[5], mousePressed = new boolean[5], mouseLowering = new boolean[5];
+	boolean scrollingUp, scrollingDown;
+	double scrollingAmount;
+	double mouseX, mouseY, mouseMovedX, mouseMovedY, lastMouseX, lastMouseY;
+	final InputEventList mouseEvents = new InputEventList();
+
+	/**
+	 * Copies the current input into this state, on the tick thread.
+	 */
+	public void capture() {
+		KeyInput.saveState(this);
+		MouseInput.saveState(this);
+	}
+
+	/**
+	 * Makes this state the current input, on the tick thread. Change listeners are not called.
+	 */
+	public void restore() {
+		KeyInput.restoreState(this);
+		MouseInput.restoreState(this);
+	}
+}
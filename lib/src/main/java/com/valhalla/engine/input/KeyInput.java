@@ -2,7 +2,13 @@ package com.valhalla.engine.input;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.CommandQueue;
 import com.valhalla.engine.internal.Internal;
 
 /**
@@ -12,6 +18,8 @@ import com.valhalla.engine.internal.Internal;
  * <ul>
  * 	<li>{@link #getKeyHeld}</li>
  *  <li>{@link #getKeyPressed}</li>
+ *  <li>{@link #getEvents}</li>
+ *  <li>{@link #addChangeListener}</li>
  *  <li>{@link #wHeld}</li>
  *  <li>{@link #aHeld}</li>
  *  <li>{@link #sHeld}</li>
@@ -24,48 +32,152 @@ import com.valhalla.engine.internal.Internal;
  */
 public class KeyInput implements KeyListener{
 	
-	private static final int _keyAmount = 255;
-	private static final boolean[] _keyHeld = new boolean[_keyAmount];
-	private static final boolean[] _keyPressed = new boolean[_keyAmount];
-	private static final boolean[] _keyLowering = new boolean[_keyAmount];
-	private static final boolean[] _lastTick = new boolean[_keyAmount];
+	//virtual keys use indices [0; 0xFFFF], unicode extended keys (0x01000000 + code point) are mapped right after them
+	private static final int _VIRTUAL_KEY_RANGE = 0x10000;
+	private static final int _UNICODE_KEY_OFFSET = 0x01000000;
+	private static final int _UNICODE_KEY_RANGE = Character.MAX_CODE_POINT + 1;
+	
+	private static final BitSet _keyHeld = new BitSet(_VIRTUAL_KEY_RANGE);
+	private static final BitSet _keyPressed = new BitSet(_VIRTUAL_KEY_RANGE);
+	private static final BitSet _keyLowering = new BitSet(_VIRTUAL_KEY_RANGE);
+	
+	//keys that have an edge set, so only those have to be cleared next tick
+	private static int[] _changedKeys = new int[16];
+	private static int _changedKeyAmount = 0;
+	
+	private static final int _EVENT_QUEUE_CAPACITY = 1024;
+	private static final CommandQueue _eventQueue = new CommandQueue(_EVENT_QUEUE_CAPACITY);
+	private static final InputEventList _events = new InputEventList();
+	private static final List<InputChangeListener> _changeListeners = new CopyOnWriteArrayList<>();
+	private static final CommandQueue.Consumer _eventHandler = KeyInput::handleEvent;
 	
 	@Internal
 	public KeyInput() {
-		for(int key = 0; key < _keyAmount; key++) {
-			_keyHeld[key] = false;
-			_keyPressed[key] = false;
-			_lastTick[key] = false;
-		}
+		_keyHeld.clear();
+		_keyPressed.clear();
+		_keyLowering.clear();
+		_changedKeyAmount = 0;
 	}
 	
 	@Internal
 	public void tick() {
-		for (int key = 0; key < _keyAmount; key++) {
-			
-			_keyPressed[key] = false;
-			_keyLowering[key] = false;
-
-			//falling edge -> button is going down, beginning of a button press
-			_keyPressed[key] = _lastTick[key] && !_keyHeld[key];
-
-			//rising edge -> button is going up, end of a button press
-			_keyLowering[key] = !_lastTick[key] && _keyHeld[key];
-
-			_lastTick[key] = _keyHeld[key];	//copy keyHeld to LastTick
+		for(int changedKey = 0; changedKey < _changedKeyAmount; changedKey++) {
+			_keyPressed.clear(_changedKeys[changedKey]);
+			_keyLowering.clear(_changedKeys[changedKey]);
 		}
+		_changedKeyAmount = 0;
+		_events.clear();
+		
+		//replay all events since the last tick, so a press and release within one tick are both detected
+		_eventQueue.drain(_eventHandler);
+	}
+	
+	@Internal
+	private static void handleEvent(int type, Object subject, long key, long time) {
+		boolean held = type == InputEventList.KEY_DOWN;
+		_events.add(type, (int) key, 0, 0, 0, time);
+		
+		int keyIndex = toKeyIndex((int) key);
+		if(keyIndex < 0 || _keyHeld.get(keyIndex) == held) {
+			return;	//key repeat, or unknown key code
+		}
+		_keyHeld.set(keyIndex, held);
+		
+		if(held) {
+			_keyLowering.set(keyIndex);		//rising edge -> button is going up, end of a button press
+		}else {
+			_keyPressed.set(keyIndex);		//falling edge -> button is going down, beginning of a button press
+		}
+		
+		if(_changedKeyAmount == _changedKeys.length) {
+			_changedKeys = Arrays.copyOf(_changedKeys, _changedKeyAmount * 2);
+		}
+		_changedKeys[_changedKeyAmount++] = keyIndex;
+		
+		for(int listener = 0; listener < _changeListeners.size(); listener++) {
+			_changeListeners.get(listener).inputChanged((int) key, held, time);
+		}
+	}
+	
+	@Internal
+	static void saveState(InputState state) {
+		copy(_keyHeld, state.keyHeld);
+		copy(_keyPressed, state.keyPressed);
+		copy(_keyLowering, state.keyLowering);
+		if(state.changedKeys.length < _changedKeyAmount) {
+			state.changedKeys = new int[_changedKeys.length];
+		}
+		System.arraycopy(_changedKeys, 0, state.changedKeys, 0, _changedKeyAmount);
+		state.changedKeyAmount = _changedKeyAmount;
+		state.keyEvents.copyFrom(_events);
+	}
+	
+	@Internal
+	static void restoreState(InputState state) {
+		copy(state.keyHeld, _keyHeld);
+		copy(state.keyPressed, _keyPressed);
+		copy(state.keyLowering, _keyLowering);
+		if(_changedKeys.length < state.changedKeyAmount) {
+			_changedKeys = new int[state.changedKeys.length];
+		}
+		System.arraycopy(state.changedKeys, 0, _changedKeys, 0, state.changedKeyAmount);
+		_changedKeyAmount = state.changedKeyAmount;
+		_events.copyFrom(state.keyEvents);
+	}
+	
+	@Internal
+	private static void copy(BitSet source, BitSet target) {
+		//only touches the words in use, and only allocates while the target is still growing
+		target.clear();
+		target.or(source);
+	}
+	
+	@Internal
+	private static int toKeyIndex(int keyCode) {
+		if(keyCode >= 0 && keyCode < _VIRTUAL_KEY_RANGE) {
+			return keyCode;
+		}
+		int codePoint = keyCode - _UNICODE_KEY_OFFSET;
+		if(codePoint >= 0 && codePoint < _UNICODE_KEY_RANGE) {
+			return _VIRTUAL_KEY_RANGE + codePoint;
+		}
+		return -1;
+	}
+	
+	@Internal
+	static int toKeyCode(int keyIndex) {
+		return keyIndex < _VIRTUAL_KEY_RANGE ? keyIndex : keyIndex - _VIRTUAL_KEY_RANGE + _UNICODE_KEY_OFFSET;
+	}
+	
+	@Internal
+	private static boolean getKeyState(BitSet keyStates, int keyCode) {
+		int keyIndex = toKeyIndex(keyCode);
+		return keyIndex >= 0 && keyStates.get(keyIndex);
 	}
 	
 	@Internal
 	public void keyPressed(KeyEvent e) {
-		int key = e.getExtendedKeyCode();
-		_keyHeld[key] = true;
+		queueEvent(InputEventList.KEY_DOWN, e.getExtendedKeyCode());
 	}
 	
 	@Internal
 	public void keyReleased(KeyEvent e) {
-		int key = e.getExtendedKeyCode();
-		_keyHeld[key] = false;
+		queueEvent(InputEventList.KEY_UP, e.getExtendedKeyCode());
+	}
+	
+	@Internal
+	private static void queueEvent(int type, int key) {
+		if(InputReplay.isReplaying()) {
+			return;		//recorded input replaces the keyboard
+		}
+		injectEvent(type, key, System.nanoTime());
+	}
+	
+	@Internal
+	static void injectEvent(int type, int key, long time) {
+		if(!_eventQueue.offer(type, null, key, time)) {
+			GameLoop.engineOutput.println("BaseEngine Error: key event queue is full, dropping key " + key);
+		}
 	}
 	
 	@Internal
@@ -73,12 +185,12 @@ public class KeyInput implements KeyListener{
 
 	/**
 	 * Get if a certain key is being held down.<br>
-	 * Keycodes can be found as constants in {@link java.awt.event.KeyEvent}
+	 * Keycodes can be found as constants in {@link java.awt.event.KeyEvent}, extended keycodes from {@link KeyEvent#getExtendedKeyCodeForChar(int)} are supported as well.
 	 * @param keyCode <b>(Integer)</b> Code for the key that is being checked.
 	 * @return True if key is held down.
 	 */
 	public static boolean getKeyHeld(int keyCode) {
-		return _keyHeld[keyCode];
+		return getKeyState(_keyHeld, keyCode);
 	}
 	
 	/**
@@ -88,7 +200,7 @@ public class KeyInput implements KeyListener{
 	 * @return True for one tick if key was pressed down (falling edge).
 	 */
 	public static boolean getKeyPressed(int keyCode) {
-		return _keyPressed[keyCode];
+		return getKeyState(_keyPressed, keyCode);
 	}
 	
 	/**
@@ -98,7 +210,33 @@ public class KeyInput implements KeyListener{
 	 * @return True for one tick if key is beginning to be pressed down (rising edge).
 	 */
 	public static boolean getKeyLowering(int keyCode) {
-		return _keyLowering[keyCode];
+		return getKeyState(_keyLowering, keyCode);
+	}
+	
+	/**
+	 * Getter for all key events that were received during the last tick, in the order they happened.<br>
+	 * <u>Note:</u> The list is reused and overwritten every tick, only read it from the tick thread.
+	 * @return events (InputEventList)
+	 */
+	public static InputEventList getEvents() {
+		return _events;
+	}
+	
+	/**
+	 * Adds a listener that gets called on the tick thread every time a key goes up or down.
+	 * @param listener <b>(InputChangeListener)</b> The listener to be added.
+	 * @see #removeChangeListener(InputChangeListener)
+	 */
+	public static void addChangeListener(InputChangeListener listener) {
+		_changeListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener that was added with {@link #addChangeListener(InputChangeListener)}.
+	 * @param listener <b>(InputChangeListener)</b> The listener to be removed.
+	 */
+	public static void removeChangeListener(InputChangeListener listener) {
+		_changeListeners.remove(listener);
 	}
 	
 	/**
@@ -106,7 +244,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'W' key is held down.
 	 */
 	public static boolean wHeld() {
-		return _keyHeld[KeyEvent.VK_W];
+		return _keyHeld.get(KeyEvent.VK_W);
 	}
 	
 	/**
@@ -114,7 +252,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'A' key is held down.
 	 */
 	public static boolean aHeld() {
-		return _keyHeld[KeyEvent.VK_A];
+		return _keyHeld.get(KeyEvent.VK_A);
 	}
 	
 	/**
@@ -122,7 +260,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'S' key is held down.
 	 */
 	public static boolean sHeld() {
-		return _keyHeld[KeyEvent.VK_S];
+		return _keyHeld.get(KeyEvent.VK_S);
 	}
 	
 	/**
@@ -130,7 +268,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'D' key is held down.
 	 */
 	public static boolean dHeld() {
-		return _keyHeld[KeyEvent.VK_D];
+		return _keyHeld.get(KeyEvent.VK_D);
 	}
 	
 	/**
@@ -138,7 +276,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'SPACE' key is held down.
 	 */
 	public static boolean spaceHeld() {
-		return _keyHeld[KeyEvent.VK_SPACE];
+		return _keyHeld.get(KeyEvent.VK_SPACE);
 	}
 	
 	/**
@@ -146,7 +284,7 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'SHIFT' key is held down.
 	 */
 	public static boolean shiftHeld() {
-		return _keyHeld[KeyEvent.VK_SHIFT];
+		return _keyHeld.get(KeyEvent.VK_SHIFT);
 	}
 	
 	/**
@@ -154,6 +292,6 @@ public class KeyInput implements KeyListener{
 	 * @return True if 'ENTER' was pressed down.
 	 */
 	public static boolean enterPressed() {
-		return _keyPressed[KeyEvent.VK_ENTER];
+		return _keyPressed.get(KeyEvent.VK_ENTER);
 	}
 }
@@ -6,8 +6,13 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+import com.valhalla.engine.GameLoop;
 import com.valhalla.engine.Screen;
+import com.valhalla.engine.internal.CommandQueue;
 import com.valhalla.engine.internal.Internal;
 
 
@@ -24,6 +29,8 @@ import com.valhalla.engine.internal.Internal;
  *  <li>{@link #getScrollingUp}</li>
  *  <li>{@link #getScrollingDown}</li>
  *  <li>{@link #getScrollingAmount}</li>
+ *  <li>{@link #getEvents}</li>
+ *  <li>{@link #addChangeListener}</li>
  * </ul>
  * @author BauwenDR
  */
@@ -33,7 +40,6 @@ public class MouseInput implements MouseListener, MouseMotionListener, MouseWhee
 	private static final boolean[] _keyHeld = new boolean[_keyAmount];
 	private static final boolean[] _keyPressed = new boolean[_keyAmount];
 	private static final boolean[] _keyLowering = new boolean[_keyAmount];
-	private static final boolean[] _lastTick = new boolean[_keyAmount];
 	private static boolean _scrollingUp, _scrollingDown;
 	private static double _scrollingAmount;
 	
@@ -41,74 +47,164 @@ public class MouseInput implements MouseListener, MouseMotionListener, MouseWhee
 	private static double _mouseMovedX, _mouseMovedY;
 	private static double _lastMouseX = 0, _lastMouseY = 0;
 	
+	private static final int _EVENT_QUEUE_CAPACITY = 4096;
+	private static final CommandQueue _eventQueue = new CommandQueue(_EVENT_QUEUE_CAPACITY);
+	private static final InputEventList _events = new InputEventList();
+	private static final List<InputChangeListener> _changeListeners = new CopyOnWriteArrayList<>();
+	private static final CommandQueue.Consumer _eventHandler = MouseInput::handleEvent;
+	
 	@Internal
 	public MouseInput() {
-		for(int key = 0; key < _keyAmount; key++) {
-			_keyHeld[key] = false;
-			_keyPressed[key] = true;
-			_lastTick[key]  = false;
-		}
+		Arrays.fill(_keyHeld, false);
+		Arrays.fill(_keyPressed, false);
+		Arrays.fill(_keyLowering, false);
 	}
 	
 	@Internal
 	public void tick() {
+		Arrays.fill(_keyPressed, false);
+		Arrays.fill(_keyLowering, false);
+		_events.clear();
+		
+		//scroll wheel
+		_scrollingUp = false;
+		_scrollingDown = false;
+		_scrollingAmount = 0;
+		
+		//replay all events since the last tick, so a click within one tick and every motion step are kept
+		_eventQueue.drain(_eventHandler);
+		
 		//mouse movement
 		_mouseMovedX = _mouseX-_lastMouseX;
 		_mouseMovedY = _mouseY-_lastMouseY;
 		_lastMouseX = _mouseX;
 		_lastMouseY = _mouseY;
+	}
+	
+	@Internal
+	private static void handleEvent(int type, Object subject, long argument, long time) {
+		switch(type) {
+			case InputEventList.MOUSE_MOVED:
+				int x = (int) (argument >> 32);
+				int y = (int) argument;
+				_mouseX = x;
+				_mouseY = y;
+				_events.add(type, 0, x, y, 0, time);
+				break;
+			case InputEventList.MOUSE_WHEEL:
+				double amount = Double.longBitsToDouble(argument);
+				_scrollingAmount += amount;
+				if(_scrollingAmount > 0) {
+					_scrollingDown = true;
+				}else {
+					_scrollingUp = true;
+				}
+				_events.add(type, 0, (int) _mouseX, (int) _mouseY, amount, time);
+				break;
+			default:
+				handleButtonEvent(type, (int) argument, time);
+		}
+	}
+	
+	@Internal
+	private static void handleButtonEvent(int type, int button, long time) {
+		boolean held = type == InputEventList.KEY_DOWN;
+		_events.add(type, button, (int) _mouseX, (int) _mouseY, 0, time);
 		
-		//scroll wheel
-		_scrollingUp = false;
-		_scrollingDown = false;
-		_scrollingAmount = 0;
+		if(button >= _keyAmount || _keyHeld[button] == held) {
+			return;
+		}
+		_keyHeld[button] = held;
 		
-		for (int key = 0; key < _keyAmount; key++) {
-
-			//falling edge -> button is going down, beginning of a button press
-			_keyPressed[key] = _lastTick[key] && !_keyHeld[key];
-			
-			//rising edge -> button is going up, end of a button press
-			_keyLowering[key] = !_lastTick[key] && _keyHeld[key];
-
-			//copy keyHeld to LastTick
-			_lastTick[key] = _keyHeld[key];
+		if(held) {
+			_keyLowering[button] = true;	//rising edge -> button is going up, end of a button press
+		}else {
+			_keyPressed[button] = true;		//falling edge -> button is going down, beginning of a button press
 		}
 		
+		for(int listener = 0; listener < _changeListeners.size(); listener++) {
+			_changeListeners.get(listener).inputChanged(button, held, time);
+		}
+	}
+	
+	@Internal
+	static void saveState(InputState state) {
+		System.arraycopy(_keyHeld, 0, state.mouseHeld, 0, _keyAmount);
+		System.arraycopy(_keyPressed, 0, state.mousePressed, 0, _keyAmount);
+		System.arraycopy(_keyLowering, 0, state.mouseLowering, 0, _keyAmount);
+		state.scrollingUp = _scrollingUp;
+		state.scrollingDown = _scrollingDown;
+		state.scrollingAmount = _scrollingAmount;
+		state.mouseX = _mouseX;
+		state.mouseY = _mouseY;
+		state.mouseMovedX = _mouseMovedX;
+		state.mouseMovedY = _mouseMovedY;
+		state.lastMouseX = _lastMouseX;
+		state.lastMouseY = _lastMouseY;
+		state.mouseEvents.copyFrom(_events);
+	}
+	
+	@Internal
+	static void restoreState(InputState state) {
+		System.arraycopy(state.mouseHeld, 0, _keyHeld, 0, _keyAmount);
+		System.arraycopy(state.mousePressed, 0, _keyPressed, 0, _keyAmount);
+		System.arraycopy(state.mouseLowering, 0, _keyLowering, 0, _keyAmount);
+		_scrollingUp = state.scrollingUp;
+		_scrollingDown = state.scrollingDown;
+		_scrollingAmount = state.scrollingAmount;
+		_mouseX = state.mouseX;
+		_mouseY = state.mouseY;
+		_mouseMovedX = state.mouseMovedX;
+		_mouseMovedY = state.mouseMovedY;
+		_lastMouseX = state.lastMouseX;
+		_lastMouseY = state.lastMouseY;
+		_events.copyFrom(state.mouseEvents);
+	}
+	
+	@Internal
+	private static void queueMotion(MouseEvent e) {
+		queueEvent(InputEventList.MOUSE_MOVED, ((long) e.getX() << 32) | (e.getY() & 0xFFFFFFFFL));
+	}
+	
+	@Internal
+	private static void queueEvent(int type, long argument) {
+		if(InputReplay.isReplaying()) {
+			return;		//recorded input replaces the mouse
+		}
+		injectEvent(type, argument, System.nanoTime());
+	}
+	
+	@Internal
+	static void injectEvent(int type, long argument, long time) {
+		//motion is not essential, so it is silently dropped if the queue is full
+		if(!_eventQueue.offer(type, null, argument, time) && type != InputEventList.MOUSE_MOVED) {
+			GameLoop.engineOutput.println("BaseEngine Error: mouse event queue is full, dropping mouse event");
+		}
 	}
 	
 	@Internal @Override
 	public void mouseDragged(MouseEvent e) {
-		_mouseX = e.getX();
-		_mouseY = e.getY();
+		queueMotion(e);
 	}
 
 	@Internal @Override
 	public void mouseMoved(MouseEvent e) {
-		_mouseX = e.getX();
-		_mouseY = e.getY();
+		queueMotion(e);
 	}
 
 	@Internal @Override
 	public void mousePressed(MouseEvent e) {
-		int key = e.getButton();
-		_keyHeld[key] = true;
+		queueEvent(InputEventList.KEY_DOWN, e.getButton());
 	}
 
 	@Internal @Override
 	public void mouseReleased(MouseEvent e) {
-		int key = e.getButton();
-		_keyHeld[key] = false;
+		queueEvent(InputEventList.KEY_UP, e.getButton());
 	}
 	
 	@Internal  @Override
 	public void mouseWheelMoved(MouseWheelEvent e) {
-		_scrollingAmount += e.getPreciseWheelRotation();
-		if(_scrollingAmount > 0) {
-			_scrollingDown = true;
-		}else {
-			_scrollingUp = true;
-		}
+		queueEvent(InputEventList.MOUSE_WHEEL, Double.doubleToRawLongBits(e.getPreciseWheelRotation()));
 	}
 
 	@Internal @Override
@@ -218,6 +314,32 @@ public class MouseInput implements MouseListener, MouseMotionListener, MouseWhee
 		return _scrollingAmount;
 	}
 	
+	/**
+	 * Getter for all mouse events that were received during the last tick, in the order they happened.<br>
+	 * <u>Note:</u> The list is reused and overwritten every tick, only read it from the tick thread.
+	 * @return events (InputEventList)
+	 */
+	public static InputEventList getEvents() {
+		return _events;
+	}
+	
+	/**
+	 * Adds a listener that gets called on the tick thread every time a mouse button goes up or down.
+	 * @param listener <b>(InputChangeListener)</b> The listener to be added.
+	 * @see #removeChangeListener(InputChangeListener)
+	 */
+	public static void addChangeListener(InputChangeListener listener) {
+		_changeListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a listener that was added with {@link #addChangeListener(InputChangeListener)}.
+	 * @param listener <b>(InputChangeListener)</b> The listener to be removed.
+	 */
+	public static void removeChangeListener(InputChangeListener listener) {
+		_changeListeners.remove(listener);
+	}
+	
 	/**
 	 * Get if the left mouse button is being held down.
 	 * @return True if the left mouse button is being held down
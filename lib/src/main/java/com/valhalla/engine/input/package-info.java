@@ -2,5 +2,9 @@
  * Package for handling user input.
  * @see com.valhalla.engine.input.KeyInput
  * @see com.valhalla.engine.input.MouseInput
+ * @see com.valhalla.engine.input.InputEventList
+ * @see com.valhalla.engine.input.InputRecorder
+ * @see com.valhalla.engine.input.InputReplay
+ * @see com.valhalla.engine.input.InputState
  */ 
 package com.valhalla.engine.input;
\ No newline at end of file
@@ -0,0 +1,239 @@
+package com.valhalla.engine.internal;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over axis aligned boxes, used to find overlapping pairs without comparing every box with every other box.<br>
+ * <br>
+ * The grid is built from arrays of box edges with a two-pass counting sort, every box is listed in each cell it overlaps.
+ * The cell size follows the average box size, but the grid never has more than about two cells per box.
+ * Boxes covering many cells (e.g. level borders) are kept out of the grid and compared with every other box instead.
+ * Boxes that only touch do not overlap.<br>
+ * <u>Note:</u> The grid keeps references to the arrays it was built from, they should not change until the next {@link #build}.
+ * @author BauwenDR
+ */
+@Internal
+public final class BroadphaseGrid {
+
+	private static final int _LARGE_CELLS = 64;
+
+	private float[] _minX, _minY, _maxX, _maxY;
+	private int _count = 0;
+
+	private float _gridX, _gridY, _inverseCellSize;
+	private int _columns = 1, _rows = 1;
+	private int[] _cellStart = new int[2], _cellFill = new int[2], _cellEntries = new int[64];
+	private boolean[] _isLarge = new boolean[64];
+	private int[] _large = new int[64];
+	private int _largeCount = 0;
+
+	private long[] _pairs = new long[64];
+	private int[] _results = new int[16];
+
+	/**
+	 * Sorts boxes into the grid.
+	 * @param minX <b>(float[])</b> left edges.
+	 * @param minY <b>(float[])</b> top edges.
+	 * @param maxX <b>(float[])</b> right edges.
+	 * @param maxY <b>(float[])</b> bottom edges.
+	 * @param count <b>(Integer)</b> amount of boxes, the first count entries of every array are used.
+	 */
+	public void build(float[] minX, float[] minY, float[] maxX, float[] maxY, int count) {
+		_minX = minX;
+		_minY = minY;
+		_maxX = maxX;
+		_maxY = maxY;
+		_count = count;
+		if(_isLarge.length < count) {
+			_isLarge = new boolean[Math.max(count, _isLarge.length * 2)];
+			_large = new int[_isLarge.length];
+		}
+
+		float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY, right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+		double extent = 0;
+		for(int index = 0; index < count; index++) {
+			left = Math.min(left, minX[index]);
+			top = Math.min(top, minY[index]);
+			right = Math.max(right, minX[index]);
+			bottom = Math.max(bottom, minY[index]);
+			extent += Math.max(maxX[index] - minX[index], maxY[index] - minY[index]);
+		}
+		if(count == 0 || !(right - left < Float.POSITIVE_INFINITY && bottom - top < Float.POSITIVE_INFINITY)) {
+			left = top = 0;
+			right = bottom = 1;
+		}
+		double width = right - left, height = bottom - top;
+		double cellSize = Math.max(2 * extent / Math.max(1, count), Math.sqrt(width * height / (2.0 * count + 64)));
+		cellSize = Math.max(cellSize, Math.max(width, height) / 4096);	//keeps the amount of cells an Integer
+		if(!(cellSize > 0)) {
+			cellSize = 1;
+		}
+		_gridX = left;
+		_gridY = top;
+		_inverseCellSize = (float) (1 / cellSize);
+		_columns = (int) (width * _inverseCellSize) + 1;
+		_rows = (int) (height * _inverseCellSize) + 1;
+
+		int cells = _columns * _rows;
+		if(_cellStart.length < cells + 1) {
+			_cellStart = new int[Math.max(cells + 1, _cellStart.length * 2)];
+			_cellFill = new int[_cellStart.length];
+		}
+		Arrays.fill(_cellStart, 0, cells + 1, 0);
+
+		//first pass counts the boxes per cell, second pass places them
+		_largeCount = 0;
+		int entries = 0;
+		for(int index = 0; index < count; index++) {
+			int firstColumn = column(minX[index]), lastColumn = column(maxX[index]);
+			int firstRow = row(minY[index]), lastRow = row(maxY[index]);
+			if((long) (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1) > _LARGE_CELLS || Float.isNaN(minX[index] + minY[index] + maxX[index] + maxY[index])) {
+				_isLarge[index] = true;
+				_large[_largeCount++] = index;
+				continue;
+			}
+			_isLarge[index] = false;
+			for(int row = firstRow; row <= lastRow; row++) {
+				for(int column = firstColumn; column <= lastColumn; column++) {
+					_cellStart[row * _columns + column + 1]++;
+				}
+			}
+			entries += (lastColumn - firstColumn + 1) * (lastRow - firstRow + 1);
+		}
+		for(int cell = 0; cell < cells; cell++) {
+			_cellStart[cell + 1] += _cellStart[cell];
+		}
+		if(_cellEntries.length < entries) {
+			_cellEntries = new int[Math.max(entries, _cellEntries.length * 2)];
+		}
+		System.arraycopy(_cellStart, 0, _cellFill, 0, cells);
+		for(int index = 0; index < count; index++) {
+			if(_isLarge[index]) {
+				continue;
+			}
+			int firstColumn = column(minX[index]), lastColumn = column(maxX[index]);
+			int lastRow = row(maxY[index]);
+			for(int row = row(minY[index]); row <= lastRow; row++) {
+				for(int column = firstColumn; column <= lastColumn; column++) {
+					_cellEntries[_cellFill[row * _columns + column]++] = index;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds every pair of overlapping boxes, each pair is reported once.
+	 * @return pairCount (Integer), the pairs are stored in {@link #getPairs()}
+	 */
+	public int findPairs() {
+		float[] minX = _minX, minY = _minY, maxX = _maxX, maxY = _maxY;
+		int[] entries = _cellEntries;
+		int pairCount = 0;
+		int cells = _columns * _rows;
+		for(int cell = 0; cell < cells; cell++) {
+			int end = _cellStart[cell + 1];
+			for(int firstEntry = _cellStart[cell]; firstEntry < end; firstEntry++) {
+				int first = entries[firstEntry];
+				float firstMinX = minX[first], firstMinY = minY[first], firstMaxX = maxX[first], firstMaxY = maxY[first];
+				for(int secondEntry = firstEntry + 1; secondEntry < end; secondEntry++) {
+					int second = entries[secondEntry];
+					if(minX[second] < firstMaxX && firstMinX < maxX[second] && minY[second] < firstMaxY && firstMinY < maxY[second]
+							&& row(Math.max(firstMinY, minY[second])) * _columns + column(Math.max(firstMinX, minX[second])) == cell) {
+						//a pair sharing several cells is only reported in the cell holding the corner of their overlap
+						pairCount = addPair(pairCount, first, second);
+					}
+				}
+			}
+		}
+
+		for(int largeIndex = 0; largeIndex < _largeCount; largeIndex++) {
+			int first = _large[largeIndex];
+			for(int second = 0; second < _count; second++) {
+				if(second == first || (_isLarge[second] && second < first)) {
+					continue;	//pairs of two large boxes are only tested once
+				}
+				if(minX[second] < maxX[first] && minX[first] < maxX[second] && minY[second] < maxY[first] && minY[first] < maxY[second]) {
+					pairCount = addPair(pairCount, first, second);
+				}
+			}
+		}
+		return pairCount;
+	}
+
+	/**
+	 * Getter for the pairs found by {@link #findPairs()}, every pair holds the index of one box in the upper 32 bits and the other one in the lower 32 bits.
+	 * @return pairs (long[])
+	 */
+	public long[] getPairs() {
+		return _pairs;
+	}
+
+	/**
+	 * Finds every box in the grid overlapping a given box, each box is reported once.
+	 * @param minX <b>(Float)</b> left edge.
+	 * @param minY <b>(Float)</b> top edge.
+	 * @param maxX <b>(Float)</b> right edge.
+	 * @param maxY <b>(Float)</b> bottom edge.
+	 * @return resultCount (Integer), the indices of the boxes are stored in {@link #getResults()}
+	 */
+	public int query(float minX, float minY, float maxX, float maxY) {
+		int resultCount = 0;
+		if(_count == 0) {
+			return 0;
+		}
+		int firstColumn = column(minX), lastColumn = column(maxX);
+		int lastRow = row(maxY);
+		for(int row = row(minY); row <= lastRow; row++) {
+			for(int column = firstColumn; column <= lastColumn; column++) {
+				int cell = row * _columns + column;
+				int end = _cellStart[cell + 1];
+				for(int entry = _cellStart[cell]; entry < end; entry++) {
+					int index = _cellEntries[entry];
+					if(_minX[index] < maxX && minX < _maxX[index] && _minY[index] < maxY && minY < _maxY[index]
+							&& row(Math.max(minY, _minY[index])) * _columns + column(Math.max(minX, _minX[index])) == cell) {
+						resultCount = addResult(resultCount, index);
+					}
+				}
+			}
+		}
+		for(int largeIndex = 0; largeIndex < _largeCount; largeIndex++) {
+			int index = _large[largeIndex];
+			if(_minX[index] < maxX && minX < _maxX[index] && _minY[index] < maxY && minY < _maxY[index]) {
+				resultCount = addResult(resultCount, index);
+			}
+		}
+		return resultCount;
+	}
+
+	/**
+	 * Getter for the indices of the boxes found by {@link #query}.
+	 * @return results (int[])
+	 */
+	public int[] getResults() {
+		return _results;
+	}
+
+	private int addPair(int pairCount, int first, int second) {
+		if(pairCount == _pairs.length) {
+			_pairs = Arrays.copyOf(_pairs, pairCount * 2);
+		}
+		_pairs[pairCount] = ((long) first << 32) | second;
+		return pairCount + 1;
+	}
+
+	private int addResult(int resultCount, int index) {
+		if(resultCount == _results.length) {
+			_results = Arrays.copyOf(_results, resultCount * 2);
+		}
+		_results[resultCount] = index;
+		return resultCount + 1;
+	}
+
+	private int column(float x) {
+		return Math.min(_columns - 1, Math.max(0, (int) ((x - _gridX) * _inverseCellSize)));
+	}
+
+	private int row(float y) {
+		return Math.min(_rows - 1, Math.max(0, (int) ((y - _gridY) * _inverseCellSize)));
+	}
+}
@@ -0,0 +1,140 @@
+package com.valhalla.engine.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer single-consumer ring buffer for small commands.<br>
+ * <br>
+ * Every slot holds a command code, a subject reference, a long argument and a timestamp, all stored in preallocated arrays so offering and draining a command does not allocate.
+ * Any thread may call {@link #offer}, but only one thread at a time may call {@link #drain}.
+ * @author BauwenDR
+ */
+@Internal
+public final class CommandQueue {
+
+	/**
+	 * Callback used by {@link CommandQueue#drain} for every command taken out of the queue.
+	 */
+	@Internal
+	public interface Consumer {
+		void accept(int command, Object subject, long argument, long time);
+	}
+
+	private final int _mask;
+	private final AtomicLongArray _sequences;
+	private final int[] _commands;
+	private final Object[] _subjects;
+	private final long[] _arguments;
+	private final long[] _times;
+
+	private final AtomicLong _tail = new AtomicLong();
+	private long _head = 0;
+
+	/**
+	 * Creates a new CommandQueue.
+	 * @param capacity <b>(Integer)</b> Maximum amount of pending commands, rounded up to a power of two.
+	 */
+	public CommandQueue(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		_mask = size - 1;
+		_sequences = new AtomicLongArray(size);
+		_commands = new int[size];
+		_subjects = new Object[size];
+		_arguments = new long[size];
+		_times = new long[size];
+
+		for(int slot = 0; slot < size; slot++) {
+			_sequences.set(slot, slot);
+		}
+	}
+
+	/**
+	 * Adds a command at the end of the queue, can be called from any thread.
+	 * @param command <b>(Integer)</b> Code of the command.
+	 * @param subject <b>(Object)</b> Object the command acts on, may be null.
+	 * @param argument <b>(Long)</b> Extra argument of the command.
+	 * @return False if the queue is full and the command was not added.
+	 */
+	public boolean offer(int command, Object subject, long argument) {
+		return offer(command, subject, argument, 0);
+	}
+
+	/**
+	 * Adds a timestamped command at the end of the queue, can be called from any thread.
+	 * @param command <b>(Integer)</b> Code of the command.
+	 * @param subject <b>(Object)</b> Object the command acts on, may be null.
+	 * @param argument <b>(Long)</b> Extra argument of the command.
+	 * @param time <b>(Long)</b> Timestamp of the command, usually {@link System#nanoTime()}.
+	 * @return False if the queue is full and the command was not added.
+	 */
+	public boolean offer(int command, Object subject, long argument, long time) {
+		long position = _tail.get();
+		while(true) {
+			int slot = (int) (position & _mask);
+			long difference = _sequences.get(slot) - position;
+
+			if(difference == 0) {
+				if(_tail.compareAndSet(position, position + 1)) {
+					_commands[slot] = command;
+					_subjects[slot] = subject;
+					_arguments[slot] = argument;
+					_times[slot] = time;
+					_sequences.lazySet(slot, position + 1);	//publish slot to consumer
+					return true;
+				}
+				position = _tail.get();
+			}else if(difference < 0) {
+				return false;	//slot still holds an unconsumed command
+			}else {
+				position = _tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes the published commands out of the queue in order and passes them to the consumer.<br>
+	 * Only commands offered before the drain started are taken, commands offered while draining (also by the consumer itself) are left for the next drain,
+	 * so producers that keep offering can not hold the consumer in this method.
+	 * @param consumer <b>(Consumer)</b> Callback for every command.
+	 * @return (Integer) The amount of commands that were drained.
+	 */
+	public int drain(Consumer consumer) {
+		long end = _tail.get();
+		int drained = 0;
+		while(_head < end) {
+			int slot = (int) (_head & _mask);
+			if(_sequences.get(slot) != _head + 1) {
+				return drained;		//claimed but not published yet
+			}
+
+			int command = _commands[slot];
+			Object subject = _subjects[slot];
+			long argument = _arguments[slot];
+			long time = _times[slot];
+			_subjects[slot] = null;
+			_sequences.lazySet(slot, _head + _mask + 1);	//hand slot back to producers
+			_head++;
+
+			consumer.accept(command, subject, argument, time);
+			drained++;
+		}
+		return drained;
+	}
+
+	/**
+	 * Checks if there are no published commands waiting to be drained.
+	 * @return True if the queue is empty.
+	 */
+	public boolean isEmpty() {
+		return _sequences.get((int) (_head & _mask)) != _head + 1;
+	}
+
+	/**
+	 * Getter for the maximum amount of pending commands.
+	 * @return capacity (Integer)
+	 */
+	public int getCapacity() {
+		return _mask + 1;
+	}
+}
@@ -0,0 +1,107 @@
+package com.valhalla.engine.internal;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from a pair of ids, packed in a Long, to a non-zero Integer without boxing.<br>
+ * Used by the CollisionWorld to remember in which step a contact was last seen, and by the PhysicsWorld to find the contacts of the previous step.
+ * @author BauwenDR
+ */
+@Internal
+public final class PairSet {
+
+	private long[] _keys = new long[64];		//0 marks an empty entry, a valid pair is never 0
+	private int[] _stamps = new int[64];
+	private int _size = 0;
+
+	/**
+	 * Stores a value for a pair.
+	 * @param key <b>(Long)</b> the pair, never 0.
+	 * @param stamp <b>(Integer)</b> the value, never 0.
+	 * @return the value stored before, 0 if the pair is new
+	 */
+	public int put(long key, int stamp) {
+		if(_size * 2 >= _keys.length) {
+			grow();
+		}
+		int mask = _keys.length - 1;
+		int index = hash(key) & mask;
+		while(_keys[index] != 0) {
+			if(_keys[index] == key) {
+				int previous = _stamps[index];
+				_stamps[index] = stamp;
+				return previous;
+			}
+			index = (index + 1) & mask;
+		}
+		_keys[index] = key;
+		_stamps[index] = stamp;
+		_size++;
+		return 0;
+	}
+
+	/**
+	 * Getter for the value of a pair.
+	 * @return the value, 0 if the pair is not stored
+	 */
+	public int get(long key) {
+		int mask = _keys.length - 1;
+		for(int index = hash(key) & mask; _keys[index] != 0; index = (index + 1) & mask) {
+			if(_keys[index] == key) {
+				return _stamps[index];
+			}
+		}
+		return 0;
+	}
+
+	public void remove(long key) {
+		int mask = _keys.length - 1;
+		int index = hash(key) & mask;
+		while(_keys[index] != key) {
+			if(_keys[index] == 0) {
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+
+		//shift following entries back so no probe sequence is broken
+		int empty = index;
+		for(index = (index + 1) & mask; _keys[index] != 0; index = (index + 1) & mask) {
+			int home = hash(_keys[index]) & mask;
+			if(((index - home) & mask) >= ((index - empty) & mask)) {
+				_keys[empty] = _keys[index];
+				_stamps[empty] = _stamps[index];
+				empty = index;
+			}
+		}
+		_keys[empty] = 0;
+		_size--;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public void clear() {
+		Arrays.fill(_keys, 0);
+		_size = 0;
+	}
+
+	private void grow() {
+		long[] keys = _keys;
+		int[] stamps = _stamps;
+		_keys = new long[keys.length * 2];
+		_stamps = new int[keys.length * 2];
+		_size = 0;
+		for(int index = 0; index < keys.length; index++) {
+			if(keys[index] != 0) {
+				put(keys[index], stamps[index]);
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		key = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+		return (int) (key ^ (key >>> 33));
+	}
+}
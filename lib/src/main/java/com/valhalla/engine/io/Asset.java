@@ -0,0 +1,77 @@
+package com.valhalla.engine.io;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Handle to an asset that is loaded by the {@link AssetManager}.<br>
+ * <br>
+ * Every request for the same asset returns the same handle, and every request has to be matched by a call to {@link #release()}.
+ * Once all requests are released the asset is unloaded.
+ * @param <T> type of the loaded asset
+ * @author BauwenDR
+ */
+public final class Asset<T> {
+
+	final String key;
+	final String path;
+	final CompletableFuture<T> future = new CompletableFuture<>();
+	final AssetManager.AssetUnloader<T> unloader;
+	int references = 1;
+
+	@Internal
+	Asset(String key, String path, AssetManager.AssetUnloader<T> unloader) {
+		this.key = key;
+		this.path = path;
+		this.unloader = unloader;
+	}
+
+	/**
+	 * Getter for the future that completes once the asset is loaded, or fails if loading went wrong.
+	 * @return future (CompletableFuture)
+	 */
+	public CompletableFuture<T> getFuture() {
+		return future;
+	}
+
+	/**
+	 * Checks if the asset has finished loading successfully.
+	 * @return True if the asset can be used.
+	 */
+	public boolean isLoaded() {
+		return future.isDone() && !future.isCompletedExceptionally();
+	}
+
+	/**
+	 * Getter for the loaded asset, this function never blocks.
+	 * @return asset (T) or null if it is not loaded (yet)
+	 */
+	public T get() {
+		return isLoaded() ? future.join() : null;
+	}
+
+	/**
+	 * Waits until the asset is loaded and returns it.<br>
+	 * <u>Note:</u> Avoid calling this on the tick thread, as it stalls the game loop.
+	 * @return asset (T)
+	 */
+	public T join() {
+		return future.join();
+	}
+
+	/**
+	 * Getter for the path the asset is loaded from.
+	 * @return path (String)
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Releases one request for this asset, the asset is unloaded when no requests are left.
+	 */
+	public void release() {
+		AssetManager.release(this);
+	}
+}
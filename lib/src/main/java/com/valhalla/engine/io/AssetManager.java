@@ -0,0 +1,185 @@
+package com.valhalla.engine.io;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class used for loading images, sounds and data files in the background.<br>
+ * <br>
+ * Assets are loaded in parallel on a pool of worker threads, so loading never stalls the game loop.
+ * Requests for an asset that is already loaded or loading share the same {@link Asset} handle, which counts its references and unloads the asset once all of them are released.
+ * Use {@link #getProgress()} to draw a loading screen.
+ * @author BauwenDR
+ */
+public class AssetManager {
+
+	/**
+	 * Function that loads an asset from a file, called on a worker thread.
+	 * @param <T> type of the loaded asset
+	 */
+	public interface AssetLoader<T> {
+		T load(File file) throws Exception;
+	}
+
+	/**
+	 * Function that frees an asset once it is no longer referenced.
+	 * @param <T> type of the loaded asset
+	 */
+	public interface AssetUnloader<T> {
+		void unload(T asset);
+	}
+
+	private static final AtomicInteger _workerNumber = new AtomicInteger();
+	private static final ExecutorService _workers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+		Thread worker = new Thread(runnable);
+		worker.setName("Asset-Loader-" + _workerNumber.incrementAndGet());
+		worker.setDaemon(true);
+		return worker;
+	});
+
+	private static final HashMap<String, Asset<?>> _assets = new HashMap<>();
+	private static int _requestedAssets = 0, _finishedAssets = 0;
+
+	/**
+	 * Loads an image in the background, through the {@link DecodedCache} if it is enabled.
+	 * @param path <b>(String)</b> the location of the image.
+	 * @return (Asset) handle to the image.
+	 */
+	public static Asset<BufferedImage> loadImage(String path) {
+		return load("image", path, DecodedCache::readImage, null);
+	}
+
+	/**
+	 * Loads a sound effect in the background, once loaded it can be played with the returned handle.<br>
+	 * The sound effect is removed from the {@link SoundEffectPlayer} when the asset is unloaded.
+	 * @param soundEffectName <b>(String)</b> name used for playing back the sound effect.
+	 * @param path <b>(String)</b> the location of the sound file.
+	 * @return (Asset) handle to the sound effect handle, see {@link SoundEffectPlayer#playSoundEffect(int)}.
+	 */
+	public static Asset<Integer> loadSoundEffect(String soundEffectName, String path) {
+		return load("sound:" + soundEffectName, path, file -> {
+			int handle = SoundEffectPlayer.loadSoundEffect(soundEffectName, file.getPath());
+			if(handle == -1) {
+				throw new IOException("BaseEngine: could not load sound effect " + file.getPath());
+			}
+			return handle;
+		}, handle -> SoundEffectPlayer.removeSoundEffect(soundEffectName, handle));		//a newer load under the same name is kept
+	}
+
+	/**
+	 * Loads a data file in the background, split the same way as {@link FileEditor#fileReader(File)}.
+	 * @param path <b>(String)</b> the location of the data file.
+	 * @return (Asset) handle to the file contents.
+	 */
+	public static Asset<String[]> loadData(String path) {
+		return load("data", path, FileEditor::fileReader, null);
+	}
+
+	/**
+	 * Loads any kind of asset in the background, requests with the same type and path share one asset.
+	 * @param <T> type of the loaded asset
+	 * @param type <b>(String)</b> kind of asset, assets of different types never share a handle.
+	 * @param path <b>(String)</b> the location of the asset.
+	 * @param loader <b>(AssetLoader)</b> function loading the asset, called on a worker thread.
+	 * @param unloader <b>(AssetUnloader)</b> function freeing the asset once it is released, may be null.
+	 * @return (Asset) handle to the asset.
+	 */
+	@SuppressWarnings("unchecked")
+	public static synchronized <T> Asset<T> load(String type, String path, AssetLoader<T> loader, AssetUnloader<T> unloader) {
+		String key = type + ":" + path;
+		Asset<T> asset = (Asset<T>) _assets.get(key);
+		if(asset != null) {
+			asset.references++;
+			return asset;
+		}
+
+		Asset<T> newAsset = new Asset<>(key, path, unloader);
+		_assets.put(key, newAsset);
+		_requestedAssets++;
+
+		_workers.execute(() -> {
+			T loaded;
+			try {
+				loaded = loader.load(new File(path));
+			} catch (Exception e) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not load " + path + ": " + e.getMessage());
+				forget(newAsset);	//allow the asset to be requested again
+				finishAsset();
+				newAsset.future.completeExceptionally(e);
+				return;
+			}
+			finishAsset();		//counted before completing, so progress is up to date for anyone waiting on the future
+			newAsset.future.complete(loaded);
+		});
+		return newAsset;
+	}
+
+	@Internal
+	static synchronized <T> void release(Asset<T> asset) {
+		if(asset.references <= 0) {
+			return;
+		}
+		asset.references--;
+		if(asset.references > 0) {
+			return;
+		}
+
+		forget(asset);
+		if(asset.unloader != null) {
+			asset.future.thenAccept(asset.unloader::unload);	//unloads right away, or once loading finishes
+		}
+	}
+
+	@Internal
+	private static synchronized void forget(Asset<?> asset) {
+		_assets.remove(asset.key, asset);
+	}
+
+	@Internal
+	private static synchronized void finishAsset() {
+		_finishedAssets++;
+	}
+
+	/**
+	 * Getter for the loading progress of all assets requested since the last {@link #resetProgress()}.
+	 * @return progress from 0 to 1 (Double), 1 if nothing is loading.
+	 */
+	public static synchronized double getProgress() {
+		return _requestedAssets == 0 ? 1 : (double) _finishedAssets / _requestedAssets;
+	}
+
+	/**
+	 * Getter for the amount of assets that are still loading.
+	 * @return pendingAssets (Integer)
+	 */
+	public static synchronized int getPendingAssets() {
+		return _requestedAssets - _finishedAssets;
+	}
+
+	/**
+	 * Starts counting progress from zero, assets that are still loading keep counting.<br>
+	 * Call this before requesting the assets of a loading screen.
+	 */
+	public static synchronized void resetProgress() {
+		_requestedAssets -= _finishedAssets;
+		_finishedAssets = 0;
+	}
+
+	/**
+	 * Checks if an asset is currently loaded or loading.
+	 * @param type <b>(String)</b> kind of asset, e.g. "image" or "data".
+	 * @param path <b>(String)</b> the location of the asset.
+	 * @return True if the asset is in the cache.
+	 */
+	public static synchronized boolean isCached(String type, String path) {
+		return _assets.containsKey(type + ":" + path);
+	}
+}
@@ -0,0 +1,332 @@
+package com.valhalla.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class for reading assets out of a single pack file instead of thousands of loose files.<br>
+ * <br>
+ * A pack is opened once and memory-mapped as a whole, its index maps every packed path to the offset, length and compression of its data.
+ * Once a pack is mounted, the engine's loaders ({@link MusicPlayer}, {@link SoundEffectPlayer}, {@link FileEditor}, {@link AssetManager}, ...) read packed paths from the pack and all other paths from disk,
+ * so games keep using the same paths with or without a pack.
+ * Uncompressed entries are served as views on the mapped file without copying.<br>
+ * <br>
+ * Packs are built with {@link #build(String, boolean, String...)}, from the command line with<br>
+ * <code>java com.valhalla.engine.io.AssetPack [-compress] &lt;pack file&gt; &lt;directory&gt;...</code><br>
+ * or with the <code>assetPack</code> gradle task.<br>
+ * <u>Note:</u> A pack can be at most 2GB large.
+ * @author BauwenDR
+ */
+public class AssetPack {
+
+	private static final int _MAGIC = 0x4245504B;
+	private static final int _VERSION = 1;
+	private static final int _HEADER_SIZE = 4 + 4 + 8;
+	private static final byte _STORED = 0, _DEFLATED = 1;
+	private static final int _MIN_RECORD_SIZE = 2 + 4 + 4 + 4 + 1;		//index record with an empty name
+
+	/**
+	 * Location of one file's data inside a mounted pack.
+	 */
+	@Internal
+	private static final class Entry {
+		final File pack;
+		final MappedByteBuffer data;
+		final int offset, length, size;
+		final byte compression;
+
+		Entry(File pack, MappedByteBuffer data, int offset, int length, int size, byte compression) {
+			this.pack = pack;
+			this.data = data;
+			this.offset = offset;
+			this.length = length;
+			this.size = size;
+			this.compression = compression;
+		}
+	}
+
+	private static final ConcurrentHashMap<String, Entry> _entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Opens a pack and makes its files available to all loaders, files in packs mounted later replace files with the same path.
+	 * @param path <b>(String)</b> the location of the pack file.
+	 * @return (Integer) amount of files in the pack.
+	 * @throws IOException if the file could not be read, is not a pack or is damaged, nothing of a damaged pack is mounted
+	 */
+	public static int mount(String path) throws IOException {
+		File pack = new File(path);
+		MappedByteBuffer data;
+		try(FileChannel channel = FileChannel.open(pack.toPath())) {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("BaseEngine: " + path + " is larger than 2GB");
+			}
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());	//stays valid after closing the channel
+		}
+
+		if(data.capacity() < _HEADER_SIZE || data.getInt(0) != _MAGIC) {
+			throw new IOException("BaseEngine: " + path + " is not an asset pack");
+		}
+		if(data.getInt(4) != _VERSION) {
+			throw new IOException("BaseEngine: " + path + " has unsupported pack version " + data.getInt(4));
+		}
+
+		//every entry is checked before anything is mounted, so a truncated or damaged pack fails as a whole
+		long indexOffset = data.getLong(8);
+		if(indexOffset < _HEADER_SIZE || indexOffset > data.capacity() - 4) {
+			throw new IOException("BaseEngine: " + path + " is damaged, index out of bounds");
+		}
+		ByteBuffer index = data.duplicate();
+		index.position((int) indexOffset);
+		int count = index.getInt();
+		if(count < 0 || count > index.remaining() / _MIN_RECORD_SIZE) {
+			throw new IOException("BaseEngine: " + path + " is damaged, invalid file count " + count);
+		}
+		String[] names = new String[count];
+		Entry[] entries = new Entry[count];
+		for(int entry = 0; entry < count; entry++) {
+			int nameLength = index.remaining() < _MIN_RECORD_SIZE ? -1 : index.getShort() & 0xFFFF;
+			if(nameLength < 0 || index.remaining() < nameLength + _MIN_RECORD_SIZE - 2) {
+				throw new IOException("BaseEngine: " + path + " is damaged, index is truncated");
+			}
+			byte[] name = new byte[nameLength];
+			index.get(name);
+			int offset = index.getInt(), length = index.getInt(), size = index.getInt();
+			byte compression = index.get();
+			names[entry] = new String(name, StandardCharsets.UTF_8);
+			if(offset < _HEADER_SIZE || length < 0 || size < 0 || (long) offset + length > indexOffset
+					|| (compression != _STORED && compression != _DEFLATED) || (compression == _STORED && length != size)) {
+				throw new IOException("BaseEngine: " + path + " is damaged, invalid entry for " + names[entry]);
+			}
+			entries[entry] = new Entry(pack, data, offset, length, size, compression);
+		}
+		for(int entry = 0; entry < count; entry++) {
+			_entries.put(names[entry], entries[entry]);
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all files of a mounted pack, so they are read from disk again.
+	 * @param path <b>(String)</b> the location of the pack file.
+	 */
+	public static void unmount(String path) {
+		File pack = new File(path);
+		_entries.values().removeIf(entry -> entry.pack.equals(pack));
+	}
+
+	/**
+	 * Checks if a file is served from a mounted pack.
+	 * @param path <b>(String)</b> the location of the file, the same as it would be opened from disk.
+	 * @return True if the file is packed.
+	 */
+	public static boolean contains(String path) {
+		return _entries.containsKey(normalise(path));
+	}
+
+	/**
+	 * Getter for the contents of a packed file.<br>
+	 * Uncompressed files are returned as a read-only view on the mapped pack, compressed files are decompressed into a new buffer.
+	 * @param path <b>(String)</b> the location of the file, the same as it would be opened from disk.
+	 * @return (ByteBuffer) the contents of the file, or null if the file is not packed.
+	 * @throws IOException if a compressed file is damaged
+	 */
+	public static ByteBuffer getBuffer(String path) throws IOException {
+		Entry entry = _entries.get(normalise(path));
+		return entry == null ? null : read(entry);
+	}
+
+	/**
+	 * Opens a packed file as a stream.
+	 * @param path <b>(String)</b> the location of the file, the same as it would be opened from disk.
+	 * @return (InputStream) stream of the file's contents, or null if the file is not packed.
+	 * @throws IOException if a compressed file is damaged
+	 */
+	public static InputStream openStream(String path) throws IOException {
+		ByteBuffer buffer = getBuffer(path);
+		return buffer == null ? null : new BufferInputStream(buffer);
+	}
+
+	@Internal
+	static InputStream openStream(File file) throws IOException {
+		return _entries.isEmpty() ? null : openStream(file.getPath());
+	}
+
+	/**
+	 * Getter for the uncompressed size of a packed file, mirrors {@link File#length()} for loaders.
+	 * @return size in bytes (Long), -1 if the file is not packed.
+	 */
+	@Internal
+	static long getLength(File file) {
+		Entry entry = _entries.isEmpty() ? null : _entries.get(normalise(file.getPath()));
+		return entry == null ? -1 : entry.size;
+	}
+
+	/**
+	 * Getter for the last modified time of the pack holding a file, mirrors {@link File#lastModified()} for loaders.
+	 * @return time in milliseconds (Long), -1 if the file is not packed.
+	 */
+	@Internal
+	static long getLastModified(File file) {
+		Entry entry = _entries.isEmpty() ? null : _entries.get(normalise(file.getPath()));
+		return entry == null ? -1 : entry.pack.lastModified();
+	}
+
+	/**
+	 * Builds a pack out of all files in the given directories.<br>
+	 * Files are packed under their path relative to the working directory, e.g. packing directory "res" stores "res/sounds/jump.wav",
+	 * so the game can load the same paths from the pack as from disk.
+	 * @param packPath <b>(String)</b> location of the pack file to create.
+	 * @param compress <b>(Boolean)</b> deflate files that get noticeably smaller, already compressed formats (PNG, OGG) are always stored.
+	 * @param directories <b>(String...)</b> directories to pack.
+	 * @return (Integer) amount of packed files.
+	 * @throws IOException if a file could not be read or the pack could not be written
+	 */
+	public static int build(String packPath, boolean compress, String... directories) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for(String directory : directories) {
+			try(Stream<Path> walk = Files.walk(new File(directory).toPath())) {
+				files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+			}
+		}
+
+		ByteArrayOutputStream index = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try(RandomAccessFile pack = new RandomAccessFile(packPath, "rw")) {
+			pack.setLength(0);
+			pack.writeInt(_MAGIC);
+			pack.writeInt(_VERSION);
+			pack.writeLong(0);		//index offset, filled in once all data is written
+
+			for(Path file : files) {
+				byte[] data = Files.readAllBytes(file);
+				byte[] stored = data;
+				byte compression = _STORED;
+				if(compress) {
+					byte[] deflated = deflate(deflater, data);
+					if(deflated.length < data.length * 0.9) {
+						stored = deflated;
+						compression = _DEFLATED;
+					}
+				}
+
+				long offset = pack.getFilePointer();
+				if(offset + stored.length > Integer.MAX_VALUE) {
+					throw new IOException("BaseEngine: asset pack " + packPath + " would be larger than 2GB");
+				}
+				pack.write(stored);
+
+				byte[] name = normalise(file.toString()).getBytes(StandardCharsets.UTF_8);
+				ByteBuffer record = ByteBuffer.allocate(2 + name.length + 4 + 4 + 4 + 1);
+				record.putShort((short) name.length).put(name).putInt((int) offset).putInt(stored.length).putInt(data.length).put(compression);
+				index.write(record.array());
+			}
+
+			long indexOffset = pack.getFilePointer();
+			pack.writeInt(files.size());
+			pack.write(index.toByteArray());
+			pack.seek(8);
+			pack.writeLong(indexOffset);
+		} finally {
+			deflater.end();
+		}
+		return files.size();
+	}
+
+	/**
+	 * Command line entry point for building packs.
+	 * @param args <b>(String[])</b> [-compress] &lt;pack file&gt; &lt;directory&gt;...
+	 */
+	public static void main(String[] args) {
+		boolean compress = args.length > 0 && args[0].equals("-compress");
+		int first = compress ? 1 : 0;
+		if(args.length - first < 2) {
+			System.err.println("Usage: AssetPack [-compress] <pack file> <directory>...");
+			System.exit(1);
+		}
+
+		try {
+			String[] directories = new String[args.length - first - 1];
+			System.arraycopy(args, first + 1, directories, 0, directories.length);
+			int files = build(args[first], compress, directories);
+			System.out.println("Packed " + files + " files into " + args[first]);
+		} catch (IOException e) {
+			System.err.println("Could not build asset pack: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	@Internal
+	private static ByteBuffer read(Entry entry) throws IOException {
+		ByteBuffer view = entry.data.duplicate();
+		view.position(entry.offset).limit(entry.offset + entry.length);
+		if(entry.compression == _STORED) {
+			return view.slice().asReadOnlyBuffer();
+		}
+
+		byte[] compressed = new byte[entry.length];
+		view.get(compressed);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] data = new byte[entry.size];
+			int total = 0;
+			while(total < data.length && !inflater.finished()) {
+				int inflated = inflater.inflate(data, total, data.length - total);
+				if(inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				total += inflated;
+			}
+			if(total != data.length) {
+				throw new IOException("BaseEngine: packed file is damaged");
+			}
+			return ByteBuffer.wrap(data);
+		} catch (DataFormatException e) {
+			throw new IOException("BaseEngine: packed file is damaged", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	@Internal
+	private static byte[] deflate(Deflater deflater, byte[] data) {
+		deflater.reset();
+		deflater.setInput(data);
+		deflater.finish();
+		ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte[] chunk = new byte[16 * 1024];
+		while(!deflater.finished()) {
+			output.write(chunk, 0, deflater.deflate(chunk));
+		}
+		return output.toByteArray();
+	}
+
+	@Internal
+	private static String normalise(String path) {
+		String normalised = path.replace('\\', '/');
+		while(normalised.startsWith("./")) {
+			normalised = normalised.substring(2);
+		}
+		return normalised;
+	}
+
+}
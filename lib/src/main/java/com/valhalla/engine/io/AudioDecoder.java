@@ -0,0 +1,84 @@
+package com.valhalla.engine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Helper functions for decoding audio files into PCM data the sound backends can play.
+ * @author BauwenDR
+ */
+@Internal
+class AudioDecoder {
+
+	private AudioDecoder() {}
+
+	/**
+	 * Opens an audio file as a stream of 16 bit signed little endian PCM, converting it if the file is stored in another format (e.g. OGG).<br>
+	 * Files in a mounted {@link AssetPack} are read from the pack.
+	 * @param file <b>(File)</b> the audio file.
+	 * @return (AudioInputStream) decoding stream, the caller is responsible for closing it.
+	 * @throws IOException if there was an error reading the file
+	 * @throws UnsupportedAudioFileException if the file is in an unknown format
+	 */
+	static AudioInputStream openPcm(File file) throws IOException, UnsupportedAudioFileException {
+		InputStream packed = AssetPack.openStream(file);
+		AudioInputStream stream = packed != null ? AudioSystem.getAudioInputStream(packed) : AudioSystem.getAudioInputStream(file);
+		AudioFormat format = stream.getFormat();
+
+		//OpenAL only accepts 8 or 16 bit PCM, decode everything to 16 bit signed PCM
+		if(format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED || format.getSampleSizeInBits() != 16 || format.isBigEndian()) {
+			AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, format.getSampleRate(), 16,
+					format.getChannels(), format.getChannels() * 2, format.getSampleRate(), false);
+			stream = AudioSystem.getAudioInputStream(pcmFormat, stream);
+		}
+		return stream;
+	}
+
+	/**
+	 * Decodes a whole stream into memory and closes it.
+	 * @param stream <b>(AudioInputStream)</b> the stream to decode.
+	 * @return (byte[]) all PCM data in the stream.
+	 * @throws IOException if there was an error reading the stream
+	 */
+	static byte[] readAll(AudioInputStream stream) throws IOException {
+		try(AudioInputStream input = stream) {
+			long length = input.getFrameLength() * input.getFormat().getFrameSize();
+			ByteArrayOutputStream output = new ByteArrayOutputStream(length > 0 && length < Integer.MAX_VALUE ? (int) length : 64 * 1024);
+			byte[] chunk = new byte[16 * 1024];
+			int read;
+			while((read = input.read(chunk)) > 0) {
+				output.write(chunk, 0, read);
+			}
+			return output.toByteArray();
+		}
+	}
+
+	/**
+	 * Reads from a stream until the given amount of bytes is read or the end of the stream is reached, so no partial frames are returned.
+	 * @param stream <b>(AudioInputStream)</b> the stream to read from.
+	 * @param target <b>(byte[])</b> buffer to read into, starting at index 0.
+	 * @param length <b>(Integer)</b> amount of bytes to read.
+	 * @return (Integer) amount of bytes that were read, less than length only at the end of the stream.
+	 * @throws IOException if there was an error reading the stream
+	 */
+	static int readFully(AudioInputStream stream, byte[] target, int length) throws IOException {
+		int total = 0;
+		while(total < length) {
+			int read = stream.read(target, total, length - total);
+			if(read < 0) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+}
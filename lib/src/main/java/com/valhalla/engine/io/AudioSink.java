@@ -0,0 +1,42 @@
+package com.valhalla.engine.io;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * Output for the PCM stream produced by the {@link SoftwareMixer}.
+ * @author BauwenDR
+ * @see LineAudioSink
+ * @see FileAudioSink
+ * @see NullAudioSink
+ */
+public interface AudioSink {
+
+	/**
+	 * Prepares the sink for receiving audio in the given format, called once before the first write.
+	 * @param format <b>(AudioFormat)</b> format of all data that will be written.
+	 * @throws IOException if the sink can not be opened
+	 */
+	void open(AudioFormat format) throws IOException;
+
+	/**
+	 * Writes a block of mixed audio to the sink.
+	 * @param data <b>(byte[])</b> buffer holding the audio, reused after this call returns.
+	 * @param length <b>(Integer)</b> amount of bytes in the buffer that should be written.
+	 * @throws IOException if the audio could not be written
+	 */
+	void write(byte[] data, int length) throws IOException;
+
+	/**
+	 * Checks if writing blocks until the audio is played back, like a sound card does.
+	 * For sinks that do not, the mixer paces itself to real time.
+	 * @return True if the sink keeps the mixer at playback speed by itself.
+	 */
+	boolean isRealTime();
+
+	/**
+	 * Closes the sink, no more audio will be written afterwards.
+	 */
+	void close();
+}
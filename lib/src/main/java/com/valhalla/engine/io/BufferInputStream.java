@@ -0,0 +1,68 @@
+package com.valhalla.engine.io;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * InputStream reading from a (memory-mapped) buffer, without copying the buffer first.
+ * @author BauwenDR
+ */
+@Internal
+class BufferInputStream extends InputStream {
+
+	private final ByteBuffer _buffer;
+	private int _mark;
+
+	@Internal
+	BufferInputStream(ByteBuffer buffer) {
+		_buffer = buffer;
+		_mark = buffer.position();
+	}
+
+	@Override
+	public int read() {
+		return _buffer.hasRemaining() ? _buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] target, int offset, int length) {
+		if(length == 0) {
+			return 0;
+		}
+		if(!_buffer.hasRemaining()) {
+			return -1;
+		}
+		int read = Math.min(length, _buffer.remaining());
+		_buffer.get(target, offset, read);
+		return read;
+	}
+
+	@Override
+	public long skip(long amount) {
+		int skipped = (int) Math.max(0, Math.min(amount, _buffer.remaining()));
+		_buffer.position(_buffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return _buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readLimit) {
+		_mark = _buffer.position();
+	}
+
+	@Override
+	public void reset() {
+		_buffer.position(_mark);
+	}
+}
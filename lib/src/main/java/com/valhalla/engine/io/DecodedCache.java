@@ -0,0 +1,325 @@
+package com.valhalla.engine.io;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class that keeps decoded images and sounds on disk, so they do not have to be decoded again on the next launch.<br>
+ * <br>
+ * The first time a file is loaded, its decoded pixels or PCM data are written to the cache directory in a raw format.
+ * On later loads the cached file is memory-mapped and copied straight into the image raster or sound buffer, skipping the decoder.
+ * A cached file is only used while the size and last modified time of its source file (or the {@link AssetPack} holding it) are unchanged, so edited assets are decoded again automatically.<br>
+ * <u>Note:</u> The cache is disabled until a directory is set with {@link #setDirectory(String)}.
+ * @author BauwenDR
+ */
+public class DecodedCache {
+
+	private static final int _MAGIC = 0x42454443;
+	private static final int _VERSION = 1;
+	private static final byte _IMAGE = 0, _PCM = 1;
+	private static final String _EXTENSION = ".decoded";
+
+	private static volatile Path _directory = null;
+
+	private static final AtomicLong _hits = new AtomicLong(), _misses = new AtomicLong();
+	private static final AtomicLong _hitTime = new AtomicLong(), _missTime = new AtomicLong();
+
+	/**
+	 * Sets the directory decoded files are stored in and enables the cache, the directory is created if it does not exist.
+	 * @param path <b>(String)</b> location of the cache directory, null disables the cache.
+	 */
+	public static void setDirectory(String path) {
+		if(path == null) {
+			_directory = null;
+			return;
+		}
+
+		try {
+			_directory = Files.createDirectories(new File(path).toPath());
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not create decoded cache " + path);
+			_directory = null;
+		}
+	}
+
+	/**
+	 * Checks if decoded files are being cached.
+	 * @return True if a cache directory is set.
+	 */
+	public static boolean isEnabled() {
+		return _directory != null;
+	}
+
+	/**
+	 * Reads an image, from the cache if the image was decoded before.<br>
+	 * When the cache is enabled the image is always returned as {@link BufferedImage#TYPE_INT_ARGB}.
+	 * @param file <b>(File)</b> the image file.
+	 * @return (BufferedImage) the decoded image.
+	 * @throws IOException if the file is not a supported image or could not be read
+	 */
+	public static BufferedImage readImage(File file) throws IOException {
+		Path directory = _directory;
+		if(directory == null) {
+			return decodeImage(file);
+		}
+
+		long start = System.nanoTime();
+		Path cached = getCachedPath(directory, file, _IMAGE);
+		ByteBuffer data = map(cached, file, _IMAGE);
+		if(data != null) {
+			try {
+				int width = data.getInt(), height = data.getInt();
+				if(width > 0 && height > 0 && (long) width * height * 4 == data.remaining()) {
+					BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+					data.asIntBuffer().get(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+					count(_hits, _hitTime, start);
+					return image;
+				}
+			} catch (BufferUnderflowException e) {
+				//truncated cache file, decoded and written again below
+			}
+		}
+
+		BufferedImage image = toArgb(decodeImage(file));
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		ByteBuffer body = ByteBuffer.allocate(8 + pixels.length * 4);
+		body.putInt(image.getWidth()).putInt(image.getHeight());
+		body.asIntBuffer().put(pixels);
+		body.position(body.capacity());
+		write(cached, file, _IMAGE, body);
+		count(_misses, _missTime, start);
+		return image;
+	}
+
+	/**
+	 * Reads a sound as 16 bit signed little endian PCM, from the cache if the sound was decoded before.<br>
+	 * <u>Note:</u> Only use this for sounds that are decoded completely, streamed music should not fill the cache.
+	 * @param file <b>(File)</b> the sound file.
+	 * @return (AudioInputStream) stream of the decoded sound, the caller is responsible for closing it.
+	 * @throws IOException if the file could not be read
+	 * @throws UnsupportedAudioFileException if the file is in an unknown format
+	 */
+	@Internal
+	static AudioInputStream readPcm(File file) throws IOException, UnsupportedAudioFileException {
+		Path directory = _directory;
+		if(directory == null) {
+			return AudioDecoder.openPcm(file);
+		}
+
+		long start = System.nanoTime();
+		Path cached = getCachedPath(directory, file, _PCM);
+		ByteBuffer data = map(cached, file, _PCM);
+		if(data != null && data.remaining() >= 8) {
+			AudioFormat format = new AudioFormat(data.getFloat(), 16, data.getInt(), true, false);
+			if(format.getChannels() > 0 && data.remaining() % format.getFrameSize() == 0) {
+				count(_hits, _hitTime, start);
+				return new AudioInputStream(new BufferInputStream(data), format, data.remaining() / format.getFrameSize());
+			}
+		}
+
+		AudioInputStream stream = AudioDecoder.openPcm(file);
+		AudioFormat format = stream.getFormat();
+		byte[] pcm = AudioDecoder.readAll(stream);
+		ByteBuffer body = ByteBuffer.allocate(8 + pcm.length);
+		body.putFloat(format.getSampleRate()).putInt(format.getChannels()).put(pcm);
+		write(cached, file, _PCM, body);
+		count(_misses, _missTime, start);
+
+		ByteBuffer decoded = ByteBuffer.wrap(pcm);
+		return new AudioInputStream(new BufferInputStream(decoded), format, pcm.length / format.getFrameSize());
+	}
+
+	/**
+	 * Removes all decoded files from the cache directory, the next load of every file will decode it again.
+	 */
+	public static void clear() {
+		Path directory = _directory;
+		if(directory == null) {
+			return;
+		}
+
+		File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(_EXTENSION));
+		if(files == null) {
+			return;
+		}
+		for(File cached : files) {
+			if(!cached.delete()) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not delete " + cached.getName());
+			}
+		}
+	}
+
+	/**
+	 * Getter for the amount of loads that were served from the cache.
+	 * @return hits (Long)
+	 */
+	public static long getHits() {
+		return _hits.get();
+	}
+
+	/**
+	 * Getter for the amount of loads that had to decode the source file.
+	 * @return misses (Long)
+	 */
+	public static long getMisses() {
+		return _misses.get();
+	}
+
+	/**
+	 * Getter for the total time spent on loads that were served from the cache, summed over all loading threads.
+	 * @return time in nanoseconds (Long)
+	 */
+	public static long getHitTime() {
+		return _hitTime.get();
+	}
+
+	/**
+	 * Getter for the total time spent on loads that had to decode and cache the source file, summed over all loading threads.
+	 * @return time in nanoseconds (Long)
+	 */
+	public static long getMissTime() {
+		return _missTime.get();
+	}
+
+	/**
+	 * Sets all counters back to zero, e.g. before measuring a cold or warm start.
+	 */
+	public static void resetStatistics() {
+		_hits.set(0);
+		_misses.set(0);
+		_hitTime.set(0);
+		_missTime.set(0);
+	}
+
+	@Internal
+	private static BufferedImage decodeImage(File file) throws IOException {
+		BufferedImage image;
+		try(InputStream packed = AssetPack.openStream(file)) {
+			image = packed != null ? ImageIO.read(packed) : ImageIO.read(file);		//ImageIO does not close the streams it is given
+		}
+		if(image == null) {
+			throw new IOException("BaseEngine: " + file.getPath() + " is not a supported image");
+		}
+		return image;
+	}
+
+	@Internal
+	private static BufferedImage toArgb(BufferedImage image) {
+		if(image.getType() == BufferedImage.TYPE_INT_ARGB) {
+			return image;
+		}
+		BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = converted.createGraphics();
+		graphics.drawImage(image, 0, 0, null);
+		graphics.dispose();
+		return converted;
+	}
+
+	@Internal
+	private static Path getCachedPath(Path directory, File file, byte kind) {
+		String source = file.getAbsolutePath();
+		return directory.resolve(Integer.toHexString(source.hashCode()) + "-" + Integer.toHexString(source.length()) + "-" + kind + _EXTENSION);
+	}
+
+	/**
+	 * Maps a cached file and checks its header against the source file.
+	 * @return (ByteBuffer) the body of the cached file, or null if the cached file is missing or outdated.
+	 */
+	@Internal
+	private static ByteBuffer map(Path cached, File source, byte kind) {
+		if(!Files.isRegularFile(cached)) {
+			return null;
+		}
+
+		try(FileChannel channel = FileChannel.open(cached, StandardOpenOption.READ)) {
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());	//stays valid after closing the channel
+			if(data.getInt() != _MAGIC || data.getInt() != _VERSION || data.get() != kind
+					|| data.getLong() != getLength(source) || data.getLong() != getLastModified(source)) {
+				return null;
+			}
+
+			byte[] path = new byte[data.getInt()];
+			data.get(path);
+			if(!new String(path, StandardCharsets.UTF_8).equals(source.getAbsolutePath())) {
+				return null;	//different source file with the same hash
+			}
+			return data.slice();
+		} catch (IOException | RuntimeException e) {
+			return null;	//damaged cache files are decoded and written again
+		}
+	}
+
+	/**
+	 * Writes a cached file next to its final location and moves it in place, so other threads and launches never see a partial file.
+	 */
+	@Internal
+	private static void write(Path cached, File source, byte kind, ByteBuffer body) {
+		byte[] path = source.getAbsolutePath().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer header = ByteBuffer.allocate(4 + 4 + 1 + 8 + 8 + 4 + path.length);
+		header.putInt(_MAGIC).putInt(_VERSION).put(kind).putLong(getLength(source)).putLong(getLastModified(source)).putInt(path.length).put(path);
+		header.flip();
+		body.flip();
+
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(cached.getParent(), "decoding", ".tmp");
+			try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				while(header.hasRemaining() || body.hasRemaining()) {
+					channel.write(new ByteBuffer[] {header, body});
+				}
+			}
+
+			try {
+				Files.move(temporary, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, cached, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not cache " + source.getPath() + ": " + e.getMessage());
+			if(temporary != null) {
+				temporary.toFile().delete();
+			}
+		}
+	}
+
+	@Internal
+	private static long getLength(File source) {
+		long packed = AssetPack.getLength(source);
+		return packed != -1 ? packed : source.length();
+	}
+
+	@Internal
+	private static long getLastModified(File source) {
+		long packed = AssetPack.getLastModified(source);
+		return packed != -1 ? packed : source.lastModified();
+	}
+
+	@Internal
+	private static void count(AtomicLong counter, AtomicLong time, long start) {
+		counter.incrementAndGet();
+		time.addAndGet(System.nanoTime() - start);
+	}
+}
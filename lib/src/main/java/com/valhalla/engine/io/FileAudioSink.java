@@ -0,0 +1,81 @@
+package com.valhalla.engine.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.sound.sampled.AudioFormat;
+
+import com.valhalla.engine.GameLoop;
+
+/**
+ * AudioSink that writes the mixed audio to a WAV file, useful for checking the output of the mixer.
+ * @author BauwenDR
+ */
+public class FileAudioSink implements AudioSink {
+
+	private static final int _HEADER_SIZE = 44;
+
+	private final String _path;
+	private DataOutputStream _output;
+	private long _dataSize = 0;
+
+	/**
+	 * Creates a new FileAudioSink.
+	 * @param path <b>(String)</b> Location of the WAV file, an existing file will be overwritten.
+	 */
+	public FileAudioSink(String path) {
+		_path = path;
+	}
+
+	@Override
+	public void open(AudioFormat format) throws IOException {
+		_output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_path)));
+
+		//RIFF header, the sizes are filled in when the sink is closed
+		_output.writeBytes("RIFF");
+		_output.writeInt(0);
+		_output.writeBytes("WAVEfmt ");
+		_output.writeInt(Integer.reverseBytes(16));
+		_output.writeShort(Short.reverseBytes((short) 1));	//PCM
+		_output.writeShort(Short.reverseBytes((short) format.getChannels()));
+		_output.writeInt(Integer.reverseBytes((int) format.getSampleRate()));
+		_output.writeInt(Integer.reverseBytes((int) format.getSampleRate() * format.getFrameSize()));
+		_output.writeShort(Short.reverseBytes((short) format.getFrameSize()));
+		_output.writeShort(Short.reverseBytes((short) format.getSampleSizeInBits()));
+		_output.writeBytes("data");
+		_output.writeInt(0);
+	}
+
+	@Override
+	public void write(byte[] data, int length) throws IOException {
+		_output.write(data, 0, length);
+		_dataSize += length;
+	}
+
+	@Override
+	public boolean isRealTime() {
+		return false;
+	}
+
+	@Override
+	public void close() {
+		if(_output == null) {
+			return;
+		}
+		try {
+			_output.close();
+			try(RandomAccessFile file = new RandomAccessFile(_path, "rw")) {
+				file.seek(4);
+				file.writeInt(Integer.reverseBytes((int) (_HEADER_SIZE - 8 + _dataSize)));
+				file.seek(_HEADER_SIZE - 4);
+				file.writeInt(Integer.reverseBytes((int) _dataSize));
+			}
+		} catch (IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not finish audio file " + _path + ": " + e.getMessage());
+		}
+		_output = null;
+	}
+}
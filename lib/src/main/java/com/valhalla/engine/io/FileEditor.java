@@ -1,10 +1,8 @@
 package com.valhalla.engine.io;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * Class with static function to read and write to files.
@@ -14,23 +12,34 @@ public class FileEditor {
 	
 	/**
 	 * Reads in a file from a given location and returns the file split into a new piece every 'SPACE' or 'ENTER'.<br>
-	 * <u>Note:</u> This function reads file as if they were plain text.
+	 * <u>Note:</u> This function reads file as if they were plain text, files in a mounted {@link AssetPack} are read from the pack.
+	 * For large files use {@link #openReader(String)}, which does not keep the whole file in memory.
 	 * @param file <b>(File)</b> the file to read from.
 	 * @return (String[]) File split into an array, with new array-element being added each 'SPACE' or 'ENTER'.
 	 * @throws IOException if there is a problem reading the file
 	 */
 	public static String[] fileReader(File file) throws IOException {
-		StringBuilder builder = new StringBuilder();
-		BufferedReader reader = new BufferedReader(new FileReader(file));
-		
-		String line;
-		while((line = reader.readLine()) != null) {
-			builder.append(line + "\n");
+		ArrayList<String> tokens = new ArrayList<>();
+		try(TokenReader reader = new TokenReader(file)) {
+			if(reader.startsWithWhitespace()) {
+				tokens.add("");		//same result as splitting the whole file on whitespace
+			}
+			while(reader.hasNext()) {
+				tokens.add(reader.next());
+			}
 		}
-			
-		reader.close();
-		String fileContent = builder.toString();
-		return fileContent.split("\\s+");
+		return tokens.toArray(new String[0]);
+	}
+	
+	/**
+	 * Opens a file for reading it token by token, tokens are split every 'SPACE' or 'ENTER' like {@link #fileReader(File)}.<br>
+	 * <u>Note:</u> The reader has to be closed once done, e.g. with a try-with-resources block.
+	 * @param path <b>(String)</b> the location of the file to read from.
+	 * @return (TokenReader) reader for the file.
+	 * @throws IOException if there is a problem opening the file
+	 */
+	public static TokenReader openReader(String path) throws IOException {
+		return new TokenReader(new File(path));
 	}
 	
 	/**
@@ -40,16 +49,24 @@ public class FileEditor {
 	 * @throws IOException if there is a problem reading or writing to the file
 	 */
 	public static void writeFile(String[][] text, String path) throws IOException {
-		FileWriter writer = new FileWriter(path);
-			
-		for(int i = 0; i < text.length; i++) {
-			for(int j = 0; j < text[i].length; j++) {
-				if(j != 0) 
-					writer.write(" ");
-				writer.write(text[i][j]);
+		try(TokenWriter writer = new TokenWriter(path)) {
+			for(int i = 0; i < text.length; i++) {
+				for(int j = 0; j < text[i].length; j++) {
+					writer.write(text[i][j]);
+				}
+				writer.newLine();
 			}
-			writer.write(System.lineSeparator());
 		}
-		writer.close();
+	}
+	
+	/**
+	 * Creates or overwrites a file for writing it token by token, the counterpart of {@link #openReader(String)}.<br>
+	 * <u>Note:</u> The writer has to be closed once done, e.g. with a try-with-resources block.
+	 * @param path <b>(String)</b> Location of where the file will be saved.
+	 * @return (TokenWriter) writer for the file.
+	 * @throws IOException if there is a problem opening the file
+	 */
+	public static TokenWriter openWriter(String path) throws IOException {
+		return new TokenWriter(path);
 	}
 }
@@ -0,0 +1,62 @@
+package com.valhalla.engine.io;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * AudioSink that plays the mixed audio on the default sound card through {@link javax.sound.sampled}.
+ * @author BauwenDR
+ */
+public class LineAudioSink implements AudioSink {
+
+	private final int _bufferFrames;
+	private SourceDataLine _line;
+
+	/**
+	 * Creates a new LineAudioSink with a line buffer of 2048 frames.
+	 */
+	public LineAudioSink() {
+		this(2048);
+	}
+
+	/**
+	 * Creates a new LineAudioSink.
+	 * @param bufferFrames <b>(Integer)</b> size of the line buffer in frames, smaller buffers lower latency but underrun sooner.
+	 */
+	public LineAudioSink(int bufferFrames) {
+		_bufferFrames = bufferFrames;
+	}
+
+	@Override
+	public void open(AudioFormat format) throws IOException {
+		try {
+			_line = AudioSystem.getSourceDataLine(format);
+			_line.open(format, _bufferFrames * format.getFrameSize());
+			_line.start();
+		} catch (LineUnavailableException | IllegalArgumentException e) {
+			throw new IOException("BaseEngine: no audio line available", e);
+		}
+	}
+
+	@Override
+	public void write(byte[] data, int length) {
+		_line.write(data, 0, length);
+	}
+
+	@Override
+	public boolean isRealTime() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		if(_line != null) {
+			_line.stop();
+			_line.close();
+		}
+	}
+}
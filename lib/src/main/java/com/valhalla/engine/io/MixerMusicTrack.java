@@ -0,0 +1,58 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * A music track that is streamed by the {@link SoftwareMixer}.
+ * @author BauwenDR
+ */
+@Internal
+class MixerMusicTrack implements MusicTrack {
+
+	private final SoftwareMixer _mixer;
+	private final MixerStream _stream;
+	private volatile int _voice = 0;
+	private float _gain = 1;
+
+	@Internal
+	MixerMusicTrack(SoftwareMixer mixer, File file) throws IOException, UnsupportedAudioFileException {
+		_mixer = mixer;
+		_stream = new MixerStream(file);
+	}
+
+	@Override
+	public void play(boolean looping) {
+		stop();		//the stream can only be played by one voice at a time
+		_voice = _mixer.playStream(_stream, _gain, looping);
+	}
+
+	@Override
+	public void stop() {
+		if(_voice != 0) {
+			_mixer.stop(_voice);
+		}
+	}
+
+	@Override
+	public void setGain(float gain) {
+		_gain = gain;
+		if(_voice != 0) {
+			_mixer.setGain(_voice, gain);
+		}
+	}
+
+	@Override
+	public boolean hasFinished() {
+		return _voice != 0 && _stream.finishedVoice == _voice;
+	}
+
+	@Override
+	public void close() {
+		stop();
+	}
+}
@@ -0,0 +1,55 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * A sound that has been fully decoded into memory for the {@link SoftwareMixer}.<br>
+ * <br>
+ * A MixerSound can be played on any number of voices at the same time.
+ * @author BauwenDR
+ * @see SoftwareMixer#loadSound(String)
+ */
+public final class MixerSound {
+
+	final float[] samples;
+	final int channels;
+	final int frames;
+	final float sampleRate;
+
+	MixerSound(File file) throws IOException, UnsupportedAudioFileException {
+		AudioInputStream stream = DecodedCache.readPcm(file);
+		AudioFormat format = stream.getFormat();
+		byte[] data = AudioDecoder.readAll(stream);
+
+		channels = Math.min(format.getChannels(), 2);
+		frames = data.length / format.getFrameSize();
+		sampleRate = format.getSampleRate();
+		samples = new float[frames * channels];
+		toFloat(data, format.getChannels(), channels, samples, 0, frames);
+	}
+
+	/**
+	 * Converts 16 bit signed little endian PCM into floats in the range [-1; 1], keeping at most the first 2 channels.
+	 */
+	static void toFloat(byte[] data, int sourceChannels, int channels, float[] target, int targetFrame, int frames) {
+		for(int frame = 0; frame < frames; frame++) {
+			for(int channel = 0; channel < channels; channel++) {
+				int index = (frame * sourceChannels + channel) * 2;
+				target[(targetFrame + frame) * channels + channel] = (short) ((data[index] & 0xFF) | (data[index + 1] << 8)) / 32768f;
+			}
+		}
+	}
+
+	/**
+	 * Getter for the length of the sound.
+	 * @return duration in seconds (Double)
+	 */
+	public double getDuration() {
+		return frames / (double) sampleRate;
+	}
+}
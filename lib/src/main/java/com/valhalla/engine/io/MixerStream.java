@@ -0,0 +1,184 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * A sound that is decoded in small windows while the {@link SoftwareMixer} plays it, used for music.<br>
+ * <br>
+ * The window is only touched by the audio thread. The last frame of a window is carried over into the next one, so resampling can interpolate across windows.
+ * The file is read and decoded one window ahead on a decoder thread, so the audio thread never waits on the disk.
+ * When the next window is not decoded in time, the audio thread plays a block of silence instead.
+ * @author BauwenDR
+ */
+@Internal
+class MixerStream {
+
+	static final int WINDOW_FRAMES = 4096;
+
+	private static final ExecutorService _decoder = Executors.newSingleThreadExecutor(runnable -> {
+		Thread decoder = new Thread(runnable);
+		decoder.setName("Audio-Decoder");
+		decoder.setDaemon(true);
+		decoder.setPriority(Thread.MAX_PRIORITY - 1);
+		return decoder;
+	});
+
+	private final File _file;
+
+	//only touched by the decoder thread
+	private AudioInputStream _stream;
+	private int _sourceChannels;
+	private byte[] _chunk;
+
+	//handed from the decoder thread to the audio thread, a window is ready once its generation is published
+	private final float[] _decoded;
+	private int _decodedFrames;
+	private volatile int _generation = 0, _readyGeneration = -1;
+
+	final int channels;
+	final float sampleRate;
+	final float[] window;
+	int frames;
+	volatile boolean looping;
+	long underruns;
+
+	volatile int finishedVoice = 0;
+
+	@Internal
+	MixerStream(File file) throws IOException, UnsupportedAudioFileException {
+		_file = file;
+		AudioInputStream stream = AudioDecoder.openPcm(file);
+		AudioFormat format = stream.getFormat();
+		stream.close();
+		channels = Math.min(format.getChannels(), 2);
+		sampleRate = format.getSampleRate();
+		window = new float[WINDOW_FRAMES * channels];
+		_decoded = new float[(WINDOW_FRAMES - 1) * channels];		//the first frame of a window is carried over
+	}
+
+	/**
+	 * Starts decoding from the beginning of the file, called on the audio thread.
+	 * The window holds silence until the first window is decoded.
+	 */
+	@Internal
+	void rewind() {
+		int generation = ++_generation;
+		_readyGeneration = -1;
+		_decoder.execute(() -> decode(generation, true));
+		frames = 0;
+		refill();
+	}
+
+	/**
+	 * Replaces the window with the next decoded window, keeping the last frame of the current window as the first one, called on the audio thread.
+	 * @return False if the end of the stream was reached and no frames were added.
+	 */
+	@Internal
+	boolean refill() {
+		int kept = 0;
+		if(frames > 0) {
+			System.arraycopy(window, (frames - 1) * channels, window, 0, channels);
+			kept = 1;
+		}
+
+		int generation = _generation;
+		if(_readyGeneration != generation) {
+			Arrays.fill(window, kept * channels, (kept + SoftwareMixer.BLOCK_FRAMES) * channels, 0);
+			frames = kept + SoftwareMixer.BLOCK_FRAMES;
+			underruns++;
+			return true;
+		}
+		int decoded = _decodedFrames;
+		if(decoded == 0) {
+			frames = kept;
+			return false;		//stays ready with nothing, so the voice ends
+		}
+		System.arraycopy(_decoded, 0, window, kept * channels, decoded * channels);
+		frames = kept + decoded;
+
+		_readyGeneration = -1;
+		_decoder.execute(() -> decode(generation, false));
+		return true;
+	}
+
+	/**
+	 * Decodes the next window on the decoder thread, results of a stream that was rewound or closed in the meantime are thrown away.
+	 */
+	@Internal
+	private void decode(int generation, boolean reopen) {
+		if(generation != _generation) {
+			return;
+		}
+		int decoded = 0;
+		try {
+			if(reopen) {
+				closeStream();
+				openStream();
+			}
+			boolean rewound = false;
+			while(_stream != null && decoded < WINDOW_FRAMES - 1) {
+				int wanted = (WINDOW_FRAMES - 1 - decoded) * _sourceChannels * 2;
+				int read = AudioDecoder.readFully(_stream, _chunk, Math.min(wanted, _chunk.length));
+				int readFrames = read / (_sourceChannels * 2);
+				if(readFrames > 0) {
+					MixerSound.toFloat(_chunk, _sourceChannels, channels, _decoded, decoded, readFrames);
+					decoded += readFrames;
+					rewound = false;
+				}else if(looping && !rewound) {
+					closeStream();
+					openStream();
+					rewound = true;		//prevents looping forever on an empty file
+				}else {
+					closeStream();
+				}
+			}
+		} catch (IOException | UnsupportedAudioFileException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not stream " + _file.getName() + ": " + e.getMessage());
+			closeStream();
+		}
+		_decodedFrames = decoded;
+		_readyGeneration = generation;		//publishes the window
+	}
+
+	@Internal
+	private void openStream() throws IOException, UnsupportedAudioFileException {
+		_stream = AudioDecoder.openPcm(_file);
+		_sourceChannels = _stream.getFormat().getChannels();
+		if(_chunk == null || _chunk.length < WINDOW_FRAMES * _sourceChannels * 2) {
+			_chunk = new byte[WINDOW_FRAMES * _sourceChannels * 2];
+		}
+	}
+
+	@Internal
+	private void closeStream() {
+		if(_stream != null) {
+			try {
+				_stream.close();
+			} catch (IOException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not close " + _file.getName());
+			}
+			_stream = null;
+		}
+	}
+
+	/**
+	 * Stops decoding and closes the file on the decoder thread, called on the audio thread.
+	 */
+	@Internal
+	void close() {
+		_generation++;
+		_readyGeneration = -1;
+		_decoder.execute(this::closeStream);
+	}
+}
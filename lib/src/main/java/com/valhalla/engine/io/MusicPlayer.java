@@ -7,20 +7,20 @@ import java.util.LinkedList;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.valhalla.openal.util.ALException;
-import org.valhalla.openal.intermediate.Source;
-import org.valhalla.openal.util.SourceState;
 
 import com.valhalla.engine.GameLoop;
 
 /**
- * Class used for playing back music files.
+ * Class used for playing back music files.<br>
+ * <br>
+ * Music is streamed: it is decoded in small chunks on a background thread while it plays, so adding a long track is fast and only uses a small fixed amount of memory.
  * @author BauwenDR
  */
 public class MusicPlayer {
 
 	private static float _musicVolume = 1;
 
-	private static final LinkedList<Source> _musicList = new LinkedList<>();
+	private static final LinkedList<MusicTrack> _musicList = new LinkedList<>();
 	
 	/**
 	 * Adds an audio clip given as a file path to the Internal playlist.<br>
@@ -34,8 +34,8 @@ public class MusicPlayer {
 	 */
 	public static int addMusic(String Filepath) throws IOException, ALException, UnsupportedAudioFileException {
 		File music = new File(Filepath);
-		Source source = SoundInterface._openAl.createSource(music);
-		_musicList.add(source);
+		SoftwareMixer mixer = SoftwareMixer.getInstalled();
+		_musicList.add(mixer != null ? new MixerMusicTrack(mixer, music) : new MusicStream(music));
 		return _musicList.size()-1;
 	}
 	
@@ -49,9 +49,8 @@ public class MusicPlayer {
 	public static void playMusic(int clipNumber, boolean repeat) {
 		try {
 			_musicList.get(clipNumber).setGain(_musicVolume);
-			_musicList.get(clipNumber).play();
-			_musicList.get(clipNumber).setLooping(repeat);
-		} catch (ALException e) {
+			_musicList.get(clipNumber).play(repeat);
+		} catch (ALException | IOException e) {
 			GameLoop.engineOutput.println("BaseEngine Error: Unable to play sound song: " + clipNumber);
 			e.printStackTrace();
 		}
@@ -80,7 +79,7 @@ public class MusicPlayer {
 	 * @throws ALException if there is an error with the sound interface
 	 */
 	public static boolean hasClipFinished(int clipNumber) throws ALException {
-		return _musicList.get(clipNumber).getSourceState() == SourceState.STOPPED;
+		return _musicList.get(clipNumber).hasFinished();
 	}
 	
 	/**
@@ -88,9 +87,8 @@ public class MusicPlayer {
 	 * <u>Note:</u> It is recommended to clear the playlist everytime you change GameStates and to only add an audio clip once.
 	 */
 	public static void clearMusic() {
-		for(int i = 0; i < _musicList.size(); i++) {
-			stopMusic(i);
-			_musicList.get(i).close();
+		for(MusicTrack song : _musicList) {
+			song.close();
 		}
 		_musicList.clear();
 	}
@@ -101,7 +99,7 @@ public class MusicPlayer {
 	 */
 	public static void setVolume(int newVolume) {
 		_musicVolume = (float) newVolume/100;	//rescale from [0; 100] to [0; 10]
-		for(Source song : _musicList) {
+		for(MusicTrack song : _musicList) {
 			try {
 				song.setGain(_musicVolume);
 			} catch (ALException e) {
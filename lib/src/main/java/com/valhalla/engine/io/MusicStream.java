@@ -0,0 +1,244 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.valhalla.openal.intermediate.Buffer;
+import org.valhalla.openal.intermediate.Source;
+import org.valhalla.openal.util.ALException;
+import org.valhalla.openal.util.SourceState;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * A music track that is decoded in small chunks while it plays, instead of being decoded into memory at once.<br>
+ * <br>
+ * A fixed ring of OpenAL buffers is queued on the source, a shared background thread refills the buffers the source has finished playing.
+ * The memory used by a track is therefore bounded by {@link #BUFFER_AMOUNT} times {@link #BUFFER_SIZE}, regardless of its length.
+ * @author BauwenDR
+ */
+@Internal
+class MusicStream implements MusicTrack {
+
+	static final int BUFFER_AMOUNT = 4;
+	static final int BUFFER_SIZE = 64 * 1024;
+	private static final long _STREAM_INTERVAL = 20;
+
+	private static final List<MusicStream> _playingStreams = new CopyOnWriteArrayList<>();
+	private static Thread _streamThread;
+
+	private final File _file;
+	private final Source _source;
+	private final Buffer[] _buffers;
+	private final Buffer[] _singleBuffer = new Buffer[1];
+	private final byte[] _chunk = new byte[BUFFER_SIZE];
+
+	private AudioInputStream _stream;
+	private AudioFormat _format;
+	private int _oldestBuffer, _queuedBuffers;
+	private boolean _looping, _endOfStream;
+	private volatile boolean _playing, _hasPlayed;
+
+	@Internal
+	MusicStream(File file) throws IOException, ALException, UnsupportedAudioFileException {
+		_file = file;
+		openStream();	//fail early on unreadable files, only the header is read here
+		_source = SoundInterface._openAl.createSource();
+		_buffers = SoundInterface._openAl.createBuffers(BUFFER_AMOUNT);
+	}
+
+	@Override
+	public synchronized void play(boolean looping) throws ALException, IOException {
+		stopSource();
+		_looping = looping;
+
+		rewind();
+		for(int buffer = 0; buffer < BUFFER_AMOUNT && fill(_buffers[buffer]); buffer++) {
+			queue(_buffers[buffer]);
+		}
+
+		_source.play();
+		_playing = true;
+		_hasPlayed = true;
+		_playingStreams.add(this);
+		startStreamThread();
+	}
+
+	@Override
+	public synchronized void stop() throws ALException {
+		stopSource();
+	}
+
+	@Internal
+	synchronized void setLooping(boolean looping) {
+		_looping = looping;
+	}
+
+	@Override
+	public void setGain(float gain) throws ALException {
+		_source.setGain(gain);
+	}
+
+	@Override
+	public boolean hasFinished() {
+		return _hasPlayed && !_playing;
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			stopSource();
+		} catch (ALException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not stop music " + _file.getName());
+		}
+		closeStream();
+		_source.close();
+		for(Buffer buffer : _buffers) {
+			buffer.close();
+		}
+	}
+
+	@Internal
+	private synchronized void update() throws ALException, IOException {
+		if(!_playing) {
+			return;
+		}
+
+		for(int processed = _source.getBuffersProcessed(); processed > 0; processed--) {
+			Buffer buffer = _buffers[_oldestBuffer];
+			_singleBuffer[0] = buffer;
+			_source.unqueueBuffers(_singleBuffer);
+			_oldestBuffer = (_oldestBuffer + 1) % BUFFER_AMOUNT;
+			_queuedBuffers--;
+
+			if(fill(buffer)) {
+				queue(buffer);
+			}
+		}
+
+		if(_source.getSourceState() == SourceState.STOPPED) {
+			if(_queuedBuffers > 0) {
+				_source.play();		//buffer underrun, continue where the stream is
+			}else {
+				_playing = false;	//whole track has been played
+				_playingStreams.remove(this);
+			}
+		}
+	}
+
+	@Internal
+	private void queue(Buffer buffer) throws ALException {
+		_singleBuffer[0] = buffer;
+		_source.queueBuffers(_singleBuffer);
+		_queuedBuffers++;
+	}
+
+	@Internal
+	private boolean fill(Buffer buffer) throws IOException, ALException {
+		int length = 0;
+		boolean rewound = false;
+		while(length < BUFFER_SIZE && !_endOfStream) {
+			int read = _stream.read(_chunk, length, BUFFER_SIZE - length);
+			if(read > 0) {
+				length += read;
+				rewound = false;
+			}else if(_looping && !rewound) {
+				rewind();
+				rewound = true;		//prevents looping forever on an empty track
+			}else {
+				_endOfStream = true;
+			}
+		}
+
+		length -= length % _format.getFrameSize();
+		if(length == 0) {
+			return false;
+		}
+		buffer.addBufferData(_format, length == BUFFER_SIZE ? _chunk : Arrays.copyOf(_chunk, length));
+		return true;
+	}
+
+	@Internal
+	private void stopSource() throws ALException {
+		_playingStreams.remove(this);
+		if(_playing || _queuedBuffers > 0) {
+			_source.stop();
+			for(; _queuedBuffers > 0; _queuedBuffers--) {	//all buffers count as processed after stopping
+				_singleBuffer[0] = _buffers[_oldestBuffer];
+				_source.unqueueBuffers(_singleBuffer);
+				_oldestBuffer = (_oldestBuffer + 1) % BUFFER_AMOUNT;
+			}
+		}
+		_oldestBuffer = 0;
+		_playing = false;
+	}
+
+	@Internal
+	private void rewind() throws IOException {
+		closeStream();
+		try {
+			openStream();
+		} catch (UnsupportedAudioFileException e) {
+			throw new IOException(e);
+		}
+		_endOfStream = false;
+	}
+
+	@Internal
+	private void openStream() throws IOException, UnsupportedAudioFileException {
+		_stream = AudioDecoder.openPcm(_file);
+		_format = _stream.getFormat();
+	}
+
+	@Internal
+	private void closeStream() {
+		if(_stream != null) {
+			try {
+				_stream.close();
+			} catch (IOException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not close music " + _file.getName());
+			}
+			_stream = null;
+		}
+	}
+
+	@Internal
+	private static synchronized void startStreamThread() {
+		if(_streamThread != null) {
+			return;
+		}
+		_streamThread = new Thread(MusicStream::streamLoop);
+		_streamThread.setName("Music-Stream");
+		_streamThread.setDaemon(true);
+		_streamThread.start();
+	}
+
+	@Internal
+	private static void streamLoop() {
+		while(true) {
+			for(MusicStream stream : _playingStreams) {
+				try {
+					stream.update();
+				} catch (ALException | IOException e) {
+					GameLoop.engineOutput.println("BaseEngine Error: could not stream music " + stream._file.getName());
+					stream._playing = false;
+					_playingStreams.remove(stream);
+				}
+			}
+
+			try {
+				Thread.sleep(_STREAM_INTERVAL);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.valhalla.engine.io;
+
+import java.io.IOException;
+
+import org.valhalla.openal.util.ALException;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * A music track in the {@link MusicPlayer} playlist, implemented by each sound backend.
+ * @author BauwenDR
+ */
+@Internal
+interface MusicTrack {
+
+	void play(boolean looping) throws ALException, IOException;
+
+	void stop() throws ALException;
+
+	void setGain(float gain) throws ALException;
+
+	boolean hasFinished();
+
+	void close();
+}
@@ -0,0 +1,36 @@
+package com.valhalla.engine.io;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * AudioSink that throws away all audio, used for running without a sound card (e.g. in headless tests).
+ * @author BauwenDR
+ */
+public class NullAudioSink implements AudioSink {
+
+	private long _bytesWritten = 0;
+
+	@Override
+	public void open(AudioFormat format) {}
+
+	@Override
+	public void write(byte[] data, int length) {
+		_bytesWritten += length;
+	}
+
+	@Override
+	public boolean isRealTime() {
+		return false;
+	}
+
+	@Override
+	public void close() {}
+
+	/**
+	 * Getter for the amount of audio that was written to this sink.
+	 * @return bytesWritten (Long)
+	 */
+	public long getBytesWritten() {
+		return _bytesWritten;
+	}
+}
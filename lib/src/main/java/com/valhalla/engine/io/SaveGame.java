@@ -0,0 +1,465 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Class used for saving game objects to a compact binary file and loading them back.<br>
+ * <br>
+ * Every type of object that is saved needs a {@link SaveSerializer}, registered once with {@link #register(String, Class, SaveSerializer)}.
+ * A save stores the name and schema version of every type it contains, so serializers can keep reading saves written by older versions of the game.<br>
+ * <br>
+ * Objects are encoded on the thread calling {@link #save(String, Collection)}, writing the file happens on a background thread.
+ * The file is written next to the old save and renamed over it once it is complete, so a crash while saving never damages the existing save.
+ * @author BauwenDR
+ */
+public class SaveGame {
+
+	private static final int _MAGIC = 0x42455347;	//"BESG"
+	private static final int _FORMAT_VERSION = 1;
+
+	/**
+	 * Serializer registered for one type of object.
+	 */
+	@Internal
+	private static final class Registration<T> {
+		final String name;
+		final Class<T> type;
+		final SaveSerializer<T> serializer;
+
+		Registration(String name, Class<T> type, SaveSerializer<T> serializer) {
+			this.name = name;
+			this.type = type;
+			this.serializer = serializer;
+		}
+	}
+
+	private static final HashMap<Class<?>, Registration<?>> _typeRegistrations = new HashMap<>();
+	private static final HashMap<String, Registration<?>> _nameRegistrations = new HashMap<>();
+
+	private static final ExecutorService _writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread writer = new Thread(runnable);
+		writer.setName("SaveGame-Writer");
+		writer.setDaemon(true);
+		return writer;
+	});
+
+	private static volatile long _lastSaveSize, _lastEncodeTime, _lastWriteTime;
+	private static volatile long _lastLoadSize, _lastLoadTime;
+
+	/**
+	 * Registers the serializer for a type of object, objects of subclasses need their own registration.
+	 * @param <T> type of the saved objects
+	 * @param name <b>(String)</b> name stored in the save, must never change once saves have been shipped.
+	 * @param type <b>(Class)</b> class of the saved objects.
+	 * @param serializer <b>(SaveSerializer)</b> serializer for the objects.
+	 */
+	public static synchronized <T> void register(String name, Class<T> type, SaveSerializer<T> serializer) {
+		Registration<T> registration = new Registration<>(name, type, serializer);
+		Registration<?> previous = _nameRegistrations.put(name, registration);
+		if(previous != null) {
+			_typeRegistrations.remove(previous.type);
+		}
+		_typeRegistrations.put(type, registration);
+	}
+
+	/**
+	 * Saves objects to a file, the objects are encoded right away and the file is written in the background.<br>
+	 * Saves are written in the order they are requested.
+	 * @param path <b>(String)</b> Location of where the save will be stored.
+	 * @param objects <b>(Collection)</b> objects to save, every object needs a registered serializer.
+	 * @return (CompletableFuture) completes with the size of the save in bytes once the file is written, or fails if it could not be written.
+	 * @throws IllegalArgumentException if an object has no registered serializer
+	 */
+	public static CompletableFuture<Integer> save(String path, Collection<?> objects) {
+		long start = System.nanoTime();
+		SaveOutput body = new SaveOutput(4096);
+		SaveOutput header = encode(objects, body);
+		long encodeTime = System.nanoTime() - start;
+		return write(path, () -> new SaveOutput[] {header, body}, encodeTime);
+	}
+
+	/**
+	 * Encodes the current state of a single object, so it can be saved later with {@link #saveStates(String, List)} while the object keeps changing.
+	 * @param object <b>(Object)</b> the object to capture.
+	 * @return (SavedState) the encoded state, or null if no serializer is registered for the object.
+	 */
+	@SuppressWarnings("unchecked")
+	public static SavedState capture(Object object) {
+		Registration<Object> registration;
+		synchronized (SaveGame.class) {
+			registration = (Registration<Object>) _typeRegistrations.get(object.getClass());
+		}
+		if(registration == null) {
+			return null;
+		}
+
+		SaveOutput output = new SaveOutput(64);
+		registration.serializer.write(object, output);
+		return new SavedState(registration.name, registration.serializer.getVersion(), Arrays.copyOf(output.getBytes(), output.getLength()));
+	}
+
+	/**
+	 * Creates an object from an encoded state, e.g. one received over the network.
+	 * @param name <b>(String)</b> name the type is registered under.
+	 * @param version <b>(Integer)</b> version of the serializer that encoded the state.
+	 * @param input <b>(SaveInput)</b> the encoded state.
+	 * @return (Object) the new object, or null if the type is not registered or the state is newer than its serializer.
+	 * @throws IOException if the state is damaged
+	 */
+	@Internal
+	public static Object read(String name, int version, SaveInput input) throws IOException {
+		Registration<?> registration;
+		synchronized (SaveGame.class) {
+			registration = _nameRegistrations.get(name);
+		}
+		if(registration == null || version > registration.serializer.getVersion()) {
+			return null;
+		}
+		return registration.serializer.read(input, version);
+	}
+
+	/**
+	 * Reads an encoded state into an existing object, see {@link SaveSerializer#readInto(Object, SaveInput, int)}.
+	 * @param object <b>(Object)</b> the object to update.
+	 * @param name <b>(String)</b> name the type is registered under.
+	 * @param version <b>(Integer)</b> version of the serializer that encoded the state.
+	 * @param input <b>(SaveInput)</b> the encoded state.
+	 * @return True if the object was updated, false if the type is not registered for the class of the object, the state is newer than its serializer or the serializer can not update objects.
+	 * @throws IOException if the state is damaged
+	 */
+	@Internal
+	@SuppressWarnings("unchecked")
+	public static boolean readInto(Object object, String name, int version, SaveInput input) throws IOException {
+		Registration<Object> registration;
+		synchronized (SaveGame.class) {
+			registration = (Registration<Object>) _nameRegistrations.get(name);
+		}
+		if(registration == null || registration.type != object.getClass() || version > registration.serializer.getVersion()) {
+			return false;
+		}
+		return registration.serializer.readInto(object, input, version);
+	}
+
+	/**
+	 * Saves previously captured states to a file, the save is put together and written on the background thread.<br>
+	 * The save is loaded with {@link #load(String)} like any other save.
+	 * @param path <b>(String)</b> Location of where the save will be stored.
+	 * @param states <b>(List)</b> captured states, null elements are skipped. The list must not be changed until the returned future completes.
+	 * @return (CompletableFuture) completes with the size of the save in bytes once the file is written, or fails if it could not be written.
+	 * @see #capture(Object)
+	 */
+	public static CompletableFuture<Integer> saveStates(String path, List<SavedState> states) {
+		return write(path, () -> {
+			LinkedHashMap<String, Integer> usedTypes = new LinkedHashMap<>();
+			ArrayList<SavedState> typeStates = new ArrayList<>();
+			SaveOutput body = new SaveOutput(4096);
+			int objectCount = 0;
+			for(SavedState state : states) {
+				if(state == null) {
+					continue;
+				}
+				String type = state.name + '\u0000' + state.version;
+				Integer index = usedTypes.get(type);
+				if(index == null) {
+					index = usedTypes.size();
+					usedTypes.put(type, index);
+					typeStates.add(state);
+				}
+
+				body.writeVarLong(index);
+				body.writeFixed(state.data.length, 4);
+				body.writeRaw(state.data, 0, state.data.length);
+				objectCount++;
+			}
+
+			SaveOutput header = writeHeader(typeStates.size());
+			for(SavedState typeState : typeStates) {
+				header.writeString(typeState.name);
+				header.writeVarLong(typeState.version);
+			}
+			header.writeVarLong(objectCount);
+			return new SaveOutput[] {header, body};
+		}, 0);
+	}
+
+	/**
+	 * Loads all objects from a save, objects of types that are no longer registered are skipped.
+	 * @param path <b>(String)</b> the location of the save.
+	 * @return (List) the loaded objects, in the order they were saved.
+	 * @throws IOException if the file could not be read or is damaged
+	 */
+	public static List<Object> load(String path) throws IOException {
+		long start = System.nanoTime();
+		byte[] data = Files.readAllBytes(new File(path).toPath());
+		if(data.length < 8) {
+			throw new IOException("BaseEngine: " + path + " is not a save");
+		}
+
+		CRC32 checksum = new CRC32();
+		checksum.update(data, 0, data.length - 4);
+		SaveInput trailer = new SaveInput(data, data.length - 4, 4);
+		if(trailer.readFixed(4) != checksum.getValue()) {
+			throw new IOException("BaseEngine: save " + path + " is damaged");
+		}
+
+		SaveInput input = new SaveInput(data, 0, data.length - 4);
+		if(input.readFixed(4) != _MAGIC) {
+			throw new IOException("BaseEngine: " + path + " is not a save");
+		}
+		long formatVersion = input.readVarLong();
+		if(formatVersion > _FORMAT_VERSION) {
+			throw new IOException("BaseEngine: save " + path + " was written by a newer version of the engine");
+		}
+
+		int typeCount = input.readLength();
+		Registration<?>[] types = new Registration<?>[typeCount];
+		int[] versions = new int[typeCount];
+		synchronized (SaveGame.class) {
+			for(int type = 0; type < typeCount; type++) {
+				String name = input.readString();
+				versions[type] = (int) input.readVarLong();
+				types[type] = _nameRegistrations.get(name);
+				if(types[type] == null) {
+					GameLoop.engineOutput.println("BaseEngine Error: no serializer registered for " + name + ", skipping it in " + path);
+				}else if(versions[type] > types[type].serializer.getVersion()) {
+					GameLoop.engineOutput.println("BaseEngine Error: " + name + " in " + path + " was saved with a newer version, skipping it");
+					types[type] = null;
+				}
+			}
+		}
+
+		int objectCount = input.readLength();
+		List<Object> objects = new ArrayList<>(objectCount);
+		for(int object = 0; object < objectCount; object++) {
+			long storedType = input.readVarLong();
+			long storedLength = input.readFixed(4);
+			if(storedType < 0 || storedType >= typeCount || storedLength > input.getRemaining()) {		//checked before narrowing, so damaged values can not wrap around
+				throw new IOException("BaseEngine: save " + path + " is damaged");
+			}
+			int type = (int) storedType, length = (int) storedLength;
+
+			int end = input.getPosition() + length;
+			if(types[type] != null) {
+				objects.add(types[type].serializer.read(new SaveInput(data, input.getPosition(), length), versions[type]));
+			}
+			input.setPosition(end);		//also skips anything a serializer did not read
+		}
+
+		_lastLoadSize = data.length;
+		_lastLoadTime = System.nanoTime() - start;
+		return objects;
+	}
+
+	/**
+	 * Waits until all saves that are being written in the background are finished.
+	 * @param timeout <b>(Long)</b> maximum time to wait in milliseconds.
+	 * @return True if all saves are written, false if the timeout passed first.
+	 */
+	public static boolean awaitWrites(long timeout) {
+		try {
+			return _writer.submit(() -> {}).get(timeout, TimeUnit.MILLISECONDS) == null;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Getter for the size of the last save.
+	 * @return size in bytes (Long)
+	 */
+	public static long getLastSaveSize() {
+		return _lastSaveSize;
+	}
+
+	/**
+	 * Getter for the time the last save took to encode, including putting together captured states on the background thread.
+	 * @return time in nanoseconds (Long)
+	 */
+	public static long getLastEncodeTime() {
+		return _lastEncodeTime;
+	}
+
+	/**
+	 * Getter for the time the last save took to write to disk on the background thread.
+	 * @return time in nanoseconds (Long)
+	 */
+	public static long getLastWriteTime() {
+		return _lastWriteTime;
+	}
+
+	/**
+	 * Getter for the speed of the last save, encoding and writing combined.
+	 * @return throughput in megabytes per second (Double)
+	 */
+	public static double getSaveThroughput() {
+		long time = _lastEncodeTime + _lastWriteTime;
+		return time == 0 ? 0 : _lastSaveSize / 1e6 / (time / 1e9);
+	}
+
+	/**
+	 * Getter for the size of the last loaded save.
+	 * @return size in bytes (Long)
+	 */
+	public static long getLastLoadSize() {
+		return _lastLoadSize;
+	}
+
+	/**
+	 * Getter for the time the last load took, reading and decoding combined.
+	 * @return time in nanoseconds (Long)
+	 */
+	public static long getLastLoadTime() {
+		return _lastLoadTime;
+	}
+
+	/**
+	 * Getter for the speed of the last load.
+	 * @return throughput in megabytes per second (Double)
+	 */
+	public static double getLoadThroughput() {
+		return _lastLoadTime == 0 ? 0 : _lastLoadSize / 1e6 / (_lastLoadTime / 1e9);
+	}
+
+	/**
+	 * Encodes objects into a body and returns the header describing it, the header and body together form a save without its checksum.
+	 */
+	@Internal
+	@SuppressWarnings("unchecked")
+	private static SaveOutput encode(Iterable<?> objects, SaveOutput body) {
+		HashMap<Class<?>, Registration<?>> registrations;
+		synchronized (SaveGame.class) {
+			registrations = new HashMap<>(_typeRegistrations);		//serializers run without the lock, so they never block registering or loading
+		}
+
+		LinkedHashMap<Registration<?>, Integer> usedTypes = new LinkedHashMap<>();
+		int objectCount = 0;
+		for(Object object : objects) {
+			Registration<Object> registration = (Registration<Object>) registrations.get(object.getClass());
+			if(registration == null) {
+				throw new IllegalArgumentException("BaseEngine: no serializer registered for " + object.getClass().getName());
+			}
+			Integer index = usedTypes.get(registration);
+			if(index == null) {
+				index = usedTypes.size();
+				usedTypes.put(registration, index);
+			}
+
+			body.writeVarLong(index);
+			int lengthPosition = body.getLength();
+			body.writeFixed(0, 4);
+			registration.serializer.write(object, body);
+			body.setFixed(lengthPosition, body.getLength() - lengthPosition - 4, 4);
+			objectCount++;
+		}
+
+		SaveOutput header = writeHeader(usedTypes.size());
+		for(Registration<?> registration : usedTypes.keySet()) {
+			header.writeString(registration.name);
+			header.writeVarLong(registration.serializer.getVersion());
+		}
+		header.writeVarLong(objectCount);
+		return header;
+	}
+
+	/**
+	 * Starts a save with the magic number, format version and amount of types, the caller writes the types and object count behind it.
+	 */
+	@Internal
+	private static SaveOutput writeHeader(int typeCount) {
+		SaveOutput header = new SaveOutput(64 + typeCount * 32);
+		header.writeFixed(_MAGIC, 4);
+		header.writeVarLong(_FORMAT_VERSION);
+		header.writeVarLong(typeCount);
+		return header;
+	}
+
+	/**
+	 * Puts together the header and body of a save, called on the background thread.
+	 */
+	@Internal
+	private interface SaveEncoder {
+		SaveOutput[] encode();
+	}
+
+	/**
+	 * Writes a save on the background thread to a temporary file, which is then renamed over the old save.
+	 */
+	@Internal
+	private static CompletableFuture<Integer> write(String path, SaveEncoder encoder, long encodeTime) {
+		CompletableFuture<Integer> future = new CompletableFuture<>();
+		_writer.execute(() -> {
+			long encodeStart = System.nanoTime();
+			SaveOutput[] parts;
+			try {
+				parts = encoder.encode();
+			} catch (RuntimeException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not encode save " + path + ": " + e.getMessage());
+				future.completeExceptionally(e);
+				return;
+			}
+			SaveOutput header = parts[0], body = parts[1];
+			long totalEncodeTime = encodeTime + System.nanoTime() - encodeStart;
+
+			long start = System.nanoTime();
+			Path target = new File(path).getAbsoluteFile().toPath();
+			Path temporary = null;
+			try {
+				CRC32 checksum = new CRC32();
+				checksum.update(header.getBytes(), 0, header.getLength());
+				checksum.update(body.getBytes(), 0, body.getLength());
+				ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) checksum.getValue());
+				ByteBuffer[] buffers = {ByteBuffer.wrap(header.getBytes(), 0, header.getLength()), ByteBuffer.wrap(body.getBytes(), 0, body.getLength()), trailer};
+
+				temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+				try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+					while(trailer.hasRemaining()) {
+						channel.write(buffers);
+					}
+					channel.force(true);	//data has to be on disk before the rename makes it the save
+				}
+
+				try {
+					Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException e) {
+				GameLoop.engineOutput.println("BaseEngine Error: could not write save " + path + ": " + e.getMessage());
+				if(temporary != null) {
+					temporary.toFile().delete();
+				}
+				future.completeExceptionally(e);
+				return;
+			}
+
+			int size = header.getLength() + body.getLength() + 4;
+			_lastSaveSize = size;
+			_lastEncodeTime = totalEncodeTime;
+			_lastWriteTime = System.nanoTime() - start;
+			future.complete(size);
+		});
+		return future;
+	}
+}
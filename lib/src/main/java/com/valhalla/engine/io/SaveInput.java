@@ -0,0 +1,199 @@
+package com.valhalla.engine.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Buffer that game objects are read from when loading a save, the counterpart of {@link SaveOutput}.
+ * @author BauwenDR
+ */
+public final class SaveInput {
+
+	//same big-endian layout as readFixed, read in one access
+	private static final VarHandle _INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle _LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private byte[] _bytes;
+	private int _position;
+	private int _limit;
+
+	@Internal
+	public SaveInput(byte[] bytes, int offset, int length) {
+		_bytes = bytes;
+		_position = offset;
+		_limit = offset + length;
+	}
+
+	/**
+	 * Reads a boolean written by {@link SaveOutput#writeBoolean(boolean)}.
+	 * @return value (Boolean)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	/**
+	 * Reads a byte written by {@link SaveOutput#writeByte(int)}.
+	 * @return value (Byte)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public byte readByte() throws IOException {
+		require(1);
+		return _bytes[_position++];
+	}
+
+	/**
+	 * Reads an integer written by {@link SaveOutput#writeInt(int)}.
+	 * @return value (Integer)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public int readInt() throws IOException {
+		long value = readVarLong();
+		return (int) (value >>> 1) ^ -(int) (value & 1);
+	}
+
+	/**
+	 * Reads a long written by {@link SaveOutput#writeLong(long)}.
+	 * @return value (Long)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public long readLong() throws IOException {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads a float written by {@link SaveOutput#writeFloat(float)}.
+	 * @return value (Float)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public float readFloat() throws IOException {
+		require(4);
+		float value = Float.intBitsToFloat((int) _INT_VIEW.get(_bytes, _position));
+		_position += 4;
+		return value;
+	}
+
+	/**
+	 * Reads a double written by {@link SaveOutput#writeDouble(double)}.
+	 * @return value (Double)
+	 * @throws IOException if the end of the data is reached
+	 */
+	public double readDouble() throws IOException {
+		require(8);
+		double value = Double.longBitsToDouble((long) _LONG_VIEW.get(_bytes, _position));
+		_position += 8;
+		return value;
+	}
+
+	/**
+	 * Reads a String written by {@link SaveOutput#writeString(String)}.
+	 * @return value (String), may be null
+	 * @throws IOException if the end of the data is reached
+	 */
+	public String readString() throws IOException {
+		int length = readLength() - 1;
+		if(length < 0) {
+			return null;
+		}
+		require(length);
+		String value = new String(_bytes, _position, length, StandardCharsets.UTF_8);
+		_position += length;
+		return value;
+	}
+
+	/**
+	 * Reads an array of bytes written by {@link SaveOutput#writeBytes(byte[])}.
+	 * @return value (byte[])
+	 * @throws IOException if the end of the data is reached
+	 */
+	public byte[] readBytes() throws IOException {
+		int length = readLength();
+		require(length);
+		byte[] value = new byte[length];
+		System.arraycopy(_bytes, _position, value, 0, length);
+		_position += length;
+		return value;
+	}
+
+	/**
+	 * Reads an unsigned number written by {@link SaveOutput#writeVarLong(long)}.
+	 * @return value (Long)
+	 * @throws IOException if the end of the data is reached or the number is damaged
+	 */
+	public long readVarLong() throws IOException {
+		long value = 0;
+		for(int shift = 0; shift < 64; shift += 7) {
+			byte part = readByte();
+			value |= (long) (part & 0x7F) << shift;
+			if(part >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("BaseEngine: damaged number in save data");
+	}
+
+	/**
+	 * Getter for the amount of bytes that are left to read.
+	 * @return remaining (Integer)
+	 */
+	public int getRemaining() {
+		return _limit - _position;
+	}
+
+	@Internal
+	public int getPosition() {
+		return _position;
+	}
+
+	@Internal
+	public void reset(byte[] bytes, int offset, int length) {
+		_bytes = bytes;
+		_position = offset;
+		_limit = offset + length;
+	}
+
+	@Internal
+	void setPosition(int position) {
+		_position = position;
+	}
+
+	@Internal
+	public long readFixed(int bytes) throws IOException {
+		require(bytes);
+		long value = 0;
+		for(int index = 0; index < bytes; index++) {
+			value = (value << 8) | (_bytes[_position++] & 0xFF);
+		}
+		return value;
+	}
+
+	@Internal
+	public void readRaw(byte[] target, int offset, int length) throws IOException {
+		require(length);
+		System.arraycopy(_bytes, _position, target, offset, length);
+		_position += length;
+	}
+
+	@Internal
+	int readLength() throws IOException {
+		long length = readVarLong();
+		if(length < 0 || length > getRemaining() + 1L) {
+			throw new IOException("BaseEngine: damaged length in save data");
+		}
+		return (int) length;
+	}
+
+	@Internal
+	private void require(int bytes) throws IOException {
+		if(_limit - _position < bytes) {
+			throw new IOException("BaseEngine: unexpected end of save data");
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.valhalla.engine.io;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Growable buffer that game objects are written to when saving, see {@link SaveSerializer}.<br>
+ * <br>
+ * Integers are stored as variable length numbers, so small values only take one or two bytes, floating point numbers are stored as is.
+ * Values have to be read back in the same order with {@link SaveInput}.
+ * @author BauwenDR
+ */
+public final class SaveOutput {
+
+	//same big-endian layout as writeFixed, written in one access
+	private static final VarHandle _INT_VIEW = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle _LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+	private byte[] _bytes;
+	private int _length = 0;
+
+	/**
+	 * Creates a new empty SaveOutput.
+	 * @param capacity <b>(Integer)</b> Amount of bytes reserved up front, the buffer grows when needed.
+	 */
+	public SaveOutput(int capacity) {
+		_bytes = new byte[Math.max(16, capacity)];
+	}
+
+	/**
+	 * Writes a boolean as one byte.
+	 * @param value <b>(Boolean)</b> the value to write.
+	 */
+	public void writeBoolean(boolean value) {
+		writeByte(value ? 1 : 0);
+	}
+
+	/**
+	 * Writes one byte.
+	 * @param value <b>(Integer)</b> the value to write, only the lowest 8 bits are stored.
+	 */
+	public void writeByte(int value) {
+		ensure(1);
+		_bytes[_length++] = (byte) value;
+	}
+
+	/**
+	 * Writes an integer, values close to zero (positive or negative) take the least space.
+	 * @param value <b>(Integer)</b> the value to write.
+	 */
+	public void writeInt(int value) {
+		writeVarLong(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Writes a long, values close to zero (positive or negative) take the least space.
+	 * @param value <b>(Long)</b> the value to write.
+	 */
+	public void writeLong(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Writes a float as 4 bytes.
+	 * @param value <b>(Float)</b> the value to write.
+	 */
+	public void writeFloat(float value) {
+		ensure(4);
+		_INT_VIEW.set(_bytes, _length, Float.floatToRawIntBits(value));
+		_length += 4;
+	}
+
+	/**
+	 * Writes a double as 8 bytes.
+	 * @param value <b>(Double)</b> the value to write.
+	 */
+	public void writeDouble(double value) {
+		ensure(8);
+		_LONG_VIEW.set(_bytes, _length, Double.doubleToRawLongBits(value));
+		_length += 8;
+	}
+
+	/**
+	 * Writes a String as UTF-8, null is allowed.
+	 * @param value <b>(String)</b> the value to write.
+	 */
+	public void writeString(String value) {
+		if(value == null) {
+			writeVarLong(0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length + 1L);
+		writeRaw(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Writes an array of bytes with its length.
+	 * @param value <b>(byte[])</b> the value to write.
+	 */
+	public void writeBytes(byte[] value) {
+		writeVarLong(value.length);
+		writeRaw(value, 0, value.length);
+	}
+
+	/**
+	 * Writes an unsigned number in 7 bit groups, the highest bit of every byte marks if another byte follows.
+	 * @param value <b>(Long)</b> the value to write, treated as unsigned.
+	 */
+	public void writeVarLong(long value) {
+		ensure(10);
+		while((value & ~0x7FL) != 0) {
+			_bytes[_length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		_bytes[_length++] = (byte) value;
+	}
+
+	/**
+	 * Getter for the amount of bytes written so far.
+	 * @return length (Integer)
+	 */
+	public int getLength() {
+		return _length;
+	}
+
+	/**
+	 * Removes everything that was written, keeping the reserved memory.
+	 */
+	public void clear() {
+		_length = 0;
+	}
+
+	@Internal
+	public void writeRaw(byte[] bytes, int offset, int length) {
+		ensure(length);
+		System.arraycopy(bytes, offset, _bytes, _length, length);
+		_length += length;
+	}
+
+	/**
+	 * Overwrites bytes that were already written, used to fill in lengths after the data they describe.
+	 */
+	@Internal
+	public void setFixed(int position, long value, int bytes) {
+		for(int index = 0; index < bytes; index++) {
+			_bytes[position + index] = (byte) (value >>> (8 * (bytes - 1 - index)));
+		}
+	}
+
+	@Internal
+	public void writeFixed(long value, int bytes) {
+		ensure(bytes);
+		setFixed(_length, value, bytes);
+		_length += bytes;
+	}
+
+	/**
+	 * Throws away everything written after a given length.
+	 */
+	@Internal
+	public void setLength(int length) {
+		_length = length;
+	}
+
+	@Internal
+	public byte[] getBytes() {
+		return _bytes;
+	}
+
+	@Internal
+	private void ensure(int space) {
+		if(_bytes.length - _length < space) {
+			_bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _length + space));
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.valhalla.engine.io;
+
+import java.io.IOException;
+
+/**
+ * Writes and reads one type of game object for {@link SaveGame}.<br>
+ * <br>
+ * Every save stores the schema version each type was written with.
+ * When the fields of a type change, increase {@link #getVersion()} and keep reading the older versions in {@link #read(SaveInput, int)}, so old saves can still be loaded.
+ * @param <T> type of the saved objects
+ * @author BauwenDR
+ */
+public interface SaveSerializer<T> {
+
+	/**
+	 * Getter for the version of the data {@link #write(Object, SaveOutput)} produces.
+	 * @return version (Integer)
+	 */
+	int getVersion();
+
+	/**
+	 * Writes the state of an object.
+	 * @param object <b>(T)</b> the object to save.
+	 * @param output <b>(SaveOutput)</b> buffer to write to.
+	 */
+	void write(T object, SaveOutput output);
+
+	/**
+	 * Creates an object from saved state.
+	 * @param input <b>(SaveInput)</b> buffer to read from.
+	 * @param version <b>(Integer)</b> the version the object was written with, at most {@link #getVersion()}.
+	 * @return (T) the loaded object.
+	 * @throws IOException if the saved data is damaged
+	 */
+	T read(SaveInput input, int version) throws IOException;
+
+	/**
+	 * Reads saved state into an existing object instead of creating a new one, used by {@link com.valhalla.engine.net.NetClient} to update replicated copies in place.<br>
+	 * By default nothing is read and false is returned, the object is then replaced by a new one from {@link #read(SaveInput, int)}.
+	 * @param object <b>(T)</b> the object to update.
+	 * @param input <b>(SaveInput)</b> buffer to read from.
+	 * @param version <b>(Integer)</b> the version the object was written with, at most {@link #getVersion()}.
+	 * @return True if the object was updated, false if this serializer can only create new objects.
+	 * @throws IOException if the saved data is damaged, the object may then be partly updated
+	 */
+	default boolean readInto(T object, SaveInput input, int version) throws IOException {
+		return false;
+	}
+}
@@ -0,0 +1,56 @@
+package com.valhalla.engine.io;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * The encoded state of one object at the moment it was captured with {@link SaveGame#capture(Object)}.<br>
+ * <br>
+ * A SavedState never changes after it is created, so it can be written to a save on another thread while the object itself keeps changing.
+ * @author BauwenDR
+ */
+public final class SavedState {
+
+	final String name;
+	final int version;
+	final byte[] data;
+
+	@Internal
+	SavedState(String name, int version, byte[] data) {
+		this.name = name;
+		this.version = version;
+		this.data = data;
+	}
+
+	/**
+	 * Getter for the name the type of the object is registered under, see {@link SaveGame#register}.
+	 * @return name (String)
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for the version of the serializer that encoded the state.
+	 * @return version (Integer)
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter for the encoded state itself, it must not be changed.
+	 * @return data (byte[])
+	 */
+	@Internal
+	public byte[] getData() {
+		return data;
+	}
+
+	/**
+	 * Getter for the size of the encoded state.
+	 * @return size in bytes (Integer)
+	 */
+	public int getSize() {
+		return data.length;
+	}
+}
@@ -0,0 +1,528 @@
+package com.valhalla.engine.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.CommandQueue;
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Pure Java alternative to the OpenAL sound backend.<br>
+ * <br>
+ * The mixer adds any number of voices together into one 16 bit stereo PCM stream, with a gain, pitch and pan per voice, and writes it to an {@link AudioSink}.
+ * Mixing happens on its own audio thread. Other threads never touch the voices directly, they send commands through a lock-free queue that is drained before every block.<br>
+ * <br>
+ * Call {@link #install(AudioSink)} before constructing the GameLoop to use this backend for {@link SoundEffectPlayer} and {@link MusicPlayer}.<br>
+ * <u>Note:</u> If writing to the sink fails, the audio thread stops and the mixer stays installed, dropping every sound that is played. Install a new mixer to get sound back.
+ * @author BauwenDR
+ */
+public class SoftwareMixer implements Runnable {
+
+	/** Sample rate of the mixed stream. */
+	public static final float SAMPLE_RATE = 44100f;
+	/** Amount of frames mixed per block. */
+	public static final int BLOCK_FRAMES = 512;
+	private static final int _CHANNELS = 2;
+
+	private static final int _PLAY = 0, _START = 1, _STOP = 2, _GAIN = 3, _PITCH = 4, _PAN = 5, _LOOP = 6, _STOP_ALL = 7;
+	private static final int _COMMAND_QUEUE_CAPACITY = 4096;
+
+	private static volatile SoftwareMixer _installed;
+
+	private final AudioSink _sink;
+	private final AudioFormat _format = new AudioFormat(SAMPLE_RATE, 16, _CHANNELS, true, false);
+	private final CommandQueue _commands = new CommandQueue(_COMMAND_QUEUE_CAPACITY);
+	private final CommandQueue.Consumer _commandHandler = this::handleCommand;
+	private final AtomicInteger _nextVoiceId = new AtomicInteger(1);
+
+	private final float[] _mixBuffer = new float[BLOCK_FRAMES * _CHANNELS];
+	private final byte[] _outputBuffer = new byte[BLOCK_FRAMES * _CHANNELS * 2];
+
+	//only touched by the audio thread, active voices are kept at the front of the array
+	private MixerVoice[] _voices = new MixerVoice[0];
+	private int _voiceAmount = 0;
+
+	private Thread _audioThread;
+	private volatile boolean _running = false, _failed = false;
+	private boolean _opened = false;
+
+	private volatile int _activeVoices = 0;
+	private volatile long _mixedBlocks = 0, _mixedVoiceBlocks = 0, _mixTime = 0;
+
+	@Internal
+	private static final class MixerVoice {
+		int id;
+		MixerSound sound;
+		MixerStream stream;
+		float[] samples;
+		int frames, channels;
+		float sampleRate;
+		double position;
+		float gain, pitch, pan;
+		boolean looping, started;
+	}
+
+	/**
+	 * Creates a new SoftwareMixer, the mixer does not start mixing until {@link #start()} or {@link #mixBlocks(int)} is called.
+	 * @param sink <b>(AudioSink)</b> Output for the mixed audio.
+	 */
+	public SoftwareMixer(AudioSink sink) {
+		_sink = sink;
+	}
+
+	/**
+	 * Creates and starts a SoftwareMixer that will be used by {@link SoundEffectPlayer} and {@link MusicPlayer} instead of OpenAL.<br>
+	 * <u>Note:</u> This has to be called before the GameLoop is constructed.
+	 * @param sink <b>(AudioSink)</b> Output for the mixed audio.
+	 * @return (SoftwareMixer) the installed mixer.
+	 * @throws IOException if the sink could not be opened
+	 */
+	public static synchronized SoftwareMixer install(AudioSink sink) throws IOException {
+		if(_installed != null) {
+			_installed.close();
+		}
+		SoftwareMixer mixer = new SoftwareMixer(sink);
+		mixer.start();
+		_installed = mixer;
+		return mixer;
+	}
+
+	/**
+	 * Getter for the mixer installed with {@link #install(AudioSink)}.
+	 * @return installed mixer (SoftwareMixer) or null if the OpenAL backend is used.
+	 */
+	public static SoftwareMixer getInstalled() {
+		return _installed;
+	}
+
+	/**
+	 * Decodes a sound file into memory so it can be played by the mixer.
+	 * @param path <b>(String)</b> the location of the sound file.
+	 * @return (MixerSound) the decoded sound.
+	 * @throws IOException if there was an error reading a file
+	 * @throws UnsupportedAudioFileException if the specified file is in an unknown format
+	 */
+	public static MixerSound loadSound(String path) throws IOException, UnsupportedAudioFileException {
+		return new MixerSound(new File(path));
+	}
+
+	/**
+	 * Starts the audio thread. If the sink does not block in real time, the audio thread paces itself to playback speed.
+	 * @throws IOException if the sink could not be opened
+	 */
+	public synchronized void start() throws IOException {
+		if(_running) {
+			return;
+		}
+		openSink();
+		_running = true;
+		_audioThread = new Thread(this);
+		_audioThread.setName("Audio-Mixer");
+		_audioThread.setDaemon(true);
+		_audioThread.setPriority(Thread.MAX_PRIORITY);
+		_audioThread.start();
+	}
+
+	/**
+	 * Stops the audio thread and closes the sink.
+	 */
+	public synchronized void close() {
+		_running = false;
+		if(_audioThread != null) {
+			try {
+				_audioThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			_audioThread = null;
+		}
+		_sink.close();
+		_opened = false;
+		if(_installed == this) {
+			_installed = null;
+		}
+	}
+
+	/**
+	 * Mixes a given amount of blocks as fast as possible on the calling thread, used for headless tests and for measuring mixing cost.<br>
+	 * <u>Note:</u> This can not be used while the audio thread is running.
+	 * @param blocks <b>(Integer)</b> amount of blocks of {@link #BLOCK_FRAMES} frames to mix.
+	 * @throws IOException if the sink could not be opened or written to
+	 */
+	public synchronized void mixBlocks(int blocks) throws IOException {
+		if(_running) {
+			throw new IllegalStateException("BaseEngine: mixBlocks can not be used while the audio thread is running");
+		}
+		openSink();
+		for(int block = 0; block < blocks; block++) {
+			mixBlock();
+		}
+	}
+
+	@Internal
+	private void openSink() throws IOException {
+		if(!_opened) {
+			_sink.open(_format);
+			_opened = true;
+		}
+	}
+
+	@Internal @Override
+	public void run() {
+		try {
+			mixUntilStopped();
+		} catch (IOException | RuntimeException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: audio output stopped: " + e.getMessage());
+		} finally {
+			if(_running) {
+				//stopped by an error instead of close(), the mixer stays installed since there is no OpenAL backend to go back to
+				_failed = true;
+				_running = false;
+				GameLoop.engineOutput.println("BaseEngine Error: sounds are dropped until a new mixer is installed");
+			}
+		}
+	}
+
+	@Internal
+	private void mixUntilStopped() throws IOException {
+		long blockNanos = (long) (BLOCK_FRAMES / SAMPLE_RATE * 1_000_000_000L);
+		long nextBlock = System.nanoTime();
+
+		while(_running) {
+			mixBlock();
+
+			if(!_sink.isRealTime()) {
+				nextBlock += blockNanos;
+				long sleep = nextBlock - System.nanoTime();
+				if(sleep > 0) {
+					try {
+						Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+					} catch (InterruptedException e) {
+						return;
+					}
+				}else if(sleep < -blockNanos * 8) {
+					nextBlock = System.nanoTime();	//fell far behind, do not try to catch up
+				}
+			}
+		}
+	}
+
+	@Internal
+	private void mixBlock() throws IOException {
+		_commands.drain(_commandHandler);
+
+		long start = System.nanoTime();
+		Arrays.fill(_mixBuffer, 0);
+		int mixedVoices = 0;
+		for(int voice = 0; voice < _voiceAmount; voice++) {
+			MixerVoice mixerVoice = _voices[voice];
+			if(!mixerVoice.started) {
+				continue;
+			}
+			mixedVoices++;
+			if(!mixVoice(mixerVoice)) {
+				finishVoice(voice--);
+			}
+		}
+
+		for(int sample = 0; sample < _mixBuffer.length; sample++) {
+			float value = _mixBuffer[sample];
+			int pcm = (int) ((value > 1 ? 1 : value < -1 ? -1 : value) * 32767);
+			_outputBuffer[sample * 2] = (byte) pcm;
+			_outputBuffer[sample * 2 + 1] = (byte) (pcm >> 8);
+		}
+
+		_mixTime += System.nanoTime() - start;
+		_mixedVoiceBlocks += mixedVoices;
+		_mixedBlocks++;
+		_activeVoices = _voiceAmount;
+
+		_sink.write(_outputBuffer, _outputBuffer.length);
+	}
+
+	/**
+	 * Mixes one block of a voice into the mix buffer with linear interpolation.
+	 * @return False if the voice reached its end.
+	 */
+	@Internal
+	private boolean mixVoice(MixerVoice voice) {
+		float leftGain = voice.gain * (voice.pan > 0 ? 1 - voice.pan : 1);
+		float rightGain = voice.gain * (voice.pan < 0 ? 1 + voice.pan : 1);
+		double step = voice.sampleRate / SAMPLE_RATE * voice.pitch;
+		double position = voice.position;
+
+		for(int frame = 0; frame < BLOCK_FRAMES; frame++) {
+			int index = (int) position;
+			while(index + 1 >= voice.frames) {
+				if(voice.stream != null && voice.stream.refill()) {
+					position -= voice.frames - 1;	//last frame of the old window is the first frame of the new one
+					voice.frames = voice.stream.frames;
+				}else if(voice.stream == null && voice.looping && voice.frames > 1) {
+					position -= voice.frames - 1;
+				}else {
+					voice.position = position;
+					return false;
+				}
+				index = (int) position;
+			}
+
+			float fraction = (float) (position - index);
+			float[] samples = voice.samples;
+			int left = index * voice.channels;
+			int next = left + voice.channels;
+			float leftSample = samples[left] + (samples[next] - samples[left]) * fraction;
+			float rightSample = voice.channels == 2 ? samples[left + 1] + (samples[next + 1] - samples[left + 1]) * fraction : leftSample;
+
+			_mixBuffer[frame * 2] += leftSample * leftGain;
+			_mixBuffer[frame * 2 + 1] += rightSample * rightGain;
+			position += step;
+		}
+		voice.position = position;
+		return true;
+	}
+
+	@Internal
+	private void handleCommand(int command, Object subject, long argument, long time) {
+		int id = (int) (argument >>> 32);
+		float value = Float.intBitsToFloat((int) argument);
+
+		if(command == _PLAY) {
+			startVoice(subject, (int) argument);
+			return;
+		}
+		if(command == _STOP_ALL) {
+			while(_voiceAmount > 0) {
+				finishVoice(0);
+			}
+			return;
+		}
+
+		int voice = findVoice(id);
+		if(voice == -1) {
+			return;		//voice already finished
+		}
+		MixerVoice mixerVoice = _voices[voice];
+		switch(command) {
+			case _START:
+				mixerVoice.started = true;
+				break;
+			case _STOP:
+				finishVoice(voice);
+				break;
+			case _GAIN:
+				mixerVoice.gain = value;
+				break;
+			case _PITCH:
+				mixerVoice.pitch = value;
+				break;
+			case _PAN:
+				mixerVoice.pan = Math.max(-1, Math.min(1, value));
+				break;
+			case _LOOP:
+				mixerVoice.looping = value != 0;
+				if(mixerVoice.stream != null) {
+					mixerVoice.stream.looping = mixerVoice.looping;
+				}
+				break;
+			default:
+				GameLoop.engineOutput.println("BaseEngine Error: unknown mixer command " + command);
+		}
+	}
+
+	@Internal
+	private void startVoice(Object subject, int id) {
+		if(_voiceAmount == _voices.length) {
+			_voices = Arrays.copyOf(_voices, Math.max(16, _voices.length * 2));
+		}
+		if(_voices[_voiceAmount] == null) {
+			_voices[_voiceAmount] = new MixerVoice();
+		}
+		MixerVoice voice = _voices[_voiceAmount];
+		voice.id = id;
+		voice.position = 0;
+		voice.gain = 1;
+		voice.pitch = 1;
+		voice.pan = 0;
+		voice.looping = false;
+		voice.started = false;
+
+		if(subject instanceof MixerStream) {
+			MixerStream stream = (MixerStream) subject;
+			stream.looping = false;
+			stream.rewind();
+			voice.stream = stream;
+			voice.sound = null;
+			voice.samples = stream.window;
+			voice.frames = stream.frames;
+			voice.channels = stream.channels;
+			voice.sampleRate = stream.sampleRate;
+		}else {
+			MixerSound sound = (MixerSound) subject;
+			voice.stream = null;
+			voice.sound = sound;
+			voice.samples = sound.samples;
+			voice.frames = sound.frames;
+			voice.channels = sound.channels;
+			voice.sampleRate = sound.sampleRate;
+		}
+		_voiceAmount++;
+	}
+
+	@Internal
+	private int findVoice(int id) {
+		for(int voice = 0; voice < _voiceAmount; voice++) {
+			if(_voices[voice].id == id) {
+				return voice;
+			}
+		}
+		return -1;
+	}
+
+	@Internal
+	private void finishVoice(int voice) {
+		MixerVoice finished = _voices[voice];
+		if(finished.stream != null) {
+			finished.stream.close();
+			finished.stream.finishedVoice = finished.id;
+		}
+		finished.stream = null;
+		finished.sound = null;
+		finished.samples = null;
+
+		//swap with the last active voice, the finished voice object is kept for reuse
+		_voiceAmount--;
+		_voices[voice] = _voices[_voiceAmount];
+		_voices[_voiceAmount] = finished;
+	}
+
+	/**
+	 * Plays a sound on a new voice, can be called from any thread.
+	 * @param sound <b>(MixerSound)</b> the sound to play.
+	 * @param gain <b>(Float)</b> volume of the voice, 1 is the original volume.
+	 * @param pitch <b>(Float)</b> playback speed of the voice, 1 is the original speed.
+	 * @param pan <b>(Float)</b> stereo position from -1 (= left) to 1 (= right).
+	 * @param looping <b>(Boolean)</b> keep playing the sound until the voice is stopped.
+	 * @return (Integer) id of the voice, used for changing or stopping it.
+	 */
+	public int play(MixerSound sound, float gain, float pitch, float pan, boolean looping) {
+		return playSubject(sound, gain, pitch, pan, looping);
+	}
+
+	@Internal
+	int playStream(MixerStream stream, float gain, boolean looping) {
+		return playSubject(stream, gain, 1, 0, looping);
+	}
+
+	@Internal
+	private int playSubject(Object subject, float gain, float pitch, float pan, boolean looping) {
+		int id = _nextVoiceId.getAndIncrement();
+		queue(_PLAY, subject, id);
+		setGain(id, gain);
+		setPitch(id, pitch);
+		setPan(id, pan);
+		setValue(_LOOP, id, looping ? 1 : 0);
+		setValue(_START, id, 0);	//voice only starts once all settings are applied
+		return id;
+	}
+
+	/**
+	 * Stops a voice, can be called from any thread.
+	 * @param voiceId <b>(Integer)</b> id returned when the voice was started.
+	 */
+	public void stop(int voiceId) {
+		setValue(_STOP, voiceId, 0);
+	}
+
+	/**
+	 * Stops all voices, can be called from any thread.
+	 */
+	public void stopAll() {
+		queue(_STOP_ALL, null, 0);
+	}
+
+	/**
+	 * Changes the volume of a playing voice, can be called from any thread.
+	 * @param voiceId <b>(Integer)</b> id returned when the voice was started.
+	 * @param gain <b>(Float)</b> volume of the voice, 1 is the original volume.
+	 */
+	public void setGain(int voiceId, float gain) {
+		setValue(_GAIN, voiceId, gain);
+	}
+
+	/**
+	 * Changes the playback speed of a playing voice, can be called from any thread.
+	 * @param voiceId <b>(Integer)</b> id returned when the voice was started.
+	 * @param pitch <b>(Float)</b> playback speed of the voice, 1 is the original speed.
+	 */
+	public void setPitch(int voiceId, float pitch) {
+		setValue(_PITCH, voiceId, pitch);
+	}
+
+	/**
+	 * Changes the stereo position of a playing voice, can be called from any thread.
+	 * @param voiceId <b>(Integer)</b> id returned when the voice was started.
+	 * @param pan <b>(Float)</b> stereo position from -1 (= left) to 1 (= right).
+	 */
+	public void setPan(int voiceId, float pan) {
+		setValue(_PAN, voiceId, pan);
+	}
+
+	@Internal
+	private void setValue(int command, int voiceId, float value) {
+		queue(command, null, ((long) voiceId << 32) | (Float.floatToRawIntBits(value) & 0xFFFFFFFFL));
+	}
+
+	@Internal
+	private void queue(int command, Object subject, long argument) {
+		if(_failed) {
+			return;		//the audio thread stopped with an error, which was reported once
+		}
+		while(!_commands.offer(command, subject, argument)) {
+			if(!_running) {
+				GameLoop.engineOutput.println("BaseEngine Error: mixer command " + command + " dropped, the audio thread is not running");
+				return;
+			}
+			Thread.yield();		//audio thread drains the queue every block
+		}
+	}
+
+	/**
+	 * Getter for the amount of voices the mixer was playing in the last block.
+	 * @return activeVoices (Integer)
+	 */
+	public int getActiveVoices() {
+		return _activeVoices;
+	}
+
+	/**
+	 * Getter for the amount of blocks mixed since the mixer was created.
+	 * @return mixedBlocks (Long)
+	 */
+	public long getMixedBlocks() {
+		return _mixedBlocks;
+	}
+
+	/**
+	 * Getter for the average time it takes to mix one voice for one block of {@link #BLOCK_FRAMES} frames.<br>
+	 * Use this together with {@link #mixBlocks(int)} to measure the mixing cost per voice.
+	 * @return mixTimePerVoice in nanoseconds (Double)
+	 */
+	public double getMixTimePerVoice() {
+		long voiceBlocks = _mixedVoiceBlocks;
+		return voiceBlocks == 0 ? 0 : (double) _mixTime / voiceBlocks;
+	}
+
+	/**
+	 * Getter for the format of the mixed stream written to the sink.
+	 * @return format (AudioFormat)
+	 */
+	public AudioFormat getFormat() {
+		return _format;
+	}
+}
@@ -2,30 +2,87 @@ package com.valhalla.engine.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import org.valhalla.openal.util.ALException;
+import org.valhalla.openal.intermediate.Buffer;
 import org.valhalla.openal.intermediate.Source;
 
 import com.valhalla.engine.GameLoop;
 import com.valhalla.engine.internal.Internal;
 
 /**
- * Class used for playing back short sound effects
+ * Class used for playing back short sound effects.<br>
+ * <br>
+ * Every sound effect is decoded once into a shared buffer, and played on one of a fixed pool of voices.
+ * This allows the same sound effect to overlap with itself. When all voices are busy, the voice with the lowest priority is stolen,
+ * or the oldest voice if priorities are equal. For hot gameplay code use the handle returned by {@link #loadSoundEffect(String, String)} instead of the name.<br>
+ * <br>
+ * When a {@link SoftwareMixer} is installed, sound effects are played by the mixer instead, which has no voice limit.
  *
  * @author BauwenDR
  */
 public class SoundEffectPlayer {
 
+    /**
+     * Default priority used when playing a sound effect without specifying a priority.
+     */
+    public static final int DEFAULT_PRIORITY = 0;
+
+    private static final int _VOICE_AMOUNT = 32;
+    private static final long _END_MARGIN = 50_000_000L;    //50ms margin before a voice counts as finished
+
     private static float _soundEffectVolume = 1;
 
-    private static HashMap<String, Source> _soundEffectList;
+    private static HashMap<String, Integer> _soundEffectHandles;
+    private static ArrayList<Buffer> _soundEffectBuffers;
+    private static ArrayList<MixerSound> _mixerSounds;
+    private static long[] _soundEffectDurations;
+    private static int[] _freeHandles;
+    private static int _freeHandleAmount;
+
+    private static Source[] _voices;
+    private static int[] _voiceEffect;
+    private static int[] _voicePriority;
+    private static long[] _voiceStart, _voiceEnd;
+    private static float[] _voiceGain;
+
+    private static long _stolenVoices = 0;
 
     @Internal
     public SoundEffectPlayer() {
-        _soundEffectList = new HashMap<>();
+        _soundEffectHandles = new HashMap<>();
+        _soundEffectBuffers = new ArrayList<>();
+        _mixerSounds = new ArrayList<>();
+        _soundEffectDurations = new long[16];
+        _freeHandles = new int[16];
+        _freeHandleAmount = 0;
+
+        _voices = new Source[_VOICE_AMOUNT];
+        _voiceEffect = new int[_VOICE_AMOUNT];
+        _voicePriority = new int[_VOICE_AMOUNT];
+        _voiceStart = new long[_VOICE_AMOUNT];
+        _voiceEnd = new long[_VOICE_AMOUNT];
+        _voiceGain = new float[_VOICE_AMOUNT];
+        Arrays.fill(_voiceEffect, -1);
+        Arrays.fill(_voiceGain, -1);
+
+        if (SoundInterface._openAl == null) {
+            return;    //sound system failed to initialise, voices stay empty
+        }
+        try {
+            for (int voice = 0; voice < _VOICE_AMOUNT; voice++) {
+                _voices[voice] = SoundInterface._openAl.createSource();
+            }
+        } catch (ALException e) {
+            GameLoop.engineOutput.println("BaseEngine error: could not create sound effect voices: " + e.getMessage());
+        }
     }
 
     /**
@@ -35,41 +92,190 @@ public class SoundEffectPlayer {
      * @param soundEffectName <b>(String)</b> soundEffectName
      * @param soundEffectPath <b>(String)</b> soundEffectPath
      * @see #playSoundEffect(String)
+     * @see #loadSoundEffect(String, String)
      */
     public static void addSoundEffect(String soundEffectName, String soundEffectPath) {
+        loadSoundEffect(soundEffectName, soundEffectPath);
+    }
+
+    /**
+     * Loads in a sound effect with a specified name, like {@link #addSoundEffect(String, String)}, and returns a handle for playing it back.<br>
+     * <u>Note:</u> Handles of removed sound effects are reused by sound effects loaded later, so stop using a handle once its sound effect is removed.
+     *
+     * @param soundEffectName <b>(String)</b> soundEffectName
+     * @param soundEffectPath <b>(String)</b> soundEffectPath
+     * @return (Integer) handle for playing the sound effect with {@link #playSoundEffect(int)}, or -1 if loading failed
+     */
+    public static int loadSoundEffect(String soundEffectName, String soundEffectPath) {
+        //decoding happens outside the lock, so several sound effects can be loaded in parallel
         try {
-            File music = new File(soundEffectPath);
-            Source soundEffect = SoundInterface._openAl.createSource(music);
-            _soundEffectList.put(soundEffectName, soundEffect);
+            if (SoftwareMixer.getInstalled() != null) {
+                MixerSound soundEffect = new MixerSound(new File(soundEffectPath));
+                return registerSoundEffect(soundEffectName, null, soundEffect, (long) (soundEffect.getDuration() * 1_000_000_000L));
+            }
+
+            AudioInputStream stream = DecodedCache.readPcm(new File(soundEffectPath));
+            AudioFormat format = stream.getFormat();
+            byte[] data = AudioDecoder.readAll(stream);
+
+            Buffer soundEffect = SoundInterface._openAl.createBuffer();
+            soundEffect.addBufferData(format, data);
+            return registerSoundEffect(soundEffectName, soundEffect, null, (long) (data.length / format.getFrameSize() / (double) format.getFrameRate() * 1_000_000_000L));
         } catch (ALException | IOException | UnsupportedAudioFileException e) {
             GameLoop.engineOutput.println("BaseEngine error: " + e.getMessage());
+            return -1;
         }
     }
 
+    @Internal
+    private static synchronized int registerSoundEffect(String soundEffectName, Buffer buffer, MixerSound mixerSound, long duration) {
+        int handle;
+        if (_freeHandleAmount > 0) {
+            handle = _freeHandles[--_freeHandleAmount];
+            _soundEffectBuffers.set(handle, buffer);
+            _mixerSounds.set(handle, mixerSound);
+        } else {
+            handle = _soundEffectBuffers.size();
+            if (handle == _soundEffectDurations.length) {
+                _soundEffectDurations = Arrays.copyOf(_soundEffectDurations, handle * 2);
+            }
+            _soundEffectBuffers.add(buffer);
+            _mixerSounds.add(mixerSound);
+        }
+        _soundEffectDurations[handle] = duration;
+
+        Integer previousHandle = _soundEffectHandles.put(soundEffectName, handle);
+        if (previousHandle != null) {
+            unloadSoundEffect(previousHandle);
+        }
+        return handle;
+    }
+
+    /**
+     * Getter for the handle of a sound effect, playing by handle avoids looking up the name every time.
+     *
+     * @param soundEffectName <b>(String)</b> soundEffectName
+     * @return (Integer) handle of the sound effect, or -1 when the sound effect was not loaded
+     */
+    public static synchronized int getSoundEffectHandle(String soundEffectName) {
+        Integer handle = _soundEffectHandles.get(soundEffectName);
+        return handle == null ? -1 : handle;
+    }
+
     /**
-     * Gets the OpenAL Source behind a sound effect, this provides the freedom to fully configure a sound effect.
+     * Gets the OpenAL Source that most recently played a sound effect.
      *
      * @param soundEffectName <b>(String)</b> soundEffectName
-     * @return The Source associated with a sound effect or NULL when the sound effect was not loaded
+     * @return The Source that last played the sound effect or NULL when the sound effect was not loaded or is not playing
+     * @deprecated sound effects share a pool of voices, so configuring the returned Source also affects other sound effects
      */
-    public static Source getSoundEffect(String soundEffectName) {
-        return _soundEffectList.get(soundEffectName);
+    @Deprecated
+    public static synchronized Source getSoundEffect(String soundEffectName) {
+        int handle = getSoundEffectHandle(soundEffectName);
+        int newestVoice = -1;
+        for (int voice = 0; voice < _VOICE_AMOUNT; voice++) {
+            if (_voiceEffect[voice] == handle && handle != -1 && (newestVoice == -1 || _voiceStart[voice] > _voiceStart[newestVoice])) {
+                newestVoice = voice;
+            }
+        }
+        return newestVoice == -1 ? null : _voices[newestVoice];
     }
 
     /**
      * Plays a sound effect that has been loaded (sound effects can be played more than once).<br>
-     * <u>Note:</u> If this function throws a null-pointer exception, the soundeffect was most likely not loaded.
+     * <u>Note:</u> If the sound effect was not loaded, an error is printed to the engine output.
      *
      * @param soundEffectName <b>(String)</b> soundEffectName
      */
     public static void playSoundEffect(String soundEffectName) {
+        int handle = getSoundEffectHandle(soundEffectName);
+        if (handle == -1) {
+            GameLoop.engineOutput.println("BaseEngine error: sound effect " + soundEffectName + " was not loaded");
+            return;
+        }
+        playSoundEffect(handle, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Plays a sound effect by its handle with the default priority.
+     *
+     * @param soundEffectHandle <b>(Integer)</b> handle returned by {@link #loadSoundEffect(String, String)}
+     * @return (Boolean) true if the sound effect started playing
+     */
+    public static boolean playSoundEffect(int soundEffectHandle) {
+        return playSoundEffect(soundEffectHandle, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Plays a sound effect by its handle.<br>
+     * If all voices are busy, the voice with the lowest priority (and the oldest one among those) is stolen, as long as its priority is not higher than the given priority.
+     *
+     * @param soundEffectHandle <b>(Integer)</b> handle returned by {@link #loadSoundEffect(String, String)}
+     * @param priority          <b>(Integer)</b> priority of this sound, higher priorities steal voices from lower ones
+     * @return (Boolean) true if the sound effect started playing, false if no voice could be used
+     */
+    public static synchronized boolean playSoundEffect(int soundEffectHandle, int priority) {
+        SoftwareMixer mixer = SoftwareMixer.getInstalled();
+        if (mixer != null) {
+            if (soundEffectHandle < 0 || soundEffectHandle >= _mixerSounds.size() || _mixerSounds.get(soundEffectHandle) == null) {
+                return false;
+            }
+            mixer.play(_mixerSounds.get(soundEffectHandle), _soundEffectVolume, 1, 0, false);
+            return true;
+        }
+
+        long now = System.nanoTime();
+        int voice = findVoice(now, priority);
+        if (voice == -1 || soundEffectHandle < 0 || soundEffectHandle >= _soundEffectBuffers.size() || _soundEffectBuffers.get(soundEffectHandle) == null) {
+            return false;
+        }
+
         try {
-            Source soundEffect = _soundEffectList.get(soundEffectName);
-            soundEffect.setGain(_soundEffectVolume);
-            soundEffect.play();
+            Source source = _voices[voice];
+            if (_voiceEnd[voice] > now) {
+                source.stop();
+                _stolenVoices++;
+            }
+            if (_voiceEffect[voice] != soundEffectHandle) {
+                source.setBuffer(_soundEffectBuffers.get(soundEffectHandle));
+            }
+            if (_voiceGain[voice] != _soundEffectVolume) {
+                source.setGain(_soundEffectVolume);
+                _voiceGain[voice] = _soundEffectVolume;
+            }
+            source.play();
+
+            _voiceEffect[voice] = soundEffectHandle;
+            _voicePriority[voice] = priority;
+            _voiceStart[voice] = now;
+            _voiceEnd[voice] = now + _soundEffectDurations[soundEffectHandle] + _END_MARGIN;
+            return true;
         } catch (Exception e) {
             GameLoop.engineOutput.println("BaseEngine error: " + e.getMessage());
+            _voiceEffect[voice] = -1;
+            return false;
+        }
+    }
+
+    @Internal
+    private static int findVoice(long now, int priority) {
+        int stealCandidate = -1;
+        for (int voice = 0; voice < _VOICE_AMOUNT; voice++) {
+            if (_voices[voice] == null) {
+                continue;
+            }
+            if (_voiceEnd[voice] <= now) {
+                return voice;    //free voice
+            }
+            if (stealCandidate == -1 || _voicePriority[voice] < _voicePriority[stealCandidate]
+                    || (_voicePriority[voice] == _voicePriority[stealCandidate] && _voiceStart[voice] < _voiceStart[stealCandidate])) {
+                stealCandidate = voice;
+            }
+        }
+        if (stealCandidate != -1 && _voicePriority[stealCandidate] <= priority) {
+            return stealCandidate;
         }
+        return -1;
     }
 
     /**
@@ -77,18 +283,59 @@ public class SoundEffectPlayer {
      *
      * @param soundEffectName <b>(String)</b> soundEffectName
      */
-    public static void removeSoundEffect(String soundEffectName) {
-        try {
-            Source soundEffect = _soundEffectList.get(soundEffectName);
-            _soundEffectList.remove(soundEffectName);
-            soundEffect.close();
-        } catch (Exception e) {
-            GameLoop.engineOutput.println("BaseEngine error: " + e.getMessage());
+    public static synchronized void removeSoundEffect(String soundEffectName) {
+        Integer handle = _soundEffectHandles.remove(soundEffectName);
+        if (handle == null) {
+            GameLoop.engineOutput.println("BaseEngine error: sound effect " + soundEffectName + " was not loaded");
+            return;
+        }
+        unloadSoundEffect(handle);
+    }
+
+    /**
+     * Removes a sound effect from memory, but only if the name still belongs to the given handle.<br>
+     * A sound effect that was loaded again under the same name is kept.
+     *
+     * @param soundEffectName   <b>(String)</b> soundEffectName
+     * @param soundEffectHandle <b>(Integer)</b> handle returned by {@link #loadSoundEffect(String, String)}
+     * @return (Boolean) true if the sound effect was removed
+     */
+    public static synchronized boolean removeSoundEffect(String soundEffectName, int soundEffectHandle) {
+        if (!_soundEffectHandles.remove(soundEffectName, soundEffectHandle)) {
+            return false;
+        }
+        unloadSoundEffect(soundEffectHandle);
+        return true;
+    }
+
+    @Internal
+    private static void unloadSoundEffect(int handle) {
+        if (_mixerSounds.get(handle) != null) {
+            _mixerSounds.set(handle, null);    //voices that are still playing keep their own reference
+        } else {
+            try {
+                for (int voice = 0; voice < _VOICE_AMOUNT; voice++) {
+                    if (_voiceEffect[voice] == handle) {
+                        _voices[voice].stop();
+                        _voiceEffect[voice] = -1;    //a sound effect reusing the handle sets its own buffer
+                        _voiceEnd[voice] = 0;
+                    }
+                }
+                _soundEffectBuffers.get(handle).close();
+            } catch (Exception e) {
+                GameLoop.engineOutput.println("BaseEngine error: " + e.getMessage());
+            }
+            _soundEffectBuffers.set(handle, null);
+        }
+
+        if (_freeHandleAmount == _freeHandles.length) {
+            _freeHandles = Arrays.copyOf(_freeHandles, _freeHandleAmount * 2);
         }
+        _freeHandles[_freeHandleAmount++] = handle;
     }
 
     /**
-     * Changes volume of all sound effects.
+     * Changes volume of all sound effects, the new volume is used from the next time a sound effect is played.
      *
      * @param newVolume <b>(Integer)</b> volume for audio (from 0 to 100)
      */
@@ -104,4 +351,33 @@ public class SoundEffectPlayer {
     public static int getVolume() {
         return (int) (_soundEffectVolume * 100);
     }
-}
\ No newline at end of file
+
+    /**
+     * Getter for the amount of voices that are currently playing a sound effect.
+     *
+     * @return activeVoices (Integer)
+     */
+    public static synchronized int getActiveVoices() {
+        SoftwareMixer mixer = SoftwareMixer.getInstalled();
+        if (mixer != null) {
+            return mixer.getActiveVoices();
+        }
+        long now = System.nanoTime();
+        int activeVoices = 0;
+        for (int voice = 0; voice < _VOICE_AMOUNT; voice++) {
+            if (_voiceEnd[voice] > now) {
+                activeVoices++;
+            }
+        }
+        return activeVoices;
+    }
+
+    /**
+     * Getter for the total amount of times a playing voice was stopped to play another sound effect.
+     *
+     * @return stolenVoices (Long)
+     */
+    public static synchronized long getStolenVoices() {
+        return _stolenVoices;
+    }
+}
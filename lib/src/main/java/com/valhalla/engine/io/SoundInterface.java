@@ -13,6 +13,9 @@ public class SoundInterface {
 	
 	@Internal
 	public SoundInterface() {
+		if(SoftwareMixer.getInstalled() != null) {
+			return;		//software mixer replaces OpenAL
+		}
 		try {
 			_openAl = new OpenAL();
 		} catch (ALException e) {
@@ -22,6 +25,13 @@ public class SoundInterface {
 	
 	@Internal
 	public static void cleanUp() {
-		_openAl.close();
+		SoftwareMixer mixer = SoftwareMixer.getInstalled();
+		if(mixer != null) {
+			mixer.close();
+		}
+		if(_openAl != null) {
+			_openAl.close();
+			_openAl = null;
+		}
 	}
 }
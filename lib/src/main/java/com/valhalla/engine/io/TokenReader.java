@@ -0,0 +1,349 @@
+package com.valhalla.engine.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Reads a file as a stream of tokens separated by whitespace, the same tokens {@link FileEditor#fileReader(File)} returns.<br>
+ * <br>
+ * Only a small window of the file is kept in memory, so files of any size can be read with a constant amount of memory.
+ * Numbers can be parsed straight from the file with {@link #nextInt()}, {@link #nextLong()}, {@link #nextFloat()} and {@link #nextDouble()} without creating a String per token.
+ * Files in a mounted {@link AssetPack} are read from the pack.<br>
+ * <u>Note:</u> Tokens are split on ASCII whitespace, so the file has to be in an ASCII compatible encoding such as UTF-8.
+ * @author BauwenDR
+ * @see FileEditor#openReader(String)
+ */
+public class TokenReader implements Iterator<String>, Closeable {
+
+	private static final int _BUFFER_SIZE = 64 * 1024;
+	private static final double[] _POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private final FileChannel _channel;
+	private ByteBuffer _buffer;
+	private byte[] _bytes;
+	private int _position, _limit;
+	private int _tokenStart, _tokenEnd;
+	private boolean _endOfFile, _hasToken;
+
+	/**
+	 * Opens a file for reading tokens.
+	 * @param file <b>(File)</b> the file to read from.
+	 * @throws IOException if the file could not be opened
+	 */
+	public TokenReader(File file) throws IOException {
+		ByteBuffer packed = AssetPack.getBuffer(file.getPath());
+		if(packed != null) {
+			_channel = null;
+			_endOfFile = true;
+			if(packed.hasArray()) {
+				_bytes = packed.array();
+				_position = packed.arrayOffset() + packed.position();
+				_limit = packed.arrayOffset() + packed.limit();
+			}else {
+				_bytes = new byte[packed.remaining()];	//mapped pack entries are copied once, the window never refills
+				packed.get(_bytes);
+				_limit = _bytes.length;
+			}
+		}else {
+			_channel = FileChannel.open(file.toPath());
+			_bytes = new byte[_BUFFER_SIZE];
+			_buffer = ByteBuffer.wrap(_bytes);
+		}
+	}
+
+	/**
+	 * Checks if there is another token in the file.
+	 * @return True if the file has more tokens.
+	 * @throws UncheckedIOException if there was an error reading the file
+	 */
+	@Override
+	public boolean hasNext() {
+		try {
+			return findToken();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the next token as a String.
+	 * @return (String) the next token.
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	@Override
+	public String next() {
+		require();
+		String token = new String(_bytes, _tokenStart, _tokenEnd - _tokenStart, Charset.defaultCharset());
+		_hasToken = false;
+		return token;
+	}
+
+	/**
+	 * Skips over the next token without reading it.
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	public void skip() {
+		require();
+		_hasToken = false;
+	}
+
+	/**
+	 * Reads the next token as an integer.
+	 * @return (Integer) the next token.
+	 * @throws NumberFormatException if the token is not an integer
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	public int nextInt() {
+		long value = nextLong();
+		if(value != (int) value) {
+			throw new NumberFormatException("BaseEngine: " + value + " does not fit in an integer");
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Reads the next token as a long.
+	 * @return (Long) the next token.
+	 * @throws NumberFormatException if the token is not an integer
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	public long nextLong() {
+		require();
+		int index = _tokenStart;
+		boolean negative = _bytes[index] == '-';
+		if(negative || _bytes[index] == '+') {
+			index++;
+		}
+		if(index == _tokenEnd) {
+			throw invalidToken();
+		}
+
+		long value = 0;	//accumulated negatively, so Long.MIN_VALUE can be read as well
+		for(; index < _tokenEnd; index++) {
+			int digit = _bytes[index] - '0';
+			if(digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+				throw invalidToken();
+			}
+			value = value * 10 - digit;
+		}
+		if(!negative && value == Long.MIN_VALUE) {
+			throw invalidToken();
+		}
+
+		_hasToken = false;
+		return negative ? value : -value;
+	}
+
+	/**
+	 * Reads the next token as a float.
+	 * @return (Float) the next token.
+	 * @throws NumberFormatException if the token is not a number
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	public float nextFloat() {
+		require();
+		double exact = parseDouble();
+		float value = (float) exact;
+		if(!Double.isNaN(exact) && Math.abs(exact - value) != Math.ulp(value) / 2) {
+			//rounding the double again is only wrong when it lies exactly between two floats
+			_hasToken = false;
+			return value;
+		}
+		return Float.parseFloat(next());
+	}
+
+	/**
+	 * Reads the next token as a double.
+	 * @return (Double) the next token.
+	 * @throws NumberFormatException if the token is not a number
+	 * @throws NoSuchElementException if the end of the file is reached
+	 */
+	public double nextDouble() {
+		require();
+		double value = parseDouble();
+		if(!Double.isNaN(value)) {
+			_hasToken = false;
+			return value;
+		}
+		return Double.parseDouble(next());
+	}
+
+	/**
+	 * Checks if the file is empty or starts with whitespace, in which case splitting the whole file on whitespace would give an empty first token.
+	 * @return True if there is no token at the very start of the file.
+	 * @throws IOException if there was an error reading the file
+	 */
+	@Internal
+	boolean startsWithWhitespace() throws IOException {
+		if(_position >= _limit && !refill()) {
+			return true;
+		}
+		return isWhitespace(_bytes[_position]);
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException if there was an error closing the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if(_channel != null) {
+			_channel.close();
+		}
+	}
+
+	/**
+	 * Parses a token of the form [sign]digits[.digits] whose digits fit exactly in a double.<br>
+	 * Both the digits and the power of ten are then exact doubles, so a single division rounds correctly.
+	 * @return (Double) the value of the token, or NaN if the token has to be parsed by the JDK.
+	 */
+	@Internal
+	private double parseDouble() {
+		int index = _tokenStart;
+		boolean negative = _bytes[index] == '-';
+		if(negative || _bytes[index] == '+') {
+			index++;
+		}
+
+		long mantissa = 0;
+		int decimals = -1, digits = 0;
+		for(; index < _tokenEnd; index++) {
+			byte character = _bytes[index];
+			if(character == '.' && decimals == -1) {
+				decimals = 0;
+				continue;
+			}
+			int digit = character - '0';
+			if(digit < 0 || digit > 9) {
+				return Double.NaN;	//exponents, infinity, hexadecimal, or invalid numbers
+			}
+			mantissa = mantissa * 10 + digit;
+			digits++;
+			if(decimals != -1) {
+				decimals++;
+			}
+			if(mantissa >= 1L << 53) {
+				return Double.NaN;
+			}
+		}
+
+		decimals = Math.max(decimals, 0);
+		if(digits == 0 || decimals >= _POWERS_OF_TEN.length) {
+			return Double.NaN;
+		}
+		double value = mantissa / _POWERS_OF_TEN[decimals];
+		return negative ? -value : value;
+	}
+
+	@Internal
+	private NumberFormatException invalidToken() {
+		return new NumberFormatException("BaseEngine: \"" + new String(_bytes, _tokenStart, _tokenEnd - _tokenStart, Charset.defaultCharset()) + "\" is not a number");
+	}
+
+	@Internal
+	private void require() {
+		if(!hasNext()) {
+			throw new NoSuchElementException("BaseEngine: end of file reached");
+		}
+	}
+
+	/**
+	 * Moves the window to the next token, refilling it from the file when a token crosses its end.
+	 * @return (Boolean) true if a token was found.
+	 */
+	@Internal
+	private boolean findToken() throws IOException {
+		if(_hasToken) {
+			return true;
+		}
+
+		while(true) {
+			while(_position < _limit && isWhitespace(_bytes[_position])) {
+				_position++;
+			}
+			if(_position < _limit) {
+				break;
+			}
+			_position = _limit = 0;		//window only holds whitespace, discard it
+			if(!refill()) {
+				return false;
+			}
+		}
+		if(_position >= _limit) {
+			return false;
+		}
+
+		int start = _position;
+		while(true) {
+			while(_position < _limit && !isWhitespace(_bytes[_position])) {
+				_position++;
+			}
+			if(_position < _limit || _endOfFile) {
+				break;
+			}
+
+			//token continues past the window, keep it and read more of the file behind it
+			int length = _position - start;
+			compact(start);
+			start = 0;
+			_position = length;
+			if(!refill()) {
+				break;
+			}
+		}
+
+		_tokenStart = start;
+		_tokenEnd = _position;
+		_hasToken = true;
+		return true;
+	}
+
+	@Internal
+	private void compact(int start) {
+		int length = _limit - start;
+		if(length == _bytes.length) {
+			_bytes = Arrays.copyOf(_bytes, _bytes.length * 2);	//a single token fills the whole window
+			_buffer = ByteBuffer.wrap(_bytes);
+		}
+		System.arraycopy(_bytes, start, _bytes, 0, length);
+		_limit = length;
+	}
+
+	/**
+	 * Reads more of the file behind the bytes that are still in the window, the window has to have room left.
+	 * @return (Boolean) false if the end of the file is reached.
+	 */
+	@Internal
+	private boolean refill() throws IOException {
+		if(_endOfFile) {
+			return false;
+		}
+
+		_buffer.clear().position(_limit);
+		int read = _channel.read(_buffer);
+		while(read == 0) {
+			read = _channel.read(_buffer);
+		}
+		if(read < 0) {
+			_endOfFile = true;
+			return false;
+		}
+		_limit += read;
+		return true;
+	}
+
+	@Internal
+	static boolean isWhitespace(byte character) {
+		return character == ' ' || (character >= '\t' && character <= '\r');	//same characters as \s in a regex
+	}
+}
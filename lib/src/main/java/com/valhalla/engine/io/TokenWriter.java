@@ -0,0 +1,209 @@
+package com.valhalla.engine.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Writes tokens to a file through a large buffer, the counterpart of {@link TokenReader}.<br>
+ * <br>
+ * Numbers are formatted straight into the buffer without creating a String per number.
+ * Tokens on the same line are separated by a 'SPACE', {@link #newLine()} starts a new line.
+ * @author BauwenDR
+ * @see FileEditor#openWriter(String)
+ */
+public class TokenWriter implements Closeable, Flushable {
+
+	private static final int _BUFFER_SIZE = 64 * 1024;
+	private static final byte[] _LINE_SEPARATOR = System.lineSeparator().getBytes(Charset.defaultCharset());
+	private static final byte[] _MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(Charset.defaultCharset());
+
+	private final FileChannel _channel;
+	private final byte[] _bytes = new byte[_BUFFER_SIZE];
+	private final ByteBuffer _buffer = ByteBuffer.wrap(_bytes);
+	private int _length = 0;
+	private boolean _lineStart = true;
+
+	/**
+	 * Creates or overwrites a file for writing tokens.
+	 * @param path <b>(String)</b> Location of where the file will be saved.
+	 * @throws IOException if the file could not be opened
+	 */
+	public TokenWriter(String path) throws IOException {
+		_channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Writes a text token.
+	 * @param token <b>(String)</b> the token, should not contain whitespace if it has to be read back as one token.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter write(String token) throws IOException {
+		separate();
+		byte[] bytes = token.getBytes(Charset.defaultCharset());
+		if(bytes.length > _bytes.length - _length) {
+			flushBuffer();
+			if(bytes.length > _bytes.length) {
+				writeFully(ByteBuffer.wrap(bytes));
+				return this;
+			}
+		}
+		System.arraycopy(bytes, 0, _bytes, _length, bytes.length);
+		_length += bytes.length;
+		return this;
+	}
+
+	/**
+	 * Writes an integer token.
+	 * @param value <b>(Integer)</b> the number.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter write(int value) throws IOException {
+		return write((long) value);
+	}
+
+	/**
+	 * Writes a long token.
+	 * @param value <b>(Long)</b> the number.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter write(long value) throws IOException {
+		separate();
+		ensure(20);
+		if(value == Long.MIN_VALUE) {
+			System.arraycopy(_MIN_LONG, 0, _bytes, _length, _MIN_LONG.length);
+			_length += _MIN_LONG.length;
+			return this;
+		}
+
+		if(value < 0) {
+			_bytes[_length++] = '-';
+			value = -value;
+		}
+		int end = _length + digitCount(value);
+		for(int index = end - 1; index >= _length; index--) {
+			_bytes[index] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		_length = end;
+		return this;
+	}
+
+	/**
+	 * Writes a float token, in the same format as {@link Float#toString(float)}.
+	 * @param value <b>(Float)</b> the number.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter write(float value) throws IOException {
+		return value == (long) value && Math.abs(value) < 1e7f && Float.floatToRawIntBits(value) != Float.floatToRawIntBits(-0f) ? write((long) value).append(".0") : write(Float.toString(value));
+	}
+
+	/**
+	 * Writes a double token, in the same format as {@link Double#toString(double)}.
+	 * @param value <b>(Double)</b> the number.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter write(double value) throws IOException {
+		return value == (long) value && Math.abs(value) < 1e7 && Double.doubleToRawLongBits(value) != Double.doubleToRawLongBits(-0d) ? write((long) value).append(".0") : write(Double.toString(value));
+	}
+
+	/**
+	 * Ends the current line, the next token is written at the start of a new line.
+	 * @return (TokenWriter) this writer, for chaining.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	public TokenWriter newLine() throws IOException {
+		ensure(_LINE_SEPARATOR.length);
+		System.arraycopy(_LINE_SEPARATOR, 0, _bytes, _length, _LINE_SEPARATOR.length);
+		_length += _LINE_SEPARATOR.length;
+		_lineStart = true;
+		return this;
+	}
+
+	/**
+	 * Writes everything in the buffer to the file.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+		_channel.force(false);
+	}
+
+	/**
+	 * Writes everything in the buffer to the file and closes it.
+	 * @throws IOException if there was an error writing to the file
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flushBuffer();
+		} finally {
+			_channel.close();
+		}
+	}
+
+	/**
+	 * Writes ".0" directly behind the previous token, matching how Java formats whole floating point numbers.
+	 */
+	@Internal
+	private TokenWriter append(String suffix) throws IOException {
+		ensure(suffix.length());
+		for(int index = 0; index < suffix.length(); index++) {
+			_bytes[_length++] = (byte) suffix.charAt(index);
+		}
+		return this;
+	}
+
+	@Internal
+	private void separate() throws IOException {
+		if(_lineStart) {
+			_lineStart = false;
+			return;
+		}
+		ensure(1);
+		_bytes[_length++] = ' ';
+	}
+
+	@Internal
+	private void ensure(int space) throws IOException {
+		if(_bytes.length - _length < space) {
+			flushBuffer();
+		}
+	}
+
+	@Internal
+	private void flushBuffer() throws IOException {
+		_buffer.clear().limit(_length);
+		writeFully(_buffer);
+		_length = 0;
+	}
+
+	@Internal
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			_channel.write(buffer);
+		}
+	}
+
+	@Internal
+	private static int digitCount(long value) {
+		int digits = 1;
+		for(long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+			digits++;
+		}
+		return digits;
+	}
+}
@@ -1,7 +1,12 @@
 /**
  * Package for classes that are in charge of handling io.
+ * @see com.valhalla.engine.io.AssetManager
+ * @see com.valhalla.engine.io.AssetPack
+ * @see com.valhalla.engine.io.DecodedCache
  * @see com.valhalla.engine.io.FileEditor
  * @see com.valhalla.engine.io.MusicPlayer
+ * @see com.valhalla.engine.io.SaveGame
  * @see com.valhalla.engine.io.SoundEffectPlayer
+ * @see com.valhalla.engine.io.SoftwareMixer
  */
 package com.valhalla.engine.io;
\ No newline at end of file
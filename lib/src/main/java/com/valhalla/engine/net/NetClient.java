@@ -0,0 +1,362 @@
+package com.valhalla.engine.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.valhalla.engine.BaseClass;
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.Handler;
+import com.valhalla.engine.ScheduledTask;
+import com.valhalla.engine.Scheduler;
+import com.valhalla.engine.exception.DrawLayerOutOfBoundsException;
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveGame;
+import com.valhalla.engine.io.SaveInput;
+import com.valhalla.engine.io.SaveSerializer;
+
+/**
+ * Receives the BaseClasses replicated by a {@link NetServer} and keeps copies of them in a {@link Handler}.<br>
+ * <br>
+ * Copies are created with the serializers registered in {@link SaveGame}, so the client needs the same registrations as the server.
+ * A BaseClass that changed on the server is updated in place when its serializer implements {@link SaveSerializer#readInto(Object, SaveInput, int)},
+ * otherwise it is replaced by a new copy on the same draw-layer, so look copies up again with {@link #getObject(int)} instead of keeping them.
+ * Only the newest snapshot is used, older snapshots arriving late are ignored.<br>
+ * <br>
+ * The socket is non-blocking and is only used on the tick thread, packets are received once per tick through the {@link Scheduler}
+ * and the copies are added to and removed from the Handler at the end of that tick.<br>
+ * <u>Note:</u> Serializers of replicated BaseClasses must not add the objects they read to a Handler themselves.
+ * @author BauwenDR
+ * @see NetServer
+ */
+public final class NetClient {
+
+	private static final long _TIMEOUT = 5_000_000_000L;
+
+	private final Handler _handler;
+	private final DatagramChannel _channel;
+	private final ScheduledTask _task;
+	private final ByteBuffer _receiveBuffer = ByteBuffer.allocate(NetSnapshot._HEADER_SIZE + NetSnapshot._FRAGMENT_SIZE);
+	private final ByteBuffer _sendBuffer = ByteBuffer.allocate(9);
+
+	//fragments of the snapshot being received
+	private long _assemblySequence = -1;
+	private int _assemblyMissing, _assemblyLength;
+	private boolean[] _assemblyReceived = new boolean[0];
+	private byte[] _assembly = new byte[NetSnapshot._FRAGMENT_SIZE];
+
+	private final NetSnapshot[] _history = new NetSnapshot[NetSnapshot._HISTORY];
+	private NetSnapshot _latest, _applied;
+	private final HashMap<Integer, BaseClass> _objects = new HashMap<>();
+
+	private long _lastReceived, _lastSendTick = -1;
+	private long _bytesReceived, _droppedSnapshots;
+	private long _lastDecodeTime;
+	private boolean _closed;
+
+	/**
+	 * Connects to a server, the first snapshot arrives a few ticks later.
+	 * @param handler <b>(Handler)</b> the Handler the replicated BaseClasses are added to.
+	 * @param server <b>(InetSocketAddress)</b> address and port of the {@link NetServer}.
+	 * @throws IOException if the socket could not be opened
+	 */
+	public NetClient(Handler handler, InetSocketAddress server) throws IOException {
+		_handler = handler;
+		_channel = DatagramChannel.open();
+		try {
+			_channel.configureBlocking(false);
+			_channel.connect(server);
+		}catch(IOException e) {
+			_channel.close();
+			throw e;
+		}
+		_task = Scheduler.scheduleRepeating(this::tick, 0, 1);
+	}
+
+	/**
+	 * Receives snapshots and applies the newest one, called once per tick by the Scheduler.
+	 */
+	@Internal
+	private synchronized void tick() {
+		if(_closed) {
+			return;
+		}
+		long start = System.nanoTime();
+		NetSnapshot previous = _latest;
+		try {
+			receive();
+		}catch(PortUnreachableException e) {
+			//the server is not listening (yet), the next hello tries again
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not receive from the server: " + e.getMessage());
+		}
+		if(_latest != previous) {
+			apply(_latest);
+			_lastDecodeTime = System.nanoTime() - start;
+		}
+
+		//hello until the server answers, afterwards once per second so the server keeps the client while nothing changes
+		double interval = _latest == null ? GameLoop.getTickRate() / 4 : GameLoop.getTickRate();
+		if(_lastSendTick < 0 || GameLoop.getTicksPassed() - _lastSendTick >= interval) {
+			send(NetSnapshot._PACKET_HELLO, 0);
+		}
+	}
+
+	@Internal
+	private void receive() throws IOException {
+		ByteBuffer buffer = _receiveBuffer;
+		while(true) {
+			buffer.clear();
+			if(_channel.receive(buffer) == null) {
+				return;
+			}
+			buffer.flip();
+			_bytesReceived += buffer.remaining();
+			if(buffer.remaining() < NetSnapshot._HEADER_SIZE || buffer.get() != NetSnapshot._PACKET_SNAPSHOT) {
+				continue;
+			}
+			long sequence = buffer.getLong();
+			int fragment = buffer.getShort(), fragmentCount = buffer.getShort();
+			if(fragment < 0 || fragment >= fragmentCount || fragmentCount > NetSnapshot._MAX_FRAGMENTS || (_latest != null && sequence <= _latest.sequence) || sequence < _assemblySequence) {
+				continue;		//damaged, or older than what was already received
+			}
+			if(sequence != _assemblySequence) {
+				if(_assemblySequence >= 0 && _assemblyMissing > 0) {
+					_droppedSnapshots++;
+				}
+				startAssembly(sequence, fragmentCount);
+			}
+			if(fragmentCount != _assemblyReceived.length || _assemblyReceived[fragment]) {
+				continue;
+			}
+			_assemblyReceived[fragment] = true;
+			int length = buffer.remaining();
+			buffer.get(_assembly, fragment * NetSnapshot._FRAGMENT_SIZE, length);
+			if(fragment == fragmentCount - 1) {
+				_assemblyLength = fragment * NetSnapshot._FRAGMENT_SIZE + length;
+			}
+			if(--_assemblyMissing == 0) {
+				decode(sequence);
+			}
+		}
+	}
+
+	@Internal
+	private void startAssembly(long sequence, int fragmentCount) {
+		_assemblySequence = sequence;
+		_assemblyMissing = fragmentCount;
+		if(_assemblyReceived.length == fragmentCount) {
+			Arrays.fill(_assemblyReceived, false);
+		}else {
+			_assemblyReceived = new boolean[fragmentCount];
+		}
+		if(_assembly.length < fragmentCount * NetSnapshot._FRAGMENT_SIZE) {
+			_assembly = new byte[fragmentCount * NetSnapshot._FRAGMENT_SIZE];
+		}
+	}
+
+	@Internal
+	private void decode(long sequence) {
+		try {
+			SaveInput input = new SaveInput(_assembly, 0, _assemblyLength);
+			long tick = input.readVarLong();
+			long baselineSequence = input.readVarLong() - 1;
+			NetSnapshot baseline = null;
+			if(baselineSequence >= 0) {
+				baseline = _history[(int) (baselineSequence % NetSnapshot._HISTORY)];
+				if(baseline == null || baseline.sequence != baselineSequence) {
+					_droppedSnapshots++;
+					return;		//the server acts on an acknowledgement that is older than the history, it sends the full state soon
+				}
+			}
+			NetSnapshot snapshot = NetSnapshot.decode(sequence, tick, baseline, input);
+			_history[(int) (sequence % NetSnapshot._HISTORY)] = snapshot;
+			_latest = snapshot;
+			_lastReceived = System.nanoTime();
+			send(NetSnapshot._PACKET_ACK, sequence);
+		}catch(IOException e) {
+			_droppedSnapshots++;
+			GameLoop.engineOutput.println("BaseEngine Error: could not read snapshot " + sequence + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds, updates and removes copies for everything that differs from the snapshot that was applied before.
+	 */
+	@Internal
+	private void apply(NetSnapshot snapshot) {
+		NetSnapshot previous = _applied;
+		int index = 0, previousIndex = 0, previousCount = previous == null ? 0 : previous.count;
+		while(index < snapshot.count || previousIndex < previousCount) {
+			int id = index < snapshot.count ? snapshot.ids[index] : Integer.MAX_VALUE;
+			int previousId = previousIndex < previousCount ? previous.ids[previousIndex] : Integer.MAX_VALUE;
+			if(previousId < id) {
+				remove(previousId);
+				previousIndex++;
+				continue;
+			}
+			if(previousId == id) {
+				int old = previousIndex++;
+				if(snapshot.layers[index] == previous.layers[old] && snapshot.names[index].equals(previous.names[old])
+						&& (snapshot.states[index] == previous.states[old] || Arrays.equals(snapshot.states[index], previous.states[old]))) {
+					index++;
+					continue;
+				}
+				if(snapshot.layers[index] == previous.layers[old] && snapshot.names[index].equals(previous.names[old]) && update(snapshot, index)) {
+					index++;
+					continue;
+				}
+				remove(id);
+			}
+			create(snapshot, index++);
+		}
+		_applied = snapshot;
+	}
+
+	/**
+	 * Reads the new state into the existing copy, so references to it and fields that are not replicated are kept.
+	 * @return False if the serializer can not update objects and the copy has to be replaced.
+	 */
+	@Internal
+	private boolean update(NetSnapshot snapshot, int index) {
+		BaseClass baseClass = _objects.get(snapshot.ids[index]);
+		if(baseClass == null) {
+			return false;
+		}
+		byte[] state = snapshot.states[index];
+		try {
+			return SaveGame.readInto(baseClass, snapshot.names[index], snapshot.versions[index], new SaveInput(state, 0, state.length));
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not read replicated " + snapshot.names[index] + ": " + e.getMessage());
+			remove(snapshot.ids[index]);		//partly updated, like a copy that could not be read it is left out
+			return true;
+		}
+	}
+
+	@Internal
+	private void create(NetSnapshot snapshot, int index) {
+		byte[] state = snapshot.states[index];
+		Object object;
+		try {
+			object = SaveGame.read(snapshot.names[index], snapshot.versions[index], new SaveInput(state, 0, state.length));
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not read replicated " + snapshot.names[index] + ": " + e.getMessage());
+			return;
+		}
+		if(!(object instanceof BaseClass)) {
+			return;		//not registered on this side
+		}
+		BaseClass baseClass = (BaseClass) object;
+		try {
+			_handler.addClass(baseClass, snapshot.layers[index]);
+		}catch(DrawLayerOutOfBoundsException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: replicated " + snapshot.names[index] + " has an invalid " + e.getMessage());
+			return;
+		}
+		_objects.put(snapshot.ids[index], baseClass);
+	}
+
+	@Internal
+	private void remove(int id) {
+		BaseClass baseClass = _objects.remove(id);
+		if(baseClass != null) {
+			_handler.removeClass(baseClass);
+		}
+	}
+
+	@Internal
+	private void send(byte type, long sequence) {
+		ByteBuffer buffer = _sendBuffer;
+		buffer.clear();
+		buffer.put(type);
+		if(type == NetSnapshot._PACKET_ACK) {
+			buffer.putLong(sequence);
+		}
+		buffer.flip();
+		try {
+			_channel.write(buffer);
+			_lastSendTick = GameLoop.getTicksPassed();
+		}catch(IOException e) {
+			//the server is not listening (yet), the next hello tries again
+		}
+	}
+
+	/**
+	 * Getter for the copy of a replicated BaseClass.
+	 * @param id <b>(Integer)</b> the network id of the BaseClass, the same on the server and all clients.
+	 * @return (BaseClass) the current copy, or null if the BaseClass is not replicated (anymore).
+	 */
+	public synchronized BaseClass getObject(int id) {
+		return _objects.get(id);
+	}
+
+	/**
+	 * Getter for the amount of replicated BaseClasses in the Handler.
+	 * @return objectCount (Integer)
+	 */
+	public synchronized int getObjectCount() {
+		return _objects.size();
+	}
+
+	/**
+	 * Checks if the server sent a snapshot in the last 5 seconds.
+	 * @return True if the client is receiving snapshots.
+	 */
+	public synchronized boolean isConnected() {
+		return !_closed && _latest != null && System.nanoTime() - _lastReceived < _TIMEOUT;
+	}
+
+	/**
+	 * Getter for the tick of the server at which the newest applied snapshot was taken.
+	 * @return latestTick (Long), -1 if no snapshot arrived yet
+	 * @see GameLoop#getTicksPassed()
+	 */
+	public synchronized long getLatestTick() {
+		return _applied == null ? -1 : _applied.tick;
+	}
+
+	/**
+	 * Getter for the amount of bytes received from the server, including the headers of the datagrams.
+	 * @return bytesReceived (Long)
+	 */
+	public synchronized long getBytesReceived() {
+		return _bytesReceived;
+	}
+
+	/**
+	 * Getter for the amount of snapshots that were incomplete or could not be decoded.
+	 * @return droppedSnapshots (Long)
+	 */
+	public synchronized long getDroppedSnapshots() {
+		return _droppedSnapshots;
+	}
+
+	/**
+	 * Getter for the time the last received snapshot took to decode and apply to the Handler.
+	 * @return lastDecodeTime (Long) in nanoseconds
+	 */
+	public synchronized long getLastDecodeTime() {
+		return _lastDecodeTime;
+	}
+
+	/**
+	 * Disconnects from the server and closes the socket, the copies stay in the Handler.
+	 */
+	public synchronized void close() {
+		if(_closed) {
+			return;
+		}
+		send(NetSnapshot._PACKET_BYE, 0);
+		_closed = true;
+		_task.cancel();
+		try {
+			_channel.close();
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not close the client: " + e.getMessage());
+		}
+	}
+}
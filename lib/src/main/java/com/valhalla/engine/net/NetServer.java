@@ -0,0 +1,402 @@
+package com.valhalla.engine.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import com.valhalla.engine.BaseClass;
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.Handler;
+import com.valhalla.engine.HandlerSnapshot;
+import com.valhalla.engine.ScheduledTask;
+import com.valhalla.engine.Scheduler;
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveOutput;
+import com.valhalla.engine.io.SavedState;
+
+/**
+ * Sends the state of the BaseClasses in a {@link Handler} to every connected {@link NetClient} over UDP.<br>
+ * <br>
+ * Every BaseClass with a serializer registered in {@link com.valhalla.engine.io.SaveGame} is replicated, its state is taken from {@link Handler#snapshot()},
+ * so only BaseClasses that called {@link BaseClass#markChanged()} are encoded again.
+ * Every client only receives what changed since the last snapshot it acknowledged: new and removed BaseClasses, and the bytes that differ for changed ones.
+ * A client that lost packets keeps receiving changes against its last acknowledged snapshot, and the full state once that snapshot is too old.<br>
+ * <br>
+ * The socket is non-blocking and is only used on the tick thread, packets are received and snapshots are sent once per tick through the {@link Scheduler}.<br>
+ * <u>Note:</u> Clients that send nothing for 5 seconds are dropped.
+ * @author BauwenDR
+ * @see NetClient
+ */
+public final class NetServer {
+
+	private static final long _TIMEOUT = 5_000_000_000L;
+
+	/**
+	 * Connected client and the last snapshot it acknowledged.
+	 */
+	@Internal
+	private static final class Client {
+		final SocketAddress address;
+		long ackedSequence = -1;
+		long lastHeard;
+
+		Client(SocketAddress address, long lastHeard) {
+			this.address = address;
+			this.lastHeard = lastHeard;
+		}
+	}
+
+	/**
+	 * Network id of a BaseClass and the last snapshot it was part of.
+	 */
+	@Internal
+	private static final class NetId {
+		final int id;
+		long sequence;
+
+		NetId(int id) {
+			this.id = id;
+		}
+	}
+
+	private final Handler _handler;
+	private final DatagramChannel _channel;
+	private final ScheduledTask _task;
+	private final ByteBuffer _receiveBuffer = ByteBuffer.allocate(256);
+	private final ByteBuffer _sendBuffer = ByteBuffer.allocate(NetSnapshot._HEADER_SIZE + NetSnapshot._FRAGMENT_SIZE);
+
+	private final HashMap<SocketAddress, Client> _clients = new HashMap<>();
+	private int _maxClients = 32;
+
+	private final IdentityHashMap<BaseClass, NetId> _ids = new IdentityHashMap<>();
+	private int _nextId = 1;
+	private final NetSnapshot[] _history = new NetSnapshot[NetSnapshot._HISTORY];
+	private long _sequence = 0;
+	private final HashMap<Long, byte[]> _payloads = new HashMap<>();
+	private final SaveOutput _output = new SaveOutput(4096);
+
+	private int _sendInterval = 1;
+	private boolean _snapshotRequested, _closed;
+	private long _lastSendTick = -1;
+	private long _bytesSent, _packetsSent;
+	private double _bandwidth;
+	private long _lastEncodeTime, _lastPayloadSize;
+
+	/**
+	 * Opens a server on a UDP port, it starts sending snapshots as soon as a client connects.
+	 * @param handler <b>(Handler)</b> the Handler whose BaseClasses are replicated.
+	 * @param port <b>(Integer)</b> the port to listen on, 0 to let the system pick a free one (see {@link #getPort()}).
+	 * @throws IOException if the port could not be opened
+	 */
+	public NetServer(Handler handler, int port) throws IOException {
+		_handler = handler;
+		_channel = DatagramChannel.open();
+		try {
+			_channel.configureBlocking(false);
+			_channel.bind(new InetSocketAddress(port));
+		}catch(IOException e) {
+			_channel.close();
+			throw e;
+		}
+		_task = Scheduler.scheduleRepeating(this::tick, 0, 1);
+	}
+
+	/**
+	 * Receives the packets of the clients and requests a snapshot to send, called once per tick by the Scheduler.
+	 */
+	@Internal
+	private synchronized void tick() {
+		if(_closed) {
+			return;
+		}
+		long now = System.nanoTime();
+		try {
+			receive(now);
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not receive from clients: " + e.getMessage());
+		}
+		_clients.values().removeIf(client -> now - client.lastHeard > _TIMEOUT);
+
+		if(!_clients.isEmpty() && !_snapshotRequested && GameLoop.getTicksPassed() % _sendInterval == 0) {
+			_snapshotRequested = true;
+			_handler.snapshot().thenAccept(this::send);
+		}
+	}
+
+	@Internal
+	private void receive(long now) throws IOException {
+		ByteBuffer buffer = _receiveBuffer;
+		SocketAddress address;
+		while(true) {
+			buffer.clear();
+			if((address = _channel.receive(buffer)) == null) {
+				return;
+			}
+			buffer.flip();
+			if(!buffer.hasRemaining()) {
+				continue;
+			}
+			byte type = buffer.get();
+			Client client = _clients.get(address);
+			if(type == NetSnapshot._PACKET_HELLO) {
+				if(client == null) {
+					if(_clients.size() >= _maxClients) {
+						continue;
+					}
+					client = new Client(address, now);
+					_clients.put(address, client);
+				}
+				client.lastHeard = now;
+			}else if(client == null) {
+				continue;		//not connected, or dropped after a timeout and has to say hello again
+			}else if(type == NetSnapshot._PACKET_ACK && buffer.remaining() >= 8) {
+				client.ackedSequence = Math.max(client.ackedSequence, buffer.getLong());
+				client.lastHeard = now;
+			}else if(type == NetSnapshot._PACKET_BYE) {
+				_clients.remove(address);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a snapshot for every client and sends it, runs on the tick thread at the end of the tick of the Handler.
+	 */
+	@Internal
+	private synchronized void send(HandlerSnapshot handlerSnapshot) {
+		_snapshotRequested = false;
+		if(_closed || _clients.isEmpty()) {
+			return;
+		}
+		long start = System.nanoTime();
+		NetSnapshot snapshot = build(handlerSnapshot);
+		_history[(int) (snapshot.sequence % NetSnapshot._HISTORY)] = snapshot;
+
+		//clients that acknowledged the same snapshot receive the same payload
+		_payloads.clear();
+		long encodeTime = System.nanoTime() - start, payloadSize = 0, bytesSent = 0;
+		for(Client client : _clients.values()) {
+			NetSnapshot baseline = null;
+			if(client.ackedSequence >= 0 && snapshot.sequence - client.ackedSequence < NetSnapshot._HISTORY) {
+				baseline = _history[(int) (client.ackedSequence % NetSnapshot._HISTORY)];
+				if(baseline != null && baseline.sequence != client.ackedSequence) {
+					baseline = null;
+				}
+			}
+			Long key = baseline == null ? -1L : baseline.sequence;
+			byte[] payload = _payloads.get(key);
+			if(payload == null) {
+				long encodeStart = System.nanoTime();
+				_output.clear();
+				snapshot.encode(baseline, _output);
+				payload = Arrays.copyOf(_output.getBytes(), _output.getLength());
+				_payloads.put(key, payload);
+				encodeTime += System.nanoTime() - encodeStart;
+			}
+			payloadSize = Math.max(payloadSize, payload.length);
+			bytesSent += sendFragments(client.address, snapshot.sequence, payload);
+		}
+		_payloads.clear();
+		_lastEncodeTime = encodeTime;
+		_lastPayloadSize = payloadSize;
+		_bytesSent += bytesSent;
+
+		//bandwidth is measured in game time, so it does not depend on how fast ticks are processed
+		long tick = GameLoop.getTicksPassed();
+		double seconds = (_lastSendTick < 0 ? _sendInterval : Math.max(1, tick - _lastSendTick)) / GameLoop.getTickRate();
+		_bandwidth = _lastSendTick < 0 ? bytesSent / seconds : _bandwidth * 0.9 + bytesSent / seconds * 0.1;
+		_lastSendTick = tick;
+	}
+
+	/**
+	 * Assigns network ids to the replicated BaseClasses of a snapshot, sorted on id.
+	 */
+	@Internal
+	private NetSnapshot build(HandlerSnapshot handlerSnapshot) {
+		long sequence = _sequence++;
+		int total = 0;
+		for(int layer = 0; layer < handlerSnapshot.getLayerCount(); layer++) {
+			total += handlerSnapshot.getLayer(layer).size();
+		}
+		long[] order = new long[total];
+		SavedState[] found = new SavedState[total];
+		int[] foundLayers = new int[total];
+		int count = 0;
+		for(int layer = 0; layer < handlerSnapshot.getLayerCount(); layer++) {
+			List<BaseClass> classes = handlerSnapshot.getLayer(layer);
+			List<SavedState> states = handlerSnapshot.getLayerStates(layer);
+			for(int index = 0; index < classes.size(); index++) {
+				SavedState state = states.get(index);
+				if(state == null) {
+					continue;
+				}
+				NetId netId = _ids.get(classes.get(index));
+				if(netId == null) {
+					netId = new NetId(_nextId++);
+					_ids.put(classes.get(index), netId);
+				}
+				netId.sequence = sequence;
+				order[count] = ((long) netId.id << 32) | count;
+				found[count] = state;
+				foundLayers[count] = layer;
+				count++;
+			}
+		}
+		if(_ids.size() > count) {
+			//BaseClasses that left the Handler get a new id if they return, clients have removed them by then
+			Iterator<NetId> iterator = _ids.values().iterator();
+			while(iterator.hasNext()) {
+				if(iterator.next().sequence != sequence) {
+					iterator.remove();
+				}
+			}
+		}
+		Arrays.sort(order, 0, count);
+
+		int[] ids = new int[count], layers = new int[count], versions = new int[count];
+		String[] names = new String[count];
+		byte[][] states = new byte[count][];
+		for(int index = 0; index < count; index++) {
+			int source = (int) order[index];
+			SavedState state = found[source];
+			ids[index] = (int) (order[index] >>> 32);
+			layers[index] = foundLayers[source];
+			names[index] = state.getName();
+			versions[index] = state.getVersion();
+			states[index] = state.getData();
+		}
+		return new NetSnapshot(sequence, handlerSnapshot.getTick(), count, ids, layers, names, versions, states);
+	}
+
+	/**
+	 * Splits a payload into datagrams.
+	 * @return the amount of bytes sent
+	 */
+	@Internal
+	private long sendFragments(SocketAddress address, long sequence, byte[] payload) {
+		int fragmentCount = Math.max(1, (payload.length + NetSnapshot._FRAGMENT_SIZE - 1) / NetSnapshot._FRAGMENT_SIZE);
+		if(fragmentCount > NetSnapshot._MAX_FRAGMENTS) {
+			GameLoop.engineOutput.println("BaseEngine Error: snapshot " + sequence + " is too large to send (" + payload.length + " bytes)");
+			return 0;
+		}
+		long sent = 0;
+		try {
+			for(int fragment = 0; fragment < fragmentCount; fragment++) {
+				int offset = fragment * NetSnapshot._FRAGMENT_SIZE;
+				ByteBuffer buffer = _sendBuffer;
+				buffer.clear();
+				buffer.put(NetSnapshot._PACKET_SNAPSHOT).putLong(sequence).putShort((short) fragment).putShort((short) fragmentCount);
+				buffer.put(payload, offset, Math.min(NetSnapshot._FRAGMENT_SIZE, payload.length - offset));
+				buffer.flip();
+				int length = buffer.remaining();
+				if(_channel.send(buffer, address) == 0) {
+					break;		//the send buffer of the socket is full, the client catches up with a later snapshot
+				}
+				sent += length;
+				_packetsSent++;
+			}
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not send to " + address + ": " + e.getMessage());
+		}
+		return sent;
+	}
+
+	/**
+	 * Sets how often a snapshot is sent.
+	 * @param ticks <b>(Integer)</b> amount of ticks between two snapshots, 1 (= every tick, default) or more.
+	 * @throws IllegalArgumentException if ticks is smaller than 1
+	 */
+	public synchronized void setSendInterval(int ticks) {
+		if(ticks < 1) {
+			throw new IllegalArgumentException("BaseEngine: the send interval has to be at least 1 tick");
+		}
+		_sendInterval = ticks;
+	}
+
+	/**
+	 * Sets the maximum amount of clients, clients saying hello once the server is full are ignored.
+	 * @param maxClients <b>(Integer)</b> the maximum amount of clients, 32 by default.
+	 */
+	public synchronized void setMaxClients(int maxClients) {
+		_maxClients = maxClients;
+	}
+
+	/**
+	 * Getter for the port the server listens on.
+	 * @return port (Integer)
+	 */
+	public int getPort() {
+		return _channel.socket().getLocalPort();
+	}
+
+	/**
+	 * Getter for the amount of connected clients.
+	 * @return clientCount (Integer)
+	 */
+	public synchronized int getClientCount() {
+		return _clients.size();
+	}
+
+	/**
+	 * Getter for the amount of bytes sent to all clients, including the headers of the datagrams.
+	 * @return bytesSent (Long)
+	 */
+	public synchronized long getBytesSent() {
+		return _bytesSent;
+	}
+
+	/**
+	 * Getter for the amount of datagrams sent to all clients.
+	 * @return packetsSent (Long)
+	 */
+	public synchronized long getPacketsSent() {
+		return _packetsSent;
+	}
+
+	/**
+	 * Getter for the average amount of bytes sent per second of game time, to all clients together.
+	 * @return bandwidth (Double) in bytes per second
+	 */
+	public synchronized double getBandwidth() {
+		return _bandwidth;
+	}
+
+	/**
+	 * Getter for the time the last snapshot took to build and encode for all clients, without sending it.
+	 * @return lastEncodeTime (Long) in nanoseconds
+	 */
+	public synchronized long getLastEncodeTime() {
+		return _lastEncodeTime;
+	}
+
+	/**
+	 * Getter for the size of the largest payload of the last snapshot, before it was split into datagrams.
+	 * @return lastPayloadSize (Long) in bytes
+	 */
+	public synchronized long getLastPayloadSize() {
+		return _lastPayloadSize;
+	}
+
+	/**
+	 * Stops the server and closes its socket, clients notice through their timeout.
+	 */
+	public synchronized void close() {
+		if(_closed) {
+			return;
+		}
+		_closed = true;
+		_task.cancel();
+		_clients.clear();
+		try {
+			_channel.close();
+		}catch(IOException e) {
+			GameLoop.engineOutput.println("BaseEngine Error: could not close the server: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,242 @@
+package com.valhalla.engine.net;
+
+import java.io.IOException;
+
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.SaveInput;
+import com.valhalla.engine.io.SaveOutput;
+
+/**
+ * Replicated objects of one tick, sorted on network id.<br>
+ * <br>
+ * States are shared with the previous snapshot when an object did not change, so an unchanged object is found by comparing references.
+ * @author BauwenDR
+ */
+@Internal
+final class NetSnapshot {
+
+	static final int _SPAWN = 0, _DELTA = 1, _REMOVE = 2;
+	static final byte _PACKET_SNAPSHOT = 1, _PACKET_ACK = 2, _PACKET_HELLO = 3, _PACKET_BYE = 4;
+	static final int _FRAGMENT_SIZE = 1200;		//stays below the MTU of most networks, so fragments are not split again
+	static final int _MAX_FRAGMENTS = 4096;		//about 4.9MB, larger snapshots are not sent and not assembled
+	static final int _HEADER_SIZE = 13;		//type, sequence, fragment index and fragment count
+	static final int _HISTORY = 64;		//snapshots kept as baseline on both sides
+	private static final int _MIN_GAP = 4;		//equal bytes between two changed runs that are still sent, a new run costs about as much
+
+	final long sequence, tick;
+	final int count;
+	final int[] ids, layers, versions;
+	final String[] names;
+	final byte[][] states;
+
+	NetSnapshot(long sequence, long tick, int count, int[] ids, int[] layers, String[] names, int[] versions, byte[][] states) {
+		this.sequence = sequence;
+		this.tick = tick;
+		this.count = count;
+		this.ids = ids;
+		this.layers = layers;
+		this.names = names;
+		this.versions = versions;
+		this.states = states;
+	}
+
+	/**
+	 * Writes the changes from a baseline to this snapshot.
+	 * @param baseline <b>(NetSnapshot)</b> snapshot the receiver already has, null to write every object.
+	 */
+	void encode(NetSnapshot baseline, SaveOutput output) {
+		output.writeVarLong(tick);
+		output.writeVarLong(baseline == null ? 0 : baseline.sequence + 1);
+		int countPosition = output.getLength();
+		output.writeFixed(0, 4);
+
+		int entries = 0, previousId = 0;
+		int index = 0, baseIndex = 0, baseCount = baseline == null ? 0 : baseline.count;
+		while(index < count || baseIndex < baseCount) {
+			int id = index < count ? ids[index] : Integer.MAX_VALUE;
+			int baseId = baseIndex < baseCount ? baseline.ids[baseIndex] : Integer.MAX_VALUE;
+			if(baseId < id) {
+				output.writeVarLong(baseId - previousId);
+				output.writeByte(_REMOVE);
+				previousId = baseId;
+				baseIndex++;
+				entries++;
+				continue;
+			}
+
+			byte[] state = states[index];
+			if(baseId == id) {
+				byte[] baseState = baseline.states[baseIndex++];
+				if(state == baseState && layers[index] == baseline.layers[baseIndex - 1]) {
+					index++;
+					continue;		//unchanged since the baseline
+				}
+				if(state.length == baseState.length && layers[index] == baseline.layers[baseIndex - 1] && names[index].equals(baseline.names[baseIndex - 1])) {
+					int start = output.getLength();
+					output.writeVarLong(id - previousId);
+					output.writeByte(_DELTA);
+					int runs = writeRuns(state, baseState, output);
+					if(runs == 0) {
+						output.setLength(start);		//changed back to the state of the baseline
+						index++;
+						continue;
+					}
+					if(output.getLength() - start < state.length) {
+						previousId = id;
+						index++;
+						entries++;
+						continue;
+					}
+					output.setLength(start);		//the delta is larger than the state itself
+				}
+			}
+
+			output.writeVarLong(id - previousId);
+			output.writeByte(_SPAWN);
+			output.writeString(names[index]);
+			output.writeVarLong(versions[index]);
+			output.writeVarLong(layers[index]);
+			output.writeBytes(state);
+			previousId = id;
+			index++;
+			entries++;
+		}
+		output.setFixed(countPosition, entries, 4);
+	}
+
+	/**
+	 * Writes the runs of bytes that differ between two states of the same length.
+	 * @return the amount of runs
+	 */
+	private static int writeRuns(byte[] state, byte[] baseState, SaveOutput output) {
+		int runCountPosition = output.getLength();
+		output.writeFixed(0, 4);
+		int runs = 0, index = 0, previousEnd = 0;
+		while(index < state.length) {
+			if(state[index] == baseState[index]) {
+				index++;
+				continue;
+			}
+			//a run ends once enough equal bytes follow it
+			int start = index, end = index + 1;
+			for(int scan = end; scan < state.length && scan - end < _MIN_GAP; scan++) {
+				if(state[scan] != baseState[scan]) {
+					end = scan + 1;
+				}
+			}
+			output.writeVarLong(start - previousEnd);
+			output.writeVarLong(end - start);
+			output.writeRaw(state, start, end - start);
+			previousEnd = end;
+			index = end;
+			runs++;
+		}
+		output.setFixed(runCountPosition, runs, 4);
+		return runs;
+	}
+
+	/**
+	 * Reads a snapshot written by {@link #encode}.
+	 * @param baseline <b>(NetSnapshot)</b> the snapshot the sender used as baseline, null if it wrote every object.
+	 */
+	static NetSnapshot decode(long sequence, long tick, NetSnapshot baseline, SaveInput input) throws IOException {
+		int entryCount = (int) input.readFixed(4);
+		if(entryCount < 0 || entryCount > input.getRemaining()) {
+			throw new IOException("BaseEngine: damaged snapshot " + sequence);
+		}
+		int baseCount = baseline == null ? 0 : baseline.count;
+		int capacity = baseCount + entryCount;
+		int[] ids = new int[capacity], layers = new int[capacity], versions = new int[capacity];
+		String[] names = new String[capacity];
+		byte[][] states = new byte[capacity][];
+
+		int count = 0, baseIndex = 0, id = 0;
+		for(int entry = 0; entry <= entryCount; entry++) {
+			int kind = -1;
+			if(entry < entryCount) {
+				long gap = input.readVarLong();
+				if(gap <= 0 || id + gap >= Integer.MAX_VALUE) {
+					throw new IOException("BaseEngine: damaged snapshot " + sequence);		//ids are sent in increasing order, starting at 1
+				}
+				id += (int) gap;
+				kind = input.readByte();
+			}else {
+				id = Integer.MAX_VALUE;
+			}
+
+			//objects before this entry did not change since the baseline
+			while(baseIndex < baseCount && baseline.ids[baseIndex] < id) {
+				ids[count] = baseline.ids[baseIndex];
+				layers[count] = baseline.layers[baseIndex];
+				names[count] = baseline.names[baseIndex];
+				versions[count] = baseline.versions[baseIndex];
+				states[count++] = baseline.states[baseIndex++];
+			}
+			if(kind < 0) {
+				break;
+			}
+			boolean inBaseline = baseIndex < baseCount && baseline.ids[baseIndex] == id;
+
+			if(kind == _REMOVE) {
+				if(inBaseline) {
+					baseIndex++;
+				}
+				continue;
+			}
+			ids[count] = id;
+			if(kind == _SPAWN) {
+				names[count] = input.readString();
+				versions[count] = (int) input.readVarLong();
+				layers[count] = (int) input.readVarLong();
+				states[count] = input.readBytes();
+			}else if(kind == _DELTA && inBaseline) {
+				names[count] = baseline.names[baseIndex];
+				versions[count] = baseline.versions[baseIndex];
+				layers[count] = baseline.layers[baseIndex];
+				states[count] = readRuns(baseline.states[baseIndex], input);
+			}else {
+				throw new IOException("BaseEngine: damaged snapshot " + sequence);
+			}
+			if(inBaseline) {
+				baseIndex++;
+			}
+			count++;
+		}
+		return new NetSnapshot(sequence, tick, count, ids, layers, names, versions, states);
+	}
+
+	private static byte[] readRuns(byte[] baseState, SaveInput input) throws IOException {
+		byte[] state = baseState.clone();
+		int runs = (int) input.readFixed(4);
+		int position = 0;
+		for(int run = 0; run < runs; run++) {
+			position += (int) input.readVarLong();
+			int length = (int) input.readVarLong();
+			if(position < 0 || length < 0 || position + length > state.length) {
+				throw new IOException("BaseEngine: damaged delta");
+			}
+			input.readRaw(state, position, length);
+			position += length;
+		}
+		return state;
+	}
+
+	/**
+	 * Finds the position of an id.
+	 * @return the index, or -1 if the id is not in this snapshot
+	 */
+	int indexOf(int id) {
+		int low = 0, high = count - 1;
+		while(low <= high) {
+			int middle = (low + high) >>> 1;
+			if(ids[middle] < id) {
+				low = middle + 1;
+			}else if(ids[middle] > id) {
+				high = middle - 1;
+			}else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+}
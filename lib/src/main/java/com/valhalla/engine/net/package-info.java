@@ -0,0 +1,6 @@
+/**
+ * Package for classes that replicate the BaseClasses of a Handler over the network.
+ * @see com.valhalla.engine.net.NetServer
+ * @see com.valhalla.engine.net.NetClient
+ */
+package com.valhalla.engine.net;
@@ -4,5 +4,8 @@
  * @see com.valhalla.engine.Screen
  * @see com.valhalla.engine.Handler
  * @see com.valhalla.engine.BaseClass
+ * @see com.valhalla.engine.Scheduler
+ * @see com.valhalla.engine.Job
+ * @see com.valhalla.engine.RollbackBuffer
  */
 package com.valhalla.engine;
\ No newline at end of file
@@ -0,0 +1,856 @@
+package com.valhalla.engine.physics;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.valhalla.engine.GameLoop;
+import com.valhalla.engine.internal.BroadphaseGrid;
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.internal.PairSet;
+
+/**
+ * Simulates {@link RigidBody}s with a fixed timestep of one tick, see {@link com.valhalla.engine.Handler#getTickRate()}.<br>
+ * <br>
+ * Every {@link com.valhalla.engine.Handler} owns a PhysicsWorld, see {@link com.valhalla.engine.Handler#getPhysicsWorld()}, which steps after all BaseClasses ticked.
+ * Bodies are axis aligned boxes and circles that do not rotate, matching what {@link com.valhalla.engine.render.Draw} can draw.
+ * Their state is stored in primitive arrays, so stepping does not allocate.<br>
+ * <br>
+ * A step applies gravity and forces, finds contacts with a {@link BroadphaseGrid}, solves them with a fixed amount of iterations of sequential impulses,
+ * moves the bodies and pushes overlapping bodies apart.
+ * Groups of touching bodies (islands) that stay slow for a while are put to sleep: they are left out of every step until an awake body touches them,
+ * or one of them is moved by the game.<br>
+ * <u>Note:</u> A PhysicsWorld should only be used on the tick thread.
+ * @author BauwenDR
+ */
+public final class PhysicsWorld {
+
+	private static final byte _BOX = 0, _CIRCLE = 1;
+	private static final float _SLOP = 0.5f, _CORRECTION = 0.6f;		//overlap in pixels that is allowed, part of the rest corrected per step
+	private static final float _BOUNCE_THRESHOLD = 30;					//slower contacts do not bounce, which keeps resting bodies still
+	private static final float _SLEEP_VELOCITY = 6;
+	private static final double _TIME_TO_SLEEP = 0.5;
+	private static final int _PARALLEL_CONTACTS = 2048, _PARALLEL_BATCH = 256;
+	private static final int _SEQUENTIAL_COLOR = 64;
+
+	private float _gravityX = 0, _gravityY = 0;
+	private int _iterations = 8;
+	private boolean _sleepingEnabled = true, _parallelSolver = false;
+	private boolean _configured = false;		//set once one of the settings is changed
+
+	//bodies by slot, slots stay the same while a body is in the world
+	RigidBody[] bodies = new RigidBody[64];
+	float[] x = new float[64], y = new float[64], halfWidth = new float[64], halfHeight = new float[64];
+	float[] velocityX = new float[64], velocityY = new float[64], forceX = new float[64], forceY = new float[64];
+	float[] inverseMass = new float[64], restitution = new float[64], friction = new float[64];
+	int[] layer = new int[64], mask = new int[64];
+	private byte[] _shape = new byte[64];
+	private float[] _sleepTime = new float[64];
+	private int _slotCount = 0, _bodyCount = 0;
+	private int[] _freeSlots = new int[64];
+	private int _freeSlotCount = 0;
+
+	//awake dynamic bodies, every other body rests in the resting grid
+	private int[] _awake = new int[64], _awakePosition = new int[64];
+	private int _awakeCount = 0;
+	private final BroadphaseGrid _awakeGrid = new BroadphaseGrid(), _restingGrid = new BroadphaseGrid();
+	private float[] _awakeMinX = new float[64], _awakeMinY = new float[64], _awakeMaxX = new float[64], _awakeMaxY = new float[64];
+	private int[] _resting = new int[64];
+	private float[] _restingMinX = new float[64], _restingMinY = new float[64], _restingMaxX = new float[64], _restingMaxY = new float[64];
+	private int _restingCount = 0;
+	private boolean _restingChanged = true;
+
+	//sleeping islands are chained, so a whole island wakes up at once
+	private int[] _islandParent = new int[64], _islandHead = new int[64], _islandNext = new int[64];
+	private float[] _islandSleepTime = new float[64];
+
+	private int[] _contactA = new int[64], _contactB = new int[64];
+	private float[] _normalX = new float[64], _normalY = new float[64], _penetration = new float[64];
+	private float[] _normalMass = new float[64], _normalImpulse = new float[64], _tangentImpulse = new float[64];
+	private float[] _bounce = new float[64], _contactFriction = new float[64];
+	private int _contactCount = 0;
+
+	//impulses of the previous step are applied again first, so stacks do not have to be solved from nothing every step
+	private final PairSet _previousContacts = new PairSet();
+	private long[] _contactKey = new long[64];
+	private float[] _previousNormalX = new float[64], _previousNormalY = new float[64];
+	private float[] _previousNormalImpulse = new float[64], _previousTangentImpulse = new float[64];
+
+	//contacts of the parallel solver are grouped in batches that share no moving body
+	private long[] _bodyColors = new long[64];
+	private int[] _contactColor = new int[64], _batchOrder = new int[64];
+	private final int[] _batchStart = new int[_SEQUENTIAL_COLOR + 2];
+	private final IntConsumer _solveBatchEntry = entry -> solveContact(_batchOrder[entry]);
+
+	private long _lastStepTime;
+
+	/**
+	 * Adds a box to the world.
+	 * @param x <b>(Float)</b> left edge.
+	 * @param y <b>(Float)</b> top edge.
+	 * @param width <b>(Float)</b> width of the box.
+	 * @param height <b>(Float)</b> height of the box.
+	 * @param mass <b>(Float)</b> mass of the box, 0 for a static box (e.g. the ground).
+	 * @return (RigidBody) handle to the new body.
+	 */
+	public RigidBody addBox(float x, float y, float width, float height, float mass) {
+		return add(_BOX, x + width / 2, y + height / 2, width / 2, height / 2, mass);
+	}
+
+	/**
+	 * Adds a circle to the world.
+	 * @param x <b>(Float)</b> left edge of the bounding box.
+	 * @param y <b>(Float)</b> top edge of the bounding box.
+	 * @param radius <b>(Float)</b> radius of the circle.
+	 * @param mass <b>(Float)</b> mass of the circle, 0 for a static circle.
+	 * @return (RigidBody) handle to the new body.
+	 */
+	public RigidBody addCircle(float x, float y, float radius, float mass) {
+		return add(_CIRCLE, x + radius, y + radius, radius, radius, mass);
+	}
+
+	/**
+	 * Removes a body from the world, bodies resting on it wake up.
+	 * @param body <b>(RigidBody)</b> the body to remove.
+	 */
+	public void remove(RigidBody body) {
+		int slot = body.slot;
+		if(body.world != this || slot < 0) {
+			return;
+		}
+		wakeUp(slot);
+		wakeTouching(slot);
+		if(isAwake(slot)) {
+			removeAwake(slot);
+		}else {
+			_restingChanged = true;
+		}
+		bodies[slot] = null;
+		body.slot = -1;
+		_bodyCount--;
+		if(_freeSlotCount == _freeSlots.length) {
+			_freeSlots = Arrays.copyOf(_freeSlots, _freeSlotCount * 2);
+		}
+		_freeSlots[_freeSlotCount++] = slot;
+	}
+
+	/**
+	 * Moves every body of this world into another world, used when a preloaded GameState is swapped in.<br>
+	 * The {@link RigidBody} handles stay valid and keep their position, velocity, forces and properties, but they wake up in their new world.
+	 * When a setting of this world was changed, all settings are copied as well.
+	 * @param target <b>(PhysicsWorld)</b> the world that takes over the bodies.
+	 */
+	@Internal
+	public void moveBodiesTo(PhysicsWorld target) {
+		if(target == this) {
+			return;
+		}
+		if(_configured) {
+			target.setGravity(_gravityX, _gravityY);
+			target.setIterations(_iterations);
+			target.setSleepingEnabled(_sleepingEnabled);
+			target.setParallelSolver(_parallelSolver);
+		}
+		for(int slot = 0; slot < _slotCount; slot++) {
+			RigidBody body = bodies[slot];
+			if(body == null) {
+				continue;
+			}
+			remove(body);
+			int moved = target.insert(body, _shape[slot], x[slot], y[slot], halfWidth[slot], halfHeight[slot], inverseMass[slot]);
+			target.velocityX[moved] = velocityX[slot];
+			target.velocityY[moved] = velocityY[slot];
+			target.forceX[moved] = forceX[slot];
+			target.forceY[moved] = forceY[slot];
+			target.restitution[moved] = restitution[slot];
+			target.friction[moved] = friction[slot];
+			target.layer[moved] = layer[slot];
+			target.mask[moved] = mask[slot];
+		}
+	}
+
+	/**
+	 * Sets the gravity applied to every body that is not static.
+	 * @param gravityX <b>(Float)</b> horizontal acceleration in pixels per second squared.
+	 * @param gravityY <b>(Float)</b> vertical acceleration in pixels per second squared, positive is down.
+	 */
+	public void setGravity(float gravityX, float gravityY) {
+		_configured = true;
+		if(gravityX != _gravityX || gravityY != _gravityY) {
+			_gravityX = gravityX;
+			_gravityY = gravityY;
+			wakeAll();
+		}
+	}
+
+	/**
+	 * Sets the amount of times contacts are solved per step, more iterations make stacks stiffer but take longer.
+	 * @param iterations <b>(Integer)</b> iterations per step, 8 by default.
+	 */
+	public void setIterations(int iterations) {
+		_configured = true;
+		_iterations = Math.max(1, iterations);
+	}
+
+	/**
+	 * Enables or disables putting resting islands to sleep, enabled by default.
+	 * @param sleepingEnabled <b>(Boolean)</b> true to let resting bodies sleep.
+	 */
+	public void setSleepingEnabled(boolean sleepingEnabled) {
+		_configured = true;
+		_sleepingEnabled = sleepingEnabled;
+		if(!sleepingEnabled) {
+			wakeAll();
+		}
+	}
+
+	/**
+	 * Enables or disables solving contacts on several threads.<br>
+	 * Steps with at least 2048 contacts then split their contacts in batches that share no moving body, and solve each batch on the common ForkJoinPool.
+	 * Smaller steps are always solved on the tick thread, since starting threads would cost more than it saves.
+	 * @param parallelSolver <b>(Boolean)</b> true to use several threads for large steps.
+	 */
+	public void setParallelSolver(boolean parallelSolver) {
+		_configured = true;
+		_parallelSolver = parallelSolver;
+	}
+
+	/**
+	 * Getter for the amount of bodies in the world.
+	 * @return bodyCount (Integer)
+	 */
+	public int getBodyCount() {
+		return _bodyCount;
+	}
+
+	/**
+	 * Getter for the amount of bodies that are simulated, static and sleeping bodies are not counted.
+	 * @return awakeBodyCount (Integer)
+	 */
+	public int getAwakeBodyCount() {
+		return _awakeCount;
+	}
+
+	/**
+	 * Getter for the amount of contacts solved in the last step.
+	 * @return contactCount (Integer)
+	 */
+	public int getContactCount() {
+		return _contactCount;
+	}
+
+	/**
+	 * Getter for the time the last step took.
+	 * @return lastStepTime (Long) in nanoseconds
+	 */
+	public long getLastStepTime() {
+		return _lastStepTime;
+	}
+
+	/**
+	 * Moves the simulation forward by one tick of the GameLoop.
+	 */
+	@Internal
+	public void step() {
+		step(GameLoop.getTickRate());
+	}
+
+	/**
+	 * Moves the simulation forward by one tick, called by the Handler once per tick at the tick rate of the Handler.
+	 * @param tickRate <b>(Double)</b> ticks per second, the step simulates 1 / tickRate seconds.
+	 */
+	@Internal
+	public void step(double tickRate) {
+		long start = System.nanoTime();
+		_contactCount = 0;
+		if(_awakeCount > 0) {
+			float timeStep = (float) (1 / tickRate);
+			integrateVelocities(timeStep);
+			findContacts();
+			warmStart();
+			solveContacts();
+			integratePositions(timeStep);
+			correctPositions();
+			storeImpulses();
+			if(_sleepingEnabled) {
+				updateSleep(timeStep);
+			}
+		}
+		_lastStepTime = System.nanoTime() - start;
+	}
+
+	@Internal
+	private void integrateVelocities(float timeStep) {
+		for(int index = 0; index < _awakeCount; index++) {
+			int body = _awake[index];
+			velocityX[body] += (_gravityX + forceX[body] * inverseMass[body]) * timeStep;
+			velocityY[body] += (_gravityY + forceY[body] * inverseMass[body]) * timeStep;
+			forceX[body] = 0;
+			forceY[body] = 0;
+		}
+	}
+
+	@Internal
+	private void findContacts() {
+		if(_restingChanged) {
+			buildRestingGrid();
+		}
+
+		int awakeCount = _awakeCount;		//bodies woken up below join in the next step
+		ensureAwakeBounds(awakeCount);
+		for(int index = 0; index < awakeCount; index++) {
+			int body = _awake[index];
+			_awakeMinX[index] = x[body] - halfWidth[body];
+			_awakeMinY[index] = y[body] - halfHeight[body];
+			_awakeMaxX[index] = x[body] + halfWidth[body];
+			_awakeMaxY[index] = y[body] + halfHeight[body];
+		}
+		_awakeGrid.build(_awakeMinX, _awakeMinY, _awakeMaxX, _awakeMaxY, awakeCount);
+		int pairCount = _awakeGrid.findPairs();
+		long[] pairs = _awakeGrid.getPairs();
+		for(int index = 0; index < pairCount; index++) {
+			collide(_awake[(int) (pairs[index] >>> 32)], _awake[(int) pairs[index]]);
+		}
+
+		for(int index = 0; index < awakeCount; index++) {
+			int body = _awake[index];
+			int resultCount = _restingGrid.query(_awakeMinX[index], _awakeMinY[index], _awakeMaxX[index], _awakeMaxY[index]);
+			int[] results = _restingGrid.getResults();
+			for(int result = 0; result < resultCount; result++) {
+				int other = _resting[results[result]];
+				if(bodies[other] != null && collide(body, other) && inverseMass[other] != 0 && !isAwake(other)) {
+					wakeUp(other);		//touched by an awake body
+				}
+			}
+		}
+	}
+
+	@Internal
+	private void buildRestingGrid() {
+		_restingCount = 0;
+		for(int slot = 0; slot < _slotCount; slot++) {
+			if(bodies[slot] == null || isAwake(slot)) {
+				continue;
+			}
+			if(_restingCount == _resting.length) {
+				int length = _restingCount * 2;
+				_resting = Arrays.copyOf(_resting, length);
+				_restingMinX = Arrays.copyOf(_restingMinX, length);
+				_restingMinY = Arrays.copyOf(_restingMinY, length);
+				_restingMaxX = Arrays.copyOf(_restingMaxX, length);
+				_restingMaxY = Arrays.copyOf(_restingMaxY, length);
+			}
+			_resting[_restingCount] = slot;
+			_restingMinX[_restingCount] = x[slot] - halfWidth[slot];
+			_restingMinY[_restingCount] = y[slot] - halfHeight[slot];
+			_restingMaxX[_restingCount] = x[slot] + halfWidth[slot];
+			_restingMaxY[_restingCount] = y[slot] + halfHeight[slot];
+			_restingCount++;
+		}
+		_restingGrid.build(_restingMinX, _restingMinY, _restingMaxX, _restingMaxY, _restingCount);
+		_restingChanged = false;
+	}
+
+	/**
+	 * Tests two bodies for overlap and adds a contact with a normal pointing from the first to the second body.
+	 * @return True if the bodies overlap.
+	 */
+	@Internal
+	private boolean collide(int first, int second) {
+		if((layer[first] & mask[second]) == 0 || (layer[second] & mask[first]) == 0) {
+			return false;
+		}
+		if(_shape[first] == _CIRCLE && _shape[second] == _CIRCLE) {
+			float deltaX = x[second] - x[first], deltaY = y[second] - y[first];
+			float radius = halfWidth[first] + halfWidth[second];
+			float distanceSquared = deltaX * deltaX + deltaY * deltaY;
+			if(distanceSquared >= radius * radius) {
+				return false;
+			}
+			float distance = (float) Math.sqrt(distanceSquared);
+			if(distance == 0) {
+				addContact(first, second, 0, 1, radius);
+			}else {
+				addContact(first, second, deltaX / distance, deltaY / distance, radius - distance);
+			}
+			return true;
+		}
+		if(_shape[first] == _CIRCLE) {
+			return collideBoxCircle(second, first, true);
+		}
+		if(_shape[second] == _CIRCLE) {
+			return collideBoxCircle(first, second, false);
+		}
+
+		float deltaX = x[second] - x[first], deltaY = y[second] - y[first];
+		float overlapX = halfWidth[first] + halfWidth[second] - Math.abs(deltaX);
+		float overlapY = halfHeight[first] + halfHeight[second] - Math.abs(deltaY);
+		if(overlapX <= 0 || overlapY <= 0) {
+			return false;
+		}
+		if(overlapX < overlapY) {
+			addContact(first, second, deltaX < 0 ? -1 : 1, 0, overlapX);
+		}else {
+			addContact(first, second, 0, deltaY < 0 ? -1 : 1, overlapY);
+		}
+		return true;
+	}
+
+	@Internal
+	private boolean collideBoxCircle(int box, int circle, boolean circleFirst) {
+		float radius = halfWidth[circle];
+		float deltaX = x[circle] - x[box], deltaY = y[circle] - y[box];
+		float closestX = Math.max(-halfWidth[box], Math.min(halfWidth[box], deltaX));
+		float closestY = Math.max(-halfHeight[box], Math.min(halfHeight[box], deltaY));
+
+		float normalX, normalY, penetration;
+		if(closestX == deltaX && closestY == deltaY) {
+			//centre of the circle inside the box, push it out through the closest side
+			float sideX = halfWidth[box] - Math.abs(deltaX), sideY = halfHeight[box] - Math.abs(deltaY);
+			if(sideX < sideY) {
+				normalX = deltaX < 0 ? -1 : 1;
+				normalY = 0;
+				penetration = sideX + radius;
+			}else {
+				normalX = 0;
+				normalY = deltaY < 0 ? -1 : 1;
+				penetration = sideY + radius;
+			}
+		}else {
+			float offsetX = deltaX - closestX, offsetY = deltaY - closestY;
+			float distanceSquared = offsetX * offsetX + offsetY * offsetY;
+			if(distanceSquared >= radius * radius) {
+				return false;
+			}
+			float distance = (float) Math.sqrt(distanceSquared);
+			normalX = offsetX / distance;
+			normalY = offsetY / distance;
+			penetration = radius - distance;
+		}
+
+		if(circleFirst) {
+			addContact(circle, box, -normalX, -normalY, penetration);
+		}else {
+			addContact(box, circle, normalX, normalY, penetration);
+		}
+		return true;
+	}
+
+	@Internal
+	private void addContact(int first, int second, float normalX, float normalY, float penetration) {
+		if(_contactCount == _contactA.length) {
+			growContacts();
+		}
+		int contact = _contactCount++;
+		_contactA[contact] = first;
+		_contactB[contact] = second;
+		_normalX[contact] = normalX;
+		_normalY[contact] = normalY;
+		_penetration[contact] = penetration;
+		_normalMass[contact] = 1 / (inverseMass[first] + inverseMass[second]);
+		_normalImpulse[contact] = 0;
+		_tangentImpulse[contact] = 0;
+		_contactKey[contact] = first < second ? ((long) first << 32) | second : ((long) second << 32) | first;
+		_contactFriction[contact] = (float) Math.sqrt(friction[first] * friction[second]);
+
+		float approachSpeed = (velocityX[second] - velocityX[first]) * normalX + (velocityY[second] - velocityY[first]) * normalY;
+		_bounce[contact] = approachSpeed < -_BOUNCE_THRESHOLD ? -Math.max(restitution[first], restitution[second]) * approachSpeed : 0;
+	}
+
+	@Internal
+	private void warmStart() {
+		for(int contact = 0; contact < _contactCount; contact++) {
+			int previous = _previousContacts.get(_contactKey[contact]) - 1;
+			if(previous < 0) {
+				continue;
+			}
+			int first = _contactA[contact], second = _contactB[contact];
+			float side = first < second ? 1 : -1;		//previous contacts are stored from the lower slot to the higher one
+			if((_normalX[contact] * _previousNormalX[previous] + _normalY[contact] * _previousNormalY[previous]) * side < 0.95f) {
+				continue;		//the bodies touch on another side now
+			}
+			float normalImpulse = _previousNormalImpulse[previous], tangentImpulse = _previousTangentImpulse[previous] * side;
+			_normalImpulse[contact] = normalImpulse;
+			_tangentImpulse[contact] = tangentImpulse;
+
+			float impulseX = normalImpulse * _normalX[contact] - tangentImpulse * _normalY[contact];
+			float impulseY = normalImpulse * _normalY[contact] + tangentImpulse * _normalX[contact];
+			velocityX[first] -= impulseX * inverseMass[first];
+			velocityY[first] -= impulseY * inverseMass[first];
+			velocityX[second] += impulseX * inverseMass[second];
+			velocityY[second] += impulseY * inverseMass[second];
+		}
+	}
+
+	@Internal
+	private void storeImpulses() {
+		_previousContacts.clear();
+		if(_previousNormalX.length < _contactCount) {
+			int length = _contactKey.length;
+			_previousNormalX = new float[length];
+			_previousNormalY = new float[length];
+			_previousNormalImpulse = new float[length];
+			_previousTangentImpulse = new float[length];
+		}
+		for(int contact = 0; contact < _contactCount; contact++) {
+			float side = _contactA[contact] < _contactB[contact] ? 1 : -1;
+			_previousContacts.put(_contactKey[contact], contact + 1);
+			_previousNormalX[contact] = _normalX[contact] * side;
+			_previousNormalY[contact] = _normalY[contact] * side;
+			_previousNormalImpulse[contact] = _normalImpulse[contact];
+			_previousTangentImpulse[contact] = _tangentImpulse[contact] * side;
+		}
+	}
+
+	@Internal
+	private void solveContacts() {
+		if(_parallelSolver && _contactCount >= _PARALLEL_CONTACTS) {
+			solveContactsParallel();
+			return;
+		}
+		for(int iteration = 0; iteration < _iterations; iteration++) {
+			for(int contact = 0; contact < _contactCount; contact++) {
+				solveContact(contact);
+			}
+		}
+	}
+
+	@Internal
+	private void solveContactsParallel() {
+		//greedy colouring: a contact gets the first batch neither of its moving bodies is in yet
+		if(_bodyColors.length < _slotCount) {
+			_bodyColors = new long[Math.max(_slotCount, _bodyColors.length * 2)];
+		}
+		Arrays.fill(_batchStart, 0);
+		for(int contact = 0; contact < _contactCount; contact++) {
+			int first = _contactA[contact], second = _contactB[contact];
+			long used = (inverseMass[first] != 0 ? _bodyColors[first] : 0) | (inverseMass[second] != 0 ? _bodyColors[second] : 0);
+			int color = Long.numberOfTrailingZeros(~used);		//64 when every batch is used, those contacts are solved on the tick thread
+			if(color < _SEQUENTIAL_COLOR) {
+				_bodyColors[first] |= 1L << color;
+				_bodyColors[second] |= 1L << color;
+			}
+			_contactColor[contact] = color;
+			_batchStart[color + 1]++;
+		}
+		for(int color = 0; color <= _SEQUENTIAL_COLOR; color++) {
+			_batchStart[color + 1] += _batchStart[color];
+		}
+		int[] fill = Arrays.copyOf(_batchStart, _SEQUENTIAL_COLOR + 1);
+		for(int contact = 0; contact < _contactCount; contact++) {
+			_batchOrder[fill[_contactColor[contact]]++] = contact;
+			_bodyColors[_contactA[contact]] = 0;
+			_bodyColors[_contactB[contact]] = 0;
+		}
+
+		for(int iteration = 0; iteration < _iterations; iteration++) {
+			for(int color = 0; color <= _SEQUENTIAL_COLOR; color++) {
+				int start = _batchStart[color], end = _batchStart[color + 1];
+				if(color < _SEQUENTIAL_COLOR && end - start >= _PARALLEL_BATCH) {
+					IntStream.range(start, end).parallel().forEach(_solveBatchEntry);
+				}else {
+					for(int entry = start; entry < end; entry++) {
+						solveContact(_batchOrder[entry]);
+					}
+				}
+			}
+		}
+	}
+
+	@Internal
+	private void solveContact(int contact) {
+		int first = _contactA[contact], second = _contactB[contact];
+		float normalX = _normalX[contact], normalY = _normalY[contact];
+		float firstInverseMass = inverseMass[first], secondInverseMass = inverseMass[second];
+
+		float relativeX = velocityX[second] - velocityX[first], relativeY = velocityY[second] - velocityY[first];
+		float impulse = _normalMass[contact] * (_bounce[contact] - (relativeX * normalX + relativeY * normalY));
+		float total = Math.max(_normalImpulse[contact] + impulse, 0);		//contacts can only push
+		impulse = total - _normalImpulse[contact];
+		_normalImpulse[contact] = total;
+
+		//friction along the tangent, limited by the normal impulse
+		float tangentX = -normalY, tangentY = normalX;
+		relativeX += impulse * normalX * (firstInverseMass + secondInverseMass);
+		relativeY += impulse * normalY * (firstInverseMass + secondInverseMass);
+		float maxFriction = _contactFriction[contact] * total;
+		float tangentImpulse = -_normalMass[contact] * (relativeX * tangentX + relativeY * tangentY);
+		float tangentTotal = Math.max(-maxFriction, Math.min(maxFriction, _tangentImpulse[contact] + tangentImpulse));
+		tangentImpulse = tangentTotal - _tangentImpulse[contact];
+		_tangentImpulse[contact] = tangentTotal;
+
+		float impulseX = impulse * normalX + tangentImpulse * tangentX, impulseY = impulse * normalY + tangentImpulse * tangentY;
+		if(firstInverseMass != 0) {
+			velocityX[first] -= impulseX * firstInverseMass;
+			velocityY[first] -= impulseY * firstInverseMass;
+		}
+		if(secondInverseMass != 0) {
+			velocityX[second] += impulseX * secondInverseMass;
+			velocityY[second] += impulseY * secondInverseMass;
+		}
+	}
+
+	@Internal
+	private void integratePositions(float timeStep) {
+		for(int index = 0; index < _awakeCount; index++) {
+			int body = _awake[index];
+			x[body] += velocityX[body] * timeStep;
+			y[body] += velocityY[body] * timeStep;
+		}
+	}
+
+	@Internal
+	private void correctPositions() {
+		for(int contact = 0; contact < _contactCount; contact++) {
+			float correction = Math.max(_penetration[contact] - _SLOP, 0) * _CORRECTION * _normalMass[contact];
+			if(correction == 0) {
+				continue;
+			}
+			int first = _contactA[contact], second = _contactB[contact];
+			x[first] -= _normalX[contact] * correction * inverseMass[first];
+			y[first] -= _normalY[contact] * correction * inverseMass[first];
+			x[second] += _normalX[contact] * correction * inverseMass[second];
+			y[second] += _normalY[contact] * correction * inverseMass[second];
+		}
+	}
+
+	@Internal
+	private void updateSleep(float timeStep) {
+		float sleepVelocity = _SLEEP_VELOCITY * _SLEEP_VELOCITY;
+		for(int index = 0; index < _awakeCount; index++) {
+			int body = _awake[index];
+			_islandParent[body] = body;
+			_islandSleepTime[body] = Float.POSITIVE_INFINITY;
+			float speed = velocityX[body] * velocityX[body] + velocityY[body] * velocityY[body];
+			_sleepTime[body] = speed > sleepVelocity ? 0 : _sleepTime[body] + timeStep;
+		}
+
+		//bodies touching each other form an island, static bodies do not connect islands
+		for(int contact = 0; contact < _contactCount; contact++) {
+			int first = _contactA[contact], second = _contactB[contact];
+			if(inverseMass[first] != 0 && inverseMass[second] != 0 && isAwake(first) && isAwake(second)) {
+				_islandParent[findIsland(first)] = findIsland(second);
+			}
+		}
+
+		boolean anySleepy = false;
+		for(int index = 0; index < _awakeCount; index++) {
+			int body = _awake[index];
+			int island = findIsland(body);
+			_islandSleepTime[island] = Math.min(_islandSleepTime[island], _sleepTime[body]);
+			anySleepy |= _sleepTime[body] >= _TIME_TO_SLEEP;
+		}
+		if(!anySleepy) {
+			return;
+		}
+
+		for(int index = _awakeCount - 1; index >= 0; index--) {
+			int body = _awake[index];
+			int island = findIsland(body);
+			if(_islandSleepTime[island] < _TIME_TO_SLEEP) {
+				continue;
+			}
+			//the head of an awake island is always empty, see addAwake
+			_islandNext[body] = _islandHead[island];
+			_islandHead[island] = body;
+			_islandParent[body] = island;
+			velocityX[body] = 0;
+			velocityY[body] = 0;
+			removeAwake(body);
+			_restingChanged = true;
+		}
+	}
+
+	@Internal
+	private int findIsland(int body) {
+		while(_islandParent[body] != body) {
+			_islandParent[body] = _islandParent[_islandParent[body]];
+			body = _islandParent[body];
+		}
+		return body;
+	}
+
+	@Internal
+	boolean isAwake(int slot) {
+		return _awakePosition[slot] >= 0;
+	}
+
+	/**
+	 * Wakes a sleeping body together with the rest of its island.
+	 */
+	@Internal
+	void wakeUp(int slot) {
+		if(inverseMass[slot] == 0 || isAwake(slot)) {
+			return;
+		}
+		int island = _islandParent[slot];
+		for(int body = _islandHead[island]; body >= 0; body = _islandNext[body]) {
+			_sleepTime[body] = 0;
+			addAwake(body);
+		}
+		if(!isAwake(slot)) {
+			_sleepTime[slot] = 0;
+			addAwake(slot);
+		}
+		_restingChanged = true;
+	}
+
+	@Internal
+	void moveBody(int slot, float centerX, float centerY) {
+		wakeTouching(slot);		//bodies resting on the old position
+		x[slot] = centerX;
+		y[slot] = centerY;
+		wakeUp(slot);
+		wakeTouching(slot);		//bodies resting on the new position
+		if(!isAwake(slot)) {
+			_restingChanged = true;
+		}
+	}
+
+	@Internal
+	private void wakeTouching(int slot) {
+		if(_restingChanged) {
+			buildRestingGrid();
+		}
+		float margin = _SLOP * 2;
+		int resultCount = _restingGrid.query(x[slot] - halfWidth[slot] - margin, y[slot] - halfHeight[slot] - margin,
+				x[slot] + halfWidth[slot] + margin, y[slot] + halfHeight[slot] + margin);
+		int[] results = _restingGrid.getResults();
+		for(int result = 0; result < resultCount; result++) {
+			int other = _resting[results[result]];
+			if(other != slot && bodies[other] != null) {
+				wakeUp(other);
+			}
+		}
+	}
+
+	@Internal
+	private void wakeAll() {
+		for(int slot = 0; slot < _slotCount; slot++) {
+			if(bodies[slot] != null) {
+				wakeUp(slot);
+			}
+		}
+	}
+
+	@Internal
+	private RigidBody add(byte shape, float centerX, float centerY, float halfWidth, float halfHeight, float mass) {
+		RigidBody body = new RigidBody(this, -1);
+		insert(body, shape, centerX, centerY, halfWidth, halfHeight, mass > 0 ? 1 / mass : 0);
+		return body;
+	}
+
+	@Internal
+	private int insert(RigidBody body, byte shape, float centerX, float centerY, float halfWidth, float halfHeight, float inverseMass) {
+		int slot;
+		if(_freeSlotCount > 0) {
+			slot = _freeSlots[--_freeSlotCount];
+		}else {
+			if(_slotCount == bodies.length) {
+				growBodies(_slotCount * 2);
+			}
+			slot = _slotCount++;
+		}
+
+		body.world = this;
+		body.slot = slot;
+		bodies[slot] = body;
+		_shape[slot] = shape;
+		x[slot] = centerX;
+		y[slot] = centerY;
+		this.halfWidth[slot] = halfWidth;
+		this.halfHeight[slot] = halfHeight;
+		velocityX[slot] = velocityY[slot] = forceX[slot] = forceY[slot] = 0;
+		this.inverseMass[slot] = inverseMass;
+		restitution[slot] = 0;
+		friction[slot] = 0.4f;
+		layer[slot] = 1;
+		mask[slot] = -1;
+		_sleepTime[slot] = 0;
+		_islandParent[slot] = slot;
+		_islandHead[slot] = -1;
+		_awakePosition[slot] = -1;
+		_bodyCount++;
+
+		if(inverseMass > 0) {
+			addAwake(slot);
+		}else {
+			_restingChanged = true;
+		}
+		return slot;
+	}
+
+	@Internal
+	private void addAwake(int slot) {
+		if(_awakeCount == _awake.length) {
+			_awake = Arrays.copyOf(_awake, _awakeCount * 2);
+		}
+		_awakePosition[slot] = _awakeCount;
+		_awake[_awakeCount++] = slot;
+		_islandParent[slot] = slot;
+		_islandHead[slot] = -1;
+	}
+
+	@Internal
+	private void removeAwake(int slot) {
+		int position = _awakePosition[slot];
+		int last = _awake[--_awakeCount];
+		_awake[position] = last;
+		_awakePosition[last] = position;
+		_awakePosition[slot] = -1;
+	}
+
+	@Internal
+	private void ensureAwakeBounds(int count) {
+		if(_awakeMinX.length < count) {
+			int length = Math.max(count, _awakeMinX.length * 2);
+			_awakeMinX = new float[length];
+			_awakeMinY = new float[length];
+			_awakeMaxX = new float[length];
+			_awakeMaxY = new float[length];
+		}
+	}
+
+	@Internal
+	private void growBodies(int length) {
+		bodies = Arrays.copyOf(bodies, length);
+		x = Arrays.copyOf(x, length);
+		y = Arrays.copyOf(y, length);
+		halfWidth = Arrays.copyOf(halfWidth, length);
+		halfHeight = Arrays.copyOf(halfHeight, length);
+		velocityX = Arrays.copyOf(velocityX, length);
+		velocityY = Arrays.copyOf(velocityY, length);
+		forceX = Arrays.copyOf(forceX, length);
+		forceY = Arrays.copyOf(forceY, length);
+		inverseMass = Arrays.copyOf(inverseMass, length);
+		restitution = Arrays.copyOf(restitution, length);
+		friction = Arrays.copyOf(friction, length);
+		layer = Arrays.copyOf(layer, length);
+		mask = Arrays.copyOf(mask, length);
+		_shape = Arrays.copyOf(_shape, length);
+		_sleepTime = Arrays.copyOf(_sleepTime, length);
+		_awakePosition = Arrays.copyOf(_awakePosition, length);
+		_islandParent = Arrays.copyOf(_islandParent, length);
+		_islandHead = Arrays.copyOf(_islandHead, length);
+		_islandNext = Arrays.copyOf(_islandNext, length);
+		_islandSleepTime = Arrays.copyOf(_islandSleepTime, length);
+	}
+
+	@Internal
+	private void growContacts() {
+		int length = _contactA.length * 2;
+		_contactA = Arrays.copyOf(_contactA, length);
+		_contactB = Arrays.copyOf(_contactB, length);
+		_normalX = Arrays.copyOf(_normalX, length);
+		_normalY = Arrays.copyOf(_normalY, length);
+		_penetration = Arrays.copyOf(_penetration, length);
+		_normalMass = Arrays.copyOf(_normalMass, length);
+		_normalImpulse = Arrays.copyOf(_normalImpulse, length);
+		_tangentImpulse = Arrays.copyOf(_tangentImpulse, length);
+		_bounce = Arrays.copyOf(_bounce, length);
+		_contactFriction = Arrays.copyOf(_contactFriction, length);
+		_contactKey = Arrays.copyOf(_contactKey, length);
+		_contactColor = Arrays.copyOf(_contactColor, length);
+		_batchOrder = Arrays.copyOf(_batchOrder, length);
+	}
+}
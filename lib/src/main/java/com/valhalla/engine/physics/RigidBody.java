@@ -0,0 +1,222 @@
+package com.valhalla.engine.physics;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Handle to a body simulated by a {@link PhysicsWorld}, created with {@link PhysicsWorld#addBox} or {@link PhysicsWorld#addCircle}.<br>
+ * <br>
+ * The state of the body is stored in the arrays of its world, this handle only reads and writes it.
+ * Positions are the top left corner of the bounding box, like {@link com.valhalla.engine.render.Draw#drawRect} and {@link com.valhalla.engine.render.Draw#drawOval},
+ * velocities are in pixels per second.<br>
+ * <u>Note:</u> Changing the position or velocity of a sleeping body wakes it up, together with the bodies it was resting on.<br>
+ * <u>Note:</u> After {@link PhysicsWorld#remove(RigidBody)} every method except {@link #isInWorld()} and {@link #getWorld()} throws an {@link IllegalStateException}.
+ * @author BauwenDR
+ */
+public final class RigidBody {
+
+	PhysicsWorld world;
+	int slot;
+
+	@Internal
+	RigidBody(PhysicsWorld world, int slot) {
+		this.world = world;
+		this.slot = slot;
+	}
+
+	/**
+	 * Getter for the left edge of the body.
+	 * @return x (Float)
+	 */
+	public float getX() {
+		checkInWorld();
+		return world.x[slot] - world.halfWidth[slot];
+	}
+
+	/**
+	 * Getter for the top edge of the body.
+	 * @return y (Float)
+	 */
+	public float getY() {
+		checkInWorld();
+		return world.y[slot] - world.halfHeight[slot];
+	}
+
+	/**
+	 * Getter for the width of the body, the diameter for a circle.
+	 * @return width (Float)
+	 */
+	public float getWidth() {
+		checkInWorld();
+		return world.halfWidth[slot] * 2;
+	}
+
+	/**
+	 * Getter for the height of the body, the diameter for a circle.
+	 * @return height (Float)
+	 */
+	public float getHeight() {
+		checkInWorld();
+		return world.halfHeight[slot] * 2;
+	}
+
+	/**
+	 * Moves the body, its velocity is kept.
+	 * @param x <b>(Float)</b> new left edge.
+	 * @param y <b>(Float)</b> new top edge.
+	 */
+	public void setPosition(float x, float y) {
+		checkInWorld();
+		world.moveBody(slot, x + world.halfWidth[slot], y + world.halfHeight[slot]);
+	}
+
+	/**
+	 * Getter for the horizontal velocity.
+	 * @return velocityX (Float) in pixels per second
+	 */
+	public float getVelocityX() {
+		checkInWorld();
+		return world.velocityX[slot];
+	}
+
+	/**
+	 * Getter for the vertical velocity.
+	 * @return velocityY (Float) in pixels per second
+	 */
+	public float getVelocityY() {
+		checkInWorld();
+		return world.velocityY[slot];
+	}
+
+	/**
+	 * Sets the velocity of the body, does nothing for a static body.
+	 * @param velocityX <b>(Float)</b> horizontal velocity in pixels per second.
+	 * @param velocityY <b>(Float)</b> vertical velocity in pixels per second.
+	 */
+	public void setVelocity(float velocityX, float velocityY) {
+		checkInWorld();
+		if(isStatic()) {
+			return;
+		}
+		world.wakeUp(slot);
+		world.velocityX[slot] = velocityX;
+		world.velocityY[slot] = velocityY;
+	}
+
+	/**
+	 * Applies a force during the next step, e.g. thrust. Forces are cleared after every step.
+	 * @param forceX <b>(Float)</b> horizontal force.
+	 * @param forceY <b>(Float)</b> vertical force.
+	 */
+	public void applyForce(float forceX, float forceY) {
+		checkInWorld();
+		if(isStatic()) {
+			return;
+		}
+		world.wakeUp(slot);
+		world.forceX[slot] += forceX;
+		world.forceY[slot] += forceY;
+	}
+
+	/**
+	 * Changes the velocity at once, e.g. a jump or an explosion.
+	 * @param impulseX <b>(Float)</b> horizontal impulse, divided by the mass of the body.
+	 * @param impulseY <b>(Float)</b> vertical impulse, divided by the mass of the body.
+	 */
+	public void applyImpulse(float impulseX, float impulseY) {
+		checkInWorld();
+		if(isStatic()) {
+			return;
+		}
+		world.wakeUp(slot);
+		world.velocityX[slot] += impulseX * world.inverseMass[slot];
+		world.velocityY[slot] += impulseY * world.inverseMass[slot];
+	}
+
+	/**
+	 * Getter for the mass of the body.
+	 * @return mass (Float), 0 for a static body
+	 */
+	public float getMass() {
+		checkInWorld();
+		return isStatic() ? 0 : 1 / world.inverseMass[slot];
+	}
+
+	/**
+	 * Checks if the body is static, static bodies never move by themselves.
+	 * @return True if the body was created with a mass of 0.
+	 */
+	public boolean isStatic() {
+		checkInWorld();
+		return world.inverseMass[slot] == 0;
+	}
+
+	/**
+	 * Sets how bouncy the body is, the bounciest body of a contact is used.
+	 * @param restitution <b>(Float)</b> 0 (= no bounce, default) to 1 (= keeps all speed).
+	 */
+	public void setRestitution(float restitution) {
+		checkInWorld();
+		world.restitution[slot] = restitution;
+	}
+
+	/**
+	 * Sets how much the body resists sliding, the friction of a contact combines both bodies.
+	 * @param friction <b>(Float)</b> 0 (= ice) and up, 0.4 by default.
+	 */
+	public void setFriction(float friction) {
+		checkInWorld();
+		world.friction[slot] = friction;
+	}
+
+	/**
+	 * Sets the collision layers the body is part of and collides with, see {@link com.valhalla.engine.collision.Collider#getCollisionLayer()}.
+	 * @param layer <b>(Integer)</b> bit mask of the layers the body is part of.
+	 * @param mask <b>(Integer)</b> bit mask of the layers the body collides with.
+	 */
+	public void setCollisionFilter(int layer, int mask) {
+		checkInWorld();
+		world.layer[slot] = layer;
+		world.mask[slot] = mask;
+		world.wakeUp(slot);
+	}
+
+	/**
+	 * Checks if the body is sleeping, sleeping bodies are not simulated until something touches or moves them.
+	 * @return True if the body is sleeping, static bodies are never sleeping.
+	 */
+	public boolean isSleeping() {
+		checkInWorld();
+		return !isStatic() && !world.isAwake(slot);
+	}
+
+	/**
+	 * Wakes the body up, together with all bodies it was resting on.
+	 */
+	public void wakeUp() {
+		checkInWorld();
+		world.wakeUp(slot);
+	}
+
+	/**
+	 * Checks if the body is still part of its world.
+	 * @return False after {@link PhysicsWorld#remove(RigidBody)} was called.
+	 */
+	public boolean isInWorld() {
+		return slot >= 0;
+	}
+
+	/**
+	 * Getter for the world simulating this body.
+	 * @return world (PhysicsWorld)
+	 */
+	public PhysicsWorld getWorld() {
+		return world;
+	}
+
+	@Internal
+	private void checkInWorld() {
+		if(slot < 0) {
+			throw new IllegalStateException("BaseEngine: RigidBody was removed from its PhysicsWorld");
+		}
+	}
+}
@@ -0,0 +1,6 @@
+/**
+ * Package for simulating moving bodies that collide with each other.
+ * @see com.valhalla.engine.physics.PhysicsWorld
+ * @see com.valhalla.engine.physics.RigidBody
+ */
+package com.valhalla.engine.physics;
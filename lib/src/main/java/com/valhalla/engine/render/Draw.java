@@ -1,8 +1,6 @@
 package com.valhalla.engine.render;
 
 import java.awt.*;
-import java.awt.font.FontRenderContext;
-import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 
 import com.valhalla.engine.Screen;
@@ -11,6 +9,9 @@ import com.valhalla.engine.internal.Internal;
 /**
  * Functions for drawing onto the Screen.<br>
  * <br>
+ * Every function draws onto the {@link RenderContext} of the calling thread, which is the Screen unless the thread renders onto an offscreen surface.
+ * {@link com.valhalla.engine.util.Renderable#render(RenderContext)} receives the same context.<br>
+ * <br>
  * <b>Contains:</b>
  * <ul>
  *  <li>{@link #drawRect}</li>
@@ -21,6 +22,7 @@ import com.valhalla.engine.internal.Internal;
  *  <li>{@link #drawCenteredCustomString}</li>
  *  <li>{@link #drawImage}</li>
  *  <li>{@link #drawCroppedImage}</li>
+ *  <li>{@link #drawSprite}</li>
  *  <li>{@link #drawLine}</li>
  *  <li>{@link #setOpacity}</li>
  * </ul>
@@ -28,15 +30,50 @@ import com.valhalla.engine.internal.Internal;
  */
 public class Draw {
 	
-	private static Graphics2D _grapics2D;
-	private static double _scaleFactor;
+	private static volatile RenderContext _context;
+	private static final ThreadLocal<RenderContext> _threadContext = new ThreadLocal<>();		//set while a thread draws onto another surface
 	
 	@Internal
 	public Draw() {}
 	
 	@Internal
 	public void setGraphics(Graphics graphics) {
-		_grapics2D = (Graphics2D) graphics;
+		_context = new RenderContext(graphics, Screen.getWidth(), Screen.getHeight());
+	}
+	
+	@Internal
+	public void setContext(RenderContext context) {
+		_context = context;
+	}
+	
+	/**
+	 * Lets the calling thread draw onto a given RenderContext with the functions in Draw, e.g. while rendering a layer into an offscreen image.
+	 * @param context <b>(RenderContext)</b> The context to draw onto, null to draw onto the Screen again.
+	 * @return previous (RenderContext) context of the thread, null for the Screen
+	 */
+	@Internal
+	public static RenderContext useContext(RenderContext context) {
+		RenderContext previous = _threadContext.get();
+		if(context == null) {
+			_threadContext.remove();
+		}else {
+			_threadContext.set(context);
+		}
+		return previous;
+	}
+	
+	/**
+	 * Getter for the RenderContext the functions in Draw currently draw onto for the calling thread.
+	 * @return context (RenderContext)
+	 */
+	public static RenderContext getContext() {
+		return current();
+	}
+	
+	@Internal
+	private static RenderContext current() {
+		RenderContext context = _threadContext.get();
+		return context != null ? context : _context;
 	}
 	
 	/**
@@ -44,7 +81,7 @@ public class Draw {
 	 * @return (Double) ScaleFactor.
 	 */
 	public static double getScaleFactor() {
-		return _scaleFactor;
+		return Screen.getScaleFactor();
 	}
 
 	/**
@@ -56,9 +93,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the text.
 	 */
 	public static void drawLine(int x1, int y1, int x2, int y2, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		_grapics2D.drawLine((int) (x1 * _scaleFactor), (int) (y1 * _scaleFactor), (int) (x2 * _scaleFactor), (int) (y2 * _scaleFactor));
+		current().drawLine(x1, y1, x2, y2, colour);
 	}
 
 	/**
@@ -70,9 +105,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the border.
 	 */
 	public static void drawRect(int x, int y, int width, int height, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		_grapics2D.drawRect((int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor));
+		current().drawRect(x, y, width, height, colour);
 	}
 	
 	/**
@@ -81,9 +114,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the border.
 	 */
 	public static void drawRect(Rectangle rectangle, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		_grapics2D.drawRect((int) (rectangle.x * _scaleFactor), (int) (rectangle.y * _scaleFactor), (int) (rectangle.width * _scaleFactor), (int) (rectangle.height * _scaleFactor));
+		current().drawRect(rectangle, colour);
 	}
 
 	/**
@@ -95,9 +126,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the Area.
 	 */
 	public static void fillRect(int x, int y, int width, int height, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		_grapics2D.fillRect((int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor));
+		current().fillRect(x, y, width, height, colour);
 	}
 	
 	/**
@@ -106,9 +135,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the border.
 	 */
 	public static void fillRect(Rectangle rectangle, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		_grapics2D.fillRect((int) (rectangle.x * _scaleFactor), (int) (rectangle.y * _scaleFactor), (int) (rectangle.width * _scaleFactor), (int) (rectangle.height * _scaleFactor));
+		current().fillRect(rectangle, colour);
 	}
 	
 	/**
@@ -121,11 +148,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the text.
 	 */
 	public static void drawString(String string, int x, int y, String fontName, int fontSize, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		Font font = new Font(fontName, 0, (int) (fontSize*_scaleFactor));
-		_grapics2D.setFont(font);
-		_grapics2D.drawString(string, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+		current().drawString(string, x, y, fontName, fontSize, colour);
 	}
 	
 	/**
@@ -137,26 +160,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the text.
 	 */
 	public static void drawCenteredString(String string, Rectangle rectangle, String fontName, int fontSize, Color colour) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.setColor(colour);
-		Font font = new Font(fontName, 0, (int) (fontSize*_scaleFactor));
-		_grapics2D.setFont(font);
-		
-		FontRenderContext frc = new FontRenderContext(null, true, true);
-		Rectangle2D r2d = font.getStringBounds(string, frc);
-			
-		int rWidth = (int) (Math.round(r2d.getWidth()));
-		int rHeight = (int) (Math.round(r2d.getHeight()));
-		int rX = (int) Math.round(r2d.getX());
-		int rY = (int) Math.round(r2d.getY());
-			
-		int X = (rectangle.width / 2) - (rWidth / 2) - rX;
-		int Y = (rectangle.height / 2) - (rHeight / 2) - rY;
-			
-		int x = rectangle.x + X;
-		int y = rectangle.y + Y;
-			
-		_grapics2D.drawString(string, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+		current().drawCenteredString(string, rectangle, fontName, fontSize, colour);
 	}
 	
 	/**
@@ -168,16 +172,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the text.
 	 */
 	public static void drawCustomString(String string, int x, int y, Font font, Color colour) {
-		FontRenderContext frc = new FontRenderContext(null, true, true);
-		Rectangle2D stringBounds = font.getStringBounds(string, frc);
-
-		BufferedImage stringImage = new BufferedImage((int) stringBounds.getWidth()+1, (int) stringBounds.getHeight()+1, BufferedImage.TRANSLUCENT);
-		Graphics2D stringGraphics = stringImage.createGraphics();
-		stringGraphics.setFont(font);
-		stringGraphics.drawString(string, 0, 0);
-		stringGraphics.dispose();
-
-		drawImage(stringImage, x, y);
+		current().drawCustomString(string, x, y, font, colour);
 	}
 
 	/**
@@ -188,28 +183,7 @@ public class Draw {
 	 * @param colour <b>(Color)</b> Colour of the text.
 	 */
 	public static void drawCenteredCustomString(String string, Font font, Rectangle rectangle, Color colour) {
-		FontRenderContext frc = new FontRenderContext(null, true, true);
-		Rectangle2D stringBounds = font.getStringBounds(string, frc);
-
-		//draw string as image
-		int rWidth = (int) (Math.round(stringBounds.getWidth()));
-		int rHeight = (int) (Math.round(stringBounds.getHeight()));
-		int rX = (int) Math.round(stringBounds.getX());
-		int rY = (int) Math.round(stringBounds.getY());
-
-		int X = (rectangle.width / 2) - (rWidth / 2) - rX;
-		int Y = (rectangle.height / 2) - (rHeight / 2) - rY;
-
-		int x = rectangle.x + X;
-		int y = rectangle.y + Y;
-
-		BufferedImage stringImage = new BufferedImage((int) stringBounds.getWidth()+1, (int) stringBounds.getHeight()+1, BufferedImage.TRANSLUCENT);
-		Graphics2D stringGraphics = stringImage.createGraphics();
-		stringGraphics.setFont(font);
-		stringGraphics.drawString(string, 0, 0);
-		stringGraphics.dispose();
-
-		drawImage(stringImage, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+		current().drawCenteredCustomString(string, font, rectangle, colour);
 	}
 
 	/**
@@ -219,7 +193,7 @@ public class Draw {
 	 *	@param y <b>(Integer)</b> y-position for the image.
 	 */
 	public static void drawImage(BufferedImage image, int x, int y) {
-		drawImage(image, x, y, image.getWidth(), image.getHeight());
+		current().drawImage(image, x, y);
 	}
 
 	/**
@@ -231,13 +205,13 @@ public class Draw {
 	 * @param height <b>(Integer)</b> Height of the image.
 	 */
 	public static void drawImage(BufferedImage image, int x, int y, int width, int height) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.drawImage(image, (int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor), null);
+		current().drawImage(image, x, y, width, height);
 	}
 	
 	/**
-	 * Crops an image and draws it to the screen, adjusted by the ScaleFactor.<br>
-	 * <u>Note:</u> In most situations it is better to crop the image yourself and then call {@link #drawImage}.
+	 * Draws a part of an image to the screen, adjusted by the ScaleFactor.<br>
+	 * <u>Note:</u> The part is drawn straight from the source image, no cropped copy is created.
+	 * To draw the same part often, see {@link SpriteSheet} and {@link #drawSprite}.
 	 * @param image <b>(BufferedImage)</b> Image to be cropped and then drawn to the screen.
 	 * @param x <b>(Integer)</b> x-position of the image.
 	 * @param y <b>(Integer)</b> y-position for the image.
@@ -249,9 +223,30 @@ public class Draw {
 	 * @param cropHeight <b>(Integer)</b> Height of the cropped image.
 	 */
 	public static void drawCroppedImage(BufferedImage image, int x, int y, int width, int height, int cropX, int cropY, int cropWidth, int cropHeight) {
-		_scaleFactor = Screen.getScaleFactor();
-		image = image.getSubimage(cropX, cropY, cropWidth, cropHeight);
-		_grapics2D.drawImage(image, x, y, width, height, null);
+		current().drawCroppedImage(image, x, y, width, height, cropX, cropY, cropWidth, cropHeight);
+	}
+	
+	/**
+	 * Draws a region of a sprite sheet with its own width and height to the screen, adjusted by the ScaleFactor.
+	 * @param region <b>(SpriteRegion)</b> Region to be drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the region.
+	 * @param y <b>(Integer)</b> y-position for the region.
+	 */
+	public static void drawSprite(SpriteRegion region, int x, int y) {
+		current().drawSprite(region, x, y);
+	}
+	
+	/**
+	 * Draws a region of a sprite sheet to the screen, adjusted by the ScaleFactor.<br>
+	 * <u>Note:</u> The region is drawn straight from its sheet, no cropped copy is created.
+	 * @param region <b>(SpriteRegion)</b> Region to be drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the region.
+	 * @param y <b>(Integer)</b> y-position for the region.
+	 * @param width <b>(Integer)</b> Width of the region on the screen.
+	 * @param height <b>(Integer)</b> Height of the region on the screen.
+	 */
+	public static void drawSprite(SpriteRegion region, int x, int y, int width, int height) {
+		current().drawSprite(region, x, y, width, height);
 	}
 	
 	/**
@@ -263,8 +258,7 @@ public class Draw {
 	 * @param height<b>(Integer)</b> height of the rectangular area.
 	 */
 	public static void drawOval(int x, int y, int width, int height) {
-		_scaleFactor = Screen.getScaleFactor();
-		_grapics2D.drawOval((int) (x*_scaleFactor), (int) (y*_scaleFactor), (int) (width*_scaleFactor), (int) (height*_scaleFactor));
+		current().drawOval(x, y, width, height);
 	}
 	
 	/**
@@ -275,7 +269,7 @@ public class Draw {
 	 * @param diameter <b>(Integer)</b> diameter/ width of the oval
 	 */
 	public static void drawCircle(int x, int y, int diameter) {
-		drawOval(x, y, diameter, diameter);
+		current().drawCircle(x, y, diameter);
 	}
 	
 	/**
@@ -284,6 +278,6 @@ public class Draw {
 	 * @param alpha <b>(float)</b> alpha value from (1 = everything) to (0 = fully transparent).
 	 */
 	public static void setOpacity(float alpha) {
-		_grapics2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_ATOP, alpha));
+		current().setOpacity(alpha);
 	}
 }
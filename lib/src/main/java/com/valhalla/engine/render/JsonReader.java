@@ -0,0 +1,193 @@
+package com.valhalla.engine.render;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.valhalla.engine.internal.Internal;
+
+/**
+ * Minimal JSON parser for frame lists, objects become Maps (in file order), arrays Lists, numbers Doubles.
+ * @author BauwenDR
+ */
+@Internal
+class JsonReader {
+
+	private final String _text;
+	private int _position = 0;
+
+	private JsonReader(String text) {
+		_text = text;
+	}
+
+	@Internal
+	static Object parse(String text) throws IOException {
+		JsonReader reader = new JsonReader(text);
+		Object value = reader.readValue();
+		reader.skipWhitespace();
+		if(reader._position != text.length()) {
+			throw reader.error("unexpected data after the end");
+		}
+		return value;
+	}
+
+	@Internal
+	private Object readValue() throws IOException {
+		skipWhitespace();
+		if(_position >= _text.length()) {
+			throw error("unexpected end");
+		}
+
+		char character = _text.charAt(_position);
+		switch(character) {
+			case '{':
+				return readObject();
+			case '[':
+				return readArray();
+			case '"':
+				return readString();
+			case 't':
+				expect("true");
+				return Boolean.TRUE;
+			case 'f':
+				expect("false");
+				return Boolean.FALSE;
+			case 'n':
+				expect("null");
+				return null;
+			default:
+				return readNumber();
+		}
+	}
+
+	@Internal
+	private Map<String, Object> readObject() throws IOException {
+		Map<String, Object> object = new LinkedHashMap<>();
+		_position++;
+		skipWhitespace();
+		if(peek() == '}') {
+			_position++;
+			return object;
+		}
+		while(true) {
+			skipWhitespace();
+			if(peek() != '"') {
+				throw error("expected a key");
+			}
+			String key = readString();
+			skipWhitespace();
+			expect(":");
+			object.put(key, readValue());
+			skipWhitespace();
+			char next = _position < _text.length() ? _text.charAt(_position++) : 0;
+			if(next == '}') {
+				return object;
+			}
+			if(next != ',') {
+				throw error("expected ',' or '}'");
+			}
+		}
+	}
+
+	@Internal
+	private List<Object> readArray() throws IOException {
+		List<Object> array = new ArrayList<>();
+		_position++;
+		skipWhitespace();
+		if(peek() == ']') {
+			_position++;
+			return array;
+		}
+		while(true) {
+			array.add(readValue());
+			skipWhitespace();
+			char next = _position < _text.length() ? _text.charAt(_position++) : 0;
+			if(next == ']') {
+				return array;
+			}
+			if(next != ',') {
+				throw error("expected ',' or ']'");
+			}
+		}
+	}
+
+	@Internal
+	private String readString() throws IOException {
+		StringBuilder builder = new StringBuilder();
+		_position++;
+		while(_position < _text.length()) {
+			char character = _text.charAt(_position++);
+			if(character == '"') {
+				return builder.toString();
+			}
+			if(character != '\\') {
+				builder.append(character);
+				continue;
+			}
+			if(_position >= _text.length()) {
+				break;
+			}
+			char escaped = _text.charAt(_position++);
+			switch(escaped) {
+				case 'n': builder.append('\n'); break;
+				case 't': builder.append('\t'); break;
+				case 'r': builder.append('\r'); break;
+				case 'b': builder.append('\b'); break;
+				case 'f': builder.append('\f'); break;
+				case 'u':
+					if(_position + 4 > _text.length()) {
+						throw error("broken unicode escape");
+					}
+					try {
+						builder.append((char) Integer.parseInt(_text.substring(_position, _position + 4), 16));
+					} catch (NumberFormatException e) {
+						throw error("broken unicode escape");
+					}
+					_position += 4;
+					break;
+				default: builder.append(escaped);
+			}
+		}
+		throw error("unterminated string");
+	}
+
+	@Internal
+	private Double readNumber() throws IOException {
+		int start = _position;
+		while(_position < _text.length() && "+-0123456789.eE".indexOf(_text.charAt(_position)) >= 0) {
+			_position++;
+		}
+		try {
+			return Double.valueOf(_text.substring(start, _position));
+		} catch (NumberFormatException e) {
+			throw error("unexpected character '" + (start < _text.length() ? _text.charAt(start) : ' ') + "'");
+		}
+	}
+
+	@Internal
+	private void expect(String expected) throws IOException {
+		if(!_text.startsWith(expected, _position)) {
+			throw error("expected " + expected);
+		}
+		_position += expected.length();
+	}
+
+	@Internal
+	private char peek() {
+		return _position < _text.length() ? _text.charAt(_position) : 0;
+	}
+
+	@Internal
+	private void skipWhitespace() {
+		while(_position < _text.length() && Character.isWhitespace(_text.charAt(_position))) {
+			_position++;
+		}
+	}
+
+	@Internal
+	private IOException error(String message) {
+		return new IOException("BaseEngine: invalid JSON at character " + _position + ", " + message);
+	}
+}
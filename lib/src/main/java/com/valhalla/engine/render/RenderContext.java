@@ -0,0 +1,350 @@
+package com.valhalla.engine.render;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+
+import com.valhalla.engine.Screen;
+
+/**
+ * Draws onto one surface, e.g. the Screen or an offscreen image.<br>
+ * <br>
+ * Every surface has its own RenderContext, so different threads can draw onto different surfaces at the same time.
+ * A RenderContext is passed to {@link com.valhalla.engine.util.Renderable#render(RenderContext)},
+ * the static functions in {@link Draw} draw onto the RenderContext of the calling thread.<br>
+ * <u>Note:</u> A RenderContext itself should only be used by one thread at a time.
+ * @author BauwenDR
+ */
+public final class RenderContext {
+	
+	private final Graphics2D _graphics2D;
+	private final int _width, _height;
+	private final double _renderScale;
+	private double _scaleFactor;
+	
+	/**
+	 * Constructor for a RenderContext drawing with a given Graphics object.
+	 * @param graphics <b>(Graphics)</b> Graphics of the surface, only this context should use it.
+	 * @param width <b>(Integer)</b> Width of the surface in pixels.
+	 * @param height <b>(Integer)</b> Height of the surface in pixels.
+	 */
+	public RenderContext(Graphics graphics, int width, int height) {
+		this(graphics, width, height, 1);
+	}
+	
+	/**
+	 * Constructor for a RenderContext drawing onto a surface with a lower resolution than the Screen, see {@link Screen#getRenderScale()}.<br>
+	 * The Graphics should already be scaled down by the render scale, so width and height stay the size of the Screen.
+	 * @param graphics <b>(Graphics)</b> Graphics of the surface, only this context should use it.
+	 * @param width <b>(Integer)</b> Width of the Screen in pixels.
+	 * @param height <b>(Integer)</b> Height of the Screen in pixels.
+	 * @param renderScale <b>(Double)</b> Size of the surface compared to the Screen, 1 for full resolution.
+	 */
+	public RenderContext(Graphics graphics, int width, int height, double renderScale) {
+		_graphics2D = (Graphics2D) graphics;
+		_width = width;
+		_height = height;
+		_renderScale = renderScale;
+	}
+	
+	/**
+	 * Getter for the Graphics used to draw onto the surface, for drawing that is not covered by this class.
+	 * @return graphics (Graphics2D)
+	 */
+	public Graphics2D getGraphics() {
+		return _graphics2D;
+	}
+	
+	/**
+	 * Getter for the width of the surface.
+	 * @return width (Integer) in pixels
+	 */
+	public int getWidth() {
+		return _width;
+	}
+	
+	/**
+	 * Getter for the height of the surface.
+	 * @return height (Integer) in pixels
+	 */
+	public int getHeight() {
+		return _height;
+	}
+	
+	/**
+	 * Getter for the resolution of the surface compared to its width and height.
+	 * @return renderScale (Double), 1 for full resolution
+	 */
+	public double getRenderScale() {
+		return _renderScale;
+	}
+	
+	/**
+	 * Draws a line to the screen, adjusted by the ScaleFactor.
+	 * @param x1 <b>(Integer)</b> Starting x-position of the line.
+	 * @param y1 <b>(Integer)</b> Starting y-position of the line.
+	 * @param x2 <b>(Integer)</b> Ending x-position of the line
+	 * @param y2 <b>(Integer)</b> Ending y-position of the line
+	 * @param colour <b>(Color)</b> Colour of the text.
+	 */
+	public void drawLine(int x1, int y1, int x2, int y2, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		_graphics2D.drawLine((int) (x1 * _scaleFactor), (int) (y1 * _scaleFactor), (int) (x2 * _scaleFactor), (int) (y2 * _scaleFactor));
+	}
+
+	/**
+	 * Draws the border of a rectangle to the screen, adjusted by the ScaleFactor.
+	 * @param x <b>(Integer)</b> x-position for the rectangle.
+	 * @param y <b>(Integer)</b> y-position for the rectangle.
+	 * @param width <b>(Integer)</b> Width of the rectangle.
+	 * @param height <b>(Integer)</b> Height of the rectangle.
+	 * @param colour <b>(Color)</b> Colour of the border.
+	 */
+	public void drawRect(int x, int y, int width, int height, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		_graphics2D.drawRect((int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor));
+	}
+	
+	/**
+	 * Draws the border of a rectangle to the screen, adjusted by the ScaleFactor.
+	 * @param rectangle <b>(Rectangle)</b> The rectangle of which the border will be drawn.
+	 * @param colour <b>(Color)</b> Colour of the border.
+	 */
+	public void drawRect(Rectangle rectangle, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		_graphics2D.drawRect((int) (rectangle.x * _scaleFactor), (int) (rectangle.y * _scaleFactor), (int) (rectangle.width * _scaleFactor), (int) (rectangle.height * _scaleFactor));
+	}
+
+	/**
+	 * Draws a rectangle to the screen, adjusted by the ScaleFactor.
+	 * @param x <b>(Integer)</b> x-position for the rectangle.
+	 * @param y <b>(Integer)</b> y-position for the rectangle.
+	 * @param width <b>(Integer)</b> Width of the rectangle.
+	 * @param height <b>(Integer)</b> Height of the rectangle.
+	 * @param colour <b>(Color)</b> Colour of the Area.
+	 */
+	public void fillRect(int x, int y, int width, int height, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		_graphics2D.fillRect((int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor));
+	}
+	
+	/**
+	 * Draws a rectangle to the screen, adjusted by the ScaleFactor.
+	 * @param rectangle <b>(Rectangle)</b> The rectangle that will be drawn.
+	 * @param colour <b>(Color)</b> Colour of the border.
+	 */
+	public void fillRect(Rectangle rectangle, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		_graphics2D.fillRect((int) (rectangle.x * _scaleFactor), (int) (rectangle.y * _scaleFactor), (int) (rectangle.width * _scaleFactor), (int) (rectangle.height * _scaleFactor));
+	}
+	
+	/**
+	 * Draws a String to the screen, adjusted by the ScaleFactor.
+	 * @param string <b>(String)</b> String to be drawn.
+	 * @param x <b>(Integer)</b> x-position for the String.
+	 * @param y <b>(Integer)</b> y-position for the String.
+	 * @param fontName <b>(String)</b> Name of the font to be used for drawing the String.
+	 * @param fontSize <b>(Integer)</b> Size of the font.
+	 * @param colour <b>(Color)</b> Colour of the text.
+	 */
+	public void drawString(String string, int x, int y, String fontName, int fontSize, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		Font font = new Font(fontName, 0, (int) (fontSize*_scaleFactor));
+		_graphics2D.setFont(font);
+		_graphics2D.drawString(string, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+	}
+	
+	/**
+	 * Draws a String centred inside a given Rectangle, adjusted by the ScaleFactor.
+	 * @param string <b>(String)</b> String to be drawn.
+	 * @param rectangle <b>(Rectangle)</b> Rectangle in which the String will be centred.
+	 * @param fontName <b>(String)</b> Name of the font to be used for drawing the String.
+	 * @param fontSize <b>(Integer)</b> Size of the font.
+	 * @param colour <b>(Color)</b> Colour of the text.
+	 */
+	public void drawCenteredString(String string, Rectangle rectangle, String fontName, int fontSize, Color colour) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.setColor(colour);
+		Font font = new Font(fontName, 0, (int) (fontSize*_scaleFactor));
+		_graphics2D.setFont(font);
+		
+		FontRenderContext frc = new FontRenderContext(null, true, true);
+		Rectangle2D r2d = font.getStringBounds(string, frc);
+			
+		int rWidth = (int) (Math.round(r2d.getWidth()));
+		int rHeight = (int) (Math.round(r2d.getHeight()));
+		int rX = (int) Math.round(r2d.getX());
+		int rY = (int) Math.round(r2d.getY());
+			
+		int X = (rectangle.width / 2) - (rWidth / 2) - rX;
+		int Y = (rectangle.height / 2) - (rHeight / 2) - rY;
+			
+		int x = rectangle.x + X;
+		int y = rectangle.y + Y;
+			
+		_graphics2D.drawString(string, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+	}
+	
+	/**
+	 * Draws a String in an external font to the screen, adjusted by ScaleFactor.
+	 * @param string <b>(String)</b> String to be drawn.
+	 * @param x <b>(Integer)</b> x-position for the String.
+	 * @param y <b>(Integer)</b> y-position for the String.
+	 * @param font <b>(Font)</b> Custom font for the String.
+	 * @param colour <b>(Color)</b> Colour of the text.
+	 */
+	public void drawCustomString(String string, int x, int y, Font font, Color colour) {
+		FontRenderContext frc = new FontRenderContext(null, true, true);
+		Rectangle2D stringBounds = font.getStringBounds(string, frc);
+
+		BufferedImage stringImage = new BufferedImage((int) stringBounds.getWidth()+1, (int) stringBounds.getHeight()+1, BufferedImage.TRANSLUCENT);
+		Graphics2D stringGraphics = stringImage.createGraphics();
+		stringGraphics.setFont(font);
+		stringGraphics.drawString(string, 0, 0);
+		stringGraphics.dispose();
+
+		drawImage(stringImage, x, y);
+	}
+
+	/**
+	 * Draws a String in an external font to the screen, centred inside a given rectangle, adjusted by ScaleFactor.
+	 * @param string <b>(String)</b> String to be drawn.
+	 * @param font <b>(Font)</b> Custom font for the String.
+	 * @param rectangle <b>(Rectangle)</b> Rectangle in which the String will be centred.
+	 * @param colour <b>(Color)</b> Colour of the text.
+	 */
+	public void drawCenteredCustomString(String string, Font font, Rectangle rectangle, Color colour) {
+		FontRenderContext frc = new FontRenderContext(null, true, true);
+		Rectangle2D stringBounds = font.getStringBounds(string, frc);
+
+		//draw string as image
+		int rWidth = (int) (Math.round(stringBounds.getWidth()));
+		int rHeight = (int) (Math.round(stringBounds.getHeight()));
+		int rX = (int) Math.round(stringBounds.getX());
+		int rY = (int) Math.round(stringBounds.getY());
+
+		int X = (rectangle.width / 2) - (rWidth / 2) - rX;
+		int Y = (rectangle.height / 2) - (rHeight / 2) - rY;
+
+		int x = rectangle.x + X;
+		int y = rectangle.y + Y;
+
+		BufferedImage stringImage = new BufferedImage((int) stringBounds.getWidth()+1, (int) stringBounds.getHeight()+1, BufferedImage.TRANSLUCENT);
+		Graphics2D stringGraphics = stringImage.createGraphics();
+		stringGraphics.setFont(font);
+		stringGraphics.drawString(string, 0, 0);
+		stringGraphics.dispose();
+
+		drawImage(stringImage, (int) (x*_scaleFactor), (int) (y*_scaleFactor));
+	}
+
+	/**
+	 *	Draw an image with its own width and height to the screen adjusted by ScaleFactor
+	 *	@param image <b>(BufferedImage)</b> Image to be drawn to the screen.
+	 *	@param x <b>(Integer)</b> x-position of the image.
+	 *	@param y <b>(Integer)</b> y-position for the image.
+	 */
+	public void drawImage(BufferedImage image, int x, int y) {
+		drawImage(image, x, y, image.getWidth(), image.getHeight());
+	}
+
+	/**
+	 * Draw an image to the Screen, adjusted by the ScaleFactor.
+	 * @param image <b>(BufferedImage)</b> Image to be drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the image.
+	 * @param y <b>(Integer)</b> y-position for the image.
+	 * @param width <b>(Integer)</b> Width of the image.
+	 * @param height <b>(Integer)</b> Height of the image.
+	 */
+	public void drawImage(BufferedImage image, int x, int y, int width, int height) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.drawImage(image, (int) (x*_scaleFactor), (int)(y*_scaleFactor) , (int) (width*_scaleFactor) , (int) (height*_scaleFactor), null);
+	}
+	
+	/**
+	 * Draws a part of an image to the screen, adjusted by the ScaleFactor.<br>
+	 * <u>Note:</u> The part is drawn straight from the source image, no cropped copy is created.
+	 * To draw the same part often, see {@link SpriteSheet} and {@link #drawSprite}.
+	 * @param image <b>(BufferedImage)</b> Image to be cropped and then drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the image.
+	 * @param y <b>(Integer)</b> y-position for the image.
+	 * @param width <b>(Integer)</b> Width of the image.
+	 * @param height <b>(Integer)</b> Height of the image.
+	 * @param cropX <b>(Integer)</b> x-position from which to start cropping.
+	 * @param cropY <b>(Integer)</b> y-position from which to start cropping.
+	 * @param cropWidth <b>(Integer)</b> Width of the cropped image.
+	 * @param cropHeight <b>(Integer)</b> Height of the cropped image.
+	 */
+	public void drawCroppedImage(BufferedImage image, int x, int y, int width, int height, int cropX, int cropY, int cropWidth, int cropHeight) {
+		_scaleFactor = Screen.getScaleFactor();
+		int screenX = (int) (x*_scaleFactor), screenY = (int) (y*_scaleFactor);
+		_graphics2D.drawImage(image, screenX, screenY, screenX + (int) (width*_scaleFactor), screenY + (int) (height*_scaleFactor),
+				cropX, cropY, cropX + cropWidth, cropY + cropHeight, null);
+	}
+	
+	/**
+	 * Draws a region of a sprite sheet with its own width and height to the screen, adjusted by the ScaleFactor.
+	 * @param region <b>(SpriteRegion)</b> Region to be drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the region.
+	 * @param y <b>(Integer)</b> y-position for the region.
+	 */
+	public void drawSprite(SpriteRegion region, int x, int y) {
+		drawSprite(region, x, y, region.width, region.height);
+	}
+	
+	/**
+	 * Draws a region of a sprite sheet to the screen, adjusted by the ScaleFactor.<br>
+	 * <u>Note:</u> The region is drawn straight from its sheet, no cropped copy is created.
+	 * @param region <b>(SpriteRegion)</b> Region to be drawn to the screen.
+	 * @param x <b>(Integer)</b> x-position of the region.
+	 * @param y <b>(Integer)</b> y-position for the region.
+	 * @param width <b>(Integer)</b> Width of the region on the screen.
+	 * @param height <b>(Integer)</b> Height of the region on the screen.
+	 */
+	public void drawSprite(SpriteRegion region, int x, int y, int width, int height) {
+		_scaleFactor = Screen.getScaleFactor();
+		int screenX = (int) (x*_scaleFactor), screenY = (int) (y*_scaleFactor);
+		_graphics2D.drawImage(region.sheet, screenX, screenY, screenX + (int) (width*_scaleFactor), screenY + (int) (height*_scaleFactor),
+				region.x, region.y, region.x + region.width, region.y + region.height, null);
+	}
+	
+	/**
+	 * Draws an oval inside a given rectangular area, adjusted by the ScaleFactor.
+	 * <u>Note:</u> The x- and y-coords are the top left coordinates for the bounding box, not the position of the ovals centre.
+	 * @param x <b>(Integer)</b> x-position of the rectangular area.
+	 * @param y <b>(Integer)</b> y-position of the rectangular area.
+	 * @param width <b>(Integer)</b> width of the rectangular area.
+	 * @param height<b>(Integer)</b> height of the rectangular area.
+	 */
+	public void drawOval(int x, int y, int width, int height) {
+		_scaleFactor = Screen.getScaleFactor();
+		_graphics2D.drawOval((int) (x*_scaleFactor), (int) (y*_scaleFactor), (int) (width*_scaleFactor), (int) (height*_scaleFactor));
+	}
+	
+	/**
+	 * Draws a circle inside a given rectangular area, adjusted by the ScaleFactor.
+	 * <u>Note:</u> This function uses drawOval internally, so x and y are the position of the top left corner of the bounding box, not the centre of the circle.
+	 * @param x <b>(Integer)</b> x-position of the rectangular area.
+	 * @param y <b>(Integer)</b> y-position of the rectangular area.
+	 * @param diameter <b>(Integer)</b> diameter/ width of the oval
+	 */
+	public void drawCircle(int x, int y, int diameter) {
+		drawOval(x, y, diameter, diameter);
+	}
+	
+	/**
+	 * Sets the opacity for all the functions in Draw.
+	 * <u>Note:</u> The alpha value never gets reset inside the library.
+	 * @param alpha <b>(float)</b> alpha value from (1 = everything) to (0 = fully transparent).
+	 */
+	public void setOpacity(float alpha) {
+		_graphics2D.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha));
+	}
+}
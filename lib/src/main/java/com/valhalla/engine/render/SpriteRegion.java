@@ -0,0 +1,113 @@
+package com.valhalla.engine.render;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Handle to a rectangular part of an image, usually one frame of a {@link SpriteSheet}.<br>
+ * <br>
+ * A region is drawn straight from its sheet with {@link Draw#drawSprite(SpriteRegion, int, int)}, without creating a sub-image for every draw.
+ * @author BauwenDR
+ */
+public final class SpriteRegion {
+
+	final BufferedImage sheet;
+	final int x, y, width, height;
+	private final String _name;
+	private BufferedImage _image;
+
+	/**
+	 * Creates a region covering part of an image.
+	 * @param sheet <b>(BufferedImage)</b> the image the region is part of.
+	 * @param name <b>(String)</b> name of the region, may be null.
+	 * @param x <b>(Integer)</b> x-position of the region in the image.
+	 * @param y <b>(Integer)</b> y-position of the region in the image.
+	 * @param width <b>(Integer)</b> width of the region.
+	 * @param height <b>(Integer)</b> height of the region.
+	 * @throws IllegalArgumentException if the region is not inside the image
+	 */
+	public SpriteRegion(BufferedImage sheet, String name, int x, int y, int width, int height) {
+		if(x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > sheet.getWidth() || y + height > sheet.getHeight()) {
+			throw new IllegalArgumentException("BaseEngine: region " + (name == null ? "" : name + " ") + "(" + x + ", " + y + ", " + width + ", " + height + ") is outside of the image");
+		}
+		this.sheet = sheet;
+		this._name = name;
+		this.x = x;
+		this.y = y;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Creates a region covering a whole image.
+	 * @param image <b>(BufferedImage)</b> the image.
+	 */
+	public SpriteRegion(BufferedImage image) {
+		this(image, null, 0, 0, image.getWidth(), image.getHeight());
+		_image = image;
+	}
+
+	/**
+	 * Getter for the region as a separate image, the image is created once and shares its pixels with the sheet.<br>
+	 * <u>Note:</u> Drawing with {@link Draw#drawSprite(SpriteRegion, int, int)} does not need this image.
+	 * @return image (BufferedImage)
+	 */
+	public BufferedImage getImage() {
+		if(_image == null) {
+			_image = sheet.getSubimage(x, y, width, height);
+		}
+		return _image;
+	}
+
+	/**
+	 * Getter for the image the region is part of.
+	 * @return sheet (BufferedImage)
+	 */
+	public BufferedImage getSheet() {
+		return sheet;
+	}
+
+	/**
+	 * Getter for the name of the region.
+	 * @return name (String), null for unnamed regions
+	 */
+	public String getName() {
+		return _name;
+	}
+
+	/**
+	 * Getter for the x-position of the region in its sheet.
+	 * @return x (Integer)
+	 */
+	public int getX() {
+		return x;
+	}
+
+	/**
+	 * Getter for the y-position of the region in its sheet.
+	 * @return y (Integer)
+	 */
+	public int getY() {
+		return y;
+	}
+
+	/**
+	 * Getter for the width of the region.
+	 * @return width (Integer)
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for the height of the region.
+	 * @return height (Integer)
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public String toString() {
+		return "SpriteRegion[" + (_name == null ? "" : _name + " ") + x + ", " + y + ", " + width + ", " + height + "]";
+	}
+}
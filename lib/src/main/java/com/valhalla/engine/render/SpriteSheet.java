@@ -0,0 +1,227 @@
+package com.valhalla.engine.render;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.valhalla.engine.internal.Internal;
+import com.valhalla.engine.io.AssetPack;
+import com.valhalla.engine.io.FileEditor;
+import com.valhalla.engine.io.TokenReader;
+
+/**
+ * An image containing several sprites, sliced once into reusable {@link SpriteRegion}s.<br>
+ * <br>
+ * A sheet can be sliced as a grid of equally sized frames, or with a frame list file:
+ * <ul>
+ *  <li>TXT: one frame per line, written as <code>name x y width height</code></li>
+ *  <li>JSON: the "frames" hash or array written by common texture packers, with a "frame" object holding x, y, w and h per frame</li>
+ * </ul>
+ * Regions are kept in the order of the grid (left to right, top to bottom) or the frame list.
+ * @author BauwenDR
+ * @see Draw#drawSprite(SpriteRegion, int, int)
+ * @see com.valhalla.engine.Animation#Animation(SpriteSheet, int)
+ */
+public class SpriteSheet {
+
+	private final BufferedImage _image;
+	private final SpriteRegion[] _regions;
+	private final HashMap<String, SpriteRegion> _namedRegions = new HashMap<>();
+
+	/**
+	 * Slices an image into a grid of equally sized frames, leftover pixels at the right and bottom are ignored.
+	 * @param image <b>(BufferedImage)</b> the sprite sheet.
+	 * @param frameWidth <b>(Integer)</b> width of every frame.
+	 * @param frameHeight <b>(Integer)</b> height of every frame.
+	 */
+	public SpriteSheet(BufferedImage image, int frameWidth, int frameHeight) {
+		this(image, frameWidth, frameHeight, 0, 0);
+	}
+
+	/**
+	 * Slices an image into a grid of equally sized frames, leftover pixels at the right and bottom are ignored.
+	 * @param image <b>(BufferedImage)</b> the sprite sheet.
+	 * @param frameWidth <b>(Integer)</b> width of every frame.
+	 * @param frameHeight <b>(Integer)</b> height of every frame.
+	 * @param margin <b>(Integer)</b> pixels between the border of the image and the first frame.
+	 * @param spacing <b>(Integer)</b> pixels between two frames.
+	 */
+	public SpriteSheet(BufferedImage image, int frameWidth, int frameHeight, int margin, int spacing) {
+		if(frameWidth <= 0 || frameHeight <= 0) {
+			throw new IllegalArgumentException("BaseEngine: frame size has to be positive");
+		}
+		_image = image;
+		int columns = Math.max(0, (image.getWidth() - 2 * margin + spacing) / (frameWidth + spacing));
+		int rows = Math.max(0, (image.getHeight() - 2 * margin + spacing) / (frameHeight + spacing));
+
+		_regions = new SpriteRegion[columns * rows];
+		for(int row = 0; row < rows; row++) {
+			for(int column = 0; column < columns; column++) {
+				_regions[row * columns + column] = new SpriteRegion(image, null, margin + column * (frameWidth + spacing), margin + row * (frameHeight + spacing), frameWidth, frameHeight);
+			}
+		}
+	}
+
+	/**
+	 * Slices an image with already created regions, e.g. regions read from a custom frame list format.
+	 * @param image <b>(BufferedImage)</b> the sprite sheet.
+	 * @param regions <b>(List)</b> regions of the image, named regions can be looked up with {@link #getRegion(String)}.
+	 */
+	public SpriteSheet(BufferedImage image, List<SpriteRegion> regions) {
+		_image = image;
+		_regions = regions.toArray(new SpriteRegion[0]);
+		for(SpriteRegion region : _regions) {
+			if(region.getName() != null) {
+				_namedRegions.put(region.getName(), region);
+			}
+		}
+	}
+
+	/**
+	 * Slices an image with a TXT or JSON frame list, the format is chosen by the file extension (".json" for JSON, anything else is read as TXT).
+	 * @param image <b>(BufferedImage)</b> the sprite sheet.
+	 * @param frameListPath <b>(String)</b> location of the frame list.
+	 * @return (SpriteSheet) the sliced sheet.
+	 * @throws IOException if the frame list could not be read or is invalid
+	 */
+	public static SpriteSheet fromFrameList(BufferedImage image, String frameListPath) throws IOException {
+		List<SpriteRegion> regions = frameListPath.toLowerCase().endsWith(".json") ? readJsonFrames(image, frameListPath) : readTextFrames(image, frameListPath);
+		return new SpriteSheet(image, regions);
+	}
+
+	/**
+	 * Getter for a region by its position in the sheet.
+	 * @param index <b>(Integer)</b> index of the region.
+	 * @return region (SpriteRegion)
+	 */
+	public SpriteRegion getRegion(int index) {
+		return _regions[index];
+	}
+
+	/**
+	 * Getter for a region by its name in the frame list.
+	 * @param name <b>(String)</b> name of the region.
+	 * @return region (SpriteRegion), null if there is no region with that name
+	 */
+	public SpriteRegion getRegion(String name) {
+		return _namedRegions.get(name);
+	}
+
+	/**
+	 * Getter for a range of consecutive regions, e.g. the frames of one animation.
+	 * @param first <b>(Integer)</b> index of the first region.
+	 * @param amount <b>(Integer)</b> amount of regions.
+	 * @return regions (SpriteRegion[])
+	 */
+	public SpriteRegion[] getRegions(int first, int amount) {
+		return Arrays.copyOfRange(_regions, first, first + amount);
+	}
+
+	/**
+	 * Getter for all regions.
+	 * @return regions (SpriteRegion[])
+	 */
+	public SpriteRegion[] getRegions() {
+		return _regions.clone();
+	}
+
+	/**
+	 * Getter for the amount of regions.
+	 * @return regionCount (Integer)
+	 */
+	public int getRegionCount() {
+		return _regions.length;
+	}
+
+	/**
+	 * Getter for the image of the sheet.
+	 * @return image (BufferedImage)
+	 */
+	public BufferedImage getImage() {
+		return _image;
+	}
+
+	@Internal
+	private static List<SpriteRegion> readTextFrames(BufferedImage image, String path) throws IOException {
+		List<SpriteRegion> regions = new ArrayList<>();
+		try(TokenReader reader = FileEditor.openReader(path)) {
+			while(reader.hasNext()) {
+				String name = reader.next();
+				regions.add(new SpriteRegion(image, name, reader.nextInt(), reader.nextInt(), reader.nextInt(), reader.nextInt()));
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("BaseEngine: invalid frame list " + path, e);
+		}
+		return regions;
+	}
+
+	@Internal
+	private static List<SpriteRegion> readJsonFrames(BufferedImage image, String path) throws IOException {
+		Object root = JsonReader.parse(readText(path));
+		Object frames = root instanceof Map ? ((Map<?, ?>) root).get("frames") : null;
+
+		List<SpriteRegion> regions = new ArrayList<>();
+		if(frames instanceof Map) {		//hash: "frames": {"name": {"frame": {...}}, ...}
+			for(Map.Entry<?, ?> entry : ((Map<?, ?>) frames).entrySet()) {
+				regions.add(readJsonFrame(image, (String) entry.getKey(), entry.getValue(), path));
+			}
+		}else if(frames instanceof List) {	//array: "frames": [{"filename": "name", "frame": {...}}, ...]
+			for(Object frame : (List<?>) frames) {
+				Object name = frame instanceof Map ? ((Map<?, ?>) frame).get("filename") : null;
+				regions.add(readJsonFrame(image, name instanceof String ? (String) name : null, frame, path));
+			}
+		}else {
+			throw new IOException("BaseEngine: frame list " + path + " has no \"frames\"");
+		}
+		return regions;
+	}
+
+	@Internal
+	private static SpriteRegion readJsonFrame(BufferedImage image, String name, Object frame, String path) throws IOException {
+		Object rectangle = frame instanceof Map ? ((Map<?, ?>) frame).get("frame") : null;
+		if(!(rectangle instanceof Map)) {
+			throw new IOException("BaseEngine: frame " + name + " in " + path + " has no \"frame\" rectangle");
+		}
+		Map<?, ?> values = (Map<?, ?>) rectangle;
+		try {
+			return new SpriteRegion(image, name, toInt(values.get("x")), toInt(values.get("y")), toInt(values.get("w")), toInt(values.get("h")));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("BaseEngine: invalid frame " + name + " in " + path, e);
+		}
+	}
+
+	@Internal
+	private static int toInt(Object value) {
+		if(!(value instanceof Double)) {
+			throw new IllegalArgumentException("missing coordinate");
+		}
+		return ((Double) value).intValue();
+	}
+
+	@Internal
+	private static String readText(String path) throws IOException {
+		InputStream packed = AssetPack.openStream(path);
+		if(packed == null) {
+			return new String(Files.readAllBytes(new File(path).toPath()), StandardCharsets.UTF_8);
+		}
+
+		try(InputStream input = packed) {
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			byte[] chunk = new byte[8 * 1024];
+			int read;
+			while((read = input.read(chunk)) > 0) {
+				output.write(chunk, 0, read);
+			}
+			return new String(output.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -1,8 +1,19 @@
 package com.valhalla.engine.util;
 
+import com.valhalla.engine.render.RenderContext;
+
 /**
  * Interface that provides the render method for all BaseEngine classes
  */
 public interface Renderable {
     void render();
+    
+    /**
+     * Renders onto a given RenderContext, e.g. the Screen or the offscreen image of a draw-layer.<br>
+     * By default this calls {@link #render()}, the functions in {@link com.valhalla.engine.render.Draw} then draw onto the same context.
+     * @param context <b>(RenderContext)</b> The context to draw onto.
+     */
+    default void render(RenderContext context) {
+        render();
+    }
 }
@@ -0,0 +1,27 @@
+package com.valhalla.engine.util;
+
+import java.io.IOException;
+
+import com.valhalla.engine.io.SaveInput;
+import com.valhalla.engine.io.SaveOutput;
+
+/**
+ * Interface for BaseClasses and GameStates whose state is saved and restored by a {@link com.valhalla.engine.RollbackBuffer}.<br>
+ * <br>
+ * Unlike a {@link com.valhalla.engine.io.SaveSerializer} the object itself is kept, only its fields are written and read back.
+ * Write everything the tick method depends on, and keep both methods free of allocations where possible, they run for every saved tick.
+ */
+public interface Rewindable {
+    /**
+     * Writes the fields of the object.
+     * @param output <b>(SaveOutput)</b> buffer to write to, shared by all objects of a tick.
+     */
+    void saveState(SaveOutput output);
+    
+    /**
+     * Reads back the fields written by {@link #saveState(SaveOutput)}, exactly as many bytes as were written.
+     * @param input <b>(SaveInput)</b> buffer to read from.
+     * @throws IOException if the data ends early
+     */
+    void restoreState(SaveInput input) throws IOException;
+}